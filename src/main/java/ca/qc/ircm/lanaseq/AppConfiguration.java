@@ -2,6 +2,7 @@ package ca.qc.ircm.lanaseq;
 
 import static ca.qc.ircm.lanaseq.UsedBy.SPRING;
 
+import ca.qc.ircm.lanaseq.analysis.CopyStrategy;
 import ca.qc.ircm.lanaseq.dataset.Dataset;
 import ca.qc.ircm.lanaseq.sample.Sample;
 import ca.qc.ircm.lanaseq.security.AuthenticatedUser;
@@ -20,6 +21,8 @@ import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.apache.commons.io.FilenameUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -47,6 +50,7 @@ public class AppConfiguration implements InitializingBean {
    * Year formatter.
    */
   private static final DateTimeFormatter year = DateTimeFormatter.ofPattern("yyyy");
+  private static final Logger logger = LoggerFactory.getLogger(AppConfiguration.class);
   private final AuthenticatedUser authenticatedUser;
   /**
    * Log file.
@@ -76,14 +80,30 @@ public class AppConfiguration implements InitializingBean {
     Path base = df instanceof Dataset ? datasetFolder : sampleFolder;
     return base.resolve(year.format(df.getDate())).resolve(df.getName());
   };
+  /**
+   * Folder containing the file indexes of home and archive folders.
+   */
+  private Path fileIndexFolder;
+  /**
+   * Time after which a file index is considered stale.
+   */
+  private Duration fileIndexMaxAge;
+  /**
+   * Time after which a cached file listing is discarded, zero to disable caching.
+   */
+  private Duration fileCacheMaxAge;
+  /**
+   * Maximum time to wait for a network drive to respond before considering it unavailable.
+   */
+  private Duration driveTimeout;
   /**
    * Analysis network drive.
    */
   private NetworkDrive<Collection<? extends DataWithFiles>> analysis = new NetworkDrive<>();
   /**
-   * Use symbolic links for analysis instead of copying files.
+   * How files are made available inside analysis folders.
    */
-  private boolean analysisSymlinks;
+  private CopyStrategy analysisStrategy = CopyStrategy.COPY;
   /**
    * Time that must elapse before an analysis folder get deleted.
    */
@@ -92,6 +112,26 @@ public class AppConfiguration implements InitializingBean {
    * Upload network drive.
    */
   private NetworkDrive<DataWithFiles> upload = new NetworkDrive<>();
+  /**
+   * Also compute SHA-256 checksums of saved files, in addition to MD5.
+   */
+  private boolean sha256Checksums;
+  /**
+   * Also compute checksums of saved files that are renamed rather than copied.
+   *
+   * <p>Checksums are computed while files are copied. Renaming a file does not read it, so
+   * computing its checksums means reading the whole file once more. When false, renamed files
+   * get no checksum file, unless an uploaded checksum file must be verified, and are not
+   * deduplicated.</p>
+   */
+  private boolean renameChecksums;
+  /**
+   * Replace identical files saved in home folder by hard links to a single copy.
+   *
+   * <p>Does not change {@link #analysisStrategy}; use {@link CopyStrategy#HARDLINK} to also avoid
+   * copying files into analysis folders.</p>
+   */
+  private boolean dedup;
   /**
    * Time that must elapse before an upload folder get deleted.
    */
@@ -108,6 +148,18 @@ public class AppConfiguration implements InitializingBean {
    * Time during which a public file link is valid.
    */
   private Period publicFilePeriod;
+  /**
+   * Time after which a completed job is removed from jobs, null to keep completed jobs.
+   */
+  private Duration jobMaxAge;
+  /**
+   * Maximum number of completed jobs kept for each user, 0 or less to keep all completed jobs.
+   */
+  private int jobMaxCompleted;
+  /**
+   * Minimum time between two progress updates of a job sent to users.
+   */
+  private Duration jobUpdateInterval;
 
   @Autowired
   @UsedBy(SPRING)
@@ -207,6 +259,42 @@ public class AppConfiguration implements InitializingBean {
     this.datasetFolder = datasetFolder;
   }
 
+  public Path getFileIndexFolder() {
+    return fileIndexFolder;
+  }
+
+  @UsedBy(SPRING)
+  void setFileIndexFolder(Path fileIndexFolder) {
+    this.fileIndexFolder = fileIndexFolder;
+  }
+
+  public Duration getFileIndexMaxAge() {
+    return fileIndexMaxAge;
+  }
+
+  @UsedBy(SPRING)
+  void setFileIndexMaxAge(Duration fileIndexMaxAge) {
+    this.fileIndexMaxAge = fileIndexMaxAge;
+  }
+
+  public Duration getFileCacheMaxAge() {
+    return fileCacheMaxAge;
+  }
+
+  @UsedBy(SPRING)
+  void setFileCacheMaxAge(Duration fileCacheMaxAge) {
+    this.fileCacheMaxAge = fileCacheMaxAge;
+  }
+
+  public Duration getDriveTimeout() {
+    return driveTimeout;
+  }
+
+  @UsedBy(SPRING)
+  void setDriveTimeout(Duration driveTimeout) {
+    this.driveTimeout = driveTimeout;
+  }
+
   public NetworkDrive<DataWithFiles> getUpload() {
     return upload;
   }
@@ -245,13 +333,56 @@ public class AppConfiguration implements InitializingBean {
     this.analysis = analysis;
   }
 
-  public boolean isAnalysisSymlinks() {
-    return analysisSymlinks;
+  public CopyStrategy getAnalysisStrategy() {
+    return analysisStrategy;
   }
 
+  @UsedBy(SPRING)
+  void setAnalysisStrategy(CopyStrategy analysisStrategy) {
+    this.analysisStrategy = analysisStrategy;
+  }
+
+  /**
+   * Binds former app.analysis-symlinks property, replaced by app.analysis-strategy.
+   *
+   * @param analysisSymlinks true to use {@link CopyStrategy#SYMLINK}
+   * @deprecated use {@link #setAnalysisStrategy(CopyStrategy)}
+   */
+  @Deprecated
   @UsedBy(SPRING)
   void setAnalysisSymlinks(boolean analysisSymlinks) {
-    this.analysisSymlinks = analysisSymlinks;
+    logger.warn("{}.analysis-symlinks is deprecated, use {}.analysis-strategy instead", PREFIX,
+        PREFIX);
+    if (analysisSymlinks) {
+      this.analysisStrategy = CopyStrategy.SYMLINK;
+    }
+  }
+
+  public boolean isSha256Checksums() {
+    return sha256Checksums;
+  }
+
+  @UsedBy(SPRING)
+  void setSha256Checksums(boolean sha256Checksums) {
+    this.sha256Checksums = sha256Checksums;
+  }
+
+  public boolean isRenameChecksums() {
+    return renameChecksums;
+  }
+
+  @UsedBy(SPRING)
+  void setRenameChecksums(boolean renameChecksums) {
+    this.renameChecksums = renameChecksums;
+  }
+
+  public boolean isDedup() {
+    return dedup;
+  }
+
+  @UsedBy(SPRING)
+  void setDedup(boolean dedup) {
+    this.dedup = dedup;
   }
 
   public Duration getAnalysisDeleteAge() {
@@ -272,6 +403,33 @@ public class AppConfiguration implements InitializingBean {
     this.publicFilePeriod = publicFilePeriod;
   }
 
+  public Duration getJobMaxAge() {
+    return jobMaxAge;
+  }
+
+  @UsedBy(SPRING)
+  void setJobMaxAge(Duration jobMaxAge) {
+    this.jobMaxAge = jobMaxAge;
+  }
+
+  public int getJobMaxCompleted() {
+    return jobMaxCompleted;
+  }
+
+  @UsedBy(SPRING)
+  void setJobMaxCompleted(int jobMaxCompleted) {
+    this.jobMaxCompleted = jobMaxCompleted;
+  }
+
+  public Duration getJobUpdateInterval() {
+    return jobUpdateInterval;
+  }
+
+  @UsedBy(SPRING)
+  void setJobUpdateInterval(Duration jobUpdateInterval) {
+    this.jobUpdateInterval = jobUpdateInterval;
+  }
+
   /**
    * Folder that can be on a network drive.
    */
@@ -280,6 +438,7 @@ public class AppConfiguration implements InitializingBean {
     private Path folder;
     private String windowsLabel;
     private String unixLabel;
+    private int concurrency = 1;
     private Function<D, Path> subfolder;
 
     /**
@@ -335,5 +494,19 @@ public class AppConfiguration implements InitializingBean {
     void setUnixLabel(String unixLabel) {
       this.unixLabel = unixLabel;
     }
+
+    /**
+     * Returns the maximum number of files that can be copied to or from this drive at the same time.
+     *
+     * @return maximum number of files that can be copied to or from this drive at the same time
+     */
+    public int getConcurrency() {
+      return concurrency;
+    }
+
+    @UsedBy(SPRING)
+    void setConcurrency(int concurrency) {
+      this.concurrency = concurrency;
+    }
   }
 }
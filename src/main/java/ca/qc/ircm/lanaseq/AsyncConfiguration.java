@@ -1,35 +1,67 @@
 package ca.qc.ircm.lanaseq;
 
+import static org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME;
+
+import com.vaadin.flow.spring.annotation.VaadinTaskExecutor;
 import com.vaadin.flow.spring.security.VaadinAwareSecurityContextHolderStrategy;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.SimpleAsyncTaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.core.context.SecurityContextHolderStrategy;
 import org.springframework.security.task.DelegatingSecurityContextAsyncTaskExecutor;
 
 /**
  * Configuration for Spring.
+ *
+ * <p>Methods annotated with <code>@Async</code> run on the default executor unless they name one
+ * of {@link #INGESTION_EXECUTOR} or {@link #ANALYSIS_EXECUTOR}. Scheduled tasks run on
+ * {@link #MAINTENANCE_EXECUTOR}. Each executor has its own limits, so that a long job of one
+ * kind cannot delay jobs of another kind.</p>
  */
 @Configuration
 @EnableAsync
 public class AsyncConfiguration implements AsyncConfigurer {
 
-  private final AsyncTaskExecutor asyncTaskExecutor;
+  /**
+   * Executor that saves files of samples and datasets.
+   */
+  public static final String INGESTION_EXECUTOR = "ingestionExecutor";
+  /**
+   * Executor that prepares analysis folders.
+   */
+  public static final String ANALYSIS_EXECUTOR = "analysisExecutor";
+  /**
+   * Executor that runs scheduled tasks.
+   */
+  public static final String MAINTENANCE_EXECUTOR = "maintenanceExecutor";
+  private static final Logger logger = LoggerFactory.getLogger(AsyncConfiguration.class);
+  private final ThreadPoolTaskExecutorBuilder threadPoolTaskExecutorBuilder;
   private final SecurityContextHolderStrategy securityContextHolderStrategy;
 
   /**
    * Creates a new {@link AsyncConfiguration} instance.
    *
-   * @param applicationTaskExecutor       default {@link AsyncTaskExecutor} from Spring Boot
+   * @param threadPoolTaskExecutorBuilder builder of default {@link AsyncTaskExecutor} from Spring
+   *                                      Boot
    * @param securityContextHolderStrategy SecurityContextHolderStrategy
    */
   @Autowired
-  public AsyncConfiguration(AsyncTaskExecutor applicationTaskExecutor,
+  public AsyncConfiguration(ThreadPoolTaskExecutorBuilder threadPoolTaskExecutorBuilder,
       SecurityContextHolderStrategy securityContextHolderStrategy) {
-    this.asyncTaskExecutor = applicationTaskExecutor;
+    this.threadPoolTaskExecutorBuilder = threadPoolTaskExecutorBuilder;
     this.securityContextHolderStrategy = securityContextHolderStrategy;
   }
 
@@ -37,8 +69,88 @@ public class AsyncConfiguration implements AsyncConfigurer {
   public Executor getAsyncExecutor() {
     assert securityContextHolderStrategy instanceof VaadinAwareSecurityContextHolderStrategy;
     DelegatingSecurityContextAsyncTaskExecutor executor = new DelegatingSecurityContextAsyncTaskExecutor(
-        asyncTaskExecutor);
+        applicationTaskExecutor());
     executor.setSecurityContextHolderStrategy(securityContextHolderStrategy);
     return executor;
   }
+
+  /**
+   * Creates default executor, like Spring Boot does when no other executor is defined.
+   *
+   * <p>This executor is also used by Vaadin.</p>
+   *
+   * @return default executor
+   */
+  @Bean(name = {APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+      AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+  @VaadinTaskExecutor
+  public ThreadPoolTaskExecutor applicationTaskExecutor() {
+    return threadPoolTaskExecutorBuilder.build();
+  }
+
+  /**
+   * Creates executor that saves files of samples and datasets.
+   *
+   * <p>Jobs submitted while queue is full are rejected.</p>
+   *
+   * @param configuration executors configuration
+   * @return executor that saves files of samples and datasets
+   */
+  @Bean(INGESTION_EXECUTOR)
+  public BoundedTaskExecutor ingestionExecutor(ExecutorsConfiguration configuration) {
+    return new BoundedTaskExecutor(INGESTION_EXECUTOR, configuration.ingestion(),
+        configuration.virtualThreads(), new ThreadPoolExecutor.AbortPolicy(),
+        securityContextHolderStrategy);
+  }
+
+  /**
+   * Creates executor that prepares analysis folders.
+   *
+   * <p>Jobs submitted while queue is full are rejected.</p>
+   *
+   * @param configuration executors configuration
+   * @return executor that prepares analysis folders
+   */
+  @Bean(ANALYSIS_EXECUTOR)
+  public BoundedTaskExecutor analysisExecutor(ExecutorsConfiguration configuration) {
+    return new BoundedTaskExecutor(ANALYSIS_EXECUTOR, configuration.analysis(),
+        configuration.virtualThreads(), new ThreadPoolExecutor.AbortPolicy(),
+        securityContextHolderStrategy);
+  }
+
+  /**
+   * Creates executor that runs scheduled tasks.
+   *
+   * <p>Tasks submitted while queue is full are skipped, they will run at their next scheduled
+   * time.</p>
+   *
+   * @param configuration executors configuration
+   * @return executor that runs scheduled tasks
+   */
+  @Bean(MAINTENANCE_EXECUTOR)
+  public BoundedTaskExecutor maintenanceExecutor(ExecutorsConfiguration configuration) {
+    RejectedExecutionHandler skip = (task, executor) -> logger.warn(
+        "skipping scheduled task {}, {} queue is full", task, MAINTENANCE_EXECUTOR);
+    return new BoundedTaskExecutor(MAINTENANCE_EXECUTOR, configuration.maintenance(),
+        configuration.virtualThreads(), skip, securityContextHolderStrategy);
+  }
+
+  /**
+   * Creates scheduler that triggers scheduled tasks and runs them on
+   * {@link #MAINTENANCE_EXECUTOR}.
+   *
+   * @param maintenanceExecutor executor that runs scheduled tasks
+   * @param configuration       executors configuration
+   * @return scheduler that triggers scheduled tasks
+   */
+  @Bean
+  public SimpleAsyncTaskScheduler taskScheduler(
+      @Qualifier(MAINTENANCE_EXECUTOR) BoundedTaskExecutor maintenanceExecutor,
+      ExecutorsConfiguration configuration) {
+    SimpleAsyncTaskScheduler scheduler = new SimpleAsyncTaskScheduler();
+    scheduler.setThreadNamePrefix("scheduler-");
+    scheduler.setVirtualThreads(configuration.virtualThreads());
+    scheduler.setTargetTaskExecutor(maintenanceExecutor);
+    return scheduler;
+  }
 }
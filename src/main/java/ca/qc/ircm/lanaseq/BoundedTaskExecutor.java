@@ -0,0 +1,144 @@
+package ca.qc.ircm.lanaseq;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.core.context.SecurityContextHolderStrategy;
+import org.springframework.security.task.DelegatingSecurityContextAsyncTaskExecutor;
+
+/**
+ * Executor with a limited number of threads and a limited queue, that propagates the security
+ * context to its threads.
+ *
+ * <p>Threads can be virtual threads. Virtual threads are cheap to block, so executors that
+ * mostly wait for network file systems can run many more jobs at the same time. The limit on the
+ * number of threads still applies to virtual threads.</p>
+ *
+ * <p>Executor exposes the following metrics, tagged with executor's name:</p>
+ * <ul>
+ *   <li><code>executor.queued</code>, <code>executor.active</code> and other metrics of
+ *   {@link ExecutorServiceMetrics}</li>
+ *   <li><code>executor.idle</code>, time that tasks waited in queue</li>
+ * </ul>
+ */
+public class BoundedTaskExecutor implements AsyncTaskExecutor, MeterBinder, DisposableBean {
+
+  /**
+   * Timer of the time that tasks waited in queue.
+   */
+  public static final String IDLE_METRIC = "executor.idle";
+  /**
+   * Tag containing executor's name.
+   */
+  public static final String NAME_TAG = "name";
+  private final String name;
+  private final ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+  private final DelegatingSecurityContextAsyncTaskExecutor delegate;
+  private volatile Timer idle;
+
+  /**
+   * Creates executor.
+   *
+   * @param name                          executor's name, also used as prefix of threads' names
+   * @param configuration                 executor's configuration
+   * @param virtualThreads                true to run tasks on virtual threads
+   * @param rejectedExecutionHandler      called when a task is submitted while queue is full
+   * @param securityContextHolderStrategy security context holder strategy
+   */
+  public BoundedTaskExecutor(String name, ExecutorsConfiguration.Pool configuration,
+      boolean virtualThreads, RejectedExecutionHandler rejectedExecutionHandler,
+      SecurityContextHolderStrategy securityContextHolderStrategy) {
+    this.name = name;
+    if (virtualThreads) {
+      pool.setThreadFactory(Thread.ofVirtual().name(name + "-", 1).factory());
+    }
+    pool.setCorePoolSize(Math.max(1, configuration.concurrency()));
+    pool.setMaxPoolSize(Math.max(1, configuration.concurrency()));
+    pool.setQueueCapacity(Math.max(0, configuration.queueCapacity()));
+    pool.setThreadPriority(configuration.priority());
+    pool.setThreadNamePrefix(name + "-");
+    pool.setRejectedExecutionHandler(rejectedExecutionHandler);
+    pool.setTaskDecorator(idleTimer());
+    pool.setWaitForTasksToCompleteOnShutdown(false);
+    pool.initialize();
+    delegate = new DelegatingSecurityContextAsyncTaskExecutor(pool);
+    delegate.setSecurityContextHolderStrategy(securityContextHolderStrategy);
+  }
+
+  private TaskDecorator idleTimer() {
+    return runnable -> {
+      long submitted = System.nanoTime();
+      return () -> {
+        Timer timer = idle;
+        if (timer != null) {
+          timer.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+        }
+        runnable.run();
+      };
+    };
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    new ExecutorServiceMetrics(pool.getThreadPoolExecutor(), name, Tags.empty()).bindTo(registry);
+    idle = Timer.builder(IDLE_METRIC).tag(NAME_TAG, name)
+        .description("Time that tasks waited in queue before running").register(registry);
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    delegate.execute(task);
+  }
+
+  @Override
+  public Future<?> submit(Runnable task) {
+    return delegate.submit(task);
+  }
+
+  @Override
+  public <T> Future<T> submit(Callable<T> task) {
+    return delegate.submit(task);
+  }
+
+  @Override
+  public void destroy() {
+    pool.shutdown();
+  }
+
+  /**
+   * Returns executor's name.
+   *
+   * @return executor's name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns number of threads that are running a task.
+   *
+   * @return number of threads that are running a task
+   */
+  public int getActiveCount() {
+    return pool.getActiveCount();
+  }
+
+  /**
+   * Returns number of tasks waiting in queue.
+   *
+   * @return number of tasks waiting in queue
+   */
+  public int getQueueSize() {
+    return pool.getQueueSize();
+  }
+}
@@ -38,6 +38,7 @@ public class Constants {
   public static final String DOWNLOAD = "download";
   public static final String CONFIRM = "confirm";
   public static final String REFRESH = "refresh";
+  public static final String TOO_MANY_JOBS = "tooManyJobs";
 
   /**
    * Strip this key from class name, if it matches.
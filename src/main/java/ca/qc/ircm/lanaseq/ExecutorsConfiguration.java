@@ -0,0 +1,33 @@
+package ca.qc.ircm.lanaseq;
+
+import static ca.qc.ircm.lanaseq.UsedBy.SPRING;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of executors running asynchronous jobs, see {@link AsyncConfiguration}.
+ *
+ * @param virtualThreads true if executors run jobs on virtual threads instead of platform
+ *                       threads, thread priority is ignored for virtual threads
+ * @param ingestion      executor that saves files of samples and datasets
+ * @param analysis       executor that prepares analysis folders
+ * @param maintenance    executor that runs scheduled tasks
+ */
+@ConfigurationProperties(prefix = ExecutorsConfiguration.PREFIX)
+@UsedBy(SPRING)
+@SuppressWarnings("unused")
+public record ExecutorsConfiguration(boolean virtualThreads, Pool ingestion, Pool analysis,
+                                     Pool maintenance) {
+
+  public static final String PREFIX = "executors";
+
+  /**
+   * Configuration of an executor.
+   *
+   * @param concurrency   number of jobs running at the same time
+   * @param queueCapacity number of jobs that can wait for a thread, additional jobs are rejected
+   * @param priority      priority of threads, see {@link Thread#setPriority(int)}
+   */
+  public record Pool(int concurrency, int queueCapacity, int priority) {
+  }
+}
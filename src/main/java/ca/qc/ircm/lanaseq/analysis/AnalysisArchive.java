@@ -0,0 +1,110 @@
+package ca.qc.ircm.lanaseq.analysis;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * ZIP archive of the files of an analysis, written directly to a stream.
+ *
+ * <p>The archive contains the same files as the analysis folder would, see
+ * {@link AnalysisService#copySamplesResources}. Files are read while the archive is written, so
+ * memory use does not depend on the size of files and no archive is created on disk.</p>
+ *
+ * <p>Files that are already compressed, see {@link #COMPRESSED_EXTENSIONS}, are written without
+ * compression. They are still deflated entries, using stored blocks, rather than
+ * {@link ZipEntry#STORED} entries. A stored entry needs its size and CRC-32 checksum before its
+ * content, so a file modified between computing the checksum and copying the file would corrupt
+ * the archive after part of it was sent. Deflated entries are followed by their size and checksum,
+ * so each file is read once and the archive is always valid.</p>
+ */
+public class AnalysisArchive {
+
+  /**
+   * Extensions of files that are already compressed and are written without compression.
+   */
+  public static final List<String> COMPRESSED_EXTENSIONS = List.of(".gz", ".bam");
+  private final String filename;
+  private final Map<String, byte[]> metadata;
+  private final Map<String, Path> files;
+
+  /**
+   * Creates an archive.
+   *
+   * @param filename filename of archive
+   * @param metadata content of metadata files, by filename
+   * @param files    files to include in archive, files having the same name as a previous file
+   *                 replace that file
+   */
+  AnalysisArchive(String filename, Map<String, byte[]> metadata, Collection<Path> files) {
+    this.filename = filename;
+    this.metadata = Collections.unmodifiableMap(new LinkedHashMap<>(metadata));
+    Map<String, Path> entries = new LinkedHashMap<>();
+    files.forEach(file -> entries.put(file.getFileName().toString(), file));
+    metadata.keySet().forEach(entries::remove);
+    this.files = Collections.unmodifiableMap(entries);
+  }
+
+  /**
+   * Writes archive to output.
+   *
+   * <p>Output is not closed.</p>
+   *
+   * @param output output
+   * @throws IOException could not read a file or could not write to output
+   */
+  public void write(OutputStream output) throws IOException {
+    ZipOutputStream zip = new ZipOutputStream(output);
+    for (Map.Entry<String, byte[]> file : metadata.entrySet()) {
+      zip.putNextEntry(new ZipEntry(file.getKey()));
+      zip.write(file.getValue());
+      zip.closeEntry();
+    }
+    for (Map.Entry<String, Path> file : files.entrySet()) {
+      Path path = file.getValue();
+      ZipEntry entry = new ZipEntry(file.getKey());
+      entry.setLastModifiedTime(Files.getLastModifiedTime(path));
+      zip.setLevel(compressed(file.getKey()) ? Deflater.NO_COMPRESSION
+          : Deflater.DEFAULT_COMPRESSION);
+      zip.putNextEntry(entry);
+      Files.copy(path, zip);
+      zip.closeEntry();
+    }
+    zip.finish();
+    zip.flush();
+  }
+
+  private boolean compressed(String filename) {
+    String name = filename.toLowerCase(Locale.ROOT);
+    return COMPRESSED_EXTENSIONS.stream().anyMatch(name::endsWith);
+  }
+
+  /**
+   * Returns filename of archive.
+   *
+   * @return filename of archive
+   */
+  public String getFilename() {
+    return filename;
+  }
+
+  /**
+   * Returns names of entries in archive, in the order they are written.
+   *
+   * @return names of entries in archive, in the order they are written
+   */
+  public List<String> entries() {
+    return Stream.concat(metadata.keySet().stream(), files.keySet().stream()).toList();
+  }
+}
@@ -1,49 +1,142 @@
 package ca.qc.ircm.lanaseq.analysis;
 
+import static ca.qc.ircm.lanaseq.AsyncConfiguration.ANALYSIS_EXECUTOR;
 import static ca.qc.ircm.lanaseq.UsedBy.SPRING;
 
 import ca.qc.ircm.lanaseq.AppConfiguration;
+import ca.qc.ircm.lanaseq.AppConfiguration.NetworkDrive;
 import ca.qc.ircm.lanaseq.UsedBy;
 import ca.qc.ircm.lanaseq.dataset.Dataset;
 import ca.qc.ircm.lanaseq.dataset.DatasetService;
+import ca.qc.ircm.lanaseq.files.DriveThrottle;
+import ca.qc.ircm.lanaseq.files.FileTransfer;
+import ca.qc.ircm.lanaseq.files.FilenameMatcher;
+import ca.qc.ircm.lanaseq.files.TransferMeter;
+import ca.qc.ircm.lanaseq.files.TransferProgression;
 import ca.qc.ircm.lanaseq.sample.Sample;
 import ca.qc.ircm.lanaseq.sample.SampleService;
+import jakarta.annotation.PreDestroy;
 import java.io.IOException;
-import java.nio.file.FileSystems;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
-import java.nio.file.PathMatcher;
-import java.nio.file.StandardCopyOption;
-import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.util.FileSystemUtils;
 
 /**
  * Services for analysis.
+ *
+ * <p>Files are copied to analysis folders several files at a time. At most
+ * {@link NetworkDrive#getConcurrency()} files are read from the same drive at the same time, see
+ * {@link DriveThrottle}. Files that are not on the home drive or an archive drive are copied one
+ * at a time.</p>
  */
 @Service
 public class AnalysisService {
 
+  private static final Logger logger = LoggerFactory.getLogger(AnalysisService.class);
+  private static final String SAMPLES_FILENAME = "samples.txt";
+  private static final String DATASET_FILENAME = "dataset.txt";
+  /**
+   * Maximum time to wait for a permit of a drive before checking if job was cancelled.
+   */
+  private static final Duration PERMIT_POLL = Duration.ofMillis(200);
+
   private final DatasetService datasetService;
   private final SampleService sampleService;
   private final AppConfiguration configuration;
+  private final DriveThrottle throttle;
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
 
   @Autowired
   @UsedBy(SPRING)
   protected AnalysisService(DatasetService datasetService, SampleService sampleService,
-      AppConfiguration configuration) {
+      AppConfiguration configuration, DriveThrottle throttle) {
     this.datasetService = datasetService;
     this.sampleService = sampleService;
     this.configuration = configuration;
+    this.throttle = throttle;
+  }
+
+  /**
+   * Validates that dataset resources can be copied for analysis.
+   *
+   * <p>{@link #copyDatasetsResources(Collection, Collection, TransferProgression)} validates
+   * datasets in the background. Call this method first to report invalid datasets or filename
+   * patterns immediately.</p>
+   *
+   * @param datasets         datasets
+   * @param filenamePatterns filename patterns linked to dataset or samples to include in analysis
+   * @throws IllegalArgumentException dataset analysis validation failed, a
+   *                                  {@link java.util.regex.PatternSyntaxException} if a filename
+   *                                  pattern is invalid
+   */
+  @PreAuthorize("@permissionEvaluator.hasCollectionPermission(authentication, #datasets, 'read')")
+  public void validateDatasetsResources(Collection<Dataset> datasets,
+      Collection<String> filenamePatterns) {
+    Objects.requireNonNull(datasets, "datasets parameter cannot be null");
+    Objects.requireNonNull(filenamePatterns, "filenamePatterns parameter cannot be null");
+    if (datasets.isEmpty()) {
+      throw new IllegalArgumentException("datasets parameter cannot be empty");
+    }
+    FilenameMatcher.compile(filenamePatterns);
+  }
+
+  /**
+   * Validates that sample resources can be copied for analysis.
+   *
+   * <p>{@link #copySamplesResources(Collection, Collection, TransferProgression)} validates
+   * samples in the background. Call this method first to report invalid samples or filename
+   * patterns immediately.</p>
+   *
+   * @param samples          samples
+   * @param filenamePatterns filename patterns linked to samples to include in analysis
+   * @throws IllegalArgumentException sample analysis validation failed, a
+   *                                  {@link java.util.regex.PatternSyntaxException} if a filename
+   *                                  pattern is invalid
+   */
+  @PreAuthorize("@permissionEvaluator.hasCollectionPermission(authentication, #samples, 'read')")
+  public void validateSamplesResources(Collection<Sample> samples,
+      Collection<String> filenamePatterns) {
+    Objects.requireNonNull(samples, "samples parameter cannot be null");
+    Objects.requireNonNull(filenamePatterns, "filenamePatterns parameter cannot be null");
+    if (samples.isEmpty()) {
+      throw new IllegalArgumentException("samples parameter cannot be empty");
+    }
+    FilenameMatcher.compile(filenamePatterns);
   }
 
   /**
@@ -52,117 +145,403 @@ public class AnalysisService {
    * Files that match filename patterns will also be included. Any file associated with dataset or
    * one of its samples will have its name compared with specified filename patterns.
    * </p>
+   * <p>
+   * If folder already exists, only the files that changed are copied again and files that are not
+   * needed anymore are removed.
+   * </p>
+   *
+   * <p>
+   * Files are copied in the background. Copy stops as soon as possible if progression is
+   * cancelled, leaving files that were already copied in folder.
+   * </p>
    *
    * @param datasets         datasets
    * @param filenamePatterns filename patterns linked to dataset or samples to include in analysis
+   * @param progression      progression of file copying
    * @return folder the folder containing analysis files
-   * @throws IOException              could not copy analysis files to folder
+   * @throws IllegalStateException    could not copy analysis files to folder
    * @throws IllegalArgumentException dataset analysis validation failed
    */
   @PreAuthorize("@permissionEvaluator.hasCollectionPermission(authentication, #datasets, 'read')")
-  public Path copyDatasetsResources(Collection<Dataset> datasets,
-      Collection<String> filenamePatterns) throws IOException {
-    Objects.requireNonNull(datasets, "datasets parameter cannot be null");
-    Objects.requireNonNull(filenamePatterns, "filenamePatterns parameter cannot be null");
-    if (datasets.isEmpty()) {
-      throw new IllegalArgumentException("datasets parameter cannot be empty");
-    }
+  @Async(ANALYSIS_EXECUTOR)
+  public CompletableFuture<Path> copyDatasetsResources(Collection<Dataset> datasets,
+      Collection<String> filenamePatterns, TransferProgression progression) {
+    Objects.requireNonNull(progression, "progression parameter cannot be null");
+    validateDatasetsResources(datasets, filenamePatterns);
+
+    Selection selection = datasetsSelection(datasets, filenamePatterns);
+    sync(selection.folder(), selection.metadata(), selection.files(), progression);
+    return CompletableFuture.completedFuture(selection.folder());
+  }
+
+  /**
+   * Copy sample resources used for analysis to a new folder.
+   * <p>
+   * Files that match filename patterns will also be included. Any file associated with a sample
+   * will have its name compared with specified filename patterns.
+   * </p>
+   * <p>
+   * If folder already exists, only the files that changed are copied again and files that are not
+   * needed anymore are removed.
+   * </p>
+   *
+   * <p>
+   * Files are copied in the background. Copy stops as soon as possible if progression is
+   * cancelled, leaving files that were already copied in folder.
+   * </p>
+   *
+   * @param samples          samples
+   * @param filenamePatterns filename patterns linked to samples to include in analysis
+   * @param progression      progression of file copying
+   * @return folder the folder containing analysis files
+   * @throws IllegalStateException    could not copy analysis files to folder
+   * @throws IllegalArgumentException sample analysis validation failed
+   */
+  @PreAuthorize("@permissionEvaluator.hasCollectionPermission(authentication, #samples, 'read')")
+  @Async(ANALYSIS_EXECUTOR)
+  public CompletableFuture<Path> copySamplesResources(Collection<Sample> samples,
+      Collection<String> filenamePatterns, TransferProgression progression) {
+    Objects.requireNonNull(progression, "progression parameter cannot be null");
+    validateSamplesResources(samples, filenamePatterns);
+
+    Selection selection = samplesSelection(samples, filenamePatterns);
+    sync(selection.folder(), selection.metadata(), selection.files(), progression);
+    return CompletableFuture.completedFuture(selection.folder());
+  }
+
+  /**
+   * Returns a ZIP archive of the dataset resources used for analysis.
+   *
+   * <p>The archive contains the same files as the folder created by
+   * {@link #copyDatasetsResources(Collection, Collection, TransferProgression)}. Its filename is
+   * the name of that folder.</p>
+   *
+   * @param datasets         datasets
+   * @param filenamePatterns filename patterns linked to dataset or samples to include in archive
+   * @return ZIP archive of the dataset resources used for analysis
+   * @throws IllegalArgumentException dataset analysis validation failed
+   */
+  @PreAuthorize("@permissionEvaluator.hasCollectionPermission(authentication, #datasets, 'read')")
+  public AnalysisArchive datasetsArchive(Collection<Dataset> datasets,
+      Collection<String> filenamePatterns) {
+    validateDatasetsResources(datasets, filenamePatterns);
+    return archive(datasetsSelection(datasets, filenamePatterns));
+  }
 
-    boolean symlinks = configuration.isAnalysisSymlinks();
+  /**
+   * Returns a ZIP archive of the sample resources used for analysis.
+   *
+   * <p>The archive contains the same files as the folder created by
+   * {@link #copySamplesResources(Collection, Collection, TransferProgression)}. Its filename is
+   * the name of that folder.</p>
+   *
+   * @param samples          samples
+   * @param filenamePatterns filename patterns linked to samples to include in archive
+   * @return ZIP archive of the sample resources used for analysis
+   * @throws IllegalArgumentException sample analysis validation failed
+   */
+  @PreAuthorize("@permissionEvaluator.hasCollectionPermission(authentication, #samples, 'read')")
+  public AnalysisArchive samplesArchive(Collection<Sample> samples,
+      Collection<String> filenamePatterns) {
+    validateSamplesResources(samples, filenamePatterns);
+    return archive(samplesSelection(samples, filenamePatterns));
+  }
+
+  private Selection datasetsSelection(Collection<Dataset> datasets,
+      Collection<String> filenamePatterns) {
     Path folder = configuration.getAnalysis().folder(datasets);
-    FileSystemUtils.deleteRecursively(folder);
-    Files.createDirectories(folder);
     Collection<Sample> samples = datasets.stream().flatMap(dataset -> dataset.getSamples().stream())
         .distinct().toList();
-    Path samplesFile = folder.resolve("samples.txt");
     LinkedHashSet<String> samplesLines = new LinkedHashSet<>();
     samplesLines.add("#sample");
     samples.forEach(sample -> samplesLines.add(sample.getName()));
-    Files.write(samplesFile, samplesLines, StandardOpenOption.CREATE);
-    Path datasetFile = folder.resolve("dataset.txt");
     LinkedHashSet<String> datasetLines = new LinkedHashSet<>();
     datasetLines.add("#merge\tsamples");
     datasets.forEach(dataset -> datasetLines.add(
         dataset.getName() + "\t" + dataset.getSamples().stream().map(Sample::getName)
             .collect(Collectors.joining("\t"))));
-    Files.write(datasetFile, datasetLines, StandardOpenOption.CREATE);
-    List<PathMatcher> pathMatchers = filenamePatterns.stream()
-        .map(pattern -> FileSystems.getDefault().getPathMatcher("glob:" + pattern)).toList();
-    Function<List<Path>, List<Path>> matchAnyPattern = files -> files.stream().filter(
-            file -> pathMatchers.stream()
-                .anyMatch(pathMatcher -> pathMatcher.matches(file.getFileName())))
-        .collect(Collectors.toList());
+    FilenameMatcher filenameMatcher = FilenameMatcher.compile(filenamePatterns);
+    Function<List<Path>, List<Path>> matchAnyPattern = files -> files.stream()
+        .filter(filenameMatcher::matches).collect(Collectors.toList());
     List<Path> filesToCopy = new ArrayList<>();
+    Map<Sample, List<Path>> samplesFiles = sampleService.allFiles(samples);
     for (Sample sample : samples) {
-      List<Path> files = sampleService.files(sample);
+      List<Path> files = samplesFiles.getOrDefault(sample, List.of());
       List<Path> toCopy = matchAnyPattern.apply(files);
       filesToCopy.addAll(toCopy);
     }
+    Map<Dataset, List<Path>> datasetsFiles = datasetService.allFiles(datasets);
     for (Dataset dataset : datasets) {
-      List<Path> files = datasetService.files(dataset);
+      List<Path> files = datasetsFiles.getOrDefault(dataset, List.of());
       List<Path> toCopy = matchAnyPattern.apply(files);
       filesToCopy.addAll(toCopy);
     }
-    for (Path file : filesToCopy) {
-      copy(file, folder.resolve(file.getFileName()), symlinks);
-    }
-    return folder;
+    Map<String, Collection<String>> metadata = new LinkedHashMap<>();
+    metadata.put(SAMPLES_FILENAME, samplesLines);
+    metadata.put(DATASET_FILENAME, datasetLines);
+    return new Selection(folder, metadata, filesToCopy);
   }
 
-  /**
-   * Copy sample resources used for analysis to a new folder.
-   * <p>
-   * Files that match filename patterns will also be included. Any file associated with a sample
-   * will have its name compared with specified filename patterns.
-   * </p>
-   *
-   * @param samples          samples
-   * @param filenamePatterns filename patterns linked to samples to include in analysis
-   * @return folder the folder containing analysis files
-   * @throws IOException              could not copy analysis files to folder
-   * @throws IllegalArgumentException sample analysis validation failed
-   */
-  @PreAuthorize("@permissionEvaluator.hasCollectionPermission(authentication, #samples, 'read')")
-  public Path copySamplesResources(Collection<Sample> samples, Collection<String> filenamePatterns)
-      throws IOException {
-    Objects.requireNonNull(samples, "samples parameter cannot be null");
-    Objects.requireNonNull(filenamePatterns, "filenamePatterns parameter cannot be null");
-    if (samples.isEmpty()) {
-      throw new IllegalArgumentException("samples parameter cannot be empty");
-    }
-
-    boolean symlinks = configuration.isAnalysisSymlinks();
+  private Selection samplesSelection(Collection<Sample> samples,
+      Collection<String> filenamePatterns) {
     Path folder = configuration.getAnalysis().folder(samples);
-    FileSystemUtils.deleteRecursively(folder);
-    Files.createDirectories(folder);
-    Path samplesFile = folder.resolve("samples.txt");
     LinkedHashSet<String> samplesLines = new LinkedHashSet<>();
     samplesLines.add("#sample");
     samples.forEach(sample -> samplesLines.add(sample.getName()));
-    Files.write(samplesFile, samplesLines, StandardOpenOption.CREATE);
-    List<PathMatcher> pathMatchers = filenamePatterns.stream()
-        .map(pattern -> FileSystems.getDefault().getPathMatcher("glob:" + pattern)).toList();
-    Function<List<Path>, List<Path>> matchAnyPattern = files -> files.stream().filter(
-            file -> pathMatchers.stream()
-                .anyMatch(pathMatcher -> pathMatcher.matches(file.getFileName())))
-        .collect(Collectors.toList());
+    FilenameMatcher filenameMatcher = FilenameMatcher.compile(filenamePatterns);
+    Function<List<Path>, List<Path>> matchAnyPattern = files -> files.stream()
+        .filter(filenameMatcher::matches).collect(Collectors.toList());
     List<Path> filesToCopy = new ArrayList<>();
+    Map<Sample, List<Path>> samplesFiles = sampleService.allFiles(samples);
     for (Sample sample : samples) {
-      List<Path> files = sampleService.files(sample);
+      List<Path> files = samplesFiles.getOrDefault(sample, List.of());
       List<Path> toCopy = matchAnyPattern.apply(files);
       filesToCopy.addAll(toCopy);
     }
-    for (Path file : filesToCopy) {
-      copy(file, folder.resolve(file.getFileName()), symlinks);
+    return new Selection(folder, Map.of(SAMPLES_FILENAME, samplesLines), filesToCopy);
+  }
+
+  private AnalysisArchive archive(Selection selection) {
+    Map<String, byte[]> metadata = new LinkedHashMap<>();
+    selection.metadata().forEach((filename, lines) -> metadata.put(filename, content(lines)));
+    return new AnalysisArchive(selection.folder().getFileName() + ".zip", metadata,
+        selection.files());
+  }
+
+  /**
+   * Synchronizes folder with the files that must be available for analysis.
+   *
+   * <p>Files that are already inside folder and are unchanged, see
+   * {@link #unchanged(Path, Path, CopyStrategy)}, are kept, missing files are added and files that
+   * are not needed anymore are removed. Metadata files are only written when their content
+   * changes.</p>
+   *
+   * @param folder      analysis folder, created if it does not exist
+   * @param metadata    lines of metadata files, by filename
+   * @param files       files to make available inside folder
+   * @param progression progression of file copying
+   * @throws IllegalStateException could not synchronize folder
+   * @throws CancellationException progression was cancelled
+   */
+  private void sync(Path folder, Map<String, ? extends Collection<String>> metadata,
+      List<Path> files, TransferProgression progression) {
+    CopyStrategy strategy = configuration.getAnalysisStrategy();
+    try {
+      Files.createDirectories(folder);
+      Map<Path, Path> sources = new LinkedHashMap<>();
+      files.forEach(file -> sources.put(file.getFileName(), file));
+      List<Path> stale = new ArrayList<>();
+      try (Stream<Path> entries = Files.list(folder)) {
+        entries.filter(entry -> !sources.containsKey(entry.getFileName())
+            && !metadata.containsKey(entry.getFileName().toString())).forEach(stale::add);
+      }
+      for (Path entry : stale) {
+        logger.debug("removing file {} from analysis folder", entry);
+        FileSystemUtils.deleteRecursively(entry);
+      }
+      Map<Path, Path> changed = new LinkedHashMap<>();
+      long totalBytes = 0;
+      for (Map.Entry<Path, Path> source : sources.entrySet()) {
+        Path target = folder.resolve(source.getKey());
+        if (!unchanged(source.getValue(), target, strategy)) {
+          changed.put(source.getValue(), target);
+          totalBytes += Files.size(source.getValue());
+        }
+      }
+      TransferMeter meter = new TransferMeter(totalBytes, progression);
+      copyAll(changed, strategy, progression, meter, folder);
+      for (Map.Entry<String, ? extends Collection<String>> file : metadata.entrySet()) {
+        write(folder.resolve(file.getKey()), file.getValue());
+      }
+      // Folder age is used to delete old analysis folders.
+      Files.setLastModifiedTime(folder, FileTime.from(Instant.now()));
+      meter.done("");
+    } catch (IOException e) {
+      throw new IllegalStateException("could not copy analysis files to folder " + folder, e);
     }
-    return folder;
   }
 
-  private void copy(Path source, Path destination, boolean symlink) throws IOException {
-    if (symlink) {
-      Files.createSymbolicLink(destination, source);
-    } else {
-      Files.copy(source, destination, StandardCopyOption.REPLACE_EXISTING);
+  /**
+   * Copies files to their target, several files at a time.
+   *
+   * <p>Files are grouped by the drive containing them. Each group is copied by up to
+   * {@link DriveThrottle#concurrency(NetworkDrive)} workers and each copy holds a permit of the
+   * drive, so that drives are not overloaded when other files are transferred at the same time.
+   * Files of the same group are started in order.</p>
+   *
+   * <p>If a file cannot be copied, files that were not started are skipped and files being copied
+   * are interrupted.</p>
+   *
+   * @param files       files to copy, mapped to their target
+   * @param strategy    strategy used to make files available inside folder
+   * @param progression progression of file copying
+   * @param meter       meter of file copying
+   * @param folder      analysis folder
+   * @throws IOException           could not copy a file
+   * @throws CancellationException progression was cancelled
+   */
+  private void copyAll(Map<Path, Path> files, CopyStrategy strategy,
+      TransferProgression progression, TransferMeter meter, Path folder) throws IOException {
+    List<NetworkDrive<?>> drives = new ArrayList<>();
+    drives.add(configuration.getHome());
+    drives.addAll(configuration.getArchives());
+    // Files that are not on a known drive are grouped under a null drive.
+    Map<NetworkDrive<?>, Queue<Map.Entry<Path, Path>>> queues = new LinkedHashMap<>();
+    for (Map.Entry<Path, Path> file : files.entrySet()) {
+      Path source = file.getKey().toAbsolutePath();
+      NetworkDrive<?> drive = drives.stream()
+          .filter(d -> source.startsWith(d.getFolder().toAbsolutePath())).findFirst()
+          .orElse(null);
+      queues.computeIfAbsent(drive, d -> new ConcurrentLinkedQueue<>()).add(file);
+    }
+    AtomicInteger index = new AtomicInteger();
+    Set<String> active = new LinkedHashSet<>();
+    List<Future<?>> futures = new ArrayList<>();
+    for (Map.Entry<NetworkDrive<?>, Queue<Map.Entry<Path, Path>>> group : queues.entrySet()) {
+      NetworkDrive<?> drive = group.getKey();
+      Queue<Map.Entry<Path, Path>> queue = group.getValue();
+      Semaphore permits = throttle.permits(drive);
+      int workers = Math.min(throttle.concurrency(drive), queue.size());
+      logger.debug("copying {} files from {} to {} using {} workers", queue.size(),
+          drive != null ? drive.getFolder() : "other folders", folder, workers);
+      for (int i = 0; i < workers; i++) {
+        futures.add(executor.submit(() -> {
+          Map.Entry<Path, Path> file;
+          while ((file = queue.poll()) != null) {
+            checkCancelled(progression, folder);
+            Path target = file.getValue();
+            String label =
+                target.getFileName() + " (" + index.incrementAndGet() + "/" + files.size() + ")";
+            // Wake up regularly while waiting for a permit to notice cancellation.
+            while (!permits.tryAcquire(PERMIT_POLL.toMillis(), TimeUnit.MILLISECONDS)) {
+              checkCancelled(progression, folder);
+            }
+            try {
+              synchronized (active) {
+                active.add(label);
+                meter.message(String.join(", ", active));
+              }
+              FileSystemUtils.deleteRecursively(target);
+              copy(file.getKey(), target, strategy, progression, meter, folder);
+            } finally {
+              permits.release();
+              synchronized (active) {
+                active.remove(label);
+              }
+            }
+          }
+          return null;
+        }));
+      }
+    }
+    try {
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (ExecutionException e) {
+      cancel(queues.values(), futures);
+      if (e.getCause() instanceof IOException ioException) {
+        throw ioException;
+      } else if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new IllegalStateException("could not copy analysis files to folder " + folder,
+          e.getCause());
+    } catch (InterruptedException e) {
+      cancel(queues.values(), futures);
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(
+          "interrupted while copying analysis files to folder " + folder, e);
+    }
+  }
+
+  private void cancel(Collection<? extends Queue<?>> queues, List<Future<?>> futures) {
+    queues.forEach(Queue::clear);
+    futures.forEach(future -> future.cancel(true));
+  }
+
+  /**
+   * Returns true if target is already the copy of source for strategy.
+   *
+   * <p>For symbolic links, target must be a symbolic link to source. Otherwise, target must be a
+   * file having the same size and modification time as source, which is also true for hard
+   * links. Modification times are compared to the millisecond because some file systems do not
+   * keep a better precision.</p>
+   */
+  private boolean unchanged(Path source, Path target, CopyStrategy strategy) throws IOException {
+    if (strategy == CopyStrategy.SYMLINK) {
+      return Files.isSymbolicLink(target) && Files.readSymbolicLink(target).equals(source);
+    }
+    if (!Files.isRegularFile(target, LinkOption.NOFOLLOW_LINKS)) {
+      return false;
+    }
+    BasicFileAttributes sourceAttributes = Files.readAttributes(source, BasicFileAttributes.class);
+    BasicFileAttributes targetAttributes = Files.readAttributes(target, BasicFileAttributes.class,
+        LinkOption.NOFOLLOW_LINKS);
+    return sourceAttributes.size() == targetAttributes.size()
+        && sourceAttributes.lastModifiedTime().toMillis()
+        == targetAttributes.lastModifiedTime().toMillis();
+  }
+
+  /**
+   * Writes lines to file, unless file already contains these lines.
+   */
+  private void write(Path file, Collection<String> lines) throws IOException {
+    byte[] content = content(lines);
+    if (Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)
+        && Arrays.equals(content, Files.readAllBytes(file))) {
+      return;
+    }
+    FileSystemUtils.deleteRecursively(file);
+    Files.write(file, content);
+  }
+
+  private static byte[] content(Collection<String> lines) {
+    return lines.stream().map(line -> line + System.lineSeparator())
+        .collect(Collectors.joining()).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private void copy(Path source, Path destination, CopyStrategy strategy,
+      TransferProgression progression, TransferMeter meter, Path folder) throws IOException {
+    switch (strategy) {
+      case SYMLINK -> {
+        Files.createSymbolicLink(destination, source);
+        meter.skipped(Files.size(source));
+      }
+      case HARDLINK -> {
+        FileTransfer.link(source, destination);
+        meter.skipped(Files.size(source));
+      }
+      default -> {
+        FileTransfer.copy(source, destination, count -> {
+          checkCancelled(progression, folder);
+          meter.transferred(count);
+        });
+        Files.setLastModifiedTime(destination, Files.getLastModifiedTime(source));
+      }
+    }
+  }
+
+  private void checkCancelled(TransferProgression progression, Path folder) {
+    if (progression.isCancelled()) {
+      throw new CancellationException("copy of analysis files to folder " + folder
+          + " was cancelled");
     }
   }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Files used for analysis.
+   *
+   * @param folder   analysis folder
+   * @param metadata lines of metadata files, by filename
+   * @param files    files to make available for analysis
+   */
+  private record Selection(Path folder, Map<String, ? extends Collection<String>> metadata,
+      List<Path> files) {
+  }
 }
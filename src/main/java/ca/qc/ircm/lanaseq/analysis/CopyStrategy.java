@@ -0,0 +1,20 @@
+package ca.qc.ircm.lanaseq.analysis;
+
+/**
+ * How files are made available inside analysis folders.
+ */
+public enum CopyStrategy {
+  /**
+   * Files are copied.
+   */
+  COPY,
+  /**
+   * Symbolic links to files are created.
+   */
+  SYMLINK,
+  /**
+   * Hard links to files are created, files are copied if they cannot be linked, like when they are
+   * on another file system.
+   */
+  HARDLINK
+}
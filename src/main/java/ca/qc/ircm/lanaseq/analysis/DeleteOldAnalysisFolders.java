@@ -4,13 +4,11 @@ import static ca.qc.ircm.lanaseq.UsedBy.SPRING;
 
 import ca.qc.ircm.lanaseq.AppConfiguration;
 import ca.qc.ircm.lanaseq.UsedBy;
+import ca.qc.ircm.lanaseq.files.FileListing;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.attribute.FileTime;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -46,16 +44,11 @@ public class DeleteOldAnalysisFolders {
     logger.debug("deleting old folders in analysis {}", analysis);
     Duration deleteAge = configuration.getAnalysisDeleteAge();
     Instant now = Instant.now();
-    try (Stream<Path> files = Files.list(analysis)) {
-      files.filter(file -> {
-        try {
-          FileTime modifiedTime = Files.getLastModifiedTime(file);
-          Duration age = Duration.between(modifiedTime.toInstant(), now);
-          return deleteAge.compareTo(age) < 0;
-        } catch (IOException e) {
-          return false;
-        }
-      }).forEach(file -> {
+    try {
+      FileListing.list(analysis).stream().filter(entry -> {
+        Duration age = Duration.between(entry.lastModifiedTime().toInstant(), now);
+        return deleteAge.compareTo(age) < 0;
+      }).map(FileListing.Entry::path).forEach(file -> {
         try {
           logger.debug("deleting old analysis folder {}", file);
           if (!FileSystemUtils.deleteRecursively(file)) {
@@ -0,0 +1,170 @@
+package ca.qc.ircm.lanaseq.analysis.web;
+
+import ca.qc.ircm.lanaseq.analysis.AnalysisArchive;
+import ca.qc.ircm.lanaseq.analysis.AnalysisService;
+import ca.qc.ircm.lanaseq.dataset.Dataset;
+import ca.qc.ircm.lanaseq.dataset.DatasetService;
+import ca.qc.ircm.lanaseq.sample.Sample;
+import ca.qc.ircm.lanaseq.sample.SampleService;
+import ca.qc.ircm.lanaseq.web.ResourceNotFoundException;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Sends ZIP archives of analysis files.
+ *
+ * <p>Archives are written directly to the response while files are read, see
+ * {@link AnalysisArchive}. Requests that fail validation are rejected with a
+ * {@link HttpStatus#BAD_REQUEST} status before anything is written. Once the archive is being
+ * written, the status is already sent, so an error while reading a file aborts the response and
+ * the client receives an incomplete archive.</p>
+ */
+@RestController
+public class AnalysisArchives {
+
+  public static final String REST_MAPPING = "analysis-archive";
+  public static final String SAMPLES = "samples";
+  public static final String DATASETS = "datasets";
+  public static final String ID = "id";
+  public static final String PATTERN = "pattern";
+  /**
+   * Filename pattern used when no filename pattern is specified, matches all files.
+   */
+  public static final String ALL_FILES = "*";
+  public static final String CONTENT_TYPE = "application/zip";
+  private static final Logger logger = LoggerFactory.getLogger(AnalysisArchives.class);
+  private final AnalysisService service;
+  private final SampleService sampleService;
+  private final DatasetService datasetService;
+
+  /**
+   * Creates instance of AnalysisArchives.
+   *
+   * @param service        analysis service
+   * @param sampleService  sample service
+   * @param datasetService dataset service
+   */
+  @Autowired
+  protected AnalysisArchives(AnalysisService service, SampleService sampleService,
+      DatasetService datasetService) {
+    this.service = service;
+    this.sampleService = sampleService;
+    this.datasetService = datasetService;
+  }
+
+  /**
+   * Sends ZIP archive of the analysis files of samples.
+   *
+   * @param ids      ids of samples
+   * @param patterns filename patterns of files to include, all files if empty
+   * @param response response
+   * @throws IOException             could not read a file or could not write to response
+   * @throws ResponseStatusException samples analysis validation failed
+   */
+  @GetMapping("/" + REST_MAPPING + "/" + SAMPLES)
+  public void samplesArchive(@RequestParam(ID) List<Long> ids,
+      @RequestParam(name = PATTERN, required = false) @Nullable List<String> patterns,
+      HttpServletResponse response) throws IOException {
+    logger.debug("Sending archive of samples {} with patterns {}", ids, patterns);
+    List<Sample> samples = ids.stream().map(id -> sampleService.get(id)
+            .orElseThrow(() -> new ResourceNotFoundException("Sample " + id + " not found")))
+        .toList();
+    AnalysisArchive archive;
+    try {
+      archive = service.samplesArchive(samples, patterns(patterns));
+    } catch (IllegalArgumentException e) {
+      throw badRequest(e);
+    }
+    send(archive, response);
+  }
+
+  /**
+   * Sends ZIP archive of the analysis files of datasets.
+   *
+   * @param ids      ids of datasets
+   * @param patterns filename patterns of files to include, all files if empty
+   * @param response response
+   * @throws IOException             could not read a file or could not write to response
+   * @throws ResponseStatusException datasets analysis validation failed
+   */
+  @GetMapping("/" + REST_MAPPING + "/" + DATASETS)
+  public void datasetsArchive(@RequestParam(ID) List<Long> ids,
+      @RequestParam(name = PATTERN, required = false) @Nullable List<String> patterns,
+      HttpServletResponse response) throws IOException {
+    logger.debug("Sending archive of datasets {} with patterns {}", ids, patterns);
+    List<Dataset> datasets = ids.stream().map(id -> datasetService.get(id)
+            .orElseThrow(() -> new ResourceNotFoundException("Dataset " + id + " not found")))
+        .toList();
+    AnalysisArchive archive;
+    try {
+      archive = service.datasetsArchive(datasets, patterns(patterns));
+    } catch (IllegalArgumentException e) {
+      throw badRequest(e);
+    }
+    send(archive, response);
+  }
+
+  private List<String> patterns(@Nullable List<String> patterns) {
+    return patterns == null || patterns.isEmpty() ? List.of(ALL_FILES) : patterns;
+  }
+
+  private ResponseStatusException badRequest(IllegalArgumentException e) {
+    logger.debug("Analysis validation failed", e);
+    return new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+  }
+
+  private void send(AnalysisArchive archive, HttpServletResponse response) throws IOException {
+    response.setContentType(CONTENT_TYPE);
+    response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+        .filename(archive.getFilename(), StandardCharsets.UTF_8).build().toString());
+    archive.write(response.getOutputStream());
+  }
+
+  /**
+   * URL to use to reach {@link #samplesArchive(List, List, HttpServletResponse)}.
+   *
+   * @param samples  samples
+   * @param patterns filename patterns of files to include, all files if empty
+   * @return URL to use to reach {@link #samplesArchive(List, List, HttpServletResponse)}
+   */
+  public static String samplesArchiveUrl(Collection<Sample> samples,
+      Collection<String> patterns) {
+    return url(SAMPLES, samples.stream().map(Sample::getId).toList(), patterns);
+  }
+
+  /**
+   * URL to use to reach {@link #datasetsArchive(List, List, HttpServletResponse)}.
+   *
+   * @param datasets datasets
+   * @param patterns filename patterns of files to include, all files if empty
+   * @return URL to use to reach {@link #datasetsArchive(List, List, HttpServletResponse)}
+   */
+  public static String datasetsArchiveUrl(Collection<Dataset> datasets,
+      Collection<String> patterns) {
+    return url(DATASETS, datasets.stream().map(Dataset::getId).toList(), patterns);
+  }
+
+  private static String url(String type, List<Long> ids, Collection<String> patterns) {
+    UriComponentsBuilder builder =
+        UriComponentsBuilder.fromPath(REST_MAPPING + "/" + type).queryParam(ID, ids);
+    if (!patterns.isEmpty()) {
+      builder.queryParam(PATTERN, patterns);
+    }
+    return builder.encode().build().toUriString();
+  }
+}
@@ -0,0 +1,4 @@
+@NonNullApi
+package ca.qc.ircm.lanaseq.analysis.web;
+
+import org.springframework.lang.NonNullApi;
\ No newline at end of file
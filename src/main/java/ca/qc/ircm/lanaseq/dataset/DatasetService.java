@@ -1,10 +1,18 @@
 package ca.qc.ircm.lanaseq.dataset;
 
 import static ca.qc.ircm.lanaseq.AppConfiguration.DELETED_FILENAME;
+import static ca.qc.ircm.lanaseq.AsyncConfiguration.INGESTION_EXECUTOR;
 import static ca.qc.ircm.lanaseq.time.TimeConverter.toLocalDateTime;
 
 import ca.qc.ircm.lanaseq.AppConfiguration;
 import ca.qc.ircm.lanaseq.DataWithFiles;
+import ca.qc.ircm.lanaseq.files.DriveResult;
+import ca.qc.ircm.lanaseq.files.FileIndex;
+import ca.qc.ircm.lanaseq.files.FileIngester;
+import ca.qc.ircm.lanaseq.files.FileListing;
+import ca.qc.ircm.lanaseq.files.FileListingCache;
+import ca.qc.ircm.lanaseq.files.FilenameMatcher;
+import ca.qc.ircm.lanaseq.files.NetworkDriveScanner;
 import ca.qc.ircm.lanaseq.files.Renamer;
 import ca.qc.ircm.lanaseq.security.AuthenticatedUser;
 import ca.qc.ircm.lanaseq.user.User;
@@ -14,13 +22,9 @@ import jakarta.transaction.Transactional;
 import jakarta.transaction.Transactional.TxType;
 import java.io.IOException;
 import java.io.Writer;
-import java.nio.file.FileSystems;
-import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -28,14 +32,19 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.slf4j.Logger;
@@ -66,6 +75,10 @@ public class DatasetService {
   private AppConfiguration configuration;
   private AuthenticatedUser authenticatedUser;
   private JPAQueryFactory queryFactory;
+  private FileIndex fileIndex;
+  private FileListingCache fileListingCache;
+  private NetworkDriveScanner driveScanner;
+  private FileIngester fileIngester;
 
   protected DatasetService() {
   }
@@ -73,12 +86,18 @@ public class DatasetService {
   @Autowired
   protected DatasetService(DatasetRepository repository,
       DatasetPublicFileRepository datasetPublicFileRepository, AppConfiguration configuration,
-      AuthenticatedUser authenticatedUser, JPAQueryFactory queryFactory) {
+      AuthenticatedUser authenticatedUser, JPAQueryFactory queryFactory, FileIndex fileIndex,
+      FileListingCache fileListingCache, NetworkDriveScanner driveScanner,
+      FileIngester fileIngester) {
     this.repository = repository;
     this.datasetPublicFileRepository = datasetPublicFileRepository;
     this.configuration = configuration;
     this.authenticatedUser = authenticatedUser;
     this.queryFactory = queryFactory;
+    this.fileIndex = fileIndex;
+    this.fileListingCache = fileListingCache;
+    this.driveScanner = driveScanner;
+    this.fileIngester = fileIngester;
   }
 
   /**
@@ -149,51 +168,153 @@ public class DatasetService {
     if (dataset.getId() == 0) {
       return new ArrayList<>();
     }
-    List<Path> files = new ArrayList<>();
-    Path folder = configuration.getHome().folder(dataset);
-    try (Stream<Path> homeFiles = Files.list(folder)) {
-      homeFiles.filter(file -> !DELETED_FILENAME.equals(file.getFileName().toString()))
-          .filter(file -> !file.toFile().isHidden()).forEach(files::add);
-    } catch (IOException e) {
-      // Ignore since folder probably does not exist.
+    return resolveFiles(List.of(dataset)).get(dataset);
+  }
+
+  /**
+   * Lists dataset's files in the background, drive by drive.
+   *
+   * <p>Listener is called once for every network drive, as soon as the drive responds, with the
+   * files of dataset found on the drive. Drives that do not respond in time have an empty result.
+   * When files are already cached, listener is called immediately for all drives.</p>
+   *
+   * @param dataset  dataset
+   * @param listener called with files of dataset found on each network drive
+   * @return all dataset's files, once all drives responded
+   */
+  @PreAuthorize("hasPermission(#dataset, 'read')")
+  @Async
+  public CompletableFuture<List<Path>> files(Dataset dataset,
+      Consumer<DriveResult<DataWithFiles, List<Path>>> listener) {
+    Objects.requireNonNull(dataset, "dataset parameter cannot be null");
+    Objects.requireNonNull(listener, "listener parameter cannot be null");
+    Optional<List<Path>> cached = dataset.getId() != 0
+        ? fileListingCache.get(Dataset.class, dataset.getId())
+        : Optional.of(new ArrayList<>());
+    if (cached.isPresent()) {
+      List<AppConfiguration.NetworkDrive<DataWithFiles>> drives = drives();
+      drives.forEach(drive -> listener.accept(new DriveResult<>(drive,
+          Optional.of(cached.get().stream().filter(inside(drive, drives)).toList()))));
+      return CompletableFuture.completedFuture(cached.get());
     }
-    for (AppConfiguration.NetworkDrive<DataWithFiles> drive : configuration.getArchives()) {
-      folder = drive.folder(dataset);
-      try (Stream<Path> archiveFiles = Files.list(folder)) {
-        archiveFiles.filter(file -> !DELETED_FILENAME.equals(file.getFileName().toString()))
-            .filter(file -> !file.toFile().isHidden()).forEach(files::add);
-      } catch (IOException e) {
-        // Ignore since folder probably does not exist.
+    long generation = fileListingCache.generation(Dataset.class, dataset.getId());
+    Map<Dataset, Set<String>> filenames = Map.of(dataset, Set.copyOf(dataset.getFilenames()));
+    List<DriveResult<DataWithFiles, List<Path>>> results = driveScanner.scan(drives(),
+        drive -> driveFiles(drive, filenames).get(dataset), listener);
+    List<Path> files = results.stream().flatMap(result -> result.result().stream())
+        .flatMap(List::stream).collect(Collectors.toCollection(ArrayList::new));
+    if (results.stream().allMatch(DriveResult::isAvailable)) {
+      fileListingCache.put(Dataset.class, dataset.getId(), generation, files);
+    }
+    return CompletableFuture.completedFuture(files);
+  }
+
+  /**
+   * Returns all files of many datasets.
+   *
+   * <p>Each network drive is scanned once for all datasets, instead of once per dataset.</p>
+   *
+   * @param datasets datasets
+   * @return all files of datasets, in the same order as datasets
+   */
+  @PreAuthorize("@permissionEvaluator.hasCollectionPermission(authentication, #datasets, 'read')")
+  public Map<Dataset, List<Path>> allFiles(Collection<Dataset> datasets) {
+    Objects.requireNonNull(datasets, "datasets parameter cannot be null");
+    return resolveFiles(datasets);
+  }
+
+  private Map<Dataset, List<Path>> resolveFiles(Collection<Dataset> datasets) {
+    Map<Dataset, List<Path>> files = new LinkedHashMap<>();
+    Map<Dataset, Set<String>> missing = new LinkedHashMap<>();
+    Map<Dataset, Long> generations = new HashMap<>();
+    for (Dataset dataset : datasets) {
+      Optional<List<Path>> cached = dataset.getId() != 0
+          ? fileListingCache.get(Dataset.class, dataset.getId())
+          : Optional.of(new ArrayList<>());
+      files.put(dataset, cached.orElseGet(ArrayList::new));
+      if (cached.isEmpty()) {
+        generations.put(dataset, fileListingCache.generation(Dataset.class, dataset.getId()));
+        missing.put(dataset, Set.copyOf(dataset.getFilenames()));
       }
     }
-    if (!dataset.getFilenames().isEmpty()) {
-      List<PathMatcher> matchers = dataset.getFilenames().stream()
-          .map(filename -> FileSystems.getDefault().getPathMatcher("glob:**/*" + filename + "*"))
-          .toList();
-      try (Stream<Path> filenamesFiles = Files.walk(configuration.getHome().getFolder(),
-          FileVisitOption.FOLLOW_LINKS)) {
-        filenamesFiles.filter(Files::isRegularFile)
-            .filter(file -> matchers.stream().anyMatch(matcher -> matcher.matches(file)))
+    if (missing.isEmpty()) {
+      return files;
+    }
+    List<DriveResult<DataWithFiles, Map<Dataset, List<Path>>>> results = driveScanner.scan(drives(),
+        drive -> driveFiles(drive, missing));
+    results.forEach(result -> result.result().ifPresent(
+        driveFiles -> driveFiles.forEach((dataset, paths) -> files.get(dataset).addAll(paths))));
+    if (results.stream().allMatch(DriveResult::isAvailable)) {
+      missing.keySet().forEach(dataset -> fileListingCache.put(Dataset.class, dataset.getId(),
+          generations.get(dataset), files.get(dataset)));
+    }
+    return files;
+  }
+
+  private Map<Dataset, List<Path>> driveFiles(AppConfiguration.NetworkDrive<DataWithFiles> drive,
+      Map<Dataset, Set<String>> filenames) {
+    Set<String> allFilenames = filenames.values().stream().flatMap(Set::stream)
+        .collect(Collectors.toSet());
+    List<Path> indexed = allFilenames.isEmpty() ? List.of()
+        : fileIndex.files(drive.getFolder(), allFilenames).stream()
+            .filter(inside(drive, drives()))
             .filter(file -> !DELETED_FILENAME.equals(file.getFileName().toString()))
-            .filter(file -> !file.toFile().isHidden()).forEach(files::add);
+            .filter(file -> !file.toFile().isHidden()).toList();
+    Map<Dataset, List<Path>> files = new HashMap<>();
+    Map<String, List<Dataset>> datasetsByFilename = new HashMap<>();
+    filenames.forEach((dataset, datasetFilenames) -> {
+      List<Path> datasetFiles = new ArrayList<>();
+      try {
+        FileListing.list(drive.folder(dataset)).stream()
+            .filter(entry -> !DELETED_FILENAME.equals(entry.path().getFileName().toString()))
+            .filter(entry -> !entry.isHidden()).map(FileListing.Entry::path)
+            .forEach(datasetFiles::add);
       } catch (IOException e) {
         // Ignore since folder probably does not exist.
       }
-      for (AppConfiguration.NetworkDrive<DataWithFiles> drive : configuration.getArchives()) {
-        try (Stream<Path> filenamesFiles = Files.walk(drive.getFolder(),
-            FileVisitOption.FOLLOW_LINKS)) {
-          filenamesFiles.filter(Files::isRegularFile)
-              .filter(file -> matchers.stream().anyMatch(matcher -> matcher.matches(file)))
-              .filter(file -> !DELETED_FILENAME.equals(file.getFileName().toString()))
-              .filter(file -> !file.toFile().isHidden()).forEach(files::add);
-        } catch (IOException e) {
-          // Ignore since folder probably does not exist.
-        }
-      }
-    }
+      files.put(dataset, datasetFiles);
+      datasetFilenames.forEach(
+          filename -> datasetsByFilename.computeIfAbsent(filename, f -> new ArrayList<>()).add(dataset));
+    });
+    FilenameMatcher matcher = FilenameMatcher.containing(allFilenames);
+    indexed.forEach(file -> matcher.matching(file).stream()
+        .flatMap(filename -> datasetsByFilename.get(filename).stream()).distinct()
+        .forEach(dataset -> files.get(dataset).add(file)));
     return files;
   }
 
+  private List<AppConfiguration.NetworkDrive<DataWithFiles>> drives() {
+    List<AppConfiguration.NetworkDrive<DataWithFiles>> drives = new ArrayList<>();
+    drives.add(configuration.getHome());
+    drives.addAll(configuration.getArchives());
+    return drives;
+  }
+
+  /**
+   * Returns a filter that accepts files inside drive's folder.
+   *
+   * <p>Drive folders can be nested, like archives inside home folder. Files inside a nested
+   * drive's folder belong to the nested drive and are not accepted.</p>
+   */
+  private Predicate<Path> inside(AppConfiguration.NetworkDrive<DataWithFiles> drive,
+      List<AppConfiguration.NetworkDrive<DataWithFiles>> drives) {
+    Path folder = drive.getFolder();
+    List<Path> nested = drives.stream().filter(other -> other != drive)
+        .map(AppConfiguration.NetworkDrive::getFolder)
+        .filter(other -> other.startsWith(folder) && !other.equals(folder)).toList();
+    return file -> file.startsWith(folder) && nested.stream().noneMatch(file::startsWith);
+  }
+
+  /**
+   * Discards cached files of dataset, so that {@link #files(Dataset)} lists files again.
+   *
+   * @param dataset dataset
+   */
+  @PreAuthorize("hasPermission(#dataset, 'read')")
+  public void refreshFiles(Dataset dataset) {
+    fileListingCache.invalidate(Dataset.class, dataset.getId());
+  }
+
   /**
    * Returns a path that is relative to a configured network drive.
    *
@@ -226,18 +347,10 @@ public class DatasetService {
     if (dataset.getId() == 0) {
       return new ArrayList<>();
     }
-    List<String> labels = new ArrayList<>();
-    Path folder = configuration.getHome().folder(dataset);
-    if (Files.exists(folder)) {
-      labels.add(configuration.getHome().label(dataset, unix));
-    }
-    for (AppConfiguration.NetworkDrive<DataWithFiles> drive : configuration.getArchives()) {
-      folder = drive.folder(dataset);
-      if (Files.exists(folder)) {
-        labels.add(drive.label(dataset, unix));
-      }
-    }
-    return labels;
+    return driveScanner.scan(drives(), drive -> Files.exists(drive.folder(dataset))).stream()
+        .filter(result -> result.result().orElse(false))
+        .map(result -> result.drive().label(dataset, unix))
+        .collect(Collectors.toCollection(ArrayList::new));
   }
 
   /**
@@ -257,18 +370,16 @@ public class DatasetService {
     try {
       List<Path> files = new ArrayList<>();
       if (Files.exists(upload)) {
-        try (Stream<Path> uploadFiles = Files.list(upload)) {
-          uploadFiles.filter(file -> file.toFile().isFile()).filter(file -> {
-            String filename = file.getFileName().toString();
-            return filename.contains(dataset.getName());
-          }).filter(file -> !file.toFile().isHidden()).forEach(files::add);
-        }
+        FileListing.list(upload).stream().filter(entry -> {
+          String filename = entry.path().getFileName().toString();
+          return filename.contains(dataset.getName());
+        }).filter(FileListing.Entry::isRegularFile).filter(entry -> !entry.isHidden())
+            .map(FileListing.Entry::path).forEach(files::add);
       }
       if (Files.exists(datasetUpload)) {
-        try (Stream<Path> uploadFiles = Files.list(datasetUpload)) {
-          uploadFiles.filter(file -> file.toFile().isFile())
-              .filter(file -> !file.toFile().isHidden()).forEach(files::add);
-        }
+        FileListing.list(datasetUpload).stream().filter(FileListing.Entry::isRegularFile)
+            .filter(entry -> !entry.isHidden()).map(FileListing.Entry::path)
+            .forEach(files::add);
       }
       return files;
     } catch (IOException e) {
@@ -293,8 +404,10 @@ public class DatasetService {
       return Optional.empty();
     }
     Dataset dataset = optionalDataset.orElseThrow();
-    return Stream.concat(Stream.of(configuration.getHome()), configuration.getArchives().stream())
-        .map(drive -> drive.folder(dataset).resolve(filename)).filter(Files::isRegularFile)
+    // Check file on the drive's thread, so that a hung drive cannot block the request.
+    return driveScanner.scan(drives(),
+            drive -> Optional.of(drive.folder(dataset).resolve(filename)).filter(Files::isRegularFile))
+        .stream().flatMap(result -> result.result().stream()).flatMap(Optional::stream)
         .findFirst();
   }
 
@@ -389,15 +502,16 @@ public class DatasetService {
           .toList();
       repository.save(dataset);
       Path folder = configuration.getHome().folder(dataset);
-      Renamer.moveFolder(oldFolder, folder);
-      Renamer.renameFiles(oldName, dataset.getName(), folder);
+      Renamer.moveFolder(oldFolder, folder, fileIndex::move);
+      Renamer.renameFiles(oldName, dataset.getName(), folder, fileIndex::move);
       for (int i = 0; i < configuration.getArchives().size(); i++) {
         Path oldArchive = oldArchives.get(i);
         Path archive = configuration.getArchives().get(i).folder(dataset);
-        Renamer.moveFolder(oldArchive, archive);
-        Renamer.renameFiles(oldName, dataset.getName(), archive);
+        Renamer.moveFolder(oldArchive, archive, fileIndex::move);
+        Renamer.renameFiles(oldName, dataset.getName(), archive, fileIndex::move);
       }
     }
+    fileListingCache.invalidate(Dataset.class, dataset.getId());
   }
 
   @Transactional(TxType.REQUIRES_NEW)
@@ -418,7 +532,7 @@ public class DatasetService {
    * @param progression progression of file saving
    */
   @PreAuthorize("hasPermission(#dataset, 'write')")
-  @Async
+  @Async(INGESTION_EXECUTOR)
   public CompletableFuture<Void> saveFiles(Dataset dataset, Collection<Path> files,
       Function<Path, String> filename, BiConsumer<String, Double> progression) {
     Path folder = configuration.getHome().folder(dataset);
@@ -427,21 +541,15 @@ public class DatasetService {
     } catch (IOException e) {
       throw new IllegalStateException("could not create folder " + folder, e);
     }
-    int i = -1;
+    Map<Path, Path> targets = new LinkedHashMap<>();
     for (Path file : files) {
-      i++;
-      String name = filename.apply(file);
-      Path target = folder.resolve(name);
-      try {
-        logger.debug("moving file {} to {} for dataset {}", file, target, dataset);
-        progression.accept(name, (double) i / files.size());
-        Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
-        Files.delete(file);
-      } catch (IOException e) {
-        throw new IllegalArgumentException("could not move file " + file + " to " + target, e);
-      }
+      targets.put(file, folder.resolve(filename.apply(file)));
     }
-    progression.accept("", 1.0);
+    logger.debug("moving files {} for dataset {}", targets, dataset);
+    fileIngester.ingest(configuration.getHome(), targets, progression, target -> {
+      fileIndex.add(target);
+      fileListingCache.invalidate(Dataset.class, dataset.getId());
+    });
     return CompletableFuture.completedFuture(null);
   }
 
@@ -491,9 +599,11 @@ public class DatasetService {
       throw new IllegalArgumentException("dataset cannot be deleted");
     }
     repository.delete(dataset);
+    fileListingCache.invalidate(Dataset.class, dataset.getId());
     Path folder = configuration.getHome().folder(dataset);
     try {
       FileSystemUtils.deleteRecursively(folder);
+      fileIndex.remove(folder);
     } catch (IOException e) {
       logger.error("could not delete folder {}", folder);
     }
@@ -525,6 +635,8 @@ public class DatasetService {
       writer.write(formatter.format(LocalDateTime.now()));
       writer.write("\n");
       Files.delete(file);
+      fileIndex.remove(file);
+      fileListingCache.invalidate(Dataset.class, dataset.getId());
     } catch (IOException e) {
       throw new IllegalArgumentException("could not delete file " + file + " from folder " + folder,
           e);
@@ -1,38 +1,53 @@
 package ca.qc.ircm.lanaseq.dataset.web;
 
 import static ca.qc.ircm.lanaseq.Constants.CONFIRM;
+import static ca.qc.ircm.lanaseq.Constants.TOO_MANY_JOBS;
 import static ca.qc.ircm.lanaseq.Constants.messagePrefix;
 import static ca.qc.ircm.lanaseq.text.Strings.property;
 import static ca.qc.ircm.lanaseq.text.Strings.styleName;
 
 import ca.qc.ircm.lanaseq.AppConfiguration;
+import ca.qc.ircm.lanaseq.Constants;
 import ca.qc.ircm.lanaseq.analysis.AnalysisService;
+import ca.qc.ircm.lanaseq.analysis.web.AnalysisArchives;
 import ca.qc.ircm.lanaseq.dataset.Dataset;
 import ca.qc.ircm.lanaseq.dataset.DatasetService;
+import ca.qc.ircm.lanaseq.jobs.Job;
+import ca.qc.ircm.lanaseq.jobs.JobService;
+import ca.qc.ircm.lanaseq.security.AuthenticatedUser;
+import ca.qc.ircm.lanaseq.web.WarningNotification;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
 import com.vaadin.flow.component.button.Button;
 import com.vaadin.flow.component.button.ButtonVariant;
 import com.vaadin.flow.component.combobox.MultiSelectComboBox;
 import com.vaadin.flow.component.confirmdialog.ConfirmDialog;
 import com.vaadin.flow.component.dialog.Dialog;
+import com.vaadin.flow.component.html.Anchor;
 import com.vaadin.flow.component.html.Div;
+import com.vaadin.flow.component.icon.VaadinIcon;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
 import com.vaadin.flow.i18n.LocaleChangeEvent;
 import com.vaadin.flow.i18n.LocaleChangeObserver;
 import com.vaadin.flow.server.WebBrowser;
 import com.vaadin.flow.spring.annotation.SpringComponent;
 import jakarta.annotation.PostConstruct;
-import java.io.IOException;
 import java.io.Serial;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
+import org.springframework.core.task.TaskRejectedException;
 
 /**
  * Analysis dialog.
@@ -46,28 +61,38 @@ public class DatasetsAnalysisDialog extends Dialog implements LocaleChangeObserv
   public static final String MESSAGE = "message";
   public static final String FILENAME_PATTERNS = "filenamePatterns";
   public static final String CREATE_FOLDER = "createFolder";
+  public static final String DOWNLOAD = "download";
   public static final String ERRORS = "errors";
   public static final String CREATE_FOLDER_EXCEPTION = property(CREATE_FOLDER, "exception");
+  public static final String CREATE_FOLDER_STARTED = property(CREATE_FOLDER, "started");
+  public static final String FILENAME_PATTERNS_INVALID = property(FILENAME_PATTERNS, "invalid");
   private static final String MESSAGE_PREFIX = messagePrefix(DatasetsAnalysisDialog.class);
+  private static final String CONSTANTS_PREFIX = messagePrefix(Constants.class);
   private static final Logger logger = LoggerFactory.getLogger(DatasetsAnalysisDialog.class);
   @Serial
   private static final long serialVersionUID = 3521519771905055445L;
   protected Div message = new Div();
   protected MultiSelectComboBox<String> filenamePatterns = new MultiSelectComboBox<>();
   protected Button createFolder = new Button();
+  protected Anchor download = new Anchor();
+  protected Button downloadButton = new Button();
   protected ConfirmDialog confirm = new ConfirmDialog();
   protected ConfirmDialog errors = new ConfirmDialog();
   private List<Dataset> datasets = new ArrayList<>();
   private final transient DatasetService service;
   private final transient AnalysisService analysisService;
   private final transient AppConfiguration configuration;
+  private final transient AuthenticatedUser authenticatedUser;
+  private final transient JobService jobService;
 
   @Autowired
   protected DatasetsAnalysisDialog(DatasetService service, AnalysisService analysisService,
-      AppConfiguration configuration) {
+      AppConfiguration configuration, AuthenticatedUser authenticatedUser, JobService jobService) {
     this.service = service;
     this.analysisService = analysisService;
     this.configuration = configuration;
+    this.authenticatedUser = authenticatedUser;
+    this.jobService = jobService;
   }
 
   public static String id(String baseId) {
@@ -82,7 +107,7 @@ public class DatasetsAnalysisDialog extends Dialog implements LocaleChangeObserv
     add(layout);
     layout.add(message, filenamePatterns);
     layout.setSizeFull();
-    getFooter().add(createFolder);
+    getFooter().add(download, createFolder);
     message.setId(id(MESSAGE));
     filenamePatterns.setId(id(FILENAME_PATTERNS));
     filenamePatterns.setItems(List.of());
@@ -90,9 +115,14 @@ public class DatasetsAnalysisDialog extends Dialog implements LocaleChangeObserv
     filenamePatterns.setAutoExpand(MultiSelectComboBox.AutoExpandMode.BOTH);
     filenamePatterns.setMinWidth("20em");
     filenamePatterns.addCustomValueSetListener(e -> filenamePatterns.select(e.getDetail()));
+    filenamePatterns.addValueChangeListener(e -> updateDownload());
     createFolder.setId(id(CREATE_FOLDER));
     createFolder.addThemeVariants(ButtonVariant.LUMO_PRIMARY);
     createFolder.addClickListener(e -> createFolder());
+    download.setId(id(DOWNLOAD));
+    download.getElement().setAttribute("download", true);
+    download.add(downloadButton);
+    downloadButton.setIcon(VaadinIcon.DOWNLOAD.create());
     confirm.setId(id(CONFIRM));
     confirm.addConfirmListener(e -> close());
     errors.setId(id(ERRORS));
@@ -105,6 +135,7 @@ public class DatasetsAnalysisDialog extends Dialog implements LocaleChangeObserv
     message.setText(getTranslation(MESSAGE_PREFIX + MESSAGE));
     filenamePatterns.setHelperText(getTranslation(MESSAGE_PREFIX + FILENAME_PATTERNS));
     createFolder.setText(getTranslation(MESSAGE_PREFIX + CREATE_FOLDER));
+    downloadButton.setText(getTranslation(MESSAGE_PREFIX + DOWNLOAD));
     confirm.setHeader(getTranslation(MESSAGE_PREFIX + CONFIRM));
     confirm.setConfirmText(getTranslation(MESSAGE_PREFIX + property(CONFIRM, CONFIRM)));
     errors.setHeader(getTranslation(MESSAGE_PREFIX + ERRORS));
@@ -121,21 +152,69 @@ public class DatasetsAnalysisDialog extends Dialog implements LocaleChangeObserv
     }
   }
 
+  private void updateDownload() {
+    if (!datasets.isEmpty()) {
+      download.setHref(AnalysisArchives.datasetsArchiveUrl(datasets,
+          filenamePatterns.getSelectedItems()));
+    }
+  }
+
   void createFolder() {
     logger.debug("creating analysis folder for datasets {}", datasets);
+    Set<String> patterns = filenamePatterns.getSelectedItems();
     try {
-      analysisService.copyDatasetsResources(datasets, filenamePatterns.getSelectedItems());
-      boolean unix = getUI().map(ui -> {
-        WebBrowser browser = ui.getSession().getBrowser();
-        return browser.isMacOSX() || browser.isLinux();
-      }).orElse(false);
-      String folder = configuration.getAnalysis().label(datasets, unix);
-      confirm.setText(getTranslation(MESSAGE_PREFIX + property(CONFIRM, "message"), folder));
-      confirm.open();
-    } catch (IOException e) {
+      analysisService.validateDatasetsResources(datasets, patterns);
+    } catch (PatternSyntaxException e) {
+      logger.debug("invalid filename patterns {}", patterns, e);
+      errors.setText(getTranslation(MESSAGE_PREFIX + FILENAME_PATTERNS_INVALID,
+          String.join(" ", patterns)));
+      errors.open();
+      return;
+    } catch (IllegalArgumentException e) {
+      logger.debug("could not create analysis folder for datasets {}", datasets, e);
       errors.setText(getTranslation(MESSAGE_PREFIX + CREATE_FOLDER_EXCEPTION));
       errors.open();
+      return;
+    }
+    UI ui = UI.getCurrent();
+    WebBrowser browser = ui.getSession().getBrowser();
+    boolean unix = browser.isMacOSX() || browser.isLinux();
+    String folder = configuration.getAnalysis().label(datasets, unix);
+    Job job = new Job();
+    job.title = getTranslation(MESSAGE_PREFIX + CREATE_FOLDER_STARTED, folder);
+    job.owner = authenticatedUser.getUser().orElseThrow();
+    job.cancellable = true;
+    CompletableFuture<Path> future;
+    try {
+      future = analysisService.copyDatasetsResources(datasets, patterns, job.progression());
+    } catch (TaskRejectedException e) {
+      logger.warn("too many jobs, could not create analysis folder for datasets {}", datasets);
+      new WarningNotification(getTranslation(CONSTANTS_PREFIX + TOO_MANY_JOBS)).open();
+      return;
     }
+    job.future = future;
+    jobService.addJob(job);
+    confirm.setText(getTranslation(MESSAGE_PREFIX + property(CONFIRM, "message"), folder));
+    confirm.open();
+    future.whenComplete((result, exception) -> {
+      if (exception == null || future.isCancelled()) {
+        return;
+      }
+      logger.warn("could not create analysis folder {} for datasets {}", folder, datasets,
+          exception);
+      try {
+        ui.access(() -> {
+          confirm.close();
+          errors.setText(getTranslation(MESSAGE_PREFIX + CREATE_FOLDER_EXCEPTION));
+          errors.open();
+          if (ui.getPushConfiguration().getPushMode().isEnabled()) {
+            ui.push();
+          }
+        });
+      } catch (UIDetachedException e) {
+        logger.debug("UI detached before analysis folder {} failed", folder);
+      }
+    });
   }
 
   public List<Long> getDatasetIds() {
@@ -147,10 +226,12 @@ public class DatasetsAnalysisDialog extends Dialog implements LocaleChangeObserv
     this.datasets = ids.stream().map(id -> service.get(id).orElseThrow())
         .collect(Collectors.toList());
     updateHeader();
+    updateDownload();
   }
 
   public void setDatasetId(Long id) {
     this.datasets = Collections.nCopies(1, service.get(id).orElseThrow());
     updateHeader();
+    updateDownload();
   }
 }
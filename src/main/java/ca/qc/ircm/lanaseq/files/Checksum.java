@@ -0,0 +1,103 @@
+package ca.qc.ircm.lanaseq.files;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Checksum written next to a file, in the same format as <code>md5sum</code> and
+ * <code>sha256sum</code>.
+ *
+ * <p>The sidecar file has the same name as the file with the checksum's extension appended. It
+ * contains a line with the checksum in hexadecimal, two spaces and the filename.</p>
+ */
+public enum Checksum {
+  /**
+   * MD5, written to <code>.md5</code> files.
+   */
+  MD5("MD5", "md5"),
+  /**
+   * SHA-256, written to <code>.sha256</code> files.
+   */
+  SHA256("SHA-256", "sha256");
+
+  private final String algorithm;
+  private final String extension;
+
+  Checksum(String algorithm, String extension) {
+    this.algorithm = algorithm;
+    this.extension = extension;
+  }
+
+  /**
+   * Returns a new digest that computes this checksum.
+   *
+   * @return new digest that computes this checksum
+   */
+  public MessageDigest digest() {
+    try {
+      return MessageDigest.getInstance(algorithm);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("algorithm " + algorithm + " is not available", e);
+    }
+  }
+
+  /**
+   * Returns the sidecar file containing the checksum of file.
+   *
+   * @param file file
+   * @return sidecar file containing the checksum of file
+   */
+  public Path sidecar(Path file) {
+    return file.resolveSibling(file.getFileName() + "." + extension);
+  }
+
+  /**
+   * Returns the file whose checksum is in sidecar, if sidecar is a sidecar file of this checksum.
+   *
+   * @param sidecar sidecar file
+   * @return file whose checksum is in sidecar, empty if sidecar does not have this checksum's
+   * extension
+   */
+  public Optional<Path> file(Path sidecar) {
+    String filename = String.valueOf(sidecar.getFileName());
+    String suffix = "." + extension;
+    if (filename.length() > suffix.length() && filename.toLowerCase(Locale.ROOT)
+        .endsWith(suffix)) {
+      return Optional.of(
+          sidecar.resolveSibling(filename.substring(0, filename.length() - suffix.length())));
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Returns the checksum present in sidecar file, in lower case.
+   *
+   * @param sidecar sidecar file
+   * @return checksum present in sidecar file, empty if sidecar file is empty
+   * @throws IOException could not read sidecar
+   */
+  public Optional<String> read(Path sidecar) throws IOException {
+    return Files.readAllLines(sidecar).stream().map(String::strip).filter(line -> !line.isEmpty())
+        .findFirst().map(line -> line.split("\\s+", 2)[0].toLowerCase(Locale.ROOT));
+  }
+
+  /**
+   * Writes the checksum of file to its sidecar file, replacing the sidecar file if it exists.
+   *
+   * @param file     file
+   * @param checksum checksum of file in hexadecimal
+   * @return sidecar file
+   * @throws IOException could not write sidecar file
+   */
+  public Path write(Path file, String checksum) throws IOException {
+    Path sidecar = sidecar(file);
+    Files.write(sidecar, List.of(checksum + "  " + file.getFileName()));
+    return sidecar;
+  }
+}
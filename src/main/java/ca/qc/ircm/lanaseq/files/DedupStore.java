@@ -0,0 +1,226 @@
+package ca.qc.ircm.lanaseq.files;
+
+import static ca.qc.ircm.lanaseq.UsedBy.SPRING;
+
+import ca.qc.ircm.lanaseq.AppConfiguration;
+import ca.qc.ircm.lanaseq.UsedBy;
+import com.google.common.util.concurrent.Striped;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Content-addressed store of files saved in the home folder, used to replace identical files by
+ * hard links to a single copy.
+ *
+ * <p>The store is the {@link #FOLDER} folder inside home folder. Each distinct file is a hard link
+ * named after the SHA-256 checksum of its content, inside a sub-folder named after the first two
+ * characters of the checksum. A file is removed from store once no other file links to it.</p>
+ *
+ * <p>Files that are hard links share their content, so they must never be modified in place.
+ * Sequencing files are only written once, so this is not an issue for files saved by
+ * LANAseq.</p>
+ *
+ * <p>The store is only used if {@link AppConfiguration#isDedup()} is true. Hard links cannot
+ * cross file systems; files that cannot be linked are left untouched.</p>
+ */
+@Component
+public class DedupStore {
+
+  /**
+   * Folder, inside home folder, containing distinct files.
+   */
+  public static final String FOLDER = ".dedup";
+  private static final Logger logger = LoggerFactory.getLogger(DedupStore.class);
+  private final AtomicReference<DedupUsage> usage = new AtomicReference<>(DedupUsage.EMPTY);
+  /**
+   * Locks by checksum, so that {@link #scan()} cannot remove a file from store while a file with
+   * the same checksum is being linked to it.
+   */
+  private final Striped<Lock> locks = Striped.lock(64);
+  private final AppConfiguration configuration;
+
+  @Autowired
+  protected DedupStore(AppConfiguration configuration) {
+    this.configuration = configuration;
+  }
+
+  /**
+   * Returns true if identical files are replaced by hard links.
+   *
+   * @return true if identical files are replaced by hard links
+   */
+  public boolean isEnabled() {
+    return configuration.isDedup();
+  }
+
+  /**
+   * Replaces file by a hard link to the file in store having the same content or, if no file in
+   * store has the same content, adds file to store.
+   *
+   * <p>Does nothing if store is disabled or file is not inside home folder.</p>
+   *
+   * @param file   file
+   * @param sha256 SHA-256 checksum of file's content, in hexadecimal
+   * @return bytes saved by replacing file with a hard link, 0 if file was not replaced
+   * @throws IOException could not replace file by a hard link
+   */
+  public long deduplicate(Path file, String sha256) throws IOException {
+    Objects.requireNonNull(file, "file parameter cannot be null");
+    Objects.requireNonNull(sha256, "sha256 parameter cannot be null");
+    Path home = configuration.getHome().getFolder();
+    if (!isEnabled() || !file.toAbsolutePath().startsWith(home.toAbsolutePath())) {
+      return 0;
+    }
+    String hash = sha256.toLowerCase(Locale.ROOT);
+    Path stored = folder().resolve(hash.substring(0, 2)).resolve(hash);
+    Files.createDirectories(stored.getParent());
+    long size = Files.size(file);
+    Lock lock = lock(hash);
+    lock.lock();
+    try {
+      try {
+        Files.createLink(stored, file);
+        usage.updateAndGet(current -> current.stored(size));
+        logger.debug("added file {} to store as {}", file, stored);
+        return 0;
+      } catch (FileAlreadyExistsException e) {
+        // Another file has the same content.
+      }
+      if (Files.isSameFile(stored, file)) {
+        return 0;
+      }
+      if (Files.size(stored) != size) {
+        logger.warn("file {} has size {} while stored file {} with the same checksum has size {}",
+            file, size, stored, Files.size(stored));
+        return 0;
+      }
+      Path link = file.resolveSibling("." + file.getFileName() + ".link");
+      Files.deleteIfExists(link);
+      Files.createLink(link, stored);
+      Files.move(link, file, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+      usage.updateAndGet(current -> current.linked(size));
+      logger.debug("replaced file {} by a link to {}, saving {} bytes", file, stored, size);
+      return size;
+    } catch (NoSuchFileException e) {
+      throw e;
+    } catch (UnsupportedOperationException | FileSystemException e) {
+      logger.debug("could not link file {} to {}, keeping file", file, stored, e);
+      return 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns disk usage of store, as of the last time store was scanned, see {@link #scan()},
+   * and including the files deduplicated since.
+   *
+   * @return disk usage of store
+   */
+  public DedupUsage usage() {
+    return usage.get();
+  }
+
+  /**
+   * Removes files that no other file links to from store and updates disk usage.
+   *
+   * <p>This method is executed every hour with an initial delay of 2 minutes to let the
+   * application start.</p>
+   */
+  @Scheduled(fixedRateString = "PT1H", initialDelayString = "PT2M")
+  @UsedBy(SPRING)
+  public void scan() {
+    if (!isEnabled()) {
+      return;
+    }
+    Path folder = folder();
+    if (!Files.isDirectory(folder)) {
+      usage.set(DedupUsage.EMPTY);
+      return;
+    }
+    long[] totals = new long[4];
+    try {
+      Files.walkFileTree(folder, new SimpleFileVisitor<>() {
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+          if (!attrs.isRegularFile()) {
+            return FileVisitResult.CONTINUE;
+          }
+          int links;
+          Lock lock = lock(file.getFileName().toString());
+          lock.lock();
+          try {
+            links = links(file);
+            if (links == 1) {
+              logger.debug("removing file {} from store, no other file links to it", file);
+              Files.deleteIfExists(file);
+              return FileVisitResult.CONTINUE;
+            }
+          } finally {
+            lock.unlock();
+          }
+          long size = attrs.size();
+          totals[0]++;
+          totals[1] += size;
+          if (links > 1) {
+            totals[2] += links - 1;
+            totals[3] += size * (links - 2);
+          }
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException exc) {
+          // Ignore files and folders that cannot be read.
+          return FileVisitResult.CONTINUE;
+        }
+      });
+      usage.set(new DedupUsage(totals[0], totals[1], totals[2], totals[3]));
+    } catch (IOException e) {
+      logger.warn("could not scan store {}", folder, e);
+    }
+  }
+
+  /**
+   * Returns number of hard links to file, or -1 if file system does not report it.
+   */
+  private int links(Path file) throws IOException {
+    try {
+      return (Integer) Files.getAttribute(file, "unix:nlink");
+    } catch (UnsupportedOperationException | IllegalArgumentException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Returns lock of files having checksum.
+   *
+   * @param hash SHA-256 checksum, in lowercase hexadecimal
+   * @return lock of files having checksum
+   */
+  Lock lock(String hash) {
+    return locks.get(hash);
+  }
+
+  private Path folder() {
+    return configuration.getHome().getFolder().resolve(FOLDER);
+  }
+}
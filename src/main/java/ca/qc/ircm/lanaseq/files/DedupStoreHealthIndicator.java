@@ -0,0 +1,31 @@
+package ca.qc.ircm.lanaseq.files;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the disk usage of {@link DedupStore}, including the bytes saved by hard links.
+ */
+@Component
+public class DedupStoreHealthIndicator implements HealthIndicator {
+
+  private final DedupStore dedupStore;
+
+  @Autowired
+  protected DedupStoreHealthIndicator(DedupStore dedupStore) {
+    this.dedupStore = dedupStore;
+  }
+
+  @Override
+  public Health health() {
+    if (!dedupStore.isEnabled()) {
+      return Health.up().withDetail("enabled", false).build();
+    }
+    DedupUsage usage = dedupStore.usage();
+    return Health.up().withDetail("enabled", true).withDetail("files", usage.files())
+        .withDetail("bytes", usage.bytes()).withDetail("links", usage.links())
+        .withDetail("savedBytes", usage.savedBytes()).build();
+  }
+}
@@ -0,0 +1,38 @@
+package ca.qc.ircm.lanaseq.files;
+
+/**
+ * Disk usage of a {@link DedupStore}.
+ *
+ * @param files      number of distinct files in store
+ * @param bytes      bytes used by distinct files
+ * @param links      number of files, outside the store, that are hard links to a file in store
+ * @param savedBytes bytes that would be used by the links if they were full copies, minus the
+ *                   bytes used by distinct files
+ */
+public record DedupUsage(long files, long bytes, long links, long savedBytes) {
+
+  /**
+   * Usage of an empty store.
+   */
+  public static final DedupUsage EMPTY = new DedupUsage(0, 0, 0, 0);
+
+  /**
+   * Returns usage after adding a new distinct file to store.
+   *
+   * @param size size of file
+   * @return usage after adding a new distinct file to store
+   */
+  DedupUsage stored(long size) {
+    return new DedupUsage(files + 1, bytes + size, links + 1, savedBytes);
+  }
+
+  /**
+   * Returns usage after replacing a file by a link to a file in store.
+   *
+   * @param size size of file
+   * @return usage after replacing a file by a link to a file in store
+   */
+  DedupUsage linked(long size) {
+    return new DedupUsage(files, bytes, links + 1, savedBytes + size);
+  }
+}
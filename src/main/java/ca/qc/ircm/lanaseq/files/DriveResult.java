@@ -0,0 +1,24 @@
+package ca.qc.ircm.lanaseq.files;
+
+import ca.qc.ircm.lanaseq.AppConfiguration.NetworkDrive;
+import java.util.Optional;
+
+/**
+ * Result of an operation on a network drive.
+ *
+ * @param drive  network drive
+ * @param result result of the operation, empty if the drive was unavailable
+ * @param <D>    type of data with files
+ * @param <R>    type of result
+ */
+public record DriveResult<D, R>(NetworkDrive<D> drive, Optional<R> result) {
+
+  /**
+   * Returns true if the drive responded in time, false otherwise.
+   *
+   * @return true if the drive responded in time, false otherwise
+   */
+  public boolean isAvailable() {
+    return result.isPresent();
+  }
+}
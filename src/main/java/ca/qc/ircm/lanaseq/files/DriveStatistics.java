@@ -0,0 +1,195 @@
+package ca.qc.ircm.lanaseq.files;
+
+import ca.qc.ircm.lanaseq.AppConfiguration.NetworkDrive;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import org.springframework.lang.Nullable;
+
+/**
+ * Rolling latency and error statistics of a network drive, with a circuit breaker.
+ *
+ * <p>After {@link #FAILURE_THRESHOLD} consecutive failures, the circuit opens and requests are
+ * rejected for {@link #COOL_DOWN}. After the cool-down, a single request is allowed to test the
+ * drive; the circuit closes if it succeeds and opens again if it fails.</p>
+ */
+public class DriveStatistics {
+
+  /**
+   * Number of operations kept for statistics.
+   */
+  public static final int WINDOW = 100;
+  /**
+   * Number of consecutive failures after which the circuit opens.
+   */
+  public static final int FAILURE_THRESHOLD = 3;
+  /**
+   * Time during which requests are rejected once the circuit is open.
+   */
+  public static final Duration COOL_DOWN = Duration.ofMinutes(1);
+
+  /**
+   * State of the circuit breaker.
+   */
+  public enum State {
+    /**
+     * Requests are allowed.
+     */
+    CLOSED,
+    /**
+     * Requests are rejected.
+     */
+    OPEN,
+    /**
+     * A single request is allowed to test the drive.
+     */
+    HALF_OPEN
+  }
+
+  private final NetworkDrive<?> drive;
+  private final long[] latencies = new long[WINDOW];
+  private final boolean[] failures = new boolean[WINDOW];
+  private int count;
+  private long requests;
+  private long rejected;
+  private int consecutiveFailures;
+  private State state = State.CLOSED;
+  @Nullable
+  private Instant openUntil;
+
+  DriveStatistics(NetworkDrive<?> drive) {
+    this.drive = drive;
+  }
+
+  /**
+   * Returns true if a request to the drive is allowed, false if the circuit is open.
+   *
+   * @param now current time
+   * @return true if a request to the drive is allowed, false if the circuit is open
+   */
+  synchronized boolean allowRequest(Instant now) {
+    if (state == State.OPEN && openUntil != null && !now.isBefore(openUntil)) {
+      state = State.HALF_OPEN;
+      return true;
+    }
+    if (state != State.CLOSED) {
+      rejected++;
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Records a successful operation.
+   *
+   * @param latency duration of the operation
+   */
+  synchronized void success(Duration latency) {
+    record(latency, false);
+    consecutiveFailures = 0;
+    state = State.CLOSED;
+    openUntil = null;
+  }
+
+  /**
+   * Records a failed or timed out operation.
+   *
+   * @param latency duration of the operation
+   * @param now     current time
+   */
+  synchronized void failure(Duration latency, Instant now) {
+    record(latency, true);
+    consecutiveFailures++;
+    if (state == State.HALF_OPEN || consecutiveFailures >= FAILURE_THRESHOLD) {
+      state = State.OPEN;
+      openUntil = now.plus(COOL_DOWN);
+    }
+  }
+
+  /**
+   * Records an operation that was abandoned before the drive responded, for example because the
+   * request was interrupted.
+   *
+   * <p>The drive is not blamed for the operation. If the operation was the test of a half-open
+   * circuit, another request is allowed to test the drive.</p>
+   *
+   * @param now current time
+   */
+  synchronized void abandon(Instant now) {
+    if (state == State.HALF_OPEN) {
+      state = State.OPEN;
+      openUntil = now;
+    }
+  }
+
+  private void record(Duration latency, boolean failure) {
+    int index = (int) (requests % WINDOW);
+    latencies[index] = latency.toNanos();
+    failures[index] = failure;
+    count = Math.min(count + 1, WINDOW);
+    requests++;
+  }
+
+  public NetworkDrive<?> getDrive() {
+    return drive;
+  }
+
+  public synchronized State getState() {
+    return state;
+  }
+
+  /**
+   * Returns the total number of operations on the drive.
+   *
+   * @return the total number of operations on the drive
+   */
+  public synchronized long getRequests() {
+    return requests;
+  }
+
+  /**
+   * Returns the number of requests rejected because the circuit was open.
+   *
+   * @return the number of requests rejected because the circuit was open
+   */
+  public synchronized long getRejected() {
+    return rejected;
+  }
+
+  /**
+   * Returns the average latency of the last {@link #WINDOW} operations.
+   *
+   * @return the average latency of the last {@link #WINDOW} operations
+   */
+  public synchronized Duration getAverageLatency() {
+    return count == 0 ? Duration.ZERO
+        : Duration.ofNanos(Arrays.stream(latencies, 0, count).sum() / count);
+  }
+
+  /**
+   * Returns the maximum latency of the last {@link #WINDOW} operations.
+   *
+   * @return the maximum latency of the last {@link #WINDOW} operations
+   */
+  public synchronized Duration getMaximumLatency() {
+    return Duration.ofNanos(Arrays.stream(latencies, 0, count).max().orElse(0));
+  }
+
+  /**
+   * Returns the ratio of failed operations among the last {@link #WINDOW} operations.
+   *
+   * @return the ratio of failed operations among the last {@link #WINDOW} operations
+   */
+  public synchronized double getErrorRate() {
+    if (count == 0) {
+      return 0;
+    }
+    int errors = 0;
+    for (int i = 0; i < count; i++) {
+      if (failures[i]) {
+        errors++;
+      }
+    }
+    return (double) errors / count;
+  }
+}
@@ -0,0 +1,64 @@
+package ca.qc.ircm.lanaseq.files;
+
+import ca.qc.ircm.lanaseq.AppConfiguration.NetworkDrive;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limits the number of files transferred to or from each network drive at the same time.
+ *
+ * <p>Each drive has {@link NetworkDrive#getConcurrency()} permits. Permits are shared by all
+ * transfers involving the drive, so that saving files and preparing analysis folders do not
+ * overload a drive when they run at the same time.</p>
+ *
+ * <p>Files that are not on a configured drive share a single pool of {@link #OTHER_CONCURRENCY}
+ * permits.</p>
+ */
+@Component
+public class DriveThrottle {
+
+  /**
+   * Number of files that are not on a configured drive that can be transferred at the same time.
+   */
+  public static final int OTHER_CONCURRENCY = 1;
+  /**
+   * Permits, by drive.
+   */
+  private final Map<NetworkDrive<?>, Semaphore> permits = new ConcurrentHashMap<>();
+  /**
+   * Permits of files that are not on a configured drive.
+   */
+  private final Semaphore otherPermits = new Semaphore(OTHER_CONCURRENCY, true);
+
+  /**
+   * Returns the permits of drive.
+   *
+   * <p>Permits are granted in the order they are requested.</p>
+   *
+   * @param drive drive, null for files that are not on a configured drive
+   * @return permits of drive
+   */
+  public Semaphore permits(@Nullable NetworkDrive<?> drive) {
+    if (drive == null) {
+      return otherPermits;
+    }
+    return permits.computeIfAbsent(drive, d -> new Semaphore(concurrency(d), true));
+  }
+
+  /**
+   * Returns the maximum number of files that can be transferred to or from drive at the same
+   * time.
+   *
+   * @param drive drive, null for files that are not on a configured drive
+   * @return maximum number of files that can be transferred to or from drive at the same time
+   */
+  public int concurrency(@Nullable NetworkDrive<?> drive) {
+    if (drive == null) {
+      return OTHER_CONCURRENCY;
+    }
+    return Math.max(1, drive.getConcurrency());
+  }
+}
@@ -0,0 +1,548 @@
+package ca.qc.ircm.lanaseq.files;
+
+import static ca.qc.ircm.lanaseq.UsedBy.SPRING;
+
+import ca.qc.ircm.lanaseq.AppConfiguration;
+import ca.qc.ircm.lanaseq.UsedBy;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Persistent index of the files present inside the home and archive folders.
+ *
+ * <p>The index maps filenames to the files having that name, so that looking for files by name does
+ * not require to walk the whole folder.</p>
+ *
+ * <p>A stale index is rebuilt in the background while queries keep using it. Queries only wait
+ * for the folder to be walked when no index exists for it.</p>
+ *
+ * <p>The first line of an index file contains the date when the index was built. Saving changes
+ * made to an index keeps this date, so an index that is updated incrementally still gets rebuilt
+ * when it is stale. Index files without this line are dated by their last modification.</p>
+ */
+@Component
+public class FileIndex {
+
+  /**
+   * Extension of index files.
+   */
+  public static final String INDEX_EXTENSION = ".index.gz";
+  /**
+   * Start of the first line of index files, followed by the date when the index was built.
+   */
+  static final String BUILT_HEADER = "#built ";
+  private static final Logger logger = LoggerFactory.getLogger(FileIndex.class);
+  /**
+   * Indexes that are loaded in memory.
+   */
+  private final Map<Path, Index> indexes = new ConcurrentHashMap<>();
+  /**
+   * Locks used to prevent indexing the same folder more than once at the same time.
+   *
+   * <p>Indexing runs on virtual threads and blocks on file system calls, so a
+   * {@link ReentrantLock} is used instead of <code>synchronized</code> to avoid pinning the
+   * carrier thread.</p>
+   */
+  private final Map<Path, Lock> locks = new ConcurrentHashMap<>();
+  /**
+   * Folders that are kept up to date by a {@link FileIndexWatcher}.
+   */
+  private final Set<Path> watched = ConcurrentHashMap.newKeySet();
+  /**
+   * Folders whose index is being rebuilt in the background.
+   */
+  private final Set<Path> rebuilding = ConcurrentHashMap.newKeySet();
+  private final AppConfiguration configuration;
+  /**
+   * Rebuilds stale indexes in the background.
+   */
+  private final Executor executor;
+
+  @Autowired
+  protected FileIndex(AppConfiguration configuration) {
+    this(configuration, Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("file-index-", 1).factory()));
+  }
+
+  FileIndex(AppConfiguration configuration, Executor executor) {
+    this.configuration = configuration;
+    this.executor = executor;
+  }
+
+  /**
+   * Returns all regular files inside folder, or its sub-folders, having a name that contains any
+   * of the filenames.
+   *
+   * <p>The index of folder is used if present. If it is stale, it is still used and it is rebuilt
+   * in the background. If it is missing, the folder is walked and the index is built.</p>
+   *
+   * @param folder    folder
+   * @param filenames filenames, may contain glob characters
+   * @return all regular files inside folder, or its sub-folders, having a name that contains any
+   * of the filenames
+   */
+  public List<Path> files(Path folder, Collection<String> filenames) {
+    FilenameMatcher matcher = FilenameMatcher.containing(filenames);
+    Optional<Index> optionalIndex = index(folder);
+    if (optionalIndex.isEmpty()) {
+      // Indexing is disabled.
+      List<Path> files = new ArrayList<>();
+      walk(folder, file -> {
+        if (matcher.matches(file)) {
+          files.add(file);
+        }
+      });
+      return files;
+    }
+    Index index = optionalIndex.get();
+    return index.files.entrySet().stream().filter(entry -> matcher.matches(entry.getKey()))
+        .flatMap(entry -> entry.getValue().stream()).filter(Files::isRegularFile).toList();
+  }
+
+  /**
+   * Loads the index of folder in memory, building it if it is missing.
+   *
+   * <p>A stale index is rebuilt in the background.</p>
+   *
+   * @param folder folder
+   */
+  public void load(Path folder) {
+    index(folder);
+  }
+
+  /**
+   * Adds file to all indexes containing it.
+   *
+   * <p>Only indexes that are loaded in memory are updated.</p>
+   *
+   * @param file file
+   */
+  public void add(Path file) {
+    indexes(file).forEach(index -> index.add(file));
+  }
+
+  /**
+   * Removes file from all indexes containing it.
+   *
+   * <p>If file is a folder, all files inside the folder are removed.</p>
+   *
+   * <p>Only indexes that are loaded in memory are updated.</p>
+   *
+   * @param file file or folder
+   */
+  public void remove(Path file) {
+    indexes(file).forEach(index -> index.remove(file));
+  }
+
+  /**
+   * Replaces source by target in all indexes containing them.
+   *
+   * <p>Only indexes that are loaded in memory are updated.</p>
+   *
+   * @param source file or folder before the move
+   * @param target file or folder after the move
+   */
+  public void move(Path source, Path target) {
+    remove(source);
+    if (Files.isDirectory(target)) {
+      rescan(target);
+    } else {
+      add(target);
+    }
+  }
+
+  /**
+   * Updates all indexes containing folder with the files currently present inside folder.
+   *
+   * <p>Folder is walked before indexes are modified, so queries never see an empty folder while
+   * it is rescanned.</p>
+   *
+   * <p>Only indexes that are loaded in memory are updated.</p>
+   *
+   * @param folder folder
+   */
+  public void rescan(Path folder) {
+    if (indexes(folder).isEmpty()) {
+      return;
+    }
+    logger.debug("rescanning folder {}", folder);
+    List<Path> files = new ArrayList<>();
+    walk(folder, files::add);
+    for (Index index : indexes(folder)) {
+      Lock lock = lock(index.folder);
+      lock.lock();
+      try {
+        index.replace(folder, files);
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Sets if folder's index is kept up to date by a {@link FileIndexWatcher}.
+   *
+   * <p>An index that is kept up to date never gets stale.</p>
+   *
+   * @param folder  folder
+   * @param watched true if folder's index is kept up to date by a {@link FileIndexWatcher}
+   */
+  public void setWatched(Path folder, boolean watched) {
+    if (watched) {
+      this.watched.add(folder);
+    } else {
+      this.watched.remove(folder);
+    }
+  }
+
+  /**
+   * Rebuilds the index of home and archive folders that are not kept up to date by a
+   * {@link FileIndexWatcher}.
+   *
+   * <p>This method is executed every hour with an initial delay of 2 minutes to let the
+   * application start.</p>
+   */
+  @Scheduled(fixedRateString = "PT1H", initialDelayString = "PT2M")
+  @UsedBy(SPRING)
+  public void rebuildIndexes() {
+    if (configuration.getFileIndexFolder() == null) {
+      return;
+    }
+    Stream.concat(Stream.of(configuration.getHome()), configuration.getArchives().stream())
+        .map(AppConfiguration.NetworkDrive::getFolder).filter(folder -> !watched.contains(folder))
+        .forEach(this::rebuild);
+  }
+
+  /**
+   * Rebuilds the index of folder.
+   *
+   * @param folder folder
+   */
+  public void rebuild(Path folder) {
+    Path indexFile = indexFile(folder);
+    if (indexFile == null) {
+      return;
+    }
+    Lock lock = lock(folder);
+    lock.lock();
+    try {
+      indexes.put(folder, build(folder, indexFile));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Saves indexes that were modified since they were loaded or saved.
+   *
+   * <p>This method is executed every 5 minutes.</p>
+   */
+  @Scheduled(fixedRateString = "PT5M", initialDelayString = "PT5M")
+  @UsedBy(SPRING)
+  public void saveIndexes() {
+    for (Index index : indexes.values()) {
+      Path indexFile = indexFile(index.folder);
+      if (indexFile != null && index.modified) {
+        Lock lock = lock(index.folder);
+        lock.lock();
+        try {
+          index.modified = false;
+          write(index, indexFile);
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+  }
+
+  @PreDestroy
+  @UsedBy(SPRING)
+  void destroy() {
+    if (executor instanceof ExecutorService service) {
+      service.shutdownNow();
+    }
+    saveIndexes();
+  }
+
+  private Optional<Index> index(Path folder) {
+    Path indexFile = indexFile(folder);
+    if (indexFile == null) {
+      return Optional.empty();
+    }
+    Index index = indexes.get(folder);
+    if (index == null) {
+      Lock lock = lock(folder);
+      lock.lock();
+      try {
+        index = indexes.get(folder);
+        if (index == null) {
+          index = read(folder, indexFile).orElseGet(() -> build(folder, indexFile));
+          indexes.put(folder, index);
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+    if (isStale(index)) {
+      rebuildLater(folder);
+    }
+    return Optional.of(index);
+  }
+
+  private void rebuildLater(Path folder) {
+    if (!rebuilding.add(folder)) {
+      return;
+    }
+    try {
+      executor.execute(() -> {
+        try {
+          rebuild(folder);
+        } finally {
+          rebuilding.remove(folder);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      rebuilding.remove(folder);
+      logger.debug("could not rebuild index of folder {} in the background", folder, e);
+    }
+  }
+
+  private List<Index> indexes(Path file) {
+    return indexes.values().stream().filter(index -> file.startsWith(index.folder)).toList();
+  }
+
+  private Lock lock(Path folder) {
+    return locks.computeIfAbsent(folder, f -> new ReentrantLock());
+  }
+
+  @Nullable
+  private Path indexFile(Path folder) {
+    Path indexFolder = configuration.getFileIndexFolder();
+    if (indexFolder == null) {
+      return null;
+    }
+    return indexFolder.resolve(folder.toString().replaceAll("\\W", "_") + INDEX_EXTENSION);
+  }
+
+  private boolean isStale(Index index) {
+    if (watched.contains(index.folder)) {
+      return false;
+    }
+    Duration maxAge = Optional.ofNullable(configuration.getFileIndexMaxAge())
+        .orElse(Duration.ZERO);
+    return index.date.plus(maxAge).isBefore(Instant.now());
+  }
+
+  private Optional<Index> read(Path folder, Path indexFile) {
+    if (!Files.exists(indexFile)) {
+      return Optional.empty();
+    }
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+        new GZIPInputStream(Files.newInputStream(indexFile)), StandardCharsets.UTF_8))) {
+      String line = reader.readLine();
+      Instant date;
+      if (line != null && line.startsWith(BUILT_HEADER)) {
+        date = Instant.parse(line.substring(BUILT_HEADER.length()));
+        line = reader.readLine();
+      } else {
+        date = Files.getLastModifiedTime(indexFile).toInstant();
+      }
+      Index index = new Index(folder, date);
+      while (line != null) {
+        if (!line.isEmpty()) {
+          index.add(folder.resolve(line));
+        }
+        line = reader.readLine();
+      }
+      index.modified = false;
+      logger.debug("loaded index {} of folder {}", indexFile, folder);
+      return Optional.of(index);
+    } catch (IOException | DateTimeParseException e) {
+      logger.warn("could not load index {} of folder {}", indexFile, folder, e);
+      return Optional.empty();
+    }
+  }
+
+  private Index build(Path folder, Path indexFile) {
+    logger.debug("indexing folder {}", folder);
+    Index index = new Index(folder, Instant.now());
+    walk(folder, index::add);
+    index.modified = false;
+    write(index, indexFile);
+    return index;
+  }
+
+  private void write(Index index, Path indexFile) {
+    try {
+      Files.createDirectories(indexFile.getParent());
+      Path temporary = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+      try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+          new GZIPOutputStream(Files.newOutputStream(temporary)), StandardCharsets.UTF_8))) {
+        writer.write(BUILT_HEADER + index.date);
+        writer.write("\n");
+        for (Set<Path> paths : index.files.values()) {
+          for (Path file : paths) {
+            writer.write(index.folder.relativize(file).toString());
+            writer.write("\n");
+          }
+        }
+      }
+      Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      logger.debug("saved index {} of folder {}", indexFile, index.folder);
+    } catch (IOException e) {
+      logger.warn("could not save index {} of folder {}", indexFile, index.folder, e);
+    }
+  }
+
+  private void walk(Path folder, Consumer<Path> consumer) {
+    if (!Files.isDirectory(folder)) {
+      return;
+    }
+    try {
+      Files.walkFileTree(folder, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+          new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+              if (attrs.isRegularFile()) {
+                consumer.accept(file);
+              }
+              return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+              // Ignore files and folders that cannot be read.
+              return FileVisitResult.CONTINUE;
+            }
+          });
+    } catch (IOException e) {
+      logger.warn("could not walk folder {}", folder, e);
+    }
+  }
+
+  /**
+   * Index of a folder.
+   */
+  private static class Index {
+
+    /**
+     * Indexed folder.
+     */
+    private final Path folder;
+    /**
+     * Date when the index was built.
+     */
+    private final Instant date;
+    /**
+     * Files by filename.
+     */
+    private final Map<String, Set<Path>> files = new ConcurrentHashMap<>();
+    /**
+     * True if index was modified since it was loaded or saved.
+     */
+    private volatile boolean modified;
+
+    private Index(Path folder, Instant date) {
+      this.folder = folder;
+      this.date = date;
+    }
+
+    private void add(Path file) {
+      // Add inside compute so that a concurrent replace cannot discard file.
+      files.compute(String.valueOf(file.getFileName()), (name, paths) -> {
+        paths = paths != null ? paths : ConcurrentHashMap.newKeySet();
+        paths.add(file);
+        return paths;
+      });
+      modified = true;
+    }
+
+    /**
+     * Replaces all files inside folder by scanned files.
+     *
+     * <p>Files are replaced one filename at a time, so a query sees either the old or the new
+     * files having a filename, never none of them.</p>
+     *
+     * @param folder  folder
+     * @param scanned files currently inside folder
+     */
+    private void replace(Path folder, Collection<Path> scanned) {
+      Map<String, List<Path>> added = new HashMap<>();
+      scanned.forEach(file -> added.computeIfAbsent(String.valueOf(file.getFileName()),
+          name -> new ArrayList<>()).add(file));
+      Set<String> names = new HashSet<>(added.keySet());
+      files.forEach((name, paths) -> {
+        if (paths.stream().anyMatch(path -> path.startsWith(folder))) {
+          names.add(name);
+        }
+      });
+      for (String name : names) {
+        files.compute(name, (key, paths) -> {
+          Set<Path> replacement = ConcurrentHashMap.newKeySet();
+          if (paths != null) {
+            paths.stream().filter(path -> !path.startsWith(folder)).forEach(replacement::add);
+          }
+          replacement.addAll(added.getOrDefault(name, List.of()));
+          return replacement.isEmpty() ? null : replacement;
+        });
+      }
+      modified = true;
+    }
+
+    private void remove(Path file) {
+      Set<Path> named = files.get(String.valueOf(file.getFileName()));
+      if (named != null && named.remove(file)) {
+        modified = true;
+        return;
+      }
+      // File is probably a folder.
+      for (Set<Path> paths : files.values()) {
+        if (paths.removeIf(path -> path.startsWith(file))) {
+          modified = true;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,289 @@
+package ca.qc.ircm.lanaseq.files;
+
+import static ca.qc.ircm.lanaseq.UsedBy.SPRING;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import ca.qc.ircm.lanaseq.AppConfiguration;
+import ca.qc.ircm.lanaseq.UsedBy;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Watches home and archive folders and applies changes to {@link FileIndex}.
+ *
+ * <p>Folders located on file systems that do not send notifications, like SMB or NFS, are not
+ * watched and their index is rebuilt periodically by {@link FileIndex}. When too many events occur
+ * at once, the affected folders are rescanned later, a few at a time.</p>
+ *
+ * <p>Symbolic links to folders are followed, like {@link FileIndex} does when it walks a folder.
+ * If a sub-folder cannot be watched, for example because the system limit of watches is reached,
+ * its folder is no longer considered watched and is rebuilt periodically.</p>
+ */
+@Component
+public class FileIndexWatcher {
+
+  /**
+   * Types of file stores that do not send notifications.
+   */
+  public static final Set<String> UNWATCHABLE_FILE_STORE_TYPES =
+      Set.of("cifs", "smb2", "smb3", "smbfs", "nfs", "nfs4", "fuse.sshfs");
+  /**
+   * Maximum number of folders to rescan every time {@link #rescanPending()} is called.
+   */
+  public static final int MAXIMUM_RESCANS = 10;
+  private static final Logger logger = LoggerFactory.getLogger(FileIndexWatcher.class);
+  /**
+   * Watched folders by watch key.
+   */
+  private final Map<WatchKey, Path> keys = new ConcurrentHashMap<>();
+  /**
+   * Home and archive folders that are watched.
+   */
+  private final Set<Path> roots = ConcurrentHashMap.newKeySet();
+  /**
+   * Folders to rescan, guarded by itself.
+   */
+  private final Set<Path> pendingRescans = new LinkedHashSet<>();
+  private final AppConfiguration configuration;
+  private final FileIndex fileIndex;
+  private WatchService watchService;
+
+  @Autowired
+  protected FileIndexWatcher(AppConfiguration configuration, FileIndex fileIndex) {
+    this.configuration = configuration;
+    this.fileIndex = fileIndex;
+  }
+
+  /**
+   * Starts watching home and archive folders.
+   *
+   * <p>Folders are registered and their index is loaded in the background, before events are
+   * processed, so that walking large folders does not delay the start of the application.</p>
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  @UsedBy(SPRING)
+  public void start() {
+    if (configuration.getFileIndexFolder() == null || watchService != null) {
+      return;
+    }
+    try {
+      watchService = FileSystems.getDefault().newWatchService();
+    } catch (IOException | UnsupportedOperationException e) {
+      logger.warn("could not create watch service, file index will be rebuilt periodically", e);
+      return;
+    }
+    List<Path> folders =
+        Stream.concat(Stream.of(configuration.getHome()), configuration.getArchives().stream())
+            .map(AppConfiguration.NetworkDrive::getFolder).toList();
+    Thread.ofPlatform().daemon().name("file-index-watcher").start(() -> {
+      try {
+        folders.forEach(this::watch);
+      } catch (ClosedWatchServiceException e) {
+        return;
+      }
+      processEvents();
+    });
+  }
+
+  /**
+   * Stops watching folders.
+   */
+  @PreDestroy
+  @UsedBy(SPRING)
+  public void stop() {
+    if (watchService != null) {
+      try {
+        watchService.close();
+      } catch (IOException e) {
+        logger.warn("could not close watch service", e);
+      }
+    }
+  }
+
+  /**
+   * Returns true if folder is located on a file system that sends notifications, false otherwise.
+   *
+   * @param folder folder
+   * @return true if folder is located on a file system that sends notifications, false otherwise
+   */
+  public boolean isWatchable(Path folder) {
+    try {
+      return !UNWATCHABLE_FILE_STORE_TYPES.contains(Files.getFileStore(folder).type());
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Rescans folders for which events were lost.
+   *
+   * <p>At most {@link #MAXIMUM_RESCANS} folders are rescanned every minute to limit the load on
+   * the file system.</p>
+   */
+  @Scheduled(fixedRateString = "PT1M", initialDelayString = "PT2M")
+  @UsedBy(SPRING)
+  public void rescanPending() {
+    List<Path> folders = new ArrayList<>();
+    synchronized (pendingRescans) {
+      Iterator<Path> iterator = pendingRescans.iterator();
+      while (iterator.hasNext() && folders.size() < MAXIMUM_RESCANS) {
+        folders.add(iterator.next());
+        iterator.remove();
+      }
+    }
+    folders.forEach(fileIndex::rescan);
+  }
+
+  private void watch(Path folder) {
+    if (!Files.isDirectory(folder) || !isWatchable(folder)) {
+      logger.info("not watching folder {}, its index will be rebuilt periodically", folder);
+      return;
+    }
+    try {
+      register(folder);
+      roots.add(folder);
+      fileIndex.setWatched(folder, true);
+      fileIndex.load(folder);
+      logger.debug("watching folder {}", folder);
+    } catch (IOException e) {
+      logger.warn("could not watch folder {}, its index will be rebuilt periodically", folder, e);
+    }
+  }
+
+  /**
+   * Watches folder and all its sub-folders.
+   *
+   * <p>If any folder cannot be watched, watches added by this method are cancelled.</p>
+   *
+   * @param folder folder
+   * @throws IOException could not watch a folder
+   */
+  private void register(Path folder) throws IOException {
+    List<WatchKey> registered = new ArrayList<>();
+    try {
+      Files.walkFileTree(folder, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+          new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attrs)
+                throws IOException {
+              WatchKey key = directory.register(watchService, ENTRY_CREATE, ENTRY_DELETE);
+              if (keys.put(key, directory) == null) {
+                registered.add(key);
+              }
+              return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+              // Ignore files and folders that cannot be read, including loops of links.
+              return FileVisitResult.CONTINUE;
+            }
+          });
+    } catch (IOException | RuntimeException e) {
+      registered.forEach(key -> {
+        key.cancel();
+        keys.remove(key);
+      });
+      throw e;
+    }
+  }
+
+  private void processEvents() {
+    while (true) {
+      WatchKey key;
+      try {
+        key = watchService.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (ClosedWatchServiceException e) {
+        return;
+      }
+      Path directory = keys.get(key);
+      if (directory != null) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+          try {
+            process(directory, event);
+          } catch (RuntimeException e) {
+            logger.warn("could not process event {} on {}", event.kind(), directory, e);
+            rescanLater(directory);
+          }
+        }
+      }
+      if (!key.reset()) {
+        keys.remove(key);
+      }
+    }
+  }
+
+  private void process(Path directory, WatchEvent<?> event) {
+    if (event.kind() == OVERFLOW) {
+      logger.debug("events lost for folder {}", directory);
+      rescanLater(directory);
+      return;
+    }
+    Path file = directory.resolve((Path) event.context());
+    if (event.kind() == ENTRY_CREATE) {
+      if (Files.isDirectory(file)) {
+        try {
+          register(file);
+        } catch (IOException e) {
+          unwatch(file, e);
+        }
+        fileIndex.rescan(file);
+      } else if (Files.isRegularFile(file)) {
+        fileIndex.add(file);
+      }
+    } else if (event.kind() == ENTRY_DELETE) {
+      fileIndex.remove(file);
+    }
+  }
+
+  /**
+   * Stops considering the watched folder containing file as up to date, so that its index is
+   * rebuilt periodically.
+   */
+  private void unwatch(Path file, IOException cause) {
+    roots.stream().filter(file::startsWith).forEach(root -> {
+      logger.warn("could not watch folder {}, index of {} will be rebuilt periodically", file,
+          root, cause);
+      roots.remove(root);
+      fileIndex.setWatched(root, false);
+    });
+  }
+
+  private void rescanLater(Path folder) {
+    synchronized (pendingRescans) {
+      pendingRescans.add(folder);
+    }
+  }
+}
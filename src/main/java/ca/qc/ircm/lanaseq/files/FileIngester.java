@@ -0,0 +1,476 @@
+package ca.qc.ircm.lanaseq.files;
+
+import static ca.qc.ircm.lanaseq.UsedBy.SPRING;
+
+import ca.qc.ircm.lanaseq.AppConfiguration;
+import ca.qc.ircm.lanaseq.AppConfiguration.NetworkDrive;
+import ca.qc.ircm.lanaseq.UsedBy;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves files to a network drive, several files at a time.
+ *
+ * <p>At most {@link NetworkDrive#getConcurrency()} files are copied to the same drive at the same
+ * time, even when files are ingested by many users at once, see {@link DriveThrottle}.</p>
+ *
+ * <p>The MD5 checksum of each file, and its SHA-256 checksum if
+ * {@link AppConfiguration#isSha256Checksums()} is true, is computed while the file is copied and
+ * written to a sidecar file next to the moved file, see {@link Checksum}. Files renamed on the same
+ * file system are not read, so their checksums are only computed when an uploaded checksum file
+ * must be verified or when {@link AppConfiguration#isRenameChecksums()} is true. Computing them
+ * reads the whole file once more.</p>
+ *
+ * <p>Files that must be copied are first copied to a hidden temporary file next to the target and
+ * renamed once the copy is complete. The progress of copies is recorded in an
+ * {@link IngestJournal}, so that copies interrupted by a crash or a restart are resumed from the
+ * last recorded offset when the application starts.</p>
+ *
+ * <p>If {@link DedupStore#isEnabled()} is true, moved files having the same content as a file
+ * already saved are replaced by hard links to that file.</p>
+ */
+@Component
+public class FileIngester {
+
+  private static final Logger logger = LoggerFactory.getLogger(FileIngester.class);
+  /**
+   * Journals that are loaded in memory, by journal file.
+   */
+  private final Map<Path, IngestJournal> journals = new ConcurrentHashMap<>();
+  /**
+   * Targets being moved, to prevent copying two files to the same target at the same time.
+   */
+  private final Set<Path> moving = ConcurrentHashMap.newKeySet();
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+  private final AppConfiguration configuration;
+  private final FileIndex fileIndex;
+  private final DedupStore dedupStore;
+  private final DriveThrottle throttle;
+
+  @Autowired
+  protected FileIngester(AppConfiguration configuration, FileIndex fileIndex,
+      DedupStore dedupStore, DriveThrottle throttle) {
+    this.configuration = configuration;
+    this.fileIndex = fileIndex;
+    this.dedupStore = dedupStore;
+    this.throttle = throttle;
+  }
+
+  /**
+   * Moves files to drive, replacing files that already exist.
+   *
+   * <p>Files are started in the same order as they are present in files. Progression receives
+   * the names of the files being moved along with the strategy used, see
+   * {@link FileTransfer.Strategy#label()}, and the fraction of bytes transferred for all
+   * files.</p>
+   *
+   * <p>Checksum files, like <code>.md5</code> files, that are part of files along with the file
+   * they describe are not moved. Instead, the checksum they contain is compared to the checksum
+   * computed while moving the file and a new checksum file is written next to the moved file. If
+   * checksums do not match, the file is moved back to its source.</p>
+   *
+   * <p>If a file cannot be moved, files that were not started are skipped and files being
+   * copied are interrupted. Interrupted copies are resumed from where they stopped if the same
+   * file is moved again, or when the application restarts.</p>
+   *
+   * @param drive       drive where files are moved
+   * @param files       files to move, mapped to their target
+   * @param progression progression of file moving
+   * @param moved       called with the target of each file and of its checksum files once it is
+   *                    moved
+   * @throws IllegalArgumentException a file could not be moved or its checksum does not match
+   */
+  public void ingest(NetworkDrive<?> drive, Map<Path, Path> files,
+      BiConsumer<String, Double> progression, Consumer<Path> moved) {
+    List<Checksum> checksums = checksums();
+    List<Checksum> digested = new ArrayList<>(checksums);
+    if (dedupStore.isEnabled() && !digested.contains(Checksum.SHA256)) {
+      // Content of files is identified by its SHA-256 checksum.
+      digested.add(Checksum.SHA256);
+    }
+    Map<Path, Path> queued = new LinkedHashMap<>(files);
+    Map<Path, Map<Checksum, Path>> uploadedChecksums = new HashMap<>();
+    for (Path file : files.keySet()) {
+      for (Checksum checksum : checksums) {
+        checksum.file(file).filter(files::containsKey).ifPresent(checksumOf -> {
+          uploadedChecksums.computeIfAbsent(checksumOf, f -> new EnumMap<>(Checksum.class))
+              .put(checksum, file);
+          queued.remove(file);
+        });
+      }
+    }
+    Map<Path, Long> sizes = new HashMap<>();
+    for (Path file : queued.keySet()) {
+      try {
+        sizes.put(file, Files.size(file));
+      } catch (IOException e) {
+        throw new IllegalArgumentException("could not get size of file " + file, e);
+      }
+    }
+    TransferMeter meter =
+        new TransferMeter(sizes.values().stream().mapToLong(Long::longValue).sum(), progression);
+    Semaphore permits = throttle.permits(drive);
+    Queue<Map.Entry<Path, Path>> queue = new ConcurrentLinkedQueue<>(queued.entrySet());
+    Set<String> active = new LinkedHashSet<>();
+    int workers = Math.max(1, Math.min(throttle.concurrency(drive), queued.size()));
+    logger.debug("moving {} files to {} using {} workers", queued.size(), drive.getFolder(),
+        workers);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < workers; i++) {
+      futures.add(executor.submit(() -> {
+        Map.Entry<Path, Path> file;
+        while ((file = queue.poll()) != null) {
+          Path source = file.getKey();
+          Path target = file.getValue();
+          if (!moving.add(target)) {
+            throw new IllegalArgumentException(
+                "could not move file " + source + " to " + target
+                    + ", another file is being moved to " + target);
+          }
+          permits.acquire();
+          try {
+            Map<Checksum, MessageDigest> digests = new EnumMap<>(Checksum.class);
+            digested.forEach(checksum -> digests.put(checksum, checksum.digest()));
+            Map<Checksum, Path> uploaded = uploadedChecksums.getOrDefault(source, Map.of());
+            FileTransfer.Strategy used = move(drive, source, target, sizes.get(source), digests,
+                uploaded.keySet(), meter, active);
+            Map<Checksum, String> hashes = new EnumMap<>(Checksum.class);
+            digests.forEach((checksum, digest) -> hashes.put(checksum,
+                HexFormat.of().formatHex(digest.digest())));
+            List<Path> sidecars =
+                writeChecksums(drive, source, target, used, hashes, checksums, uploaded);
+            if (used == FileTransfer.Strategy.COPY) {
+              Files.deleteIfExists(source);
+            }
+            done(drive, target);
+            deduplicate(target, hashes.get(Checksum.SHA256));
+            moved.accept(target);
+            sidecars.forEach(moved);
+          } catch (IOException | UncheckedIOException e) {
+            throw new IllegalArgumentException(
+                "could not move file " + source + " to " + target, e);
+          } finally {
+            permits.release();
+            moving.remove(target);
+          }
+        }
+        return null;
+      }));
+    }
+    try {
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (ExecutionException e) {
+      cancel(queue, futures);
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new IllegalStateException("could not move files to " + drive.getFolder(),
+          e.getCause());
+    } catch (InterruptedException e) {
+      cancel(queue, futures);
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted while moving files to " + drive.getFolder(),
+          e);
+    }
+    meter.done("");
+  }
+
+  /**
+   * Renames source to target, or copies source to target if it cannot be renamed.
+   *
+   * <p>Source is not deleted when it is copied.</p>
+   *
+   * <p>If source is renamed, digests that are not needed are removed from digests, see
+   * {@link AppConfiguration#isRenameChecksums()}.</p>
+   */
+  private FileTransfer.Strategy move(NetworkDrive<?> drive, Path source, Path target, long size,
+      Map<Checksum, MessageDigest> digests, Set<Checksum> verified, TransferMeter meter,
+      Set<String> active) throws IOException {
+    String name = String.valueOf(target.getFileName());
+    FileTransfer.Strategy strategy = FileTransfer.strategy(source, target);
+    logger.debug("moving file {} to {} using {}", source, target, strategy);
+    String label = label(name, strategy);
+    activate(active, null, label, meter);
+    try {
+      if (strategy == FileTransfer.Strategy.MOVE) {
+        if (FileTransfer.rename(source, target)) {
+          if (!configuration.isRenameChecksums()) {
+            // File was not read while renaming it, only read it to verify uploaded checksums.
+            digests.keySet().retainAll(verified);
+          }
+          if (digests.isEmpty()) {
+            meter.skipped(size);
+          } else {
+            FileTransfer.digest(target, digests.values(), meter::transferred);
+          }
+          return FileTransfer.Strategy.MOVE;
+        }
+        // Rename was refused, file is copied instead.
+        String copyLabel = label(name, FileTransfer.Strategy.COPY);
+        activate(active, label, copyLabel, meter);
+        label = copyLabel;
+      }
+      copy(journal(drive, target), source, target, size, digests, meter);
+      return FileTransfer.Strategy.COPY;
+    } finally {
+      synchronized (active) {
+        active.remove(label);
+      }
+    }
+  }
+
+  /**
+   * Copies source to a temporary file, resuming a previous copy if possible, and renames the
+   * temporary file to target.
+   */
+  private void copy(IngestJournal journal, Path source, Path target, long size,
+      Map<Checksum, MessageDigest> digests, TransferMeter meter) throws IOException {
+    Path temporary = temporary(target);
+    long offset = journal.entry(target)
+        .filter(entry -> entry.matches(source, size))
+        .map(IngestJournal.Entry::offset).filter(o -> o > 0 && size(temporary) >= o).orElse(0L);
+    if (offset > 0) {
+      logger.info("resuming copy of file {} to {} at byte {}", source, target, offset);
+      meter.skipped(offset);
+    } else {
+      journal.start(source, target, size);
+    }
+    long[] position = { offset };
+    FileTransfer.resume(source, temporary, offset, count -> {
+      position[0] += count;
+      try {
+        journal.offset(target, position[0]);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      meter.transferred(count);
+    }, digests.values());
+    if (!FileTransfer.rename(temporary, target)) {
+      throw new IOException("could not rename file " + temporary + " to " + target);
+    }
+  }
+
+  private List<Path> writeChecksums(NetworkDrive<?> drive, Path source, Path target,
+      FileTransfer.Strategy used, Map<Checksum, String> hashes, List<Checksum> checksums,
+      Map<Checksum, Path> uploadedChecksums) throws IOException {
+    for (Map.Entry<Checksum, Path> uploaded : uploadedChecksums.entrySet()) {
+      Optional<String> expected = uploaded.getKey().read(uploaded.getValue());
+      String hash = hashes.get(uploaded.getKey());
+      if (expected.isPresent() && !expected.get().equals(hash)) {
+        logger.warn("{} checksum {} of file {} does not match {} in {}, moving file back",
+            uploaded.getKey(), hash, source, expected.get(), uploaded.getValue());
+        if (used == FileTransfer.Strategy.MOVE) {
+          FileTransfer.move(target, source);
+        } else {
+          Files.deleteIfExists(target);
+          done(drive, target);
+        }
+        throw new IllegalArgumentException(
+            uploaded.getKey() + " checksum of file " + source + " does not match "
+                + uploaded.getValue());
+      }
+    }
+    List<Path> sidecars = new ArrayList<>();
+    for (Checksum checksum : checksums) {
+      String hash = hashes.get(checksum);
+      if (hash == null) {
+        // Checksum was not computed, remove checksum of a replaced file.
+        Files.deleteIfExists(checksum.sidecar(target));
+        continue;
+      }
+      Path sidecar = checksum.write(target, hash);
+      logger.debug("wrote {} checksum {} of file {} to {}", checksum, hash, target, sidecar);
+      sidecars.add(sidecar);
+    }
+    for (Path uploaded : uploadedChecksums.values()) {
+      Files.deleteIfExists(uploaded);
+    }
+    return sidecars;
+  }
+
+  /**
+   * Replaces target by a hard link to a file having the same content, if any.
+   *
+   * <p>Failing to deduplicate target does not prevent target from being saved.</p>
+   */
+  private void deduplicate(Path target, @Nullable String sha256) {
+    if (sha256 == null) {
+      return;
+    }
+    try {
+      dedupStore.deduplicate(target, sha256);
+    } catch (IOException e) {
+      logger.warn("could not deduplicate file {}", target, e);
+    }
+  }
+
+  /**
+   * Resumes copies that were interrupted, in the background.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  @UsedBy(SPRING)
+  public void resumeOnStartup() {
+    executor.execute(() -> {
+      try {
+        resume();
+      } catch (RuntimeException e) {
+        logger.error("could not resume copies", e);
+      }
+    });
+  }
+
+  /**
+   * Resumes copies to home and archive folders that were interrupted.
+   *
+   * <p>Resumed files are added to the {@link FileIndex}. If the source of a copy no longer
+   * exists, the copy is abandoned.</p>
+   */
+  public void resume() {
+    Stream.concat(Stream.of(configuration.getHome()), configuration.getArchives().stream())
+        .forEach(this::resume);
+  }
+
+  private void resume(NetworkDrive<?> drive) {
+    Map<Path, Path> files = new LinkedHashMap<>();
+    try {
+      for (Path file : IngestJournal.list(drive.getFolder())) {
+        IngestJournal journal = journal(file);
+        for (IngestJournal.Entry entry : journal.entries()) {
+          if (Files.exists(entry.source())) {
+            files.put(entry.source(), entry.target());
+            for (Checksum checksum : checksums()) {
+              Path uploaded = checksum.sidecar(entry.source());
+              if (Files.exists(uploaded)) {
+                files.put(uploaded, checksum.sidecar(entry.target()));
+              }
+            }
+          } else {
+            logger.info("source {} of file {} no longer exists, abandoning copy",
+                entry.source(), entry.target());
+            Files.deleteIfExists(temporary(entry.target()));
+            journal.done(entry.target());
+          }
+        }
+      }
+    } catch (IOException | UncheckedIOException e) {
+      logger.warn("could not read journals of {}", drive.getFolder(), e);
+      return;
+    }
+    if (files.isEmpty()) {
+      return;
+    }
+    logger.info("resuming copy of {} files to {}", files.size(), drive.getFolder());
+    try {
+      ingest(drive, files, (message, progress) -> {
+      }, fileIndex::add);
+    } catch (RuntimeException e) {
+      logger.error("could not resume copy of files to {}", drive.getFolder(), e);
+    }
+  }
+
+  /**
+   * Removes target from its journal, if present, along with its temporary file.
+   */
+  private void done(NetworkDrive<?> drive, Path target) throws IOException {
+    IngestJournal journal = journal(drive, target);
+    if (journal.entry(target).isPresent()) {
+      Files.deleteIfExists(temporary(target));
+      journal.done(target);
+    }
+  }
+
+  private IngestJournal journal(NetworkDrive<?> drive, Path target) {
+    return journal(IngestJournal.file(drive.getFolder(), target.toAbsolutePath().getParent()));
+  }
+
+  private IngestJournal journal(Path file) {
+    return journals.computeIfAbsent(file, f -> {
+      try {
+        return IngestJournal.load(f);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
+  /**
+   * Returns the temporary file where target is copied before it is renamed.
+   *
+   * @param target target
+   * @return temporary file where target is copied before it is renamed
+   */
+  static Path temporary(Path target) {
+    return target.resolveSibling("." + target.getFileName() + ".part");
+  }
+
+  private long size(Path file) {
+    try {
+      return Files.size(file);
+    } catch (IOException e) {
+      return -1;
+    }
+  }
+
+  private String label(String name, FileTransfer.Strategy strategy) {
+    return name + " (" + strategy.label() + ")";
+  }
+
+  private void activate(Set<String> active, String previous, String label, TransferMeter meter) {
+    synchronized (active) {
+      if (previous != null) {
+        active.remove(previous);
+      }
+      active.add(label);
+      meter.message(String.join(", ", active));
+    }
+  }
+
+  private void cancel(Queue<?> queue, List<Future<?>> futures) {
+    queue.clear();
+    futures.forEach(future -> future.cancel(true));
+  }
+
+  private List<Checksum> checksums() {
+    return configuration.isSha256Checksums() ? List.of(Checksum.MD5, Checksum.SHA256)
+        : List.of(Checksum.MD5);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,187 @@
+package ca.qc.ircm.lanaseq.files;
+
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.DosFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Utilities to list files while reading their attributes only once.
+ *
+ * <p>Checking if a file is a regular file, is hidden or getting its modification time are
+ * separate file system calls when done using {@link Files} or {@link java.io.File}. On network
+ * drives, each call is a round-trip to the server. The entries returned here keep the attributes
+ * read while listing the folder.</p>
+ *
+ * <p>Listing a folder reads the attributes of every entry once, see {@link #listedEntries()}.
+ * Without these attributes, every query on an entry would have been a file system call, see
+ * {@link #queries()}. These counters are exposed as metrics by {@link FileListingMetrics}.</p>
+ */
+public class FileListing {
+
+  private static final Logger logger = LoggerFactory.getLogger(FileListing.class);
+  /**
+   * Number of entries whose attributes were read while listing folders.
+   */
+  private static final AtomicLong listedEntries = new AtomicLong();
+  /**
+   * Number of queries on entries that were answered using the attributes read while listing.
+   */
+  private static final AtomicLong queries = new AtomicLong();
+
+  /**
+   * Returns all files and folders directly inside folder.
+   *
+   * <p>Symbolic links are followed.</p>
+   *
+   * @param folder folder
+   * @return all files and folders directly inside folder
+   * @throws IOException could not list folder
+   */
+  public static List<Entry> list(Path folder) throws IOException {
+    List<Entry> entries = new ArrayList<>();
+    Files.walkFileTree(folder, EnumSet.of(FileVisitOption.FOLLOW_LINKS), 1,
+        new SimpleFileVisitor<>() {
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+              throws IOException {
+            if (file.equals(folder)) {
+              throw new NotDirectoryException(folder.toString());
+            }
+            entries.add(new Entry(file, attrs));
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+            if (file.equals(folder)) {
+              throw exc;
+            }
+            return FileVisitResult.CONTINUE;
+          }
+        });
+    listedEntries.addAndGet(entries.size());
+    logger.trace("listed {} entries in folder {}, {} file system calls saved so far",
+        entries.size(), folder, savedCalls());
+    return entries;
+  }
+
+  /**
+   * Returns the number of entries listed since the application started.
+   *
+   * <p>Reading the attributes of an entry while listing is one file system call.</p>
+   *
+   * @return number of entries listed since the application started
+   */
+  public static long listedEntries() {
+    return listedEntries.get();
+  }
+
+  /**
+   * Returns the number of queries on entries since the application started.
+   *
+   * <p>Each query would have been a file system call without the attributes read while
+   * listing.</p>
+   *
+   * @return number of queries on entries since the application started
+   */
+  public static long queries() {
+    return queries.get();
+  }
+
+  /**
+   * Returns the number of file system calls that were saved since the application started.
+   *
+   * <p>This is the number of calls that one call per query would have made, {@link #queries()},
+   * minus the calls made to read attributes while listing, {@link #listedEntries()}. It is
+   * negative if more entries were listed than queried.</p>
+   *
+   * @return number of file system calls that were saved since the application started
+   */
+  public static long savedCalls() {
+    return queries.get() - listedEntries.get();
+  }
+
+  /**
+   * File or folder with its attributes.
+   */
+  public static class Entry {
+
+    private final Path path;
+    private final BasicFileAttributes attributes;
+
+    private Entry(Path path, BasicFileAttributes attributes) {
+      this.path = path;
+      this.attributes = attributes;
+    }
+
+    private void query() {
+      queries.incrementAndGet();
+    }
+
+    /**
+     * Returns path of entry.
+     *
+     * @return path of entry
+     */
+    public Path path() {
+      return path;
+    }
+
+    /**
+     * Returns true if entry is a regular file.
+     *
+     * @return true if entry is a regular file
+     */
+    public boolean isRegularFile() {
+      query();
+      return attributes.isRegularFile();
+    }
+
+    /**
+     * Returns true if entry is a folder.
+     *
+     * @return true if entry is a folder
+     */
+    public boolean isDirectory() {
+      query();
+      return attributes.isDirectory();
+    }
+
+    /**
+     * Returns true if entry is hidden, using the same rules as {@link java.io.File#isHidden()}.
+     *
+     * @return true if entry is hidden
+     */
+    public boolean isHidden() {
+      query();
+      if (attributes instanceof DosFileAttributes dosAttributes) {
+        return dosAttributes.isHidden();
+      }
+      Path filename = path.getFileName();
+      return filename != null && filename.toString().startsWith(".");
+    }
+
+    /**
+     * Returns the time of last modification of entry.
+     *
+     * @return time of last modification of entry
+     */
+    public FileTime lastModifiedTime() {
+      query();
+      return attributes.lastModifiedTime();
+    }
+  }
+}
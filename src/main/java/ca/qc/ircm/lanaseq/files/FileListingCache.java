@@ -0,0 +1,162 @@
+package ca.qc.ircm.lanaseq.files;
+
+import ca.qc.ircm.lanaseq.AppConfiguration;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache of file listings of samples and datasets.
+ *
+ * <p>Services must invalidate entries when they change files. Entries also expire after
+ * {@link AppConfiguration#getFileCacheMaxAge()} to account for changes made outside the
+ * application.</p>
+ *
+ * <p>A listing that started before an entry was invalidated must not be cached, since it may miss
+ * changes made to files. Services get a {@link #generation(Class, long)} before listing files and
+ * pass it to {@link #put(Class, long, long, List)}, which ignores the listing if the entry was
+ * invalidated in between.</p>
+ *
+ * <p>Cache statistics are exposed as metrics named {@value #METRIC}.</p>
+ */
+@Component
+public class FileListingCache implements MeterBinder {
+
+  /**
+   * Maximum number of file listings to keep in cache.
+   */
+  public static final int MAXIMUM_SIZE = 1000;
+  /**
+   * Name of cache metrics.
+   */
+  public static final String METRIC = "fileListing";
+  /**
+   * Number of generation counters; entries share counters to keep memory bounded.
+   */
+  private static final int GENERATIONS = 64;
+  @Nullable
+  private final Cache<Key, List<Path>> cache;
+  /**
+   * Number of times entries were invalidated, by {@link #index(Key)}.
+   */
+  private final AtomicLongArray generations = new AtomicLongArray(GENERATIONS);
+
+  @Autowired
+  protected FileListingCache(AppConfiguration configuration) {
+    Duration maxAge = Optional.ofNullable(configuration.getFileCacheMaxAge())
+        .orElse(Duration.ZERO);
+    cache = maxAge.isZero() || maxAge.isNegative() ? null
+        : CacheBuilder.newBuilder().maximumSize(MAXIMUM_SIZE).expireAfterWrite(maxAge)
+            .recordStats().build();
+  }
+
+  /**
+   * Returns cached files of entity, if present.
+   *
+   * @param type entity's type
+   * @param id   entity's id
+   * @return cached files of entity, if present
+   */
+  public Optional<List<Path>> get(Class<?> type, long id) {
+    if (cache == null) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(cache.getIfPresent(new Key(type, id))).map(ArrayList::new);
+  }
+
+  /**
+   * Returns current generation of entity's entry, to get before listing files of entity.
+   *
+   * @param type entity's type
+   * @param id   entity's id
+   * @return current generation of entity's entry
+   */
+  public long generation(Class<?> type, long id) {
+    return generations.get(index(new Key(type, id)));
+  }
+
+  /**
+   * Caches files of entity, unless entity's entry was invalidated since generation was obtained.
+   *
+   * @param type       entity's type
+   * @param id         entity's id
+   * @param generation generation of entity's entry obtained before listing files
+   * @param files      entity's files
+   */
+  public void put(Class<?> type, long id, long generation, List<Path> files) {
+    if (cache != null) {
+      Key key = new Key(type, id);
+      int index = index(key);
+      if (generations.get(index) != generation) {
+        return;
+      }
+      cache.put(key, List.copyOf(files));
+      if (generations.get(index) != generation) {
+        // Invalidated while caching.
+        cache.invalidate(key);
+      }
+    }
+  }
+
+  /**
+   * Removes cached files of entity.
+   *
+   * @param type entity's type
+   * @param id   entity's id
+   */
+  public void invalidate(Class<?> type, long id) {
+    if (cache != null) {
+      Key key = new Key(type, id);
+      generations.incrementAndGet(index(key));
+      cache.invalidate(key);
+    }
+  }
+
+  /**
+   * Removes all cached files.
+   */
+  public void invalidateAll() {
+    if (cache != null) {
+      for (int i = 0; i < GENERATIONS; i++) {
+        generations.incrementAndGet(i);
+      }
+      cache.invalidateAll();
+    }
+  }
+
+  /**
+   * Returns cache statistics.
+   *
+   * @return cache statistics
+   */
+  public CacheStats stats() {
+    return cache != null ? cache.stats() : new CacheStats(0, 0, 0, 0, 0, 0);
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    if (cache != null) {
+      GuavaCacheMetrics.monitor(registry, cache, METRIC);
+    }
+  }
+
+  private int index(Key key) {
+    return Math.floorMod(key.hashCode(), GENERATIONS);
+  }
+
+  private record Key(Class<?> type, long id) {
+
+  }
+}
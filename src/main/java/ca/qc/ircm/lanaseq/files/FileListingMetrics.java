@@ -0,0 +1,40 @@
+package ca.qc.ircm.lanaseq.files;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the counters of {@link FileListing} as metrics.
+ */
+@Component
+public class FileListingMetrics implements MeterBinder {
+
+  /**
+   * Number of entries listed, see {@link FileListing#listedEntries()}.
+   */
+  public static final String ENTRIES_METRIC = FileListingCache.METRIC + ".entries";
+  /**
+   * Number of queries on entries, see {@link FileListing#queries()}.
+   */
+  public static final String QUERIES_METRIC = FileListingCache.METRIC + ".queries";
+  /**
+   * Number of file system calls saved, see {@link FileListing#savedCalls()}.
+   */
+  public static final String SAVED_CALLS_METRIC = FileListingCache.METRIC + ".savedCalls";
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder(ENTRIES_METRIC, FileListing.class, f -> FileListing.listedEntries())
+        .description("Entries whose attributes were read while listing folders")
+        .register(registry);
+    FunctionCounter.builder(QUERIES_METRIC, FileListing.class, f -> FileListing.queries())
+        .description("Queries on entries answered using attributes read while listing")
+        .register(registry);
+    Gauge.builder(SAVED_CALLS_METRIC, FileListing.class, f -> FileListing.savedCalls())
+        .description("File system calls saved compared to one call per query")
+        .register(registry);
+  }
+}
@@ -0,0 +1,95 @@
+package ca.qc.ircm.lanaseq.files;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Utilities to sort and page files.
+ */
+public class FileSorting {
+
+  /**
+   * Sorts files by name.
+   */
+  public static final String NAME = "name";
+  /**
+   * Sorts files by size.
+   */
+  public static final String SIZE = "size";
+  /**
+   * Sorts files by date of last modification.
+   */
+  public static final String MODIFIED = "modified";
+
+  /**
+   * Returns files sorted and limited by pageable.
+   *
+   * <p>Attributes of files are only read when sorting by {@link #SIZE} or {@link #MODIFIED}, and
+   * at most once per file.</p>
+   *
+   * @param files    files
+   * @param pageable sorts and limits files, sort properties must be {@link #NAME}, {@link #SIZE}
+   *                 or {@link #MODIFIED}
+   * @return files sorted and limited by pageable
+   * @throws IllegalArgumentException pageable sorts by an unknown property
+   */
+  public static Stream<Path> page(List<Path> files, Pageable pageable) {
+    Objects.requireNonNull(files, "files parameter cannot be null");
+    Objects.requireNonNull(pageable, "pageable parameter cannot be null");
+    Stream<Path> stream = files.stream();
+    Optional<Comparator<Path>> comparator = comparator(pageable.getSort());
+    if (comparator.isPresent()) {
+      stream = stream.sorted(comparator.get());
+    }
+    if (pageable.isPaged()) {
+      stream = stream.skip(pageable.getOffset()).limit(pageable.getPageSize());
+    }
+    return stream;
+  }
+
+  private static Optional<Comparator<Path>> comparator(Sort sort) {
+    Map<Path, Optional<BasicFileAttributes>> attributes = new HashMap<>();
+    Comparator<Path> comparator = null;
+    for (Sort.Order order : sort) {
+      Comparator<Path> orderComparator = switch (order.getProperty()) {
+        case NAME -> Comparator.comparing(file -> String.valueOf(file.getFileName()));
+        case SIZE -> Comparator.comparingLong(
+            file -> attributes(attributes, file).map(BasicFileAttributes::size).orElse(0L));
+        case MODIFIED -> Comparator.comparing(
+            file -> attributes(attributes, file).map(BasicFileAttributes::lastModifiedTime)
+                .orElse(FileTime.fromMillis(0)));
+        default -> throw new IllegalArgumentException(
+            "cannot sort files by property " + order.getProperty());
+      };
+      if (order.isDescending()) {
+        orderComparator = orderComparator.reversed();
+      }
+      comparator = comparator != null ? comparator.thenComparing(orderComparator)
+          : orderComparator;
+    }
+    return Optional.ofNullable(comparator);
+  }
+
+  private static Optional<BasicFileAttributes> attributes(
+      Map<Path, Optional<BasicFileAttributes>> attributes, Path file) {
+    return attributes.computeIfAbsent(file, f -> {
+      try {
+        return Optional.of(Files.readAttributes(f, BasicFileAttributes.class));
+      } catch (IOException e) {
+        return Optional.empty();
+      }
+    });
+  }
+}
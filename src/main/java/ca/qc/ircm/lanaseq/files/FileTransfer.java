@@ -0,0 +1,406 @@
+package ca.qc.ircm.lanaseq.files;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.function.LongConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Moves files to another folder, possibly on another drive.
+ *
+ * <p>When source and target are on the same file system, the file is renamed, which takes the
+ * same time no matter the size of the file. Otherwise, the file is copied and then deleted.</p>
+ *
+ * <p>Copies use {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}
+ * so that the operating system can copy the bytes without going through the JVM's memory. Files
+ * are copied by chunks of {@link #CHUNK_SIZE} bytes to allow reporting progress.</p>
+ */
+public class FileTransfer {
+
+  /**
+   * Number of bytes copied between two reports of progress.
+   */
+  public static final long CHUNK_SIZE = 64L * 1024 * 1024;
+  /**
+   * Size of the buffer used when bytes must be read in the JVM's memory.
+   */
+  public static final int BUFFER_SIZE = 1024 * 1024;
+  private static final Logger logger = LoggerFactory.getLogger(FileTransfer.class);
+
+  /**
+   * Returns the strategy that {@link #move(Path, Path)} will use to move source to target.
+   *
+   * @param source file to move
+   * @param target where to move file, its parent folder must exist
+   * @return strategy that {@link #move(Path, Path)} will use to move source to target
+   */
+  public static Strategy strategy(Path source, Path target) {
+    Objects.requireNonNull(source, "source parameter cannot be null");
+    Objects.requireNonNull(target, "target parameter cannot be null");
+    try {
+      Path targetFolder = target.toAbsolutePath().getParent();
+      if (targetFolder != null && Files.getFileStore(source)
+          .equals(Files.getFileStore(targetFolder))) {
+        return Strategy.MOVE;
+      }
+    } catch (IOException e) {
+      logger.debug("could not compare file stores of {} and {}", source, target, e);
+    }
+    return Strategy.COPY;
+  }
+
+  /**
+   * Moves source to target, replacing target if it exists.
+   *
+   * <p>If source and target are on the same file system, source is atomically renamed to
+   * target. Otherwise, source is copied to target and then deleted.</p>
+   *
+   * @param source file to move
+   * @param target where to move file, its parent folder must exist
+   * @return strategy that was used to move source to target
+   * @throws IOException could not move source to target
+   */
+  public static Strategy move(Path source, Path target) throws IOException {
+    return move(source, target, count -> {
+    });
+  }
+
+  /**
+   * Moves source to target, replacing target if it exists.
+   *
+   * <p>If source and target are on the same file system, source is atomically renamed to
+   * target. Otherwise, source is copied to target and then deleted.</p>
+   *
+   * @param source      file to move
+   * @param target      where to move file, its parent folder must exist
+   * @param transferred receives the number of bytes copied after each chunk, not called if
+   *                    source is renamed
+   * @return strategy that was used to move source to target
+   * @throws IOException could not move source to target
+   */
+  public static Strategy move(Path source, Path target, LongConsumer transferred)
+      throws IOException {
+    return move(source, target, transferred, List.of());
+  }
+
+  /**
+   * Moves source to target, replacing target if it exists, and updates digests with the content
+   * of source while it is copied.
+   *
+   * <p>If source and target are on the same file system, source is atomically renamed to
+   * target and digests are not updated, use {@link #digest(Path, Collection)} if needed.
+   * Otherwise, source is copied to target and then deleted.</p>
+   *
+   * @param source      file to move
+   * @param target      where to move file, its parent folder must exist
+   * @param transferred receives the number of bytes copied after each chunk, not called if
+   *                    source is renamed
+   * @param digests     digests to update with the content of source if it is copied
+   * @return strategy that was used to move source to target
+   * @throws IOException could not move source to target
+   */
+  public static Strategy move(Path source, Path target, LongConsumer transferred,
+      Collection<MessageDigest> digests) throws IOException {
+    Objects.requireNonNull(transferred, "transferred parameter cannot be null");
+    Objects.requireNonNull(digests, "digests parameter cannot be null");
+    if (strategy(source, target) == Strategy.MOVE && rename(source, target)) {
+      return Strategy.MOVE;
+    }
+    copy(source, target, transferred, digests);
+    Files.delete(source);
+    return Strategy.COPY;
+  }
+
+  /**
+   * Atomically renames source to target, replacing target if it exists.
+   *
+   * @param source file to rename
+   * @param target new name of file, its parent folder must exist
+   * @return true if source was renamed, false if source cannot be atomically renamed to target,
+   * like when source and target are on different file systems
+   * @throws IOException could not rename source to target
+   */
+  public static boolean rename(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+      logger.trace("renamed file {} to {}", source, target);
+      return true;
+    } catch (AtomicMoveNotSupportedException e) {
+      logger.debug("could not rename file {} to {}", source, target, e);
+      return false;
+    }
+  }
+
+  /**
+   * Creates a hard link to source at target, replacing target if it exists, or copies source to
+   * target if a hard link cannot be created, like when source and target are on different file
+   * systems. A copy keeps the modification time of source, like a hard link would.
+   *
+   * @param source file to link
+   * @param target hard link to create, its parent folder must exist
+   * @return true if a hard link was created, false if source was copied
+   * @throws IOException could not link or copy source to target
+   */
+  public static boolean link(Path source, Path target) throws IOException {
+    Files.deleteIfExists(target);
+    try {
+      Files.createLink(target, source);
+      logger.trace("linked file {} to {}", target, source);
+      return true;
+    } catch (NoSuchFileException e) {
+      throw e;
+    } catch (UnsupportedOperationException | FileSystemException e) {
+      logger.debug("could not link file {} to {}, copying file", target, source, e);
+      Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+      Files.setLastModifiedTime(target, Files.getLastModifiedTime(source));
+      return false;
+    }
+  }
+
+  /**
+   * Copies source to target, replacing target if it exists.
+   *
+   * <p>If copy fails, target is deleted.</p>
+   *
+   * @param source      file to copy
+   * @param target      where to copy file, its parent folder must exist
+   * @param transferred receives the number of bytes copied after each chunk
+   * @return number of bytes copied
+   * @throws IOException could not copy source to target
+   */
+  public static long copy(Path source, Path target, LongConsumer transferred)
+      throws IOException {
+    return copy(source, target, transferred, List.of());
+  }
+
+  /**
+   * Copies source to target, replacing target if it exists, and updates digests with the content
+   * of source.
+   *
+   * <p>Computing digests requires reading the bytes in the JVM's memory, so if digests is not
+   * empty, bytes are read and written using buffers instead of
+   * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}. Source is
+   * still read only once.</p>
+   *
+   * <p>If copy fails, target is deleted.</p>
+   *
+   * @param source      file to copy
+   * @param target      where to copy file, its parent folder must exist
+   * @param transferred receives the number of bytes copied after each chunk
+   * @param digests     digests to update with the content of source
+   * @return number of bytes copied
+   * @throws IOException could not copy source to target
+   */
+  public static long copy(Path source, Path target, LongConsumer transferred,
+      Collection<MessageDigest> digests) throws IOException {
+    try {
+      return transfer(source, target, 0, false, transferred, digests);
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(target);
+      throw e;
+    }
+  }
+
+  /**
+   * Copies the bytes of source that come after offset to target, keeping the first offset bytes
+   * of target, and updates digests with the content of source.
+   *
+   * <p>This allows to resume a copy that was interrupted. Each chunk is forced to the storage
+   * device before transferred is called, so the bytes reported are not lost if the computer
+   * crashes. The first offset bytes are read from target to update digests.</p>
+   *
+   * <p>If copy fails, target is kept so that the copy can be resumed later.</p>
+   *
+   * @param source      file to copy
+   * @param target      where to copy file, its parent folder must exist
+   * @param offset      bytes already copied to target
+   * @param transferred receives the number of bytes copied after each chunk
+   * @param digests     digests to update with the content of source
+   * @return number of bytes copied, excluding offset
+   * @throws IOException could not copy source to target or target is smaller than offset
+   */
+  public static long resume(Path source, Path target, long offset, LongConsumer transferred,
+      Collection<MessageDigest> digests) throws IOException {
+    Objects.requireNonNull(transferred, "transferred parameter cannot be null");
+    Objects.requireNonNull(digests, "digests parameter cannot be null");
+    if (offset < 0) {
+      throw new IllegalArgumentException("offset " + offset + " cannot be negative");
+    }
+    return transfer(source, target, offset, true, transferred, digests);
+  }
+
+  private static long transfer(Path source, Path target, long offset, boolean durable,
+      LongConsumer transferred, Collection<MessageDigest> digests) throws IOException {
+    try (FileChannel input = FileChannel.open(source, StandardOpenOption.READ);
+        FileChannel output = FileChannel.open(target, StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+      if (output.size() < offset) {
+        throw new IOException(
+            "file " + target + " has " + output.size() + " bytes, expected at least " + offset);
+      }
+      output.truncate(offset);
+      if (offset > 0 && !digests.isEmpty()) {
+        read(output, 0, offset, count -> {
+        }, digests, null);
+      }
+      output.position(offset);
+      LongConsumer reporter = count -> {
+        if (durable) {
+          try {
+            output.force(false);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }
+        transferred.accept(count);
+      };
+      long position;
+      try {
+        if (!digests.isEmpty()) {
+          position = read(input, offset, Long.MAX_VALUE, reporter, digests, output);
+        } else {
+          position = transferTo(source, input, offset, output, reporter);
+        }
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+      logger.trace("copied {} bytes from file {} to {} starting at {}", position - offset,
+          source, target, offset);
+      return position - offset;
+    }
+  }
+
+  private static long transferTo(Path source, FileChannel input, long position,
+      FileChannel output, LongConsumer transferred) throws IOException {
+    long size = input.size();
+    while (position < size) {
+      long count = input.transferTo(position, Math.min(CHUNK_SIZE, size - position), output);
+      if (count <= 0) {
+        long currentSize = input.size();
+        if (currentSize >= size) {
+          throw new IOException("no bytes copied from " + source + " at position " + position);
+        }
+        // Source was truncated while copying.
+        size = currentSize;
+        continue;
+      }
+      position += count;
+      transferred.accept(count);
+    }
+    return position;
+  }
+
+  /**
+   * Updates digests with the content of file.
+   *
+   * @param file    file
+   * @param digests digests to update with the content of file
+   * @throws IOException could not read file
+   */
+  public static void digest(Path file, Collection<MessageDigest> digests) throws IOException {
+    digest(file, digests, count -> {
+    });
+  }
+
+  /**
+   * Updates digests with the content of file.
+   *
+   * @param file    file
+   * @param digests digests to update with the content of file
+   * @param read    receives the number of bytes read after each chunk
+   * @throws IOException could not read file
+   */
+  public static void digest(Path file, Collection<MessageDigest> digests, LongConsumer read)
+      throws IOException {
+    Objects.requireNonNull(read, "read parameter cannot be null");
+    try (FileChannel input = FileChannel.open(file, StandardOpenOption.READ)) {
+      read(input, 0, Long.MAX_VALUE, read, digests, null);
+    }
+  }
+
+  /**
+   * Reads input from position until limit by chunks of {@link #BUFFER_SIZE}, updates digests and
+   * writes bytes to output.
+   *
+   * @return position after the last byte read
+   */
+  private static long read(FileChannel input, long position, long limit,
+      LongConsumer transferred, Collection<MessageDigest> digests, WritableByteChannel output)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    long chunk = 0;
+    while (position < limit) {
+      buffer.limit((int) Math.min(BUFFER_SIZE, limit - position));
+      int read = input.read(buffer, position + buffer.position());
+      if (read < 0 && buffer.position() == 0) {
+        break;
+      }
+      if (read >= 0 && buffer.hasRemaining()) {
+        continue;
+      }
+      buffer.flip();
+      for (MessageDigest digest : digests) {
+        buffer.mark();
+        digest.update(buffer);
+        buffer.reset();
+      }
+      int count = buffer.remaining();
+      if (output != null) {
+        while (buffer.hasRemaining()) {
+          output.write(buffer);
+        }
+      }
+      buffer.clear();
+      position += count;
+      chunk += count;
+      if (chunk >= CHUNK_SIZE) {
+        transferred.accept(chunk);
+        chunk = 0;
+      }
+    }
+    if (chunk > 0) {
+      transferred.accept(chunk);
+    }
+    return position;
+  }
+
+  /**
+   * How a file is moved.
+   */
+  public enum Strategy {
+    /**
+     * File is renamed, source and target are on the same file system.
+     */
+    MOVE,
+    /**
+     * File is copied and then deleted, source and target are on different file systems.
+     */
+    COPY;
+
+    /**
+     * Returns a short label for strategy, to show to users.
+     *
+     * @return short label for strategy
+     */
+    public String label() {
+      return name().toLowerCase(Locale.ROOT);
+    }
+  }
+}
@@ -0,0 +1,267 @@
+package ca.qc.ircm.lanaseq.files;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.springframework.lang.Nullable;
+
+/**
+ * Matches filenames against many glob patterns at once.
+ *
+ * <p>The longest literal part of every pattern is compiled into a single Aho-Corasick automaton,
+ * so that a filename is scanned only once to find which patterns may match. Patterns of the form
+ * <code>*literal*</code> match as soon as their literal is found, other patterns are confirmed
+ * using a {@link PathMatcher} only when their literal is found.</p>
+ */
+public class FilenameMatcher {
+
+  /**
+   * True if globs of the default file system ignore case.
+   */
+  private static final boolean CASE_INSENSITIVE =
+      FileSystems.getDefault().getPathMatcher("glob:a").matches(Paths.get("A"));
+  /**
+   * Patterns, in the order they were specified.
+   */
+  private final List<Pattern> patterns = new ArrayList<>();
+  /**
+   * Patterns that don't contain any literal and must always be verified.
+   */
+  private final BitSet unkeyed = new BitSet();
+  /**
+   * Transitions of the automaton, by state.
+   */
+  private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+  /**
+   * Failure transition of the automaton, by state.
+   */
+  private int[] failures;
+  /**
+   * Patterns whose literal ends on state, by state.
+   */
+  private final List<BitSet> outputs = new ArrayList<>();
+
+  private FilenameMatcher(Collection<String> globs, Collection<String> sources) {
+    addState();
+    Iterator<String> sourceIterator = sources.iterator();
+    for (String glob : globs) {
+      Pattern pattern = Pattern.parse(glob, sourceIterator.next());
+      int index = patterns.size();
+      patterns.add(pattern);
+      if (pattern.literal.isEmpty()) {
+        unkeyed.set(index);
+      } else {
+        int state = 0;
+        for (char c : pattern.literal.toCharArray()) {
+          Integer next = transitions.get(state).get(c);
+          if (next == null) {
+            next = addState();
+            transitions.get(state).put(c, next);
+          }
+          state = next;
+        }
+        outputs.get(state).set(index);
+      }
+    }
+    buildFailures();
+  }
+
+  /**
+   * Returns a matcher for filenames that match any of the glob patterns.
+   *
+   * @param globs glob patterns, as accepted by {@link java.nio.file.FileSystem#getPathMatcher}
+   *              without the <code>glob:</code> prefix
+   * @return matcher for filenames that match any of the glob patterns
+   */
+  public static FilenameMatcher compile(Collection<String> globs) {
+    Objects.requireNonNull(globs, "globs parameter cannot be null");
+    return new FilenameMatcher(globs, globs);
+  }
+
+  /**
+   * Returns a matcher for filenames that contain any of the filenames.
+   *
+   * <p>Filenames may contain glob characters.</p>
+   *
+   * @param filenames filenames
+   * @return matcher for filenames that contain any of the filenames
+   */
+  public static FilenameMatcher containing(Collection<String> filenames) {
+    Objects.requireNonNull(filenames, "filenames parameter cannot be null");
+    return new FilenameMatcher(filenames.stream().map(filename -> "*" + filename + "*").toList(),
+        filenames);
+  }
+
+  /**
+   * Returns true if the name of file matches any pattern.
+   *
+   * @param file file
+   * @return true if the name of file matches any pattern
+   */
+  public boolean matches(Path file) {
+    Path filename = file.getFileName();
+    return filename != null && matches(filename.toString(), filename);
+  }
+
+  /**
+   * Returns true if filename matches any pattern.
+   *
+   * <p>Unlike {@link #matches(Path)}, no {@link Path} is created unless a pattern needs to be
+   * confirmed by its {@link PathMatcher}.</p>
+   *
+   * @param filename filename, without any folder
+   * @return true if filename matches any pattern
+   */
+  public boolean matches(String filename) {
+    Objects.requireNonNull(filename, "filename parameter cannot be null");
+    return matches(filename, null);
+  }
+
+  private boolean matches(String filename, @Nullable Path path) {
+    BitSet candidates = (BitSet) unkeyed.clone();
+    String name = normalize(filename);
+    int state = 0;
+    for (int i = 0; i < name.length(); i++) {
+      state = next(state, name.charAt(i));
+      BitSet output = outputs.get(state);
+      for (int p = output.nextSetBit(0); p >= 0; p = output.nextSetBit(p + 1)) {
+        if (patterns.get(p).exact) {
+          return true;
+        }
+        candidates.set(p);
+      }
+    }
+    for (int p = candidates.nextSetBit(0); p >= 0; p = candidates.nextSetBit(p + 1)) {
+      if (path == null) {
+        path = Paths.get(filename);
+      }
+      if (patterns.get(p).matcher.matches(path)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns all patterns that the name of file matches.
+   *
+   * <p>For a matcher created with {@link #containing(Collection)}, the filenames are returned
+   * instead of the patterns.</p>
+   *
+   * @param file file
+   * @return all patterns that the name of file matches, in the order they were specified
+   */
+  public Set<String> matching(Path file) {
+    Set<String> matching = new LinkedHashSet<>();
+    Path filename = file.getFileName();
+    if (filename == null) {
+      return matching;
+    }
+    BitSet found = new BitSet();
+    String name = normalize(filename.toString());
+    int state = 0;
+    for (int i = 0; i < name.length(); i++) {
+      state = next(state, name.charAt(i));
+      found.or(outputs.get(state));
+    }
+    found.or(unkeyed);
+    for (int p = found.nextSetBit(0); p >= 0; p = found.nextSetBit(p + 1)) {
+      Pattern pattern = patterns.get(p);
+      if (pattern.exact || pattern.matcher.matches(filename)) {
+        matching.add(pattern.source);
+      }
+    }
+    return matching;
+  }
+
+  private int addState() {
+    transitions.add(new HashMap<>());
+    outputs.add(new BitSet());
+    return transitions.size() - 1;
+  }
+
+  private void buildFailures() {
+    failures = new int[transitions.size()];
+    // Breadth first, so that failure of parent is known before its children.
+    List<Integer> queue = new ArrayList<>(transitions.get(0).values());
+    for (int i = 0; i < queue.size(); i++) {
+      int state = queue.get(i);
+      for (Map.Entry<Character, Integer> transition : transitions.get(state).entrySet()) {
+        int child = transition.getValue();
+        int failure = failures[state];
+        while (failure != 0 && !transitions.get(failure).containsKey(transition.getKey())) {
+          failure = failures[failure];
+        }
+        failures[child] = transitions.get(failure).getOrDefault(transition.getKey(), 0);
+        outputs.get(child).or(outputs.get(failures[child]));
+        queue.add(child);
+      }
+    }
+  }
+
+  private int next(int state, char c) {
+    while (state != 0 && !transitions.get(state).containsKey(c)) {
+      state = failures[state];
+    }
+    return transitions.get(state).getOrDefault(c, 0);
+  }
+
+  private static String normalize(String value) {
+    return CASE_INSENSITIVE ? value.toLowerCase(Locale.ROOT) : value;
+  }
+
+  /**
+   * Glob pattern.
+   *
+   * @param source  pattern or filename that was specified
+   * @param matcher matcher of the pattern
+   * @param literal longest literal part of the pattern, empty if there is none
+   * @param exact   true if finding literal inside a filename is enough for it to match
+   */
+  private record Pattern(String source, PathMatcher matcher, String literal, boolean exact) {
+
+    private static Pattern parse(String glob, String source) {
+      PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+      List<String> literals = new ArrayList<>();
+      StringBuilder literal = new StringBuilder();
+      boolean special = false;
+      for (int i = 0; i < glob.length(); i++) {
+        char c = glob.charAt(i);
+        switch (c) {
+          case '\\' -> literal.append(glob.charAt(++i));
+          case '*' -> {
+            literals.add(literal.toString());
+            literal.setLength(0);
+          }
+          case '?', '[', '{' -> {
+            special = true;
+            literals.add(literal.toString());
+            literal.setLength(0);
+            if (c != '?') {
+              i = glob.indexOf(c == '[' ? ']' : '}', i + 1);
+            }
+          }
+          default -> literal.append(c);
+        }
+      }
+      literals.add(literal.toString());
+      List<String> nonEmpty = literals.stream().filter(value -> !value.isEmpty()).toList();
+      String longest = nonEmpty.stream().reduce("", (l1, l2) -> l2.length() > l1.length() ? l2 : l1);
+      boolean exact = !special && nonEmpty.size() == 1 && literals.get(0).isEmpty()
+          && literals.get(literals.size() - 1).isEmpty();
+      return new Pattern(source, matcher, normalize(longest), exact);
+    }
+  }
+}
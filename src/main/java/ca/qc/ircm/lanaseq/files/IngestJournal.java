@@ -0,0 +1,249 @@
+package ca.qc.ircm.lanaseq.files;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write-ahead journal of the files being copied to a folder.
+ *
+ * <p>Each line of the journal records an event, separated by tabs:</p>
+ * <ul>
+ *   <li><code>start source target size</code> when a file starts to be copied</li>
+ *   <li><code>offset target bytes</code> when bytes of a file are safely written</li>
+ *   <li><code>done target</code> when a file was copied and its source was deleted</li>
+ * </ul>
+ *
+ * <p>Each line is forced to the storage device before the method returns. A line that was only
+ * partially written when the computer crashed is ignored. The journal is deleted once all files
+ * are done.</p>
+ *
+ * <p>Journals are kept inside the {@link #FOLDER} folder of the drive so that unfinished copies
+ * can be found without walking the whole drive.</p>
+ */
+class IngestJournal {
+
+  /**
+   * Folder, inside the drive's folder, containing journals.
+   */
+  static final String FOLDER = ".ingest";
+  /**
+   * Extension of journal files.
+   */
+  static final String EXTENSION = ".journal";
+  private static final Logger logger = LoggerFactory.getLogger(IngestJournal.class);
+  private static final String START = "start";
+  private static final String OFFSET = "offset";
+  private static final String DONE = "done";
+  private final Path file;
+  /**
+   * Unfinished entries, by target.
+   *
+   * <p>Targets are compared using their string representation, the same way they are written in
+   * the journal.</p>
+   */
+  private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+  private IngestJournal(Path file) {
+    this.file = file;
+  }
+
+  /**
+   * Returns the journal file of files copied to folder.
+   *
+   * @param driveFolder drive's folder
+   * @param folder      folder where files are copied
+   * @return journal file of files copied to folder
+   */
+  static Path file(Path driveFolder, Path folder) {
+    return driveFolder.resolve(FOLDER).resolve(name(folder) + EXTENSION);
+  }
+
+  /**
+   * Returns all journal files of drive.
+   *
+   * @param driveFolder drive's folder
+   * @return all journal files of drive
+   * @throws IOException could not list journal files
+   */
+  static List<Path> list(Path driveFolder) throws IOException {
+    Path folder = driveFolder.resolve(FOLDER);
+    List<Path> journals = new ArrayList<>();
+    if (!Files.isDirectory(folder)) {
+      return journals;
+    }
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(folder, "*" + EXTENSION)) {
+      files.forEach(journals::add);
+    }
+    return journals;
+  }
+
+  /**
+   * Loads the unfinished entries of journal file, if it exists.
+   *
+   * @param file journal file
+   * @return journal
+   * @throws IOException could not read journal file
+   */
+  static IngestJournal load(Path file) throws IOException {
+    IngestJournal journal = new IngestJournal(file);
+    byte[] content;
+    try {
+      content = Files.readAllBytes(file);
+    } catch (NoSuchFileException e) {
+      return journal;
+    }
+    if (content.length > 0 && content[content.length - 1] != '\n') {
+      // Last line was partially written, make sure the next line is not appended to it.
+      journal.append("");
+    }
+    for (String line : new String(content, StandardCharsets.UTF_8).split("\n")) {
+      if (line.isEmpty()) {
+        continue;
+      }
+      String[] columns = line.split("\t");
+      try {
+        switch (columns[0]) {
+          case START -> {
+            journal.entries.put(columns[2], new Entry(Paths.get(columns[1]),
+                Paths.get(columns[2]), Long.parseLong(columns[3]), 0));
+          }
+          case OFFSET -> {
+            long offset = Long.parseLong(columns[2]);
+            journal.entries.computeIfPresent(columns[1], (t, entry) -> entry.withOffset(offset));
+          }
+          case DONE -> journal.entries.remove(columns[1]);
+          default -> logger.debug("ignoring line {} of journal {}", line, file);
+        }
+      } catch (RuntimeException e) {
+        // Line was partially written.
+        logger.debug("ignoring line {} of journal {}", line, file, e);
+      }
+    }
+    return journal;
+  }
+
+  private static String name(Path folder) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      return HexFormat.of().formatHex(digest.digest(
+          folder.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-1 algorithm is not available", e);
+    }
+  }
+
+  /**
+   * Returns the unfinished entry of target, if any.
+   *
+   * @param target target
+   * @return unfinished entry of target, if any
+   */
+  synchronized Optional<Entry> entry(Path target) {
+    return Optional.ofNullable(entries.get(target.toString()));
+  }
+
+  /**
+   * Returns all unfinished entries.
+   *
+   * @return all unfinished entries
+   */
+  synchronized List<Entry> entries() {
+    return new ArrayList<>(entries.values());
+  }
+
+  /**
+   * Records that source starts to be copied to target.
+   *
+   * @param source source
+   * @param target target
+   * @param size   size of source
+   * @throws IOException could not write to journal
+   */
+  synchronized void start(Path source, Path target, long size) throws IOException {
+    append(START + "\t" + source + "\t" + target + "\t" + size);
+    entries.put(target.toString(), new Entry(source, target, size, 0));
+  }
+
+  /**
+   * Records that the first offset bytes of target are safely written.
+   *
+   * @param target target
+   * @param offset bytes safely written
+   * @throws IOException could not write to journal
+   */
+  synchronized void offset(Path target, long offset) throws IOException {
+    append(OFFSET + "\t" + target + "\t" + offset);
+    entries.computeIfPresent(target.toString(), (t, entry) -> entry.withOffset(offset));
+  }
+
+  /**
+   * Records that target is done, deleting the journal if all files are done.
+   *
+   * @param target target
+   * @throws IOException could not write to journal
+   */
+  synchronized void done(Path target) throws IOException {
+    entries.remove(target.toString());
+    if (entries.isEmpty()) {
+      Files.deleteIfExists(file);
+    } else {
+      append(DONE + "\t" + target);
+    }
+  }
+
+  private void append(String line) throws IOException {
+    Files.createDirectories(file.getParent());
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+      ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(true);
+    }
+  }
+
+  /**
+   * Unfinished copy of a file.
+   *
+   * @param source source
+   * @param target target
+   * @param size   size of source when copy started
+   * @param offset bytes safely written
+   */
+  record Entry(Path source, Path target, long size, long offset) {
+
+    /**
+     * Returns true if this entry is the copy of source, having size bytes.
+     *
+     * @param source source
+     * @param size   size of source
+     * @return true if this entry is the copy of source, having size bytes
+     */
+    boolean matches(Path source, long size) {
+      return this.source.toString().equals(source.toString()) && this.size == size;
+    }
+
+    Entry withOffset(long offset) {
+      return new Entry(source, target, size, offset);
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package ca.qc.ircm.lanaseq.files;
+
+import ca.qc.ircm.lanaseq.AppConfiguration;
+import ca.qc.ircm.lanaseq.AppConfiguration.NetworkDrive;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.boot.health.contributor.Status;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the state of home and archive network drives.
+ *
+ * <p>Health is down when the circuit of the home drive is open. When only the circuit of an
+ * archive drive is open, health is {@link #DEGRADED}: the application still works, but files on
+ * that archive are unavailable.</p>
+ */
+@Component
+public class NetworkDriveHealthIndicator implements HealthIndicator {
+
+  /**
+   * Status when at least one archive drive is unavailable.
+   */
+  public static final Status DEGRADED =
+      new Status("DEGRADED", "Some archive drives are unavailable");
+  private final AppConfiguration configuration;
+  private final NetworkDriveScanner driveScanner;
+
+  @Autowired
+  protected NetworkDriveHealthIndicator(AppConfiguration configuration,
+      NetworkDriveScanner driveScanner) {
+    this.configuration = configuration;
+    this.driveScanner = driveScanner;
+  }
+
+  @Override
+  public Health health() {
+    Health.Builder builder = Health.up();
+    DriveStatistics home = driveScanner.statistics(configuration.getHome());
+    builder.withDetail(String.valueOf(configuration.getHome().getFolder()), details(home));
+    boolean archiveOpen = false;
+    for (NetworkDrive<?> archive : configuration.getArchives()) {
+      DriveStatistics statistics = driveScanner.statistics(archive);
+      archiveOpen |= statistics.getState() == DriveStatistics.State.OPEN;
+      builder.withDetail(String.valueOf(archive.getFolder()), details(statistics));
+    }
+    if (home.getState() == DriveStatistics.State.OPEN) {
+      builder.down();
+    } else if (archiveOpen) {
+      builder.status(DEGRADED);
+    }
+    return builder.build();
+  }
+
+  private Map<String, Object> details(DriveStatistics statistics) {
+    Map<String, Object> details = new LinkedHashMap<>();
+    details.put("state", statistics.getState());
+    details.put("requests", statistics.getRequests());
+    details.put("rejected", statistics.getRejected());
+    details.put("averageLatency", statistics.getAverageLatency().toMillis());
+    details.put("maximumLatency", statistics.getMaximumLatency().toMillis());
+    details.put("errorRate", statistics.getErrorRate());
+    return details;
+  }
+}
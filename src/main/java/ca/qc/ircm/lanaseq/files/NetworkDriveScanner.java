@@ -0,0 +1,195 @@
+package ca.qc.ircm.lanaseq.files;
+
+import static ca.qc.ircm.lanaseq.UsedBy.SPRING;
+
+import ca.qc.ircm.lanaseq.AppConfiguration;
+import ca.qc.ircm.lanaseq.AppConfiguration.NetworkDrive;
+import ca.qc.ircm.lanaseq.UsedBy;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs operations on many network drives concurrently.
+ *
+ * <p>Each drive has until {@link AppConfiguration#getDriveTimeout()} to respond, after which it is
+ * considered unavailable and its result is discarded. This prevents a hung network mount from
+ * blocking the whole request.</p>
+ *
+ * <p>The operation of a drive that did not respond in time is interrupted, but file system calls
+ * like walking a folder or reading file attributes do not stop when interrupted. The operation may
+ * keep running on its virtual thread until the drive responds, only its result is ignored.</p>
+ *
+ * <p>Latency and errors are recorded for each drive, see {@link DriveStatistics}. A drive that
+ * keeps failing is skipped for a while.</p>
+ */
+@Component
+public class NetworkDriveScanner {
+
+  /**
+   * Timeout used when none, or a timeout that is not positive, is configured.
+   */
+  public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(10);
+  private static final Logger logger = LoggerFactory.getLogger(NetworkDriveScanner.class);
+  /**
+   * Statistics by network drive.
+   */
+  private final Map<NetworkDrive<?>, DriveStatistics> statistics = new ConcurrentHashMap<>();
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+  private final AppConfiguration configuration;
+
+  @Autowired
+  protected NetworkDriveScanner(AppConfiguration configuration) {
+    this.configuration = configuration;
+  }
+
+  /**
+   * Runs operation on all drives concurrently and returns the results in the same order as
+   * drives.
+   *
+   * <p>Drives whose circuit is open are skipped.</p>
+   *
+   * @param drives    network drives
+   * @param operation operation to run on each drive, must not return null
+   * @param <D>       type of data with files
+   * @param <R>       type of result
+   * @return results in the same order as drives, with an empty result for drives that were
+   * skipped, did not respond in time or failed
+   */
+  public <D, R> List<DriveResult<D, R>> scan(List<NetworkDrive<D>> drives,
+      Function<NetworkDrive<D>, R> operation) {
+    return scan(drives, operation, result -> {
+    });
+  }
+
+  /**
+   * Runs operation on all drives concurrently and returns the results in the same order as
+   * drives.
+   *
+   * <p>Listener is called with the result of each drive as soon as the drive responds, so a fast
+   * drive is never delayed by a slow one. Drives that are skipped are reported first, drives that
+   * did not respond in time are reported last.</p>
+   *
+   * @param drives    network drives
+   * @param operation operation to run on each drive, must not return null
+   * @param listener  called with the result of each drive, in the order drives respond
+   * @param <D>       type of data with files
+   * @param <R>       type of result
+   * @return results in the same order as drives, with an empty result for drives that were
+   * skipped, did not respond in time or failed
+   */
+  public <D, R> List<DriveResult<D, R>> scan(List<NetworkDrive<D>> drives,
+      Function<NetworkDrive<D>, R> operation, Consumer<DriveResult<D, R>> listener) {
+    Instant now = Instant.now();
+    long start = System.nanoTime();
+    CompletionService<Timed<R>> completion = new ExecutorCompletionService<>(executor);
+    Map<Future<Timed<R>>, Integer> indexes = new HashMap<>();
+    List<DriveResult<D, R>> results = new ArrayList<>(Collections.nCopies(drives.size(), null));
+    for (int i = 0; i < drives.size(); i++) {
+      NetworkDrive<D> drive = drives.get(i);
+      if (statistics(drive).allowRequest(now)) {
+        indexes.put(completion.submit(() -> {
+          long operationStart = System.nanoTime();
+          R result = operation.apply(drive);
+          return new Timed<>(result, Duration.ofNanos(System.nanoTime() - operationStart));
+        }), i);
+      } else {
+        logger.debug("skipping network drive {} since its circuit is open", drive.getFolder());
+        complete(results, i, new DriveResult<>(drive, Optional.empty()), listener);
+      }
+    }
+    Duration timeout = timeout();
+    long deadline = start + timeout.toNanos();
+    try {
+      for (int pending = indexes.size(); pending > 0; pending--) {
+        Future<Timed<R>> future = completion.poll(Math.max(deadline - System.nanoTime(), 0),
+            TimeUnit.NANOSECONDS);
+        if (future == null) {
+          break;
+        }
+        int index = indexes.remove(future);
+        NetworkDrive<D> drive = drives.get(index);
+        Optional<R> result = Optional.empty();
+        try {
+          Timed<R> timed = future.get();
+          statistics(drive).success(timed.latency());
+          result = Optional.of(timed.result());
+        } catch (ExecutionException e) {
+          statistics(drive).failure(Duration.ofNanos(System.nanoTime() - start), Instant.now());
+          logger.warn("operation failed on network drive {}", drive.getFolder(), e.getCause());
+        }
+        complete(results, index, new DriveResult<>(drive, result), listener);
+      }
+      indexes.forEach((future, index) -> {
+        NetworkDrive<D> drive = drives.get(index);
+        future.cancel(true);
+        statistics(drive).failure(timeout, Instant.now());
+        logger.warn("network drive {} did not respond in {}", drive.getFolder(), timeout);
+        complete(results, index, new DriveResult<>(drive, Optional.empty()), listener);
+      });
+      indexes.clear();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      indexes.forEach((future, index) -> complete(results, index,
+          new DriveResult<>(drives.get(index), Optional.empty()), listener));
+    } finally {
+      // Outcome of these operations is unknown, so they must not leave a drive's circuit half-open.
+      indexes.forEach((future, index) -> {
+        future.cancel(true);
+        statistics(drives.get(index)).abandon(Instant.now());
+      });
+    }
+    return results;
+  }
+
+  private <D, R> void complete(List<DriveResult<D, R>> results, int index,
+      DriveResult<D, R> result, Consumer<DriveResult<D, R>> listener) {
+    results.set(index, result);
+    listener.accept(result);
+  }
+
+  /**
+   * Returns statistics of drive.
+   *
+   * @param drive network drive
+   * @return statistics of drive
+   */
+  public DriveStatistics statistics(NetworkDrive<?> drive) {
+    return statistics.computeIfAbsent(drive, DriveStatistics::new);
+  }
+
+  private Duration timeout() {
+    return Optional.ofNullable(configuration.getDriveTimeout())
+        .filter(Duration::isPositive).orElse(DEFAULT_TIMEOUT);
+  }
+
+  private record Timed<R>(R result, Duration latency) {
+
+  }
+
+  @PreDestroy
+  @UsedBy(SPRING)
+  void shutdown() {
+    executor.shutdownNow();
+  }
+}
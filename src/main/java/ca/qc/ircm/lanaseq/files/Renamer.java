@@ -5,6 +5,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BiConsumer;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 import org.slf4j.Logger;
@@ -24,6 +25,18 @@ public class Renamer {
    * @param newFolder new folder
    */
   public static void moveFolder(Path oldFolder, Path newFolder) {
+    moveFolder(oldFolder, newFolder, (source, target) -> {
+    });
+  }
+
+  /**
+   * Renames oldFolder to folder and creates parent directories if necessary.
+   *
+   * @param oldFolder old folder
+   * @param newFolder new folder
+   * @param moved     called with old and new folder after the folder is moved
+   */
+  public static void moveFolder(Path oldFolder, Path newFolder, BiConsumer<Path, Path> moved) {
     if (Files.exists(oldFolder) && !oldFolder.equals(newFolder)) {
       try {
         logger.debug("moving folder {} to {}", oldFolder, newFolder);
@@ -32,6 +45,7 @@ public class Renamer {
           Files.createDirectories(parent);
         }
         Files.move(oldFolder, newFolder);
+        moved.accept(oldFolder, newFolder);
       } catch (IOException e) {
         throw new IllegalStateException("could not move folder " + oldFolder + " to " + newFolder,
             e);
@@ -49,6 +63,22 @@ public class Renamer {
    * @param folder  folder
    */
   public static void renameFiles(String oldName, String newName, Path folder) {
+    renameFiles(oldName, newName, folder, (source, target) -> {
+    });
+  }
+
+  /**
+   * Renames all files in folder that contains the old name to the new name.
+   *
+   * <p>Also fixes the filenames present in <code>.md5</code> files.</p>
+   *
+   * @param oldName old name
+   * @param newName new name
+   * @param folder  folder
+   * @param moved   called with old and new file after each file is renamed
+   */
+  public static void renameFiles(String oldName, String newName, Path folder,
+      BiConsumer<Path, Path> moved) {
     List<Path> files;
     try (Stream<Path> stream = Files.list(folder)) {
       files = stream.toList();
@@ -78,6 +108,7 @@ public class Renamer {
         try {
           logger.debug("renaming file {} to {}", file, newFile);
           Files.move(file, newFile);
+          moved.accept(file, newFile);
         } catch (IOException e) {
           throw new IllegalStateException("could not move file " + file + " to " + newFile, e);
         }
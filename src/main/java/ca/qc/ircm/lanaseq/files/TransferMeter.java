@@ -0,0 +1,130 @@
+package ca.qc.ircm.lanaseq.files;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Measures the progress of a transfer of files and reports it to a progression.
+ *
+ * <p>Progress is reported as the fraction of bytes transferred. If progression is a
+ * {@link TransferProgression}, it also receives the bytes transferred, throughput and estimated
+ * time remaining.</p>
+ *
+ * <p>Throughput only considers bytes that were copied, files moved without copying are counted
+ * as transferred using {@link #skipped(long)}. To limit the number of updates, progress is
+ * reported at most once every {@link #SAMPLE_INTERVAL} while copying.</p>
+ *
+ * <p>This class is thread safe, files can be copied concurrently using the same meter.</p>
+ */
+public class TransferMeter {
+
+  /**
+   * Minimum time between two measures of throughput.
+   */
+  public static final Duration SAMPLE_INTERVAL = Duration.ofMillis(200);
+  /**
+   * Weight of the last measure of throughput compared to the previous ones.
+   */
+  private static final double SMOOTHING = 0.3;
+  private final long totalBytes;
+  private final BiConsumer<String, Double> progression;
+  private final LongSupplier nanoTime;
+  private String message = "";
+  private long bytes;
+  private long sampleBytes;
+  private long sampleTime;
+  private double throughput;
+
+  /**
+   * Creates a transfer meter.
+   *
+   * @param totalBytes  total bytes to transfer
+   * @param progression receives progress
+   */
+  public TransferMeter(long totalBytes, BiConsumer<String, Double> progression) {
+    this(totalBytes, progression, System::nanoTime);
+  }
+
+  TransferMeter(long totalBytes, BiConsumer<String, Double> progression, LongSupplier nanoTime) {
+    this.totalBytes = totalBytes;
+    this.progression = progression;
+    this.nanoTime = nanoTime;
+    this.sampleTime = nanoTime.getAsLong();
+  }
+
+  /**
+   * Changes message and reports progress.
+   *
+   * @param message message
+   */
+  public synchronized void message(String message) {
+    this.message = message;
+    report(progress().fraction());
+  }
+
+  /**
+   * Adds bytes that were copied and reports progress if {@link #SAMPLE_INTERVAL} elapsed since
+   * the last measure of throughput.
+   *
+   * @param count bytes copied
+   */
+  public synchronized void transferred(long count) {
+    bytes += count;
+    sampleBytes += count;
+    long now = nanoTime.getAsLong();
+    long elapsed = now - sampleTime;
+    if (elapsed >= SAMPLE_INTERVAL.toNanos()) {
+      double current = sampleBytes * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+      throughput = throughput > 0 ? SMOOTHING * current + (1 - SMOOTHING) * throughput : current;
+      sampleBytes = 0;
+      sampleTime = now;
+      report(progress().fraction());
+    }
+  }
+
+  /**
+   * Adds bytes that were transferred without copying, like a file that was renamed.
+   *
+   * <p>These bytes are not used to compute throughput and progress is not reported.</p>
+   *
+   * @param count bytes transferred without copying
+   */
+  public synchronized void skipped(long count) {
+    bytes += count;
+  }
+
+  /**
+   * Marks transfer as done and reports progress.
+   *
+   * @param message message
+   */
+  public synchronized void done(String message) {
+    this.message = message;
+    bytes = Math.max(bytes, totalBytes);
+    report(1.0);
+  }
+
+  /**
+   * Returns current progress of transfer.
+   *
+   * @return current progress of transfer
+   */
+  public synchronized TransferProgress progress() {
+    Duration remaining = null;
+    if (bytes >= totalBytes) {
+      remaining = Duration.ZERO;
+    } else if (throughput > 0) {
+      remaining = Duration.ofMillis((long) ((totalBytes - bytes) * 1000 / throughput));
+    }
+    return new TransferProgress(bytes, totalBytes, throughput, remaining);
+  }
+
+  private void report(double fraction) {
+    progression.accept(message, fraction);
+    if (progression instanceof TransferProgression transferProgression) {
+      transferProgression.transferred(progress());
+    }
+  }
+}
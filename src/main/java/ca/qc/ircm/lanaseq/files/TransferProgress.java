@@ -0,0 +1,24 @@
+package ca.qc.ircm.lanaseq.files;
+
+import java.time.Duration;
+
+/**
+ * Progress of a transfer of files.
+ *
+ * @param bytes      bytes transferred so far, including files that were moved without copying
+ * @param totalBytes total bytes to transfer
+ * @param throughput current throughput in bytes per second, 0 if unknown
+ * @param remaining  estimated time before transfer is done, null if unknown
+ */
+public record TransferProgress(long bytes, long totalBytes, double throughput,
+    Duration remaining) {
+
+  /**
+   * Returns fraction of bytes that were transferred, between 0 and 1.
+   *
+   * @return fraction of bytes that were transferred, between 0 and 1
+   */
+  public double fraction() {
+    return totalBytes > 0 ? Math.min((double) bytes / totalBytes, 1.0) : 0.0;
+  }
+}
@@ -0,0 +1,34 @@
+package ca.qc.ircm.lanaseq.files;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Progression of a transfer of files that also receives the bytes transferred, throughput and
+ * estimated time remaining.
+ *
+ * <p>{@link #accept(Object, Object)} receives a message and the fraction of bytes transferred,
+ * like any other progression.</p>
+ */
+@FunctionalInterface
+public interface TransferProgression extends BiConsumer<String, Double> {
+
+  /**
+   * Called when more bytes were transferred.
+   *
+   * @param progress progress of transfer
+   */
+  default void transferred(TransferProgress progress) {
+  }
+
+  /**
+   * Returns true if transfer should stop as soon as possible.
+   *
+   * <p>Transfers that support cancellation check this method between files and while copying
+   * files.</p>
+   *
+   * @return true if transfer should stop as soon as possible
+   */
+  default boolean isCancelled() {
+    return false;
+  }
+}
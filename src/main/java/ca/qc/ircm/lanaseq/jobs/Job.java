@@ -1,12 +1,19 @@
 package ca.qc.ircm.lanaseq.jobs;
 
+import ca.qc.ircm.lanaseq.files.TransferProgress;
+import ca.qc.ircm.lanaseq.files.TransferProgression;
 import ca.qc.ircm.lanaseq.user.User;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.UUID;
 import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 /**
  * Information about a running job.
+ *
+ * <p>Fields that change while job is running are volatile, so that changes made by the thread
+ * running the job are visible to other threads, see {@link JobEventBus}.</p>
  */
 public class Job {
 
@@ -19,7 +26,7 @@ public class Job {
   /**
    * Job's {@link Future}.
    */
-  public Future<?> future;
+  public volatile Future<?> future;
   /**
    * User who started the job.
    */
@@ -31,13 +38,76 @@ public class Job {
   /**
    * Job's message.
    */
-  public String message;
+  public volatile String message;
   /**
    * Job's progression.
    */
-  public double progress = UNDETERMINED_PROGRESS;
+  public volatile double progress = UNDETERMINED_PROGRESS;
+  /**
+   * Bytes transferred by job, if job transfers files.
+   */
+  public volatile long bytes;
+  /**
+   * Total bytes to transfer by job, 0 if job does not transfer files.
+   */
+  public volatile long totalBytes;
+  /**
+   * Current throughput of job in bytes per second, 0 if unknown.
+   */
+  public volatile double throughput;
+  /**
+   * Estimated time before job is done, null if unknown.
+   */
+  public volatile Duration remaining;
   /**
    * Job's submission date.
    */
   public LocalDateTime time = LocalDateTime.now();
+  /**
+   * True if job stops when its {@link #future} is cancelled.
+   */
+  public boolean cancellable;
+  /**
+   * Called when job's message, progress or transfer statistics change.
+   */
+  volatile Consumer<Job> changeListener;
+
+  /**
+   * Returns a progression that updates this job's message, progress and transfer statistics.
+   *
+   * <p>Progression is cancelled when this job's {@link #future} is cancelled.</p>
+   *
+   * @return progression that updates this job's message, progress and transfer statistics
+   */
+  public TransferProgression progression() {
+    return new TransferProgression() {
+      @Override
+      public void accept(String message, Double progress) {
+        Job.this.message = message;
+        Job.this.progress = progress;
+        changed();
+      }
+
+      @Override
+      public void transferred(TransferProgress progress) {
+        bytes = progress.bytes();
+        totalBytes = progress.totalBytes();
+        throughput = progress.throughput();
+        remaining = progress.remaining();
+        changed();
+      }
+
+      @Override
+      public boolean isCancelled() {
+        return future != null && future.isCancelled();
+      }
+    };
+  }
+
+  private void changed() {
+    Consumer<Job> listener = changeListener;
+    if (listener != null) {
+      listener.accept(this);
+    }
+  }
 }
@@ -0,0 +1,32 @@
+package ca.qc.ircm.lanaseq.jobs;
+
+/**
+ * Change of a job, see {@link JobEventBus}.
+ *
+ * @param job  job
+ * @param type type of change
+ */
+public record JobEvent(Job job, Type type) {
+
+  /**
+   * Type of change.
+   */
+  public enum Type {
+    /**
+     * Job was added to jobs.
+     */
+    ADDED,
+    /**
+     * Job's message, progress or transfer statistics changed.
+     */
+    UPDATED,
+    /**
+     * Job completed, was cancelled or failed.
+     */
+    COMPLETED,
+    /**
+     * Job was removed from jobs.
+     */
+    REMOVED
+  }
+}
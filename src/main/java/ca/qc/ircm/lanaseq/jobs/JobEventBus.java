@@ -0,0 +1,161 @@
+package ca.qc.ircm.lanaseq.jobs;
+
+import ca.qc.ircm.lanaseq.AppConfiguration;
+import ca.qc.ircm.lanaseq.security.AuthenticatedUser;
+import ca.qc.ircm.lanaseq.user.User;
+import com.vaadin.flow.shared.Registration;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sends changes of jobs to the users who started them.
+ *
+ * <p>Progress updates of a job are sent at most once every
+ * {@link AppConfiguration#getJobUpdateInterval()}. An update received sooner is delayed until the
+ * interval elapsed, so that the last progress of a job is always sent. Other events are sent
+ * immediately.</p>
+ *
+ * <p>Listeners are called on the thread that changed the job, usually not a thread of the user's
+ * session.</p>
+ */
+@Component
+public class JobEventBus {
+
+  private static final Logger logger = LoggerFactory.getLogger(JobEventBus.class);
+  private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+  /**
+   * Progress updates throttling, by job's UUID.
+   */
+  private final Map<UUID, Throttle> throttles = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+      Thread.ofPlatform().name("job-events").daemon().factory());
+  private final AuthenticatedUser authenticatedUser;
+  private final AppConfiguration configuration;
+
+  /**
+   * Creates new JobEventBus.
+   *
+   * @param authenticatedUser authenticated user
+   * @param configuration     application configuration
+   */
+  public JobEventBus(AuthenticatedUser authenticatedUser, AppConfiguration configuration) {
+    this.authenticatedUser = authenticatedUser;
+    this.configuration = configuration;
+  }
+
+  /**
+   * Stops delayed progress updates.
+   */
+  @PreDestroy
+  void shutdown() {
+    scheduler.shutdownNow();
+  }
+
+  /**
+   * Calls listener for each change of a job started by current user.
+   *
+   * @param listener listener
+   * @return registration that removes listener
+   */
+  public Registration subscribe(Consumer<JobEvent> listener) {
+    Objects.requireNonNull(listener, "listener parameter cannot be null");
+    User user = authenticatedUser.getUser()
+        .orElseThrow(() -> new AccessDeniedException("User is not authenticated"));
+    Subscriber subscriber = new Subscriber(user, listener);
+    subscribers.add(subscriber);
+    return () -> subscribers.remove(subscriber);
+  }
+
+  void added(Job job) {
+    publish(new JobEvent(job, JobEvent.Type.ADDED));
+  }
+
+  void updated(Job job) {
+    Throttle throttle = throttles.computeIfAbsent(job.uuid, k -> new Throttle());
+    long delay;
+    synchronized (throttle) {
+      if (throttle.pending) {
+        return;
+      }
+      long now = System.nanoTime();
+      delay = throttle.published ? throttle.last + interval() - now : 0;
+      if (delay > 0) {
+        throttle.pending = true;
+      } else {
+        throttle.published = true;
+        throttle.last = now;
+      }
+    }
+    if (delay > 0) {
+      scheduler.schedule(() -> {
+        synchronized (throttle) {
+          throttle.pending = false;
+          throttle.last = System.nanoTime();
+        }
+        if (!done(job)) {
+          publish(new JobEvent(job, JobEvent.Type.UPDATED));
+        }
+      }, delay, TimeUnit.NANOSECONDS);
+    } else {
+      publish(new JobEvent(job, JobEvent.Type.UPDATED));
+    }
+  }
+
+  void completed(Job job) {
+    throttles.remove(job.uuid);
+    publish(new JobEvent(job, JobEvent.Type.COMPLETED));
+  }
+
+  void removed(Job job) {
+    throttles.remove(job.uuid);
+    publish(new JobEvent(job, JobEvent.Type.REMOVED));
+  }
+
+  private long interval() {
+    Duration interval = configuration.getJobUpdateInterval();
+    return interval != null ? interval.toNanos() : 0;
+  }
+
+  private boolean done(Job job) {
+    return job.future != null && job.future.isDone();
+  }
+
+  private void publish(JobEvent event) {
+    for (Subscriber subscriber : subscribers) {
+      if (subscriber.owner.equals(event.job().owner)) {
+        try {
+          subscriber.listener.accept(event);
+        } catch (RuntimeException e) {
+          // Job must not fail because a listener failed.
+          logger.warn("listener failed for event {} of job {}", event.type(), event.job().uuid, e);
+        }
+      }
+    }
+  }
+
+  private record Subscriber(User owner, Consumer<JobEvent> listener) {
+  }
+
+  /**
+   * Time of last progress update sent for a job.
+   */
+  private static final class Throttle {
+    private boolean published;
+    private long last;
+    private boolean pending;
+  }
+}
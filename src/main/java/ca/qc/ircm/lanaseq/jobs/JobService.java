@@ -1,51 +1,138 @@
 package ca.qc.ircm.lanaseq.jobs;
 
+import static ca.qc.ircm.lanaseq.UsedBy.SPRING;
+
+import ca.qc.ircm.lanaseq.AppConfiguration;
+import ca.qc.ircm.lanaseq.UsedBy;
 import ca.qc.ircm.lanaseq.security.AuthenticatedUser;
 import ca.qc.ircm.lanaseq.user.User;
-import java.util.ArrayList;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Component;
 
 /**
  * Jobs that are running or that completed recently.
+ *
+ * <p>Jobs are indexed by UUID and by owner. Reads do not lock, so jobs can be added and removed
+ * by asynchronous tasks while users list their jobs.</p>
+ *
+ * <p>Completed jobs are removed after {@link AppConfiguration#getJobMaxAge()} or when their owner
+ * has more than {@link AppConfiguration#getJobMaxCompleted()} completed jobs, oldest first.</p>
+ *
+ * <p>Changes of jobs are sent to their owner through {@link JobEventBus}.</p>
  */
 @Component
 public class JobService {
 
+  private static final Logger logger = LoggerFactory.getLogger(JobService.class);
+  /**
+   * All jobs that are running or that completed recently, by UUID.
+   */
+  private final Map<UUID, Entry> jobs = new ConcurrentHashMap<>();
   /**
-   * All jobs that are running or that completed recently.
+   * Jobs by owner's email, in the order they were added.
    */
-  private final List<Job> jobs = new ArrayList<>();
+  private final Map<String, ConcurrentNavigableMap<Long, Entry>> owners =
+      new ConcurrentHashMap<>();
+  private final AtomicLong sequence = new AtomicLong();
   private final AuthenticatedUser authenticatedUser;
+  private final AppConfiguration configuration;
+  private final JobEventBus eventBus;
 
   /**
    * Creates new JobService.
    *
    * @param authenticatedUser authenticated user.
+   * @param configuration     application configuration
+   * @param eventBus          sends changes of jobs to their owner
    */
-  public JobService(AuthenticatedUser authenticatedUser) {
+  public JobService(AuthenticatedUser authenticatedUser, AppConfiguration configuration,
+      JobEventBus eventBus) {
     this.authenticatedUser = authenticatedUser;
+    this.configuration = configuration;
+    this.eventBus = eventBus;
+  }
+
+  private User currentUser() {
+    return authenticatedUser.getUser()
+        .orElseThrow(() -> new AccessDeniedException("User is not authenticated"));
+  }
+
+  private static String ownerKey(Job job) {
+    return job.owner != null ? job.owner.getEmail() : "";
   }
 
   /**
-   * Returns all jobs started by current user.
+   * Returns all jobs started by current user, in the order they were added.
    *
    * @return all jobs started by current user
    */
   public List<Job> getJobs() {
-    User user = authenticatedUser.getUser()
-        .orElseThrow(() -> new AccessDeniedException("User is not authenticated"));
-    return jobs.stream().filter(j -> user.equals(j.owner)).toList();
+    User user = currentUser();
+    Map<Long, Entry> owned = owners.get(user.getEmail());
+    if (owned == null) {
+      return List.of();
+    }
+    return owned.values().stream().map(Entry::job).toList();
+  }
+
+  /**
+   * Returns job started by current user with this UUID.
+   *
+   * @param uuid job's UUID
+   * @return job started by current user with this UUID
+   */
+  public Optional<Job> getJob(UUID uuid) {
+    User user = currentUser();
+    return Optional.ofNullable(jobs.get(uuid)).map(Entry::job).filter(j -> user.equals(j.owner));
   }
 
   /**
    * Adds job to list of running jobs.
    *
+   * <p>Completed jobs of the same owner that must be removed are removed.</p>
+   *
+   * <p>Progress of job is sent to its owner until job completes, if job's {@link Job#future} is
+   * a {@link CompletableFuture}.</p>
+   *
    * @param job job
    */
   public void addJob(Job job) {
-    jobs.add(job);
+    Entry entry = new Entry(job, sequence.incrementAndGet());
+    Entry previous = jobs.put(job.uuid, entry);
+    if (previous != null) {
+      unindex(previous);
+      eventBus.removed(previous.job);
+    }
+    // Index inside compute so that the owner's map cannot be discarded by a concurrent removal.
+    owners.compute(ownerKey(job), (k, owned) -> {
+      owned = owned != null ? owned : new ConcurrentSkipListMap<>();
+      owned.put(entry.sequence, entry);
+      return owned;
+    });
+    job.changeListener = eventBus::updated;
+    eventBus.added(job);
+    if (job.future instanceof CompletableFuture<?> future) {
+      future.whenComplete((result, exception) -> {
+        job.changeListener = null;
+        eventBus.completed(job);
+      });
+    }
+    evict(ownerKey(job), Instant.now());
   }
 
   /**
@@ -54,6 +141,90 @@ public class JobService {
    * @param job job
    */
   public void removeJob(Job job) {
-    jobs.remove(job);
+    Entry entry = jobs.get(job.uuid);
+    if (entry != null && entry.job == job) {
+      remove(entry);
+    }
+  }
+
+  private void remove(Entry entry) {
+    if (jobs.remove(entry.job.uuid, entry)) {
+      unindex(entry);
+      eventBus.removed(entry.job);
+    }
+  }
+
+  private void unindex(Entry entry) {
+    String owner = ownerKey(entry.job);
+    owners.computeIfPresent(owner, (k, owned) -> {
+      owned.remove(entry.sequence, entry);
+      return owned.isEmpty() ? null : owned;
+    });
+  }
+
+  /**
+   * Removes completed jobs that are older than {@link AppConfiguration#getJobMaxAge()} and
+   * completed jobs exceeding {@link AppConfiguration#getJobMaxCompleted()} for each owner.
+   *
+   * <p>This method is executed every 5 minutes.</p>
+   */
+  @Scheduled(fixedRateString = "PT5M", initialDelayString = "PT5M")
+  @UsedBy(SPRING)
+  public void evict() {
+    Instant now = Instant.now();
+    owners.keySet().forEach(owner -> evict(owner, now));
+  }
+
+  private void evict(String owner, Instant now) {
+    ConcurrentNavigableMap<Long, Entry> owned = owners.get(owner);
+    if (owned == null) {
+      return;
+    }
+    Duration maxAge = configuration.getJobMaxAge();
+    int maxCompleted = configuration.getJobMaxCompleted();
+    int completed = 0;
+    // Iterate from most recent to oldest job to keep the most recent completed jobs.
+    Iterator<Entry> iterator = owned.descendingMap().values().iterator();
+    while (iterator.hasNext()) {
+      Entry entry = iterator.next();
+      Instant completion = entry.completion(now);
+      if (completion == null) {
+        continue;
+      }
+      completed++;
+      if ((maxAge != null && !now.isBefore(completion.plus(maxAge)))
+          || (maxCompleted > 0 && completed > maxCompleted)) {
+        logger.debug("removing completed job {} of {}", entry.job.uuid, owner);
+        remove(entry);
+      }
+    }
+  }
+
+  /**
+   * Job with the information needed to index and evict it.
+   */
+  private static final class Entry {
+    private final Job job;
+    private final long sequence;
+    /**
+     * Time at which job was first seen completed.
+     */
+    private volatile Instant completed;
+
+    private Entry(Job job, long sequence) {
+      this.job = job;
+      this.sequence = sequence;
+    }
+
+    private Job job() {
+      return job;
+    }
+
+    private Instant completion(Instant now) {
+      if (completed == null && job.future != null && job.future.isDone()) {
+        completed = now;
+      }
+      return completed;
+    }
   }
 }
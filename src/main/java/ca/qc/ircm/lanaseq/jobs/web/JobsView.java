@@ -10,10 +10,17 @@ import static ca.qc.ircm.lanaseq.text.Strings.styleName;
 
 import ca.qc.ircm.lanaseq.Constants;
 import ca.qc.ircm.lanaseq.jobs.Job;
+import ca.qc.ircm.lanaseq.jobs.JobEvent;
+import ca.qc.ircm.lanaseq.jobs.JobEventBus;
 import ca.qc.ircm.lanaseq.jobs.JobService;
 import ca.qc.ircm.lanaseq.web.ViewLayout;
+import com.vaadin.flow.component.AttachEvent;
 import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.DetachEvent;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
 import com.vaadin.flow.component.button.Button;
+import com.vaadin.flow.component.button.ButtonVariant;
 import com.vaadin.flow.component.grid.Grid;
 import com.vaadin.flow.component.grid.Grid.Column;
 import com.vaadin.flow.component.html.NativeLabel;
@@ -27,6 +34,7 @@ import com.vaadin.flow.i18n.LocaleChangeEvent;
 import com.vaadin.flow.i18n.LocaleChangeObserver;
 import com.vaadin.flow.router.HasDynamicTitle;
 import com.vaadin.flow.router.Route;
+import com.vaadin.flow.shared.Registration;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.security.RolesAllowed;
 import java.io.Serial;
@@ -38,12 +46,16 @@ import java.util.Map.Entry;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.time.DurationFormatUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 /**
  * Show running jobs and progression message.
+ *
+ * <p>Jobs are updated using server push while view is attached.</p>
  */
 @Route(value = JobsView.VIEW_NAME, layout = ViewLayout.class)
 @RolesAllowed({USER})
@@ -57,8 +69,11 @@ public class JobsView extends VerticalLayout implements LocaleChangeObserver, Ha
   public static final String MESSAGE = "message";
   public static final String TIME = "time";
   public static final String PROGRESS = "progress";
+  public static final String TRANSFER = "transfer";
+  public static final String TRANSFER_UNKNOWN = styleName(TRANSFER, "unknown");
   public static final String SUCCESS = "success";
   public static final String ERROR = "error";
+  public static final String CANCEL = "cancel";
   public static final String CANCELLED = "cancelled";
   public static final String INTERRUPTED = "interrupted";
   public static final String REFRESH = "refresh";
@@ -76,15 +91,19 @@ public class JobsView extends VerticalLayout implements LocaleChangeObserver, Ha
   protected Button removeDone = new Button();
   private final Map<Job, Boolean> jobsDone = new ConcurrentHashMap<>();
   private final transient JobService service;
+  private final transient JobEventBus eventBus;
+  private Registration jobEventsRegistration;
 
   /**
    * Create new JobsView.
    *
-   * @param service job service
+   * @param service  job service
+   * @param eventBus job events
    */
   @Autowired
-  public JobsView(JobService service) {
+  public JobsView(JobService service, JobEventBus eventBus) {
     this.service = service;
+    this.eventBus = eventBus;
   }
 
   @PostConstruct
@@ -139,8 +158,36 @@ public class JobsView extends VerticalLayout implements LocaleChangeObserver, Ha
       }
       HorizontalLayout progressBarLabel = new HorizontalLayout(message, progress);
       progressBarLabel.setJustifyContentMode(JustifyContentMode.BETWEEN);
-      return new VerticalLayout(progressBarLabel, progressBar);
+      VerticalLayout layout = new VerticalLayout(progressBarLabel, progressBar);
+      if (job.totalBytes > 0) {
+        layout.add(transfer(job));
+      }
+      if (job.cancellable) {
+        Button cancel = new Button(getTranslation(MESSAGE_PREFIX + CANCEL));
+        cancel.addClassName(CANCEL);
+        cancel.addThemeVariants(ButtonVariant.LUMO_SMALL, ButtonVariant.LUMO_ERROR);
+        cancel.addClickListener(e -> cancel(job));
+        layout.add(cancel);
+      }
+      return layout;
+    }
+  }
+
+  private Span transfer(Job job) {
+    Span transfer = new Span();
+    transfer.addClassName(TRANSFER);
+    if (job.throughput > 0 && job.remaining != null) {
+      transfer.setText(getTranslation(MESSAGE_PREFIX + TRANSFER,
+          FileUtils.byteCountToDisplaySize(job.bytes),
+          FileUtils.byteCountToDisplaySize(job.totalBytes),
+          FileUtils.byteCountToDisplaySize((long) job.throughput),
+          DurationFormatUtils.formatDuration(job.remaining.toMillis(), "H:mm:ss")));
+    } else {
+      transfer.setText(getTranslation(MESSAGE_PREFIX + TRANSFER_UNKNOWN,
+          FileUtils.byteCountToDisplaySize(job.bytes),
+          FileUtils.byteCountToDisplaySize(job.totalBytes)));
     }
+    return transfer;
   }
 
   private int progressComparator(Job job1, Job job2) {
@@ -169,6 +216,43 @@ public class JobsView extends VerticalLayout implements LocaleChangeObserver, Ha
     return job1State - job2State;
   }
 
+  @Override
+  protected void onAttach(AttachEvent attachEvent) {
+    super.onAttach(attachEvent);
+    UI ui = attachEvent.getUI();
+    jobEventsRegistration = eventBus.subscribe(event -> jobChanged(ui, event));
+  }
+
+  @Override
+  protected void onDetach(DetachEvent detachEvent) {
+    if (jobEventsRegistration != null) {
+      jobEventsRegistration.remove();
+      jobEventsRegistration = null;
+    }
+    super.onDetach(detachEvent);
+  }
+
+  private void jobChanged(UI ui, JobEvent event) {
+    try {
+      ui.access(() -> {
+        Job job = event.job();
+        switch (event.type()) {
+          case ADDED, REMOVED -> loadJobs();
+          case UPDATED -> jobs.getDataProvider().refreshItem(job);
+          case COMPLETED -> {
+            jobsDone.replace(job, true);
+            jobs.getDataProvider().refreshItem(job);
+          }
+        }
+        if (ui.getPushConfiguration().getPushMode().isEnabled()) {
+          ui.push();
+        }
+      });
+    } catch (UIDetachedException e) {
+      logger.debug("UI detached before job {} was updated", event.job().uuid);
+    }
+  }
+
   private void loadJobs() {
     List<Job> jobs = service.getJobs();
     jobsDone.clear();
@@ -192,6 +276,12 @@ public class JobsView extends VerticalLayout implements LocaleChangeObserver, Ha
         getTranslation(CONSTANTS_PREFIX + APPLICATION_NAME));
   }
 
+  private void cancel(Job job) {
+    logger.debug("cancelling job {}", job.title);
+    job.future.cancel(true);
+    loadJobs();
+  }
+
   private void removeDone() {
     jobsDone.entrySet().stream().filter(Entry::getValue)
         .forEach(e -> service.removeJob(e.getKey()));
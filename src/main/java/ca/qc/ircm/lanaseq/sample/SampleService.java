@@ -1,12 +1,20 @@
 package ca.qc.ircm.lanaseq.sample;
 
 import static ca.qc.ircm.lanaseq.AppConfiguration.DELETED_FILENAME;
+import static ca.qc.ircm.lanaseq.AsyncConfiguration.INGESTION_EXECUTOR;
 import static ca.qc.ircm.lanaseq.sample.QSample.sample;
 import static ca.qc.ircm.lanaseq.time.TimeConverter.toLocalDateTime;
 
 import ca.qc.ircm.lanaseq.AppConfiguration;
 import ca.qc.ircm.lanaseq.DataWithFiles;
 import ca.qc.ircm.lanaseq.dataset.DatasetRepository;
+import ca.qc.ircm.lanaseq.files.DriveResult;
+import ca.qc.ircm.lanaseq.files.FileIndex;
+import ca.qc.ircm.lanaseq.files.FileIngester;
+import ca.qc.ircm.lanaseq.files.FileListing;
+import ca.qc.ircm.lanaseq.files.FileListingCache;
+import ca.qc.ircm.lanaseq.files.FilenameMatcher;
+import ca.qc.ircm.lanaseq.files.NetworkDriveScanner;
 import ca.qc.ircm.lanaseq.files.Renamer;
 import ca.qc.ircm.lanaseq.security.AuthenticatedUser;
 import ca.qc.ircm.lanaseq.user.User;
@@ -16,13 +24,9 @@ import jakarta.transaction.Transactional;
 import jakarta.transaction.Transactional.TxType;
 import java.io.IOException;
 import java.io.Writer;
-import java.nio.file.FileSystems;
-import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -30,14 +34,19 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.slf4j.Logger;
@@ -69,17 +78,27 @@ public class SampleService {
   private final AppConfiguration configuration;
   private final AuthenticatedUser authenticatedUser;
   private final JPAQueryFactory queryFactory;
+  private final FileIndex fileIndex;
+  private final FileListingCache fileListingCache;
+  private final NetworkDriveScanner driveScanner;
+  private final FileIngester fileIngester;
 
   @Autowired
   protected SampleService(SampleRepository repository, DatasetRepository datasetRepository,
       SamplePublicFileRepository samplePublicFileRepository, AppConfiguration configuration,
-      AuthenticatedUser authenticatedUser, JPAQueryFactory queryFactory) {
+      AuthenticatedUser authenticatedUser, JPAQueryFactory queryFactory, FileIndex fileIndex,
+      FileListingCache fileListingCache, NetworkDriveScanner driveScanner,
+      FileIngester fileIngester) {
     this.repository = repository;
     this.datasetRepository = datasetRepository;
     this.samplePublicFileRepository = samplePublicFileRepository;
     this.configuration = configuration;
     this.authenticatedUser = authenticatedUser;
     this.queryFactory = queryFactory;
+    this.fileIndex = fileIndex;
+    this.fileListingCache = fileListingCache;
+    this.driveScanner = driveScanner;
+    this.fileIngester = fileIngester;
   }
 
   /**
@@ -150,51 +169,153 @@ public class SampleService {
     if (sample.getId() == 0) {
       return new ArrayList<>();
     }
-    List<Path> files = new ArrayList<>();
-    Path folder = configuration.getHome().folder(sample);
-    try (Stream<Path> homeFiles = Files.list(folder)) {
-      homeFiles.filter(file -> !DELETED_FILENAME.equals(file.getFileName().toString()))
-          .filter(file -> !file.toFile().isHidden()).forEach(files::add);
-    } catch (IOException e) {
-      // Ignore since folder probably does not exist.
+    return resolveFiles(List.of(sample)).get(sample);
+  }
+
+  /**
+   * Lists sample's files in the background, drive by drive.
+   *
+   * <p>Listener is called once for every network drive, as soon as the drive responds, with the
+   * files of sample found on the drive. Drives that do not respond in time have an empty result.
+   * When files are already cached, listener is called immediately for all drives.</p>
+   *
+   * @param sample   sample
+   * @param listener called with files of sample found on each network drive
+   * @return all sample's files, once all drives responded
+   */
+  @PreAuthorize("hasPermission(#sample, 'read')")
+  @Async
+  public CompletableFuture<List<Path>> files(Sample sample,
+      Consumer<DriveResult<DataWithFiles, List<Path>>> listener) {
+    Objects.requireNonNull(sample, "sample parameter cannot be null");
+    Objects.requireNonNull(listener, "listener parameter cannot be null");
+    Optional<List<Path>> cached = sample.getId() != 0
+        ? fileListingCache.get(Sample.class, sample.getId())
+        : Optional.of(new ArrayList<>());
+    if (cached.isPresent()) {
+      List<AppConfiguration.NetworkDrive<DataWithFiles>> drives = drives();
+      drives.forEach(drive -> listener.accept(new DriveResult<>(drive,
+          Optional.of(cached.get().stream().filter(inside(drive, drives)).toList()))));
+      return CompletableFuture.completedFuture(cached.get());
     }
-    for (AppConfiguration.NetworkDrive<DataWithFiles> drive : configuration.getArchives()) {
-      folder = drive.folder(sample);
-      try (Stream<Path> archiveFiles = Files.list(folder)) {
-        archiveFiles.filter(file -> !DELETED_FILENAME.equals(file.getFileName().toString()))
-            .filter(file -> !file.toFile().isHidden()).forEach(files::add);
-      } catch (IOException e) {
-        // Ignore since folder probably does not exist.
+    long generation = fileListingCache.generation(Sample.class, sample.getId());
+    Map<Sample, Set<String>> filenames = Map.of(sample, Set.copyOf(sample.getFilenames()));
+    List<DriveResult<DataWithFiles, List<Path>>> results = driveScanner.scan(drives(),
+        drive -> driveFiles(drive, filenames).get(sample), listener);
+    List<Path> files = results.stream().flatMap(result -> result.result().stream())
+        .flatMap(List::stream).collect(Collectors.toCollection(ArrayList::new));
+    if (results.stream().allMatch(DriveResult::isAvailable)) {
+      fileListingCache.put(Sample.class, sample.getId(), generation, files);
+    }
+    return CompletableFuture.completedFuture(files);
+  }
+
+  /**
+   * Returns all files of many samples.
+   *
+   * <p>Each network drive is scanned once for all samples, instead of once per sample.</p>
+   *
+   * @param samples samples
+   * @return all files of samples, in the same order as samples
+   */
+  @PreAuthorize("@permissionEvaluator.hasCollectionPermission(authentication, #samples, 'read')")
+  public Map<Sample, List<Path>> allFiles(Collection<Sample> samples) {
+    Objects.requireNonNull(samples, "samples parameter cannot be null");
+    return resolveFiles(samples);
+  }
+
+  private Map<Sample, List<Path>> resolveFiles(Collection<Sample> samples) {
+    Map<Sample, List<Path>> files = new LinkedHashMap<>();
+    Map<Sample, Set<String>> missing = new LinkedHashMap<>();
+    Map<Sample, Long> generations = new HashMap<>();
+    for (Sample sample : samples) {
+      Optional<List<Path>> cached = sample.getId() != 0
+          ? fileListingCache.get(Sample.class, sample.getId())
+          : Optional.of(new ArrayList<>());
+      files.put(sample, cached.orElseGet(ArrayList::new));
+      if (cached.isEmpty()) {
+        generations.put(sample, fileListingCache.generation(Sample.class, sample.getId()));
+        missing.put(sample, Set.copyOf(sample.getFilenames()));
       }
     }
-    if (!sample.getFilenames().isEmpty()) {
-      List<PathMatcher> matchers = sample.getFilenames().stream()
-          .map(filename -> FileSystems.getDefault().getPathMatcher("glob:**/*" + filename + "*"))
-          .toList();
-      try (Stream<Path> filenamesFiles = Files.walk(configuration.getHome().getFolder(),
-          FileVisitOption.FOLLOW_LINKS)) {
-        filenamesFiles.filter(Files::isRegularFile)
-            .filter(file -> matchers.stream().anyMatch(matcher -> matcher.matches(file)))
+    if (missing.isEmpty()) {
+      return files;
+    }
+    List<DriveResult<DataWithFiles, Map<Sample, List<Path>>>> results = driveScanner.scan(drives(),
+        drive -> driveFiles(drive, missing));
+    results.forEach(result -> result.result().ifPresent(
+        driveFiles -> driveFiles.forEach((sample, paths) -> files.get(sample).addAll(paths))));
+    if (results.stream().allMatch(DriveResult::isAvailable)) {
+      missing.keySet().forEach(sample -> fileListingCache.put(Sample.class, sample.getId(),
+          generations.get(sample), files.get(sample)));
+    }
+    return files;
+  }
+
+  private Map<Sample, List<Path>> driveFiles(AppConfiguration.NetworkDrive<DataWithFiles> drive,
+      Map<Sample, Set<String>> filenames) {
+    Set<String> allFilenames = filenames.values().stream().flatMap(Set::stream)
+        .collect(Collectors.toSet());
+    List<Path> indexed = allFilenames.isEmpty() ? List.of()
+        : fileIndex.files(drive.getFolder(), allFilenames).stream()
+            .filter(inside(drive, drives()))
             .filter(file -> !DELETED_FILENAME.equals(file.getFileName().toString()))
-            .filter(file -> !file.toFile().isHidden()).forEach(files::add);
+            .filter(file -> !file.toFile().isHidden()).toList();
+    Map<Sample, List<Path>> files = new HashMap<>();
+    Map<String, List<Sample>> samplesByFilename = new HashMap<>();
+    filenames.forEach((sample, sampleFilenames) -> {
+      List<Path> sampleFiles = new ArrayList<>();
+      try {
+        FileListing.list(drive.folder(sample)).stream()
+            .filter(entry -> !DELETED_FILENAME.equals(entry.path().getFileName().toString()))
+            .filter(entry -> !entry.isHidden()).map(FileListing.Entry::path)
+            .forEach(sampleFiles::add);
       } catch (IOException e) {
         // Ignore since folder probably does not exist.
       }
-      for (AppConfiguration.NetworkDrive<DataWithFiles> drive : configuration.getArchives()) {
-        try (Stream<Path> filenamesFiles = Files.walk(drive.getFolder(),
-            FileVisitOption.FOLLOW_LINKS)) {
-          filenamesFiles.filter(Files::isRegularFile)
-              .filter(file -> matchers.stream().anyMatch(matcher -> matcher.matches(file)))
-              .filter(file -> !DELETED_FILENAME.equals(file.getFileName().toString()))
-              .filter(file -> !file.toFile().isHidden()).forEach(files::add);
-        } catch (IOException e) {
-          // Ignore since folder probably does not exist.
-        }
-      }
-    }
+      files.put(sample, sampleFiles);
+      sampleFilenames.forEach(
+          filename -> samplesByFilename.computeIfAbsent(filename, f -> new ArrayList<>()).add(sample));
+    });
+    FilenameMatcher matcher = FilenameMatcher.containing(allFilenames);
+    indexed.forEach(file -> matcher.matching(file).stream()
+        .flatMap(filename -> samplesByFilename.get(filename).stream()).distinct()
+        .forEach(sample -> files.get(sample).add(file)));
     return files;
   }
 
+  private List<AppConfiguration.NetworkDrive<DataWithFiles>> drives() {
+    List<AppConfiguration.NetworkDrive<DataWithFiles>> drives = new ArrayList<>();
+    drives.add(configuration.getHome());
+    drives.addAll(configuration.getArchives());
+    return drives;
+  }
+
+  /**
+   * Returns a filter that accepts files inside drive's folder.
+   *
+   * <p>Drive folders can be nested, like archives inside home folder. Files inside a nested
+   * drive's folder belong to the nested drive and are not accepted.</p>
+   */
+  private Predicate<Path> inside(AppConfiguration.NetworkDrive<DataWithFiles> drive,
+      List<AppConfiguration.NetworkDrive<DataWithFiles>> drives) {
+    Path folder = drive.getFolder();
+    List<Path> nested = drives.stream().filter(other -> other != drive)
+        .map(AppConfiguration.NetworkDrive::getFolder)
+        .filter(other -> other.startsWith(folder) && !other.equals(folder)).toList();
+    return file -> file.startsWith(folder) && nested.stream().noneMatch(file::startsWith);
+  }
+
+  /**
+   * Discards cached files of sample, so that {@link #files(Sample)} lists files again.
+   *
+   * @param sample sample
+   */
+  @PreAuthorize("hasPermission(#sample, 'read')")
+  public void refreshFiles(Sample sample) {
+    fileListingCache.invalidate(Sample.class, sample.getId());
+  }
+
   /**
    * Returns a path that is relative to a configured network drive.
    *
@@ -227,18 +348,10 @@ public class SampleService {
     if (sample.getId() == 0) {
       return new ArrayList<>();
     }
-    List<String> labels = new ArrayList<>();
-    Path folder = configuration.getHome().folder(sample);
-    if (Files.exists(folder)) {
-      labels.add(configuration.getHome().label(sample, unix));
-    }
-    for (AppConfiguration.NetworkDrive<DataWithFiles> drive : configuration.getArchives()) {
-      folder = drive.folder(sample);
-      if (Files.exists(folder)) {
-        labels.add(drive.label(sample, unix));
-      }
-    }
-    return labels;
+    return driveScanner.scan(drives(), drive -> Files.exists(drive.folder(sample))).stream()
+        .filter(result -> result.result().orElse(false))
+        .map(result -> result.drive().label(sample, unix))
+        .collect(Collectors.toCollection(ArrayList::new));
   }
 
   /**
@@ -258,18 +371,16 @@ public class SampleService {
     try {
       List<Path> files = new ArrayList<>();
       if (Files.exists(upload)) {
-        try (Stream<Path> uploadFiles = Files.list(upload)) {
-          uploadFiles.filter(file -> file.toFile().isFile()).filter(file -> {
-            String filename = file.getFileName().toString();
-            return filename.contains(sample.getName());
-          }).filter(file -> !file.toFile().isHidden()).forEach(files::add);
-        }
+        FileListing.list(upload).stream().filter(entry -> {
+          String filename = entry.path().getFileName().toString();
+          return filename.contains(sample.getName());
+        }).filter(FileListing.Entry::isRegularFile).filter(entry -> !entry.isHidden())
+            .map(FileListing.Entry::path).forEach(files::add);
       }
       if (Files.exists(sampleUpload)) {
-        try (Stream<Path> uploadFiles = Files.list(sampleUpload)) {
-          uploadFiles.filter(file -> file.toFile().isFile())
-              .filter(file -> !file.toFile().isHidden()).forEach(files::add);
-        }
+        FileListing.list(sampleUpload).stream().filter(FileListing.Entry::isRegularFile)
+            .filter(entry -> !entry.isHidden()).map(FileListing.Entry::path)
+            .forEach(files::add);
       }
       return files;
     } catch (IOException e) {
@@ -294,8 +405,10 @@ public class SampleService {
       return Optional.empty();
     }
     Sample sample = optionalSample.orElseThrow();
-    return Stream.concat(Stream.of(configuration.getHome()), configuration.getArchives().stream())
-        .map(drive -> drive.folder(sample).resolve(filename)).filter(Files::isRegularFile)
+    // Check file on the drive's thread, so that a hung drive cannot block the request.
+    return driveScanner.scan(drives(),
+            drive -> Optional.of(drive.folder(sample).resolve(filename)).filter(Files::isRegularFile))
+        .stream().flatMap(result -> result.result().stream()).flatMap(Optional::stream)
         .findFirst();
   }
 
@@ -438,15 +551,16 @@ public class SampleService {
           .toList();
       repository.save(sample);
       Path folder = configuration.getHome().folder(sample);
-      Renamer.moveFolder(oldFolder, folder);
-      Renamer.renameFiles(oldName, sample.getName(), folder);
+      Renamer.moveFolder(oldFolder, folder, fileIndex::move);
+      Renamer.renameFiles(oldName, sample.getName(), folder, fileIndex::move);
       for (int i = 0; i < configuration.getArchives().size(); i++) {
         Path oldArchive = oldArchives.get(i);
         Path archive = configuration.getArchives().get(i).folder(sample);
-        Renamer.moveFolder(oldArchive, archive);
-        Renamer.renameFiles(oldName, sample.getName(), archive);
+        Renamer.moveFolder(oldArchive, archive, fileIndex::move);
+        Renamer.renameFiles(oldName, sample.getName(), archive, fileIndex::move);
       }
     }
+    fileListingCache.invalidate(Sample.class, sample.getId());
   }
 
   @Transactional(TxType.REQUIRES_NEW)
@@ -467,7 +581,7 @@ public class SampleService {
    * @param progression progression of file saving
    */
   @PreAuthorize("hasPermission(#sample, 'write')")
-  @Async
+  @Async(INGESTION_EXECUTOR)
   public CompletableFuture<Void> saveFiles(Sample sample, Collection<Path> files,
       Function<Path, String> filename, BiConsumer<String, Double> progression) {
     Path folder = configuration.getHome().folder(sample);
@@ -476,21 +590,15 @@ public class SampleService {
     } catch (IOException e) {
       throw new IllegalStateException("could not create folder " + folder, e);
     }
-    int i = -1;
+    Map<Path, Path> targets = new LinkedHashMap<>();
     for (Path file : files) {
-      i++;
-      String name = filename.apply(file);
-      Path target = folder.resolve(name);
-      try {
-        logger.debug("moving file {} to {} for sample {}", file, target, sample);
-        progression.accept(name, (double) i / files.size());
-        Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
-        Files.delete(file);
-      } catch (IOException e) {
-        throw new IllegalArgumentException("could not move file " + file + " to " + target, e);
-      }
+      targets.put(file, folder.resolve(filename.apply(file)));
     }
-    progression.accept("", 1.0);
+    logger.debug("moving files {} for sample {}", targets, sample);
+    fileIngester.ingest(configuration.getHome(), targets, progression, target -> {
+      fileIndex.add(target);
+      fileListingCache.invalidate(Sample.class, sample.getId());
+    });
     return CompletableFuture.completedFuture(null);
   }
 
@@ -539,9 +647,11 @@ public class SampleService {
       throw new IllegalArgumentException("sample cannot be deleted");
     }
     repository.delete(sample);
+    fileListingCache.invalidate(Sample.class, sample.getId());
     Path folder = configuration.getHome().folder(sample);
     try {
       FileSystemUtils.deleteRecursively(folder);
+      fileIndex.remove(folder);
     } catch (IOException e) {
       logger.error("could not delete folder {}", folder);
     }
@@ -573,6 +683,8 @@ public class SampleService {
       writer.write(formatter.format(LocalDateTime.now()));
       writer.write("\n");
       Files.delete(file);
+      fileIndex.remove(file);
+      fileListingCache.invalidate(Sample.class, sample.getId());
     } catch (IOException e) {
       throw new IllegalArgumentException("could not delete file " + file + " from folder " + folder,
           e);
@@ -2,6 +2,7 @@ package ca.qc.ircm.lanaseq.sample.web;
 
 import static ca.qc.ircm.lanaseq.Constants.REFRESH;
 import static ca.qc.ircm.lanaseq.Constants.SAVE;
+import static ca.qc.ircm.lanaseq.Constants.TOO_MANY_JOBS;
 import static ca.qc.ircm.lanaseq.Constants.messagePrefix;
 import static ca.qc.ircm.lanaseq.text.Strings.normalizedCollator;
 import static ca.qc.ircm.lanaseq.text.Strings.property;
@@ -55,6 +56,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
+import org.springframework.core.task.TaskRejectedException;
 
 /**
  * Add sample files dialog.
@@ -254,11 +256,14 @@ public class AddSampleFilesDialog extends Dialog implements LocaleChangeObserver
       Job job = new Job();
       job.title = getTranslation(MESSAGE_PREFIX + SAVE_STARTED, files.size(), sample.getName());
       job.owner = authenticatedUser.getUser().orElseThrow();
-      job.future = service.saveFiles(sample, files, f -> f.getFileName().toString(),
-          (message, progress) -> {
-            job.message = message;
-            job.progress = progress;
-          });
+      try {
+        job.future =
+            service.saveFiles(sample, files, f -> f.getFileName().toString(), job.progression());
+      } catch (TaskRejectedException e) {
+        logger.warn("too many jobs, could not save files {} to sample {}", files, sample);
+        new WarningNotification(getTranslation(CONSTANTS_PREFIX + TOO_MANY_JOBS)).open();
+        return;
+      }
       jobService.addJob(job);
       Notification.show(
           getTranslation(MESSAGE_PREFIX + SAVE_STARTED, files.size(), sample.getName()));
@@ -5,16 +5,23 @@ import static ca.qc.ircm.lanaseq.Constants.DELETE;
 import static ca.qc.ircm.lanaseq.Constants.DOWNLOAD;
 import static ca.qc.ircm.lanaseq.Constants.REFRESH;
 import static ca.qc.ircm.lanaseq.Constants.REQUIRED;
+import static ca.qc.ircm.lanaseq.Constants.TOO_MANY_JOBS;
 import static ca.qc.ircm.lanaseq.Constants.UPLOAD;
 import static ca.qc.ircm.lanaseq.Constants.messagePrefix;
 import static ca.qc.ircm.lanaseq.text.Strings.property;
 import static ca.qc.ircm.lanaseq.text.Strings.styleName;
+import static ca.qc.ircm.lanaseq.time.TimeConverter.toLocalDateTime;
 import static ca.qc.ircm.lanaseq.web.UploadInternationalization.uploadI18N;
 
 import ca.qc.ircm.lanaseq.AppConfiguration;
 import ca.qc.ircm.lanaseq.Constants;
+import ca.qc.ircm.lanaseq.DataWithFiles;
 import ca.qc.ircm.lanaseq.dataset.web.DatasetFilesDialog;
+import ca.qc.ircm.lanaseq.files.DriveResult;
+import ca.qc.ircm.lanaseq.files.FileSorting;
 import ca.qc.ircm.lanaseq.jobs.Job;
+import ca.qc.ircm.lanaseq.jobs.JobEvent;
+import ca.qc.ircm.lanaseq.jobs.JobEventBus;
 import ca.qc.ircm.lanaseq.jobs.JobService;
 import ca.qc.ircm.lanaseq.sample.Sample;
 import ca.qc.ircm.lanaseq.sample.SampleService;
@@ -22,7 +29,11 @@ import ca.qc.ircm.lanaseq.security.AuthenticatedUser;
 import ca.qc.ircm.lanaseq.security.Permission;
 import ca.qc.ircm.lanaseq.web.EditableFile;
 import ca.qc.ircm.lanaseq.web.WarningNotification;
+import com.vaadin.flow.component.AttachEvent;
+import com.vaadin.flow.component.DetachEvent;
 import com.vaadin.flow.component.Key;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
 import com.vaadin.flow.component.button.Button;
 import com.vaadin.flow.component.button.ButtonVariant;
 import com.vaadin.flow.component.checkbox.Checkbox;
@@ -42,8 +53,10 @@ import com.vaadin.flow.data.binder.Binder;
 import com.vaadin.flow.data.binder.BinderValidationStatus;
 import com.vaadin.flow.data.binder.ValidationResult;
 import com.vaadin.flow.data.binder.Validator;
+import com.vaadin.flow.data.provider.Query;
 import com.vaadin.flow.data.renderer.ComponentRenderer;
 import com.vaadin.flow.data.renderer.LitRenderer;
+import com.vaadin.flow.data.renderer.LocalDateTimeRenderer;
 import com.vaadin.flow.data.validator.RegexpValidator;
 import com.vaadin.flow.data.value.ValueChangeMode;
 import com.vaadin.flow.i18n.LocaleChangeEvent;
@@ -52,24 +65,38 @@ import com.vaadin.flow.server.WebBrowser;
 import com.vaadin.flow.server.streams.DownloadHandler;
 import com.vaadin.flow.server.streams.TemporaryFileUploadHandler;
 import com.vaadin.flow.server.streams.UploadHandler;
+import com.vaadin.flow.shared.Registration;
 import com.vaadin.flow.spring.annotation.SpringComponent;
+import com.vaadin.flow.spring.data.VaadinSpringDataHelpers;
+import com.vaadin.flow.theme.lumo.LumoUtility.TextColor;
 import jakarta.annotation.PostConstruct;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serial;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 
@@ -84,9 +111,13 @@ public class SampleFilesDialog extends Dialog implements LocaleChangeObserver {
   public static final String HEADER = "header";
   public static final String MESSAGE = "message";
   public static final String FOLDERS = "folders";
+  public static final String LOADING = "loading";
+  public static final String LOADING_UNAVAILABLE = property(LOADING, "unavailable");
   public static final String FILES = "files";
   public static final String PUBLIC_FILE = "publicFile";
   public static final String FILENAME = "filename";
+  public static final String SIZE = "size";
+  public static final String MODIFIED = "modified";
   public static final String FILENAME_REGEX = "[\\w-\\.]*";
   public static final String FILENAME_REGEX_ERROR = property("filename", "regex");
   public static final String FILE_RENAME_ERROR = property("filename", "rename", "error");
@@ -102,8 +133,11 @@ public class SampleFilesDialog extends Dialog implements LocaleChangeObserver {
   private static final long serialVersionUID = 166699830639260659L;
   protected Div message = new Div();
   protected VerticalLayout folders = new VerticalLayout();
+  protected VerticalLayout loading = new VerticalLayout();
   protected Grid<EditableFile> files = new Grid<>();
   protected Column<EditableFile> filename;
+  protected Column<EditableFile> size;
+  protected Column<EditableFile> modified;
   protected Column<EditableFile> download;
   protected Column<EditableFile> publicFile;
   protected Column<EditableFile> delete;
@@ -114,6 +148,20 @@ public class SampleFilesDialog extends Dialog implements LocaleChangeObserver {
   protected Upload upload = new Upload(uploadFileHandler);
   protected Button addLargeFiles = new Button();
   private Sample sample;
+  /**
+   * Files listed so far.
+   */
+  private final List<Path> loadedFiles = new ArrayList<>();
+  /**
+   * Drives that did not list their files yet, true while loading and false if drive did not
+   * respond.
+   */
+  private final Map<AppConfiguration.NetworkDrive<DataWithFiles>, Boolean> loadingDrives =
+      new LinkedHashMap<>();
+  /**
+   * Incremented every time files are listed again, to ignore drives that respond late.
+   */
+  private long loads;
   private final Binder<EditableFile> fileBinder = new BeanValidationBinder<>(EditableFile.class);
   private final transient ObjectFactory<AddSampleFilesDialog> addFilesDialogFactory;
   private final transient SampleService service;
@@ -127,15 +175,22 @@ public class SampleFilesDialog extends Dialog implements LocaleChangeObserver {
    */
   private Authentication authentication;
   private final transient JobService jobService;
+  private final transient JobEventBus jobEventBus;
+  /**
+   * Jobs started by this dialog that are still running.
+   */
+  private final Set<UUID> runningJobs = ConcurrentHashMap.newKeySet();
+  private Registration jobEventsRegistration;
 
   protected SampleFilesDialog(ObjectFactory<AddSampleFilesDialog> addFilesDialogFactory,
       SampleService service, AuthenticatedUser authenticatedUser, AppConfiguration configuration,
-      JobService jobService) {
+      JobService jobService, JobEventBus jobEventBus) {
     this.addFilesDialogFactory = addFilesDialogFactory;
     this.service = service;
     this.authenticatedUser = authenticatedUser;
     this.configuration = configuration;
     this.jobService = jobService;
+    this.jobEventBus = jobEventBus;
   }
 
   public static String id(String baseId) {
@@ -151,7 +206,7 @@ public class SampleFilesDialog extends Dialog implements LocaleChangeObserver {
     setResizable(true);
     VerticalLayout layout = new VerticalLayout();
     add(layout);
-    VerticalLayout messageAndFolders = new VerticalLayout(message, folders);
+    VerticalLayout messageAndFolders = new VerticalLayout(message, folders, loading);
     messageAndFolders.setSpacing(false);
     messageAndFolders.setPadding(false);
     layout.add(messageAndFolders, files);
@@ -162,6 +217,9 @@ public class SampleFilesDialog extends Dialog implements LocaleChangeObserver {
     folders.setId(id(FOLDERS));
     folders.setPadding(false);
     folders.setSpacing(false);
+    loading.setId(id(LOADING));
+    loading.setPadding(false);
+    loading.setSpacing(false);
     files.setId(id(FILES));
     files.getEditor().addCloseListener(e -> {
       if (fileBinder.validate().isOk()) {
@@ -178,7 +236,12 @@ public class SampleFilesDialog extends Dialog implements LocaleChangeObserver {
     filename = files.addColumn(LitRenderer.<EditableFile>of(FILENAME_HTML)
             .withProperty("filename", file -> shortFilename(file.getFilename()))
             .withProperty("title", EditableFile::getFilename)).setKey(FILENAME)
-        .setComparator(Comparator.comparing(EditableFile::getFilename)).setFlexGrow(10);
+        .setSortProperty(FileSorting.NAME).setFlexGrow(10);
+    size = files.addColumn(file -> FileUtils.byteCountToDisplaySize(file.getFile().length()))
+        .setKey(SIZE).setSortProperty(FileSorting.SIZE).setFlexGrow(2);
+    modified = files.addColumn(new LocalDateTimeRenderer<>(this::modified,
+            () -> DateTimeFormatter.ISO_LOCAL_DATE_TIME)).setKey(MODIFIED)
+        .setSortProperty(FileSorting.MODIFIED).setFlexGrow(3);
     download = files.addColumn(new ComponentRenderer<>(this::downloadButton)).setKey(DOWNLOAD)
         .setSortable(false);
     publicFile = files.addColumn(new ComponentRenderer<>(this::publicFileCheckbox))
@@ -197,7 +260,7 @@ public class SampleFilesDialog extends Dialog implements LocaleChangeObserver {
     filenameEdit.setWidthFull();
     refresh.setId(id(REFRESH));
     refresh.setIcon(VaadinIcon.REFRESH.create());
-    refresh.addClickListener(e -> updateFiles());
+    refresh.addClickListener(e -> refreshFiles());
     upload.setId(id(UPLOAD));
     upload.setMaxFileSize(MAXIMUM_SMALL_FILES_SIZE);
     upload.setMaxFiles(MAXIMUM_SMALL_FILES_COUNT);
@@ -217,6 +280,11 @@ public class SampleFilesDialog extends Dialog implements LocaleChangeObserver {
     return filename;
   }
 
+  private LocalDateTime modified(EditableFile file) {
+    return toLocalDateTime(Instant.ofEpochMilli(file.getFile().lastModified()))
+        .truncatedTo(ChronoUnit.SECONDS);
+  }
+
   private Anchor downloadButton(EditableFile file) {
     Anchor anchor = new Anchor();
     anchor.addClassName(DOWNLOAD);
@@ -247,6 +315,41 @@ public class SampleFilesDialog extends Dialog implements LocaleChangeObserver {
     return button;
   }
 
+  @Override
+  protected void onAttach(AttachEvent attachEvent) {
+    super.onAttach(attachEvent);
+    UI ui = attachEvent.getUI();
+    jobEventsRegistration = jobEventBus.subscribe(event -> jobChanged(ui, event));
+  }
+
+  @Override
+  protected void onDetach(DetachEvent detachEvent) {
+    if (jobEventsRegistration != null) {
+      jobEventsRegistration.remove();
+      jobEventsRegistration = null;
+    }
+    super.onDetach(detachEvent);
+  }
+
+  /**
+   * Lists files again when a job started by this dialog completes.
+   */
+  private void jobChanged(UI ui, JobEvent event) {
+    if (event.type() != JobEvent.Type.COMPLETED || !runningJobs.remove(event.job().uuid)) {
+      return;
+    }
+    try {
+      ui.access(() -> {
+        updateFiles();
+        if (ui.getPushConfiguration().getPushMode().isEnabled()) {
+          ui.push();
+        }
+      });
+    } catch (UIDetachedException e) {
+      logger.debug("UI detached before job {} completed", event.job().uuid);
+    }
+  }
+
   @Override
   public void localeChange(LocaleChangeEvent event) {
     fileBinder.forField(filenameEdit).asRequired(getTranslation(CONSTANTS_PREFIX + REQUIRED))
@@ -257,6 +360,8 @@ public class SampleFilesDialog extends Dialog implements LocaleChangeObserver {
     message.setText("");
     message.setTitle("");
     filename.setHeader(getTranslation(MESSAGE_PREFIX + FILENAME));
+    size.setHeader(getTranslation(MESSAGE_PREFIX + SIZE));
+    modified.setHeader(getTranslation(MESSAGE_PREFIX + MODIFIED));
     download.setHeader(getTranslation(CONSTANTS_PREFIX + DOWNLOAD));
     publicFile.setHeader(getTranslation(MESSAGE_PREFIX + PUBLIC_FILE));
     delete.setHeader(getTranslation(CONSTANTS_PREFIX + DELETE));
@@ -265,6 +370,7 @@ public class SampleFilesDialog extends Dialog implements LocaleChangeObserver {
     upload.setI18n(uploadI18N(getLocale()));
     updateHeader();
     updateMessage();
+    updateLoading();
   }
 
   private Validator<String> exists() {
@@ -299,9 +405,66 @@ public class SampleFilesDialog extends Dialog implements LocaleChangeObserver {
     });
   }
 
+  private void updateLoading() {
+    loading.removeAll();
+    Optional.ofNullable(UI.getCurrent()).ifPresent(ui -> {
+      WebBrowser browser = ui.getSession().getBrowser();
+      boolean unix = browser.isMacOSX() || browser.isLinux();
+      loadingDrives.forEach((drive, pending) -> {
+        Span span = new Span(getTranslation(MESSAGE_PREFIX + (pending ? LOADING
+            : LOADING_UNAVAILABLE), drive.label(sample, unix)));
+        span.addClassName(LOADING);
+        if (!pending) {
+          span.addClassName(TextColor.ERROR);
+        }
+        loading.add(span);
+      });
+    });
+  }
+
+  private Stream<EditableFile> fetchFiles(Query<EditableFile, Void> query) {
+    return FileSorting.page(loadedFiles, VaadinSpringDataHelpers.toSpringPageRequest(query))
+        .map(file -> new EditableFile(file.toFile()));
+  }
+
+  /**
+   * Lists files in the background and adds them to the grid as each drive responds.
+   */
   private void updateFiles() {
-    files.setItems(service.files(sample).stream().map(file -> new EditableFile(file.toFile()))
-        .collect(Collectors.toList()));
+    UI ui = UI.getCurrent();
+    long load = ++loads;
+    loadedFiles.clear();
+    loadingDrives.clear();
+    loadingDrives.put(configuration.getHome(), true);
+    configuration.getArchives().forEach(drive -> loadingDrives.put(drive, true));
+    updateLoading();
+    files.getDataProvider().refreshAll();
+    service.files(sample, result -> {
+      try {
+        ui.access(() -> {
+          if (load == loads) {
+            driveLoaded(result);
+            if (ui.getPushConfiguration().getPushMode().isEnabled()) {
+              ui.push();
+            }
+          }
+        });
+      } catch (UIDetachedException e) {
+        logger.debug("UI detached before files of drive {} were listed",
+            result.drive().getFolder());
+      }
+    });
+  }
+
+  private void driveLoaded(DriveResult<DataWithFiles, List<Path>> result) {
+    if (result.isAvailable()) {
+      loadingDrives.remove(result.drive());
+      loadedFiles.addAll(result.result().orElseThrow());
+      files.getDataProvider().refreshAll();
+    } else {
+      loadingDrives.put(result.drive(), false);
+    }
+    updateLoading();
   }
 
   boolean isArchive(EditableFile file) {
@@ -315,16 +478,25 @@ public class SampleFilesDialog extends Dialog implements LocaleChangeObserver {
     Job job = new Job();
     job.title = getTranslation(MESSAGE_PREFIX + FILES_SAVE, filename, sample.getName());
     job.owner = authenticatedUser.getUser().orElseThrow();
-    job.future = service.saveFiles(sample, Collections.nCopies(1, file.toPath()), f -> filename,
-        (message, progress) -> {
-          job.message = message;
-          job.progress = progress;
-        });
+    try {
+      job.future = service.saveFiles(sample, Collections.nCopies(1, file.toPath()),
+          f -> filename, job.progression());
+    } catch (TaskRejectedException e) {
+      logger.warn("too many jobs, could not save file {} to sample {}", filename, sample);
+      new WarningNotification(getTranslation(CONSTANTS_PREFIX + TOO_MANY_JOBS)).open();
+      return;
+    }
+    runningJobs.add(job.uuid);
     jobService.addJob(job);
     Notification.show(getTranslation(MESSAGE_PREFIX + FILES_SAVE, filename, sample.getName()));
     updateFiles();
   }
 
+  void refreshFiles() {
+    service.refreshFiles(sample);
+    updateFiles();
+  }
+
   void addLargeFiles() {
     AddSampleFilesDialog addFilesDialog = addFilesDialogFactory.getObject();
     addFilesDialog.setSampleId(sample.getId());
@@ -338,6 +510,7 @@ public class SampleFilesDialog extends Dialog implements LocaleChangeObserver {
     try {
       logger.debug("rename file {} to {}", source, target);
       Files.move(source, target);
+      service.refreshFiles(sample);
       updateFiles();
     } catch (IOException e) {
       logger.error("renaming of file {} to {} failed", source, target);
@@ -382,6 +555,7 @@ public class SampleFilesDialog extends Dialog implements LocaleChangeObserver {
     addLargeFiles.setVisible(!readOnly);
     updateHeader();
     updateMessage();
+    files.setItems(this::fetchFiles);
     updateFiles();
   }
 }
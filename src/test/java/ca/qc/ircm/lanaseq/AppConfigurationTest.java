@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import ca.qc.ircm.lanaseq.analysis.CopyStrategy;
 import ca.qc.ircm.lanaseq.dataset.Dataset;
 import ca.qc.ircm.lanaseq.sample.Sample;
 import ca.qc.ircm.lanaseq.test.config.KeepFoldersForAppConfiguration;
@@ -17,9 +18,13 @@ import java.time.Period;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
 import org.springframework.security.test.context.support.WithUserDetails;
 
 /**
@@ -122,6 +127,7 @@ public class AppConfigurationTest {
         home.getFolder());
     assertEquals("\\\\lanaseq01\\lanaseq", home.getWindowsLabel());
     assertEquals("smb://lanaseq01/lanaseq", home.getUnixLabel());
+    assertEquals(4, home.getConcurrency());
   }
 
   @Test
@@ -131,11 +137,13 @@ public class AppConfigurationTest {
     assertEquals(homeFolder().resolve("archives"), archive.getFolder());
     assertEquals("\\\\lanaseq01\\lanaseq\\archives", archive.getWindowsLabel());
     assertEquals("smb://lanaseq01/lanaseq/archives", archive.getUnixLabel());
+    assertEquals(1, archive.getConcurrency());
     archive = archives.get(1);
     assertEquals(Paths.get(System.getProperty("user.home"), "lanaseq2", "archives2"),
         archive.getFolder());
     assertEquals("\\\\lanaseq02\\lanaseq\\archives2", archive.getWindowsLabel());
     assertEquals("smb://lanaseq02/lanaseq/archives2", archive.getUnixLabel());
+    assertEquals(1, archive.getConcurrency());
   }
 
   @Test
@@ -148,6 +156,27 @@ public class AppConfigurationTest {
     assertEquals(Paths.get("dataset"), appConfiguration.getDatasetFolder());
   }
 
+  @Test
+  public void getFileIndexFolder() {
+    assertEquals(Paths.get(System.getProperty("user.dir"), "target/test-file-index"),
+        appConfiguration.getFileIndexFolder());
+  }
+
+  @Test
+  public void getFileIndexMaxAge() {
+    assertEquals(Duration.ofHours(2), appConfiguration.getFileIndexMaxAge());
+  }
+
+  @Test
+  public void getFileCacheMaxAge() {
+    assertEquals(Duration.ZERO, appConfiguration.getFileCacheMaxAge());
+  }
+
+  @Test
+  public void getDriveTimeout() {
+    assertEquals(Duration.ofSeconds(10), appConfiguration.getDriveTimeout());
+  }
+
   @Test
   public void folder_Sample2019() {
     Sample sample = sample();
@@ -459,8 +488,43 @@ public class AppConfigurationTest {
   }
 
   @Test
-  public void analysisSymlinks() {
-    assertFalse(appConfiguration.isAnalysisSymlinks());
+  public void analysisStrategy() {
+    assertEquals(CopyStrategy.COPY, appConfiguration.getAnalysisStrategy());
+  }
+
+  @Test
+  public void analysisSymlinks_True() {
+    AppConfiguration configuration = new AppConfiguration(null);
+
+    new Binder(new MapConfigurationPropertySource(Map.of("app.analysis-symlinks", "true")))
+        .bind(AppConfiguration.PREFIX, Bindable.ofInstance(configuration));
+
+    assertEquals(CopyStrategy.SYMLINK, configuration.getAnalysisStrategy());
+  }
+
+  @Test
+  public void analysisSymlinks_False() {
+    AppConfiguration configuration = new AppConfiguration(null);
+
+    new Binder(new MapConfigurationPropertySource(Map.of("app.analysis-symlinks", "false")))
+        .bind(AppConfiguration.PREFIX, Bindable.ofInstance(configuration));
+
+    assertEquals(CopyStrategy.COPY, configuration.getAnalysisStrategy());
+  }
+
+  @Test
+  public void sha256Checksums() {
+    assertFalse(appConfiguration.isSha256Checksums());
+  }
+
+  @Test
+  public void renameChecksums() {
+    assertFalse(appConfiguration.isRenameChecksums());
+  }
+
+  @Test
+  public void dedup() {
+    assertFalse(appConfiguration.isDedup());
   }
 
   @Test
@@ -528,6 +592,21 @@ public class AppConfigurationTest {
     assertEquals(Period.ofDays(60), appConfiguration.getPublicFilePeriod());
   }
 
+  @Test
+  public void getJobMaxAge() {
+    assertEquals(Duration.ofHours(24), appConfiguration.getJobMaxAge());
+  }
+
+  @Test
+  public void getJobMaxCompleted() {
+    assertEquals(20, appConfiguration.getJobMaxCompleted());
+  }
+
+  @Test
+  public void getJobUpdateInterval() {
+    assertEquals(Duration.ofMillis(500), appConfiguration.getJobUpdateInterval());
+  }
+
   @Test
   public void getUrl() {
     assertEquals("http://localhost:8080/myurl/subpath?param1=abc",
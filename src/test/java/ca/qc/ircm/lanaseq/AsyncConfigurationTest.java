@@ -1,15 +1,28 @@
 package ca.qc.ircm.lanaseq;
 
+import static ca.qc.ircm.lanaseq.AsyncConfiguration.ANALYSIS_EXECUTOR;
+import static ca.qc.ircm.lanaseq.AsyncConfiguration.INGESTION_EXECUTOR;
+import static ca.qc.ircm.lanaseq.AsyncConfiguration.MAINTENANCE_EXECUTOR;
+import static ca.qc.ircm.lanaseq.BoundedTaskExecutor.IDLE_METRIC;
+import static ca.qc.ircm.lanaseq.BoundedTaskExecutor.NAME_TAG;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.verify;
 
 import ca.qc.ircm.lanaseq.test.config.ServiceTestAnnotations;
 import ca.qc.ircm.lanaseq.user.User;
 import ca.qc.ircm.lanaseq.user.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.test.context.support.WithUserDetails;
 import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
@@ -25,6 +38,10 @@ public class AsyncConfigurationTest {
   private AsyncConfigurationTestBean bean;
   @MockitoSpyBean
   private UserRepository userRepository;
+  @Autowired
+  private TaskScheduler taskScheduler;
+  @Autowired
+  private MeterRegistry meterRegistry;
 
   @Test
   public void testSecurityContext() {
@@ -48,4 +65,45 @@ public class AsyncConfigurationTest {
     }).join();
     verify(userRepository, atLeast(2)).findByEmail(email);
   }
+
+  @Test
+  public void ingestionExecutor() {
+    Thread thread = bean.ingestionThread().join();
+    assertFalse(thread.isVirtual());
+    assertTrue(thread.getName().startsWith(INGESTION_EXECUTOR + "-"), thread.getName());
+  }
+
+  @Test
+  public void ingestionExecutor_SecurityContext() {
+    String email = "jonh.smith@ircm.qc.ca";
+    bean.ingestionThread().thenAccept(thread -> {
+      assertNotNull(SecurityContextHolder.getContext().getAuthentication(),
+          "authentication cannot be null");
+      assertEquals(email, SecurityContextHolder.getContext().getAuthentication().getName());
+    }).join();
+  }
+
+  @Test
+  public void analysisExecutor() {
+    Thread thread = bean.analysisThread().join();
+    assertFalse(thread.isVirtual());
+    assertTrue(thread.getName().startsWith(ANALYSIS_EXECUTOR + "-"), thread.getName());
+  }
+
+  @Test
+  public void maintenanceExecutor() throws Throwable {
+    CompletableFuture<String> thread = new CompletableFuture<>();
+    taskScheduler.schedule(() -> thread.complete(Thread.currentThread().getName()),
+        Instant.now());
+    assertTrue(thread.get(10, TimeUnit.SECONDS).startsWith(MAINTENANCE_EXECUTOR + "-"));
+  }
+
+  @Test
+  public void metrics() {
+    for (String name : List.of(INGESTION_EXECUTOR, ANALYSIS_EXECUTOR, MAINTENANCE_EXECUTOR)) {
+      assertNotNull(meterRegistry.find("executor.queued").tag(NAME_TAG, name).gauge(), name);
+      assertNotNull(meterRegistry.find("executor.active").tag(NAME_TAG, name).gauge(), name);
+      assertNotNull(meterRegistry.find(IDLE_METRIC).tag(NAME_TAG, name).timer(), name);
+    }
+  }
 }
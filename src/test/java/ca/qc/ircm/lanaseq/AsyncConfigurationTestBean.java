@@ -1,5 +1,8 @@
 package ca.qc.ircm.lanaseq;
 
+import static ca.qc.ircm.lanaseq.AsyncConfiguration.ANALYSIS_EXECUTOR;
+import static ca.qc.ircm.lanaseq.AsyncConfiguration.INGESTION_EXECUTOR;
+
 import java.util.concurrent.CompletableFuture;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
@@ -19,4 +22,14 @@ public class AsyncConfigurationTestBean {
     }
     return CompletableFuture.completedFuture(null);
   }
+
+  @Async(INGESTION_EXECUTOR)
+  public CompletableFuture<Thread> ingestionThread() {
+    return CompletableFuture.completedFuture(Thread.currentThread());
+  }
+
+  @Async(ANALYSIS_EXECUTOR)
+  public CompletableFuture<Thread> analysisThread() {
+    return CompletableFuture.completedFuture(Thread.currentThread());
+  }
 }
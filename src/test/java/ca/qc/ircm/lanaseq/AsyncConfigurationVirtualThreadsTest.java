@@ -0,0 +1,63 @@
+package ca.qc.ircm.lanaseq;
+
+import static ca.qc.ircm.lanaseq.AsyncConfiguration.INGESTION_EXECUTOR;
+import static ca.qc.ircm.lanaseq.AsyncConfiguration.MAINTENANCE_EXECUTOR;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ca.qc.ircm.lanaseq.test.config.ServiceTestAnnotations;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Tests for {@link AsyncConfiguration} with virtual threads.
+ */
+@ServiceTestAnnotations
+@ActiveProfiles({"test", "virtual-threads"})
+@WithUserDetails("jonh.smith@ircm.qc.ca")
+public class AsyncConfigurationVirtualThreadsTest {
+
+  @Autowired
+  private AsyncConfigurationTestBean bean;
+  @Autowired
+  private TaskScheduler taskScheduler;
+
+  @Test
+  public void ingestionExecutor() {
+    Thread thread = bean.ingestionThread().join();
+    assertTrue(thread.isVirtual());
+    assertTrue(thread.getName().startsWith(INGESTION_EXECUTOR + "-"), thread.getName());
+  }
+
+  @Test
+  public void ingestionExecutor_SecurityContext() {
+    String email = "jonh.smith@ircm.qc.ca";
+    bean.ingestionThread().thenAccept(thread -> {
+      assertNotNull(SecurityContextHolder.getContext().getAuthentication(),
+          "authentication cannot be null");
+      assertEquals(email, SecurityContextHolder.getContext().getAuthentication().getName());
+    }).join();
+  }
+
+  @Test
+  public void analysisExecutor() {
+    assertTrue(bean.analysisThread().join().isVirtual());
+  }
+
+  @Test
+  public void maintenanceExecutor() throws Throwable {
+    CompletableFuture<Thread> thread = new CompletableFuture<>();
+    taskScheduler.schedule(() -> thread.complete(Thread.currentThread()), Instant.now());
+    Thread maintenance = thread.get(10, TimeUnit.SECONDS);
+    assertTrue(maintenance.isVirtual());
+    assertTrue(maintenance.getName().startsWith(MAINTENANCE_EXECUTOR + "-"));
+  }
+}
@@ -0,0 +1,190 @@
+package ca.qc.ircm.lanaseq;
+
+import static ca.qc.ircm.lanaseq.BoundedTaskExecutor.IDLE_METRIC;
+import static ca.qc.ircm.lanaseq.BoundedTaskExecutor.NAME_TAG;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextHolderStrategy;
+
+/**
+ * Tests for {@link BoundedTaskExecutor}.
+ */
+public class BoundedTaskExecutorTest {
+
+  private final SecurityContextHolderStrategy securityContextHolderStrategy =
+      SecurityContextHolder.getContextHolderStrategy();
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final List<BoundedTaskExecutor> executors = new ArrayList<>();
+  private BoundedTaskExecutor executor;
+
+  @BeforeEach
+  public void beforeTest() {
+    executor = executor(new ExecutorsConfiguration.Pool(2, 3, Thread.MIN_PRIORITY));
+  }
+
+  @AfterEach
+  public void afterTest() {
+    release.countDown();
+    executors.forEach(BoundedTaskExecutor::destroy);
+    securityContextHolderStrategy.clearContext();
+  }
+
+  private BoundedTaskExecutor executor(ExecutorsConfiguration.Pool configuration) {
+    return executor(configuration, false);
+  }
+
+  private BoundedTaskExecutor executor(ExecutorsConfiguration.Pool configuration,
+      boolean virtualThreads) {
+    BoundedTaskExecutor executor = new BoundedTaskExecutor("test", configuration, virtualThreads,
+        new ThreadPoolExecutor.AbortPolicy(), securityContextHolderStrategy);
+    executors.add(executor);
+    return executor;
+  }
+
+  private Future<?> block(CountDownLatch started) {
+    return executor.submit(() -> {
+      started.countDown();
+      release.await();
+      return null;
+    });
+  }
+
+  @Test
+  public void execute() throws Throwable {
+    CountDownLatch done = new CountDownLatch(1);
+    String[] thread = new String[1];
+    int[] priority = new int[1];
+    executor.execute(() -> {
+      thread[0] = Thread.currentThread().getName();
+      priority[0] = Thread.currentThread().getPriority();
+      done.countDown();
+    });
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertTrue(thread[0].startsWith("test-"), thread[0]);
+    assertEquals(Thread.MIN_PRIORITY, priority[0]);
+  }
+
+  @Test
+  public void execute_VirtualThreads() throws Throwable {
+    executor = executor(new ExecutorsConfiguration.Pool(2, 3, Thread.MIN_PRIORITY), true);
+    CompletableFuture<Thread> thread = new CompletableFuture<>();
+    executor.execute(() -> thread.complete(Thread.currentThread()));
+    Thread virtual = thread.get(10, TimeUnit.SECONDS);
+    assertTrue(virtual.isVirtual());
+    assertTrue(virtual.getName().startsWith("test-"), virtual.getName());
+  }
+
+  @Test
+  public void submit_SecurityContext() throws Throwable {
+    Authentication authentication = new TestingAuthenticationToken("jonh.smith@ircm.qc.ca", null);
+    securityContextHolderStrategy.getContext().setAuthentication(authentication);
+    Future<Authentication> future =
+        executor.submit(() -> securityContextHolderStrategy.getContext().getAuthentication());
+    assertSame(authentication, future.get(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void submit_SecurityContext_VirtualThreads() throws Throwable {
+    executor = executor(new ExecutorsConfiguration.Pool(2, 3, Thread.NORM_PRIORITY), true);
+    Authentication authentication = new TestingAuthenticationToken("jonh.smith@ircm.qc.ca", null);
+    securityContextHolderStrategy.getContext().setAuthentication(authentication);
+    Future<Authentication> future =
+        executor.submit(() -> securityContextHolderStrategy.getContext().getAuthentication());
+    assertSame(authentication, future.get(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void submit_Concurrency() throws Throwable {
+    CountDownLatch started = new CountDownLatch(2);
+    AtomicInteger running = new AtomicInteger();
+    block(started);
+    block(started);
+    Future<?> third = executor.submit(running::incrementAndGet);
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    assertEquals(2, executor.getActiveCount());
+    assertEquals(1, executor.getQueueSize());
+    assertEquals(0, running.get());
+    release.countDown();
+    third.get(10, TimeUnit.SECONDS);
+    assertEquals(1, running.get());
+  }
+
+  @Test
+  public void submit_Concurrency_VirtualThreads() throws Throwable {
+    executor = executor(new ExecutorsConfiguration.Pool(2, 3, Thread.NORM_PRIORITY), true);
+    CountDownLatch started = new CountDownLatch(2);
+    block(started);
+    block(started);
+    block(new CountDownLatch(1));
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    assertEquals(2, executor.getActiveCount());
+    assertEquals(1, executor.getQueueSize());
+  }
+
+  @Test
+  public void submit_QueueFull() throws Throwable {
+    CountDownLatch started = new CountDownLatch(2);
+    for (int i = 0; i < 5; i++) {
+      block(started);
+    }
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    assertEquals(3, executor.getQueueSize());
+    assertThrows(TaskRejectedException.class, () -> executor.submit(() -> null));
+  }
+
+  @Test
+  public void submit_ZeroConcurrency() throws Throwable {
+    executor = executor(new ExecutorsConfiguration.Pool(0, 3, Thread.NORM_PRIORITY));
+    CountDownLatch started = new CountDownLatch(1);
+    block(started);
+    block(new CountDownLatch(1));
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    assertEquals(1, executor.getActiveCount());
+    assertEquals(1, executor.getQueueSize());
+  }
+
+  @Test
+  public void bindTo() throws Throwable {
+    MeterRegistry registry = new SimpleMeterRegistry();
+    executor.bindTo(registry);
+    CountDownLatch started = new CountDownLatch(2);
+    block(started);
+    block(started);
+    Future<?> waiting = executor.submit(() -> null);
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    assertEquals(1.0, registry.get("executor.queued").tag(NAME_TAG, "test").gauge().value());
+    assertEquals(2.0, registry.get("executor.active").tag(NAME_TAG, "test").gauge().value());
+    Thread.sleep(50);
+    release.countDown();
+    waiting.get(10, TimeUnit.SECONDS);
+    Timer idle = registry.get(IDLE_METRIC).tag(NAME_TAG, "test").timer();
+    assertEquals(3, idle.count());
+    assertTrue(idle.max(TimeUnit.MILLISECONDS) >= 50, "idle " + idle.max(TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void getName() {
+    assertEquals("test", executor.getName());
+  }
+}
@@ -0,0 +1,26 @@
+package ca.qc.ircm.lanaseq;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import ca.qc.ircm.lanaseq.test.config.NonTransactionalTestAnnotations;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Tests for {@link ExecutorsConfiguration}.
+ */
+@NonTransactionalTestAnnotations
+public class ExecutorsConfigurationTest {
+
+  @Autowired
+  private ExecutorsConfiguration executorsConfiguration;
+
+  @Test
+  public void defaultProperties() {
+    assertFalse(executorsConfiguration.virtualThreads());
+    assertEquals(new ExecutorsConfiguration.Pool(4, 200, 5), executorsConfiguration.ingestion());
+    assertEquals(new ExecutorsConfiguration.Pool(4, 100, 6), executorsConfiguration.analysis());
+    assertEquals(new ExecutorsConfiguration.Pool(1, 20, 3), executorsConfiguration.maintenance());
+  }
+}
@@ -0,0 +1,230 @@
+package ca.qc.ircm.lanaseq.analysis;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for {@link AnalysisArchive}.
+ */
+public class AnalysisArchiveTest {
+
+  @TempDir
+  Path temporaryFolder;
+  private final Map<String, byte[]> metadata = new LinkedHashMap<>();
+  private Path fastq;
+  private Path fastqGz;
+  private Path bam;
+  private final Random random = new Random();
+
+  @BeforeEach
+  public void beforeTest() throws Throwable {
+    metadata.put("samples.txt", "#sample\nJS1\n".getBytes(StandardCharsets.UTF_8));
+    fastq = temporaryFolder.resolve("JS1_R1.fastq");
+    Files.writeString(fastq, "@read1\nACGTACGTACGTACGTACGTACGTACGTACGTACGTACGT\n+\n".repeat(100));
+    fastqGz = temporaryFolder.resolve("JS1_R2.fastq.gz");
+    writeRandom(fastqGz);
+    bam = temporaryFolder.resolve("JS1.BAM");
+    writeRandom(bam);
+  }
+
+  private void writeRandom(Path file) throws IOException {
+    byte[] content = new byte[4096];
+    random.nextBytes(content);
+    Files.write(file, content);
+  }
+
+  private Map<String, ZipEntry> read(byte[] archive, Map<String, byte[]> contents)
+      throws IOException {
+    Map<String, ZipEntry> entries = new LinkedHashMap<>();
+    try (ZipInputStream input = new ZipInputStream(new ByteArrayInputStream(archive))) {
+      ZipEntry entry;
+      while ((entry = input.getNextEntry()) != null) {
+        entries.put(entry.getName(), entry);
+        contents.put(entry.getName(), input.readAllBytes());
+      }
+    }
+    return entries;
+  }
+
+  private long crc(byte[] content) {
+    CRC32 crc = new CRC32();
+    crc.update(content);
+    return crc.getValue();
+  }
+
+  @Test
+  public void write() throws Throwable {
+    AnalysisArchive archive =
+        new AnalysisArchive("JS1.zip", metadata, List.of(fastq, fastqGz, bam));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    archive.write(output);
+
+    Map<String, byte[]> contents = new LinkedHashMap<>();
+    Map<String, ZipEntry> entries = read(output.toByteArray(), contents);
+    assertEquals(List.of("samples.txt", "JS1_R1.fastq", "JS1_R2.fastq.gz", "JS1.BAM"),
+        List.copyOf(entries.keySet()));
+    assertArrayEquals(metadata.get("samples.txt"), contents.get("samples.txt"));
+    assertEquals(ZipEntry.DEFLATED, entries.get("samples.txt").getMethod());
+    assertArrayEquals(Files.readAllBytes(fastq), contents.get("JS1_R1.fastq"));
+    assertEquals(ZipEntry.DEFLATED, entries.get("JS1_R1.fastq").getMethod());
+    assertTrue(entries.get("JS1_R1.fastq").getCompressedSize() < Files.size(fastq) / 2);
+    assertArrayEquals(Files.readAllBytes(fastqGz), contents.get("JS1_R2.fastq.gz"));
+    assertEquals(ZipEntry.DEFLATED, entries.get("JS1_R2.fastq.gz").getMethod());
+    assertTrue(entries.get("JS1_R2.fastq.gz").getCompressedSize() >= Files.size(fastqGz));
+    assertTrue(entries.get("JS1_R2.fastq.gz").getCompressedSize() < Files.size(fastqGz) + 64);
+    assertEquals(crc(Files.readAllBytes(fastqGz)), entries.get("JS1_R2.fastq.gz").getCrc());
+    assertArrayEquals(Files.readAllBytes(bam), contents.get("JS1.BAM"));
+    assertEquals(ZipEntry.DEFLATED, entries.get("JS1.BAM").getMethod());
+    assertTrue(entries.get("JS1.BAM").getCompressedSize() < Files.size(bam) + 64);
+    assertEquals(crc(Files.readAllBytes(bam)), entries.get("JS1.BAM").getCrc());
+  }
+
+  @Test
+  public void write_FileModifiedWhileWriting() throws Throwable {
+    byte[] content = new byte[256 * 1024];
+    random.nextBytes(content);
+    Files.write(bam, content);
+    byte[] appended = new byte[1000];
+    random.nextBytes(appended);
+    AnalysisArchive archive = new AnalysisArchive("JS1.zip", Map.of(), List.of(bam));
+    ByteArrayOutputStream output = new ByteArrayOutputStream() {
+      private boolean modified;
+
+      @Override
+      public synchronized void write(byte[] b, int off, int len) {
+        super.write(b, off, len);
+        if (!modified && size() > 1024) {
+          modified = true;
+          try {
+            Files.write(bam, appended, StandardOpenOption.APPEND);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }
+      }
+    };
+
+    archive.write(output);
+
+    Map<String, byte[]> contents = new LinkedHashMap<>();
+    Map<String, ZipEntry> entries = read(output.toByteArray(), contents);
+    assertEquals(List.of("JS1.BAM"), List.copyOf(entries.keySet()));
+    assertArrayEquals(Files.readAllBytes(bam), contents.get("JS1.BAM"));
+    assertEquals(content.length + appended.length, contents.get("JS1.BAM").length);
+    assertEquals(crc(Files.readAllBytes(bam)), entries.get("JS1.BAM").getCrc());
+  }
+
+  @Test
+  public void write_LastModifiedTime() throws Throwable {
+    Instant modified = Instant.now().minus(2, ChronoUnit.DAYS).truncatedTo(ChronoUnit.SECONDS);
+    Files.setLastModifiedTime(fastq, FileTime.from(modified));
+    AnalysisArchive archive = new AnalysisArchive("JS1.zip", Map.of(), List.of(fastq));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    archive.write(output);
+
+    Map<String, ZipEntry> entries = read(output.toByteArray(), new LinkedHashMap<>());
+    assertEquals(modified, entries.get("JS1_R1.fastq").getLastModifiedTime().toInstant());
+  }
+
+  @Test
+  public void write_SameFilename() throws Throwable {
+    Path other = Files.createDirectory(temporaryFolder.resolve("other")).resolve("JS1_R1.fastq");
+    Files.writeString(other, "other");
+    Path samples = temporaryFolder.resolve("samples.txt");
+    Files.writeString(samples, "samples");
+    AnalysisArchive archive =
+        new AnalysisArchive("JS1.zip", metadata, List.of(fastq, samples, other));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    archive.write(output);
+
+    Map<String, byte[]> contents = new LinkedHashMap<>();
+    Map<String, ZipEntry> entries = read(output.toByteArray(), contents);
+    assertEquals(List.of("samples.txt", "JS1_R1.fastq"), List.copyOf(entries.keySet()));
+    assertArrayEquals(metadata.get("samples.txt"), contents.get("samples.txt"));
+    assertEquals("other", new String(contents.get("JS1_R1.fastq"), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void write_Empty() throws Throwable {
+    AnalysisArchive archive = new AnalysisArchive("JS1.zip", Map.of(), List.of());
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    archive.write(output);
+
+    try (ZipInputStream input =
+        new ZipInputStream(new ByteArrayInputStream(output.toByteArray()))) {
+      assertNull(input.getNextEntry());
+    }
+  }
+
+  @Test
+  public void write_LargeFile() throws Throwable {
+    Path large = temporaryFolder.resolve("large.bam");
+    long size = 256L * 1024 * 1024;
+    try (RandomAccessFile file = new RandomAccessFile(large.toFile(), "rw")) {
+      file.setLength(size);
+    }
+    AnalysisArchive archive = new AnalysisArchive("JS1.zip", Map.of(), List.of(large));
+    long[] written = new long[1];
+    OutputStream output = new OutputStream() {
+      @Override
+      public void write(int b) {
+        written[0]++;
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) {
+        written[0] += len;
+      }
+    };
+
+    archive.write(output);
+
+    assertTrue(written[0] >= size);
+    // Stored deflate blocks add a few bytes per block.
+    assertTrue(written[0] < size + size / 1000);
+  }
+
+  @Test
+  public void getFilename() {
+    AnalysisArchive archive = new AnalysisArchive("JS1.zip", metadata, List.of(fastq));
+    assertEquals("JS1.zip", archive.getFilename());
+  }
+
+  @Test
+  public void entries() {
+    AnalysisArchive archive =
+        new AnalysisArchive("JS1.zip", metadata, List.of(fastq, fastqGz, bam));
+    assertEquals(List.of("samples.txt", "JS1_R1.fastq", "JS1_R2.fastq.gz", "JS1.BAM"),
+        archive.entries());
+  }
+}
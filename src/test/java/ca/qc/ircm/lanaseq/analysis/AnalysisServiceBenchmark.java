@@ -0,0 +1,168 @@
+package ca.qc.ircm.lanaseq.analysis;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import ca.qc.ircm.lanaseq.AppConfiguration;
+import ca.qc.ircm.lanaseq.AppConfiguration.NetworkDrive;
+import ca.qc.ircm.lanaseq.DataWithFiles;
+import ca.qc.ircm.lanaseq.dataset.DatasetService;
+import ca.qc.ircm.lanaseq.files.DriveThrottle;
+import ca.qc.ircm.lanaseq.files.TransferProgression;
+import ca.qc.ircm.lanaseq.sample.Sample;
+import ca.qc.ircm.lanaseq.sample.SampleService;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Compares sequential and parallel preparation of an analysis folder by {@link AnalysisService}.
+ *
+ * <p>Source files are sparse files, so reading them is cheap and the benchmark mostly measures
+ * writing to the analysis folder. Use the <code>folder</code> parameter to create files on a
+ * network drive.</p>
+ *
+ * <p>Run with <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=ca.qc.ircm.lanaseq.analysis.AnalysisServiceBenchmark</code>. The default
+ * dataset has 50 files of 64 MB, add <code>-Dexec.args="-p fileSize=2147483648"</code> for a
+ * 100 GB dataset.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class AnalysisServiceBenchmark {
+
+  /**
+   * Number of files read from drive at the same time, 1 is sequential.
+   */
+  @Param({"1", "4"})
+  public int concurrency;
+  /**
+   * Number of files in dataset.
+   */
+  @Param({"50"})
+  public int files;
+  /**
+   * Size of each file, in bytes.
+   */
+  @Param({"67108864"})
+  public long fileSize;
+  /**
+   * Folder where files are created, a temporary folder if empty.
+   */
+  @Param({""})
+  public String folder;
+  private Path root;
+  private Path analysis;
+  private AnalysisService service;
+  private List<Sample> samples;
+  private TransferProgression progression;
+
+  /**
+   * Creates source files and analysis service.
+   *
+   * @throws IOException could not create source files
+   */
+  @Setup
+  public void setup() throws IOException {
+    root = folder.isEmpty() ? Files.createTempDirectory("analysis-benchmark")
+        : Files.createDirectories(Paths.get(folder).resolve("analysis-benchmark"));
+    Path home = Files.createDirectories(root.resolve("home"));
+    analysis = root.resolve("analysis");
+    Sample sample = new Sample(1L, "benchmark");
+    sample.setName("benchmark");
+    samples = List.of(sample);
+    List<Path> sources = new ArrayList<>();
+    for (int i = 0; i < files; i++) {
+      Path file = home.resolve(String.format("benchmark_%02d_R1.fastq.gz", i));
+      try (RandomAccessFile output = new RandomAccessFile(file.toFile(), "rw")) {
+        output.setLength(fileSize);
+      }
+      sources.add(file);
+    }
+    @SuppressWarnings("unchecked") NetworkDrive<DataWithFiles> homeDrive =
+        mock(NetworkDrive.class);
+    when(homeDrive.getFolder()).thenReturn(home);
+    when(homeDrive.getConcurrency()).thenReturn(concurrency);
+    @SuppressWarnings("unchecked") NetworkDrive<Collection<? extends DataWithFiles>> analysisDrive =
+        mock(NetworkDrive.class);
+    when(analysisDrive.folder(anyCollection())).thenReturn(analysis);
+    AppConfiguration configuration = mock(AppConfiguration.class);
+    when(configuration.getHome()).thenReturn(homeDrive);
+    when(configuration.getAnalysis()).thenReturn(analysisDrive);
+    when(configuration.getAnalysisStrategy()).thenReturn(CopyStrategy.COPY);
+    SampleService sampleService = mock(SampleService.class);
+    when(sampleService.allFiles(any())).thenReturn(Map.of(sample, sources));
+    service = new AnalysisService(mock(DatasetService.class), sampleService, configuration,
+        new DriveThrottle());
+    progression = mock(TransferProgression.class);
+  }
+
+  /**
+   * Deletes analysis folder so that all files are copied again.
+   *
+   * @throws IOException could not delete analysis folder
+   */
+  @Setup(Level.Iteration)
+  public void deleteAnalysis() throws IOException {
+    FileSystemUtils.deleteRecursively(analysis);
+  }
+
+  /**
+   * Deletes source files and analysis folder.
+   *
+   * @throws IOException could not delete files
+   */
+  @TearDown
+  public void teardown() throws IOException {
+    service.shutdown();
+    FileSystemUtils.deleteRecursively(root);
+  }
+
+  /**
+   * Copies all files of dataset to analysis folder.
+   *
+   * @return analysis folder
+   * @throws Exception could not copy files
+   */
+  @Benchmark
+  public Path copySamplesResources() throws Exception {
+    return service.copySamplesResources(samples, List.of("*.fastq.gz"), progression).get();
+  }
+
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    new Runner(new OptionsBuilder().parent(new CommandLineOptions(args))
+        .include(AnalysisServiceBenchmark.class.getSimpleName()).build()).run();
+  }
+}
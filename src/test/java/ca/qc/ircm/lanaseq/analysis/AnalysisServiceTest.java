@@ -3,12 +3,16 @@ package ca.qc.ircm.lanaseq.analysis;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assumptions.assumeFalse;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import ca.qc.ircm.lanaseq.AppConfiguration;
@@ -16,25 +20,51 @@ import ca.qc.ircm.lanaseq.DataWithFiles;
 import ca.qc.ircm.lanaseq.dataset.Dataset;
 import ca.qc.ircm.lanaseq.dataset.DatasetRepository;
 import ca.qc.ircm.lanaseq.dataset.DatasetService;
+import ca.qc.ircm.lanaseq.files.DriveThrottle;
+import ca.qc.ircm.lanaseq.files.TransferProgress;
+import ca.qc.ircm.lanaseq.files.TransferProgression;
 import ca.qc.ircm.lanaseq.sample.Sample;
 import ca.qc.ircm.lanaseq.sample.SampleRepository;
 import ca.qc.ircm.lanaseq.sample.SampleService;
 import ca.qc.ircm.lanaseq.security.PermissionEvaluatorDelegator;
 import ca.qc.ircm.lanaseq.test.config.ServiceTestAnnotations;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.PatternSyntaxException;
 import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 import org.apache.commons.lang3.SystemUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.stubbing.Answer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
@@ -60,6 +90,8 @@ public class AnalysisServiceTest {
   private DatasetRepository datasetRepository;
   @Autowired
   private SampleRepository sampleRepository;
+  @Autowired
+  private DriveThrottle throttle;
   @MockitoBean
   private PermissionEvaluatorDelegator permissionEvaluator;
   private final List<Dataset> datasets = new ArrayList<>();
@@ -94,6 +126,8 @@ public class AnalysisServiceTest {
   private Path thirdBam;
   private Path thirdBam2;
   private Path thirdRawbam;
+  @Mock
+  private TransferProgression progression;
   private final Random random = new Random();
 
   /**
@@ -157,6 +191,11 @@ public class AnalysisServiceTest {
     @SuppressWarnings("unchecked") AppConfiguration.NetworkDrive<Collection<? extends DataWithFiles>> analysisFolder = mock(
         AppConfiguration.NetworkDrive.class);
     when(configuration.getAnalysis()).thenReturn(analysisFolder);
+    @SuppressWarnings("unchecked") AppConfiguration.NetworkDrive<DataWithFiles> home = mock(
+        AppConfiguration.NetworkDrive.class);
+    when(home.getFolder()).thenReturn(temporaryFolder.resolve("home"));
+    when(configuration.getHome()).thenReturn(home);
+    when(configuration.getAnalysisStrategy()).thenReturn(CopyStrategy.COPY);
     when(configuration.getAnalysis().folder(anyCollection())).then(i -> {
       Collection<?> collection = i.getArgument(0);
       if (collection == null || collection.isEmpty()) {
@@ -172,6 +211,19 @@ public class AnalysisServiceTest {
     });
   }
 
+  @SafeVarargs
+  private Answer<Map<Sample, List<Path>>> filesBySample(List<Path>... files) {
+    return i -> {
+      Collection<Sample> samples = i.getArgument(0);
+      Map<Sample, List<Path>> filesBySample = new LinkedHashMap<>();
+      int index = 0;
+      for (Sample sample : samples) {
+        filesBySample.put(sample, index < files.length ? files[index++] : List.of());
+      }
+      return filesBySample;
+    };
+  }
+
   private byte[] writeRandom(Path file) throws IOException {
     byte[] content = new byte[2048];
     random.nextBytes(content);
@@ -181,8 +233,8 @@ public class AnalysisServiceTest {
 
   @Test
   public void copyDatasetsResources_Fastq() throws Throwable {
-    when(sampleService.files(any())).thenReturn(thirdPairedPaths).thenReturn(pairedPaths)
-        .thenReturn(secondPairedPaths);
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
     final byte[] fastq1Content = writeRandom(paired1);
     final byte[] fastq2Content = writeRandom(paired2);
     final byte[] fastq3Content = writeRandom(secondPaired1);
@@ -190,7 +242,7 @@ public class AnalysisServiceTest {
     final byte[] fastq5Content = writeRandom(thirdPaired1);
     final byte[] fastq6Content = writeRandom(thirdPaired2);
 
-    Path folder = service.copyDatasetsResources(datasets, List.of("*.fastq"));
+    Path folder = service.copyDatasetsResources(datasets, List.of("*.fastq"), progression).get();
 
     assertEquals(configuration.getAnalysis().folder(datasets), folder);
     assertTrue(Files.exists(folder));
@@ -240,9 +292,60 @@ public class AnalysisServiceTest {
         datasetMetaContent.get(2));
   }
 
+  @Test
+  public void copyDatasetsResources_Fastq_Hardlinks() throws Throwable {
+    when(configuration.getAnalysisStrategy()).thenReturn(CopyStrategy.HARDLINK);
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
+    final byte[] fastq1Content = writeRandom(paired1);
+    writeRandom(paired2);
+    writeRandom(secondPaired1);
+    writeRandom(secondPaired2);
+    writeRandom(thirdPaired1);
+    writeRandom(thirdPaired2);
+
+    Path folder = service.copyDatasetsResources(datasets, List.of("*.fastq"), progression).get();
+
+    try (Stream<Path> files = Files.list(folder)) {
+      assertEquals(8, files.count());
+    }
+    Path fastq1 = folder.resolve(sample.getName() + "_R1.fastq");
+    assertFalse(Files.isSymbolicLink(fastq1));
+    assertTrue(Files.isSameFile(paired1, fastq1));
+    assertArrayEquals(fastq1Content, Files.readAllBytes(fastq1));
+    assertTrue(Files.isSameFile(secondPaired1, folder.resolve(sample2.getName() + "_R1.fastq")));
+    Sample sample3 = datasets.get(0).getSamples().get(0);
+    assertTrue(Files.isSameFile(thirdPaired2, folder.resolve(sample3.getName() + "_R2.fastq")));
+  }
+
+  @Test
+  public void copyDatasetsResources_Fastq_Dedup() throws Throwable {
+    when(configuration.isDedup()).thenReturn(true);
+    when(configuration.getAnalysisStrategy()).thenReturn(CopyStrategy.HARDLINK);
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
+    final byte[] fastq1Content = writeRandom(paired1);
+    writeRandom(paired2);
+    writeRandom(secondPaired1);
+    writeRandom(secondPaired2);
+    writeRandom(thirdPaired1);
+    writeRandom(thirdPaired2);
+
+    Path folder = service.copyDatasetsResources(datasets, List.of("*.fastq"), progression).get();
+
+    try (Stream<Path> files = Files.list(folder)) {
+      assertEquals(8, files.count());
+    }
+    Path fastq1 = folder.resolve(sample.getName() + "_R1.fastq");
+    assertFalse(Files.isSymbolicLink(fastq1));
+    assertTrue(Files.isSameFile(paired1, fastq1));
+    assertArrayEquals(fastq1Content, Files.readAllBytes(fastq1));
+    assertTrue(Files.isSameFile(secondPaired2, folder.resolve(sample2.getName() + "_R2.fastq")));
+  }
+
   @Test
   public void copyDatasetsResources_NoFastq() throws Throwable {
-    Path folder = service.copyDatasetsResources(datasets, List.of("*.fastq"));
+    Path folder = service.copyDatasetsResources(datasets, List.of("*.fastq"), progression).get();
 
     assertEquals(configuration.getAnalysis().folder(datasets), folder);
     assertTrue(Files.exists(folder));
@@ -271,9 +374,9 @@ public class AnalysisServiceTest {
   @Test
   public void copyDatasetsResources_Fastq_Symlinks() throws Throwable {
     assumeFalse(SystemUtils.IS_OS_WINDOWS); // Symbolic links don't work on Windows.
-    when(configuration.isAnalysisSymlinks()).thenReturn(true);
-    when(sampleService.files(any())).thenReturn(thirdPairedPaths).thenReturn(pairedPaths)
-        .thenReturn(secondPairedPaths);
+    when(configuration.getAnalysisStrategy()).thenReturn(CopyStrategy.SYMLINK);
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
     final byte[] fastq1Content = writeRandom(paired1);
     final byte[] fastq2Content = writeRandom(paired2);
     final byte[] fastq3Content = writeRandom(secondPaired1);
@@ -281,7 +384,7 @@ public class AnalysisServiceTest {
     final byte[] fastq5Content = writeRandom(thirdPaired1);
     final byte[] fastq6Content = writeRandom(thirdPaired2);
 
-    Path folder = service.copyDatasetsResources(datasets, List.of("*.fastq"));
+    Path folder = service.copyDatasetsResources(datasets, List.of("*.fastq"), progression).get();
 
     assertEquals(configuration.getAnalysis().folder(datasets), folder);
     assertTrue(Files.exists(folder));
@@ -333,8 +436,8 @@ public class AnalysisServiceTest {
 
   @Test
   public void copyDatasetsResources_Fastq_Zip() throws Throwable {
-    when(sampleService.files(any())).thenReturn(thirdPairedZipPaths).thenReturn(pairedZipPaths)
-        .thenReturn(secondPairedZipPaths);
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedZipPaths, pairedZipPaths,
+        secondPairedZipPaths));
     final byte[] fastq1Content = writeRandom(pairedZip1);
     final byte[] fastq2Content = writeRandom(pairedZip2);
     final byte[] fastq3Content = writeRandom(secondPairedZip1);
@@ -342,7 +445,7 @@ public class AnalysisServiceTest {
     final byte[] fastq5Content = writeRandom(thirdPairedZip1);
     final byte[] fastq6Content = writeRandom(thirdPairedZip2);
 
-    Path folder = service.copyDatasetsResources(datasets, List.of("*.fastq*"));
+    Path folder = service.copyDatasetsResources(datasets, List.of("*.fastq*"), progression).get();
 
     assertEquals(configuration.getAnalysis().folder(datasets), folder);
     assertTrue(Files.exists(folder));
@@ -394,8 +497,8 @@ public class AnalysisServiceTest {
 
   @Test
   public void copyDatasetsResources_Fastq_Bam() throws Throwable {
-    when(sampleService.files(any())).thenReturn(thirdPairedPaths).thenReturn(pairedPaths)
-        .thenReturn(secondPairedPaths);
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
     final byte[] fastq1Content = writeRandom(paired1);
     final byte[] fastq2Content = writeRandom(paired2);
     final byte[] fastq3Content = writeRandom(secondPaired1);
@@ -421,7 +524,8 @@ public class AnalysisServiceTest {
     thirdPairedPaths.add(thirdBam2);
     thirdPairedPaths.add(thirdRawbam);
 
-    Path folder = service.copyDatasetsResources(datasets, Arrays.asList("*.fastq", "*.bam"));
+    Path folder = service.copyDatasetsResources(datasets, Arrays.asList("*.fastq", "*.bam"),
+        progression).get();
 
     assertEquals(configuration.getAnalysis().folder(datasets), folder);
     assertTrue(Files.exists(folder));
@@ -509,8 +613,8 @@ public class AnalysisServiceTest {
 
   @Test
   public void copyDatasetsResources_Fastq_FolderAlreadyExists() throws Throwable {
-    when(sampleService.files(any())).thenReturn(thirdPairedPaths).thenReturn(pairedPaths)
-        .thenReturn(secondPairedPaths);
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
     final byte[] fastq1Content = writeRandom(paired1);
     final byte[] fastq2Content = writeRandom(paired2);
     final byte[] fastq3Content = writeRandom(secondPaired1);
@@ -521,9 +625,12 @@ public class AnalysisServiceTest {
     String extraFilename = "test.bam";
     Files.createDirectories(folder);
     Files.write(folder.resolve(paired1.getFileName()), fastq2Content);
+    Files.setLastModifiedTime(folder.resolve(paired1.getFileName()),
+        FileTime.from(Instant.now().minus(1, ChronoUnit.DAYS)));
     Files.write(folder.resolve(extraFilename), fastq1Content);
 
-    Path copyFolder = service.copyDatasetsResources(datasets, List.of("*.fastq"));
+    Path copyFolder = service.copyDatasetsResources(datasets, List.of("*.fastq"),
+        progression).get();
 
     assertEquals(folder, copyFolder);
     assertFalse(Files.exists(folder.resolve(extraFilename)));
@@ -580,7 +687,7 @@ public class AnalysisServiceTest {
     datasets.add(datasetRepository.findById(2L).orElseThrow());
     datasets.add(datasetRepository.findById(6L).orElseThrow());
 
-    Path folder = service.copyDatasetsResources(datasets, new ArrayList<>());
+    Path folder = service.copyDatasetsResources(datasets, new ArrayList<>(), progression).get();
 
     assertEquals(configuration.getAnalysis().folder(datasets), folder);
     assertTrue(Files.exists(folder));
@@ -608,15 +715,34 @@ public class AnalysisServiceTest {
   }
 
   @Test
-  public void copyDatasetsResources_EmptyDatasets() {
+  public void validateDatasetsResources() {
+    service.validateDatasetsResources(datasets, List.of("*.fastq", "*.bam"));
+  }
+
+  @Test
+  public void validateDatasetsResources_EmptyDatasets() {
     assertThrows(IllegalArgumentException.class,
-        () -> service.copyDatasetsResources(new ArrayList<>(), new ArrayList<>()));
+        () -> service.validateDatasetsResources(new ArrayList<>(), List.of("*.fastq")));
+  }
+
+  @Test
+  public void validateDatasetsResources_InvalidFilenamePattern() {
+    assertThrows(PatternSyntaxException.class,
+        () -> service.validateDatasetsResources(datasets, List.of("*.fastq", "*.{bam")));
+  }
+
+  @Test
+  public void copyDatasetsResources_EmptyDatasets() {
+    ExecutionException exception = assertThrows(ExecutionException.class,
+        () -> service.copyDatasetsResources(new ArrayList<>(), new ArrayList<>(),
+            progression).get());
+    assertInstanceOf(IllegalArgumentException.class, exception.getCause());
   }
 
   @Test
   public void copyDatasetsResources_EmptyFilenamePatterns() throws Throwable {
-    when(sampleService.files(any())).thenReturn(thirdPairedPaths).thenReturn(pairedPaths)
-        .thenReturn(secondPairedPaths);
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
     Files.createFile(paired1);
     Files.createFile(paired2);
     Files.createFile(secondPaired1);
@@ -624,7 +750,7 @@ public class AnalysisServiceTest {
     Files.createFile(thirdPaired1);
     Files.createFile(thirdPaired2);
 
-    Path folder = service.copyDatasetsResources(datasets, new ArrayList<>());
+    Path folder = service.copyDatasetsResources(datasets, new ArrayList<>(), progression).get();
 
     assertEquals(configuration.getAnalysis().folder(datasets), folder);
     assertTrue(Files.exists(folder));
@@ -652,8 +778,8 @@ public class AnalysisServiceTest {
 
   @Test
   public void copySamplesResources_Fastq() throws Throwable {
-    when(sampleService.files(any())).thenReturn(thirdPairedPaths).thenReturn(pairedPaths)
-        .thenReturn(secondPairedPaths);
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
     final byte[] fastq1Content = writeRandom(paired1);
     final byte[] fastq2Content = writeRandom(paired2);
     final byte[] fastq3Content = writeRandom(secondPaired1);
@@ -661,7 +787,7 @@ public class AnalysisServiceTest {
     final byte[] fastq5Content = writeRandom(thirdPaired1);
     final byte[] fastq6Content = writeRandom(thirdPaired2);
 
-    Path folder = service.copySamplesResources(samples, List.of("*.fastq"));
+    Path folder = service.copySamplesResources(samples, List.of("*.fastq"), progression).get();
 
     assertEquals(configuration.getAnalysis().folder(samples), folder);
     assertTrue(Files.exists(folder));
@@ -707,7 +833,7 @@ public class AnalysisServiceTest {
 
   @Test
   public void copySamplesResources_NoFastq() throws Throwable {
-    Path folder = service.copySamplesResources(samples, List.of("*.fastq"));
+    Path folder = service.copySamplesResources(samples, List.of("*.fastq"), progression).get();
 
     assertEquals(configuration.getAnalysis().folder(samples), folder);
     assertTrue(Files.exists(folder));
@@ -730,9 +856,9 @@ public class AnalysisServiceTest {
   @Test
   public void copySamplesResources_Fastq_Symlinks() throws Throwable {
     assumeFalse(SystemUtils.IS_OS_WINDOWS); // Symbolic links don't work on Windows.
-    when(configuration.isAnalysisSymlinks()).thenReturn(true);
-    when(sampleService.files(any())).thenReturn(thirdPairedPaths).thenReturn(pairedPaths)
-        .thenReturn(secondPairedPaths);
+    when(configuration.getAnalysisStrategy()).thenReturn(CopyStrategy.SYMLINK);
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
     final byte[] fastq1Content = writeRandom(paired1);
     final byte[] fastq2Content = writeRandom(paired2);
     final byte[] fastq3Content = writeRandom(secondPaired1);
@@ -740,7 +866,7 @@ public class AnalysisServiceTest {
     final byte[] fastq5Content = writeRandom(thirdPaired1);
     final byte[] fastq6Content = writeRandom(thirdPaired2);
 
-    Path folder = service.copySamplesResources(samples, List.of("*.fastq"));
+    Path folder = service.copySamplesResources(samples, List.of("*.fastq"), progression).get();
 
     assertEquals(configuration.getAnalysis().folder(samples), folder);
     assertTrue(Files.exists(folder));
@@ -784,10 +910,500 @@ public class AnalysisServiceTest {
     assertFalse(Files.exists(datasetMeta));
   }
 
+  @Test
+  public void copySamplesResources_Fastq_Hardlinks() throws Throwable {
+    when(configuration.getAnalysisStrategy()).thenReturn(CopyStrategy.HARDLINK);
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
+    final byte[] fastq1Content = writeRandom(paired1);
+    final byte[] fastq2Content = writeRandom(paired2);
+    final byte[] fastq3Content = writeRandom(secondPaired1);
+    final byte[] fastq4Content = writeRandom(secondPaired2);
+    final byte[] fastq5Content = writeRandom(thirdPaired1);
+    final byte[] fastq6Content = writeRandom(thirdPaired2);
+
+    Path folder = service.copySamplesResources(samples, List.of("*.fastq"), progression).get();
+
+    assertEquals(configuration.getAnalysis().folder(samples), folder);
+    try (Stream<Path> files = Files.list(folder)) {
+      assertEquals(7, files.count());
+    }
+    Path fastq1 = folder.resolve(sample.getName() + "_R1.fastq");
+    assertFalse(Files.isSymbolicLink(fastq1));
+    assertTrue(Files.isSameFile(paired1, fastq1));
+    assertArrayEquals(fastq1Content, Files.readAllBytes(fastq1));
+    Path fastq2 = folder.resolve(sample.getName() + "_R2.fastq");
+    assertFalse(Files.isSymbolicLink(fastq2));
+    assertTrue(Files.isSameFile(paired2, fastq2));
+    assertArrayEquals(fastq2Content, Files.readAllBytes(fastq2));
+    Path fastq3 = folder.resolve(sample2.getName() + "_R1.fastq");
+    assertTrue(Files.isSameFile(secondPaired1, fastq3));
+    assertArrayEquals(fastq3Content, Files.readAllBytes(fastq3));
+    Path fastq4 = folder.resolve(sample2.getName() + "_R2.fastq");
+    assertTrue(Files.isSameFile(secondPaired2, fastq4));
+    assertArrayEquals(fastq4Content, Files.readAllBytes(fastq4));
+    Sample sample3 = samples.get(0);
+    Path fastq5 = folder.resolve(sample3.getName() + "_R1.fastq");
+    assertTrue(Files.isSameFile(thirdPaired1, fastq5));
+    assertArrayEquals(fastq5Content, Files.readAllBytes(fastq5));
+    Path fastq6 = folder.resolve(sample3.getName() + "_R2.fastq");
+    assertTrue(Files.isSameFile(thirdPaired2, fastq6));
+    assertArrayEquals(fastq6Content, Files.readAllBytes(fastq6));
+  }
+
+  @Test
+  public void copySamplesResources_Fastq_Hardlinks_DeleteFolder() throws Throwable {
+    when(configuration.getAnalysisStrategy()).thenReturn(CopyStrategy.HARDLINK);
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
+    final byte[] fastq1Content = writeRandom(paired1);
+    writeRandom(paired2);
+    writeRandom(secondPaired1);
+    writeRandom(secondPaired2);
+    writeRandom(thirdPaired1);
+    writeRandom(thirdPaired2);
+    service.copySamplesResources(samples, List.of("*.fastq"), progression).get();
+
+    // Preparing the analysis again does not delete or modify the linked files.
+    Path folder = service.copySamplesResources(samples, List.of("*.fastq"), progression).get();
+
+    assertArrayEquals(fastq1Content, Files.readAllBytes(paired1));
+    assertTrue(Files.isSameFile(paired1, folder.resolve(sample.getName() + "_R1.fastq")));
+  }
+
+  @Test
+  public void copySamplesResources_Sync_Unchanged() throws Throwable {
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
+    final byte[] fastq1Content = writeRandom(paired1);
+    writeRandom(paired2);
+    writeRandom(secondPaired1);
+    writeRandom(secondPaired2);
+    writeRandom(thirdPaired1);
+    writeRandom(thirdPaired2);
+    Path folder = service.copySamplesResources(samples, List.of("*.fastq"), progression).get();
+    Path fastq1 = folder.resolve(sample.getName() + "_R1.fastq");
+    Object fastq1Key = Files.readAttributes(fastq1, BasicFileAttributes.class).fileKey();
+    Path samplesFile = folder.resolve("samples.txt");
+    FileTime samplesModified = FileTime.from(Instant.now().minus(1, ChronoUnit.DAYS));
+    Files.setLastModifiedTime(samplesFile, samplesModified);
+    Files.setLastModifiedTime(folder, samplesModified);
+
+    service.copySamplesResources(samples, List.of("*.fastq"), progression).get();
+
+    assertEquals(fastq1Key, Files.readAttributes(fastq1, BasicFileAttributes.class).fileKey());
+    assertEquals(Files.getLastModifiedTime(paired1).toMillis(),
+        Files.getLastModifiedTime(fastq1).toMillis());
+    assertArrayEquals(fastq1Content, Files.readAllBytes(fastq1));
+    assertEquals(samplesModified, Files.getLastModifiedTime(samplesFile));
+    assertTrue(Files.getLastModifiedTime(folder).compareTo(samplesModified) > 0);
+    try (Stream<Path> files = Files.list(folder)) {
+      assertEquals(7, files.count());
+    }
+  }
+
+  @Test
+  public void copySamplesResources_Sync_Changed() throws Throwable {
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
+    writeRandom(paired1);
+    writeRandom(paired2);
+    writeRandom(secondPaired1);
+    writeRandom(secondPaired2);
+    writeRandom(thirdPaired1);
+    writeRandom(thirdPaired2);
+    Path folder = service.copySamplesResources(samples, List.of("*.fastq"), progression).get();
+    final byte[] fastq1Content = writeRandom(paired1);
+    Files.setLastModifiedTime(paired1, FileTime.from(Instant.now().plus(1, ChronoUnit.HOURS)));
+
+    service.copySamplesResources(samples, List.of("*.fastq"), progression).get();
+
+    Path fastq1 = folder.resolve(sample.getName() + "_R1.fastq");
+    assertArrayEquals(fastq1Content, Files.readAllBytes(fastq1));
+    assertEquals(Files.getLastModifiedTime(paired1).toMillis(),
+        Files.getLastModifiedTime(fastq1).toMillis());
+  }
+
+  @Test
+  public void copySamplesResources_Sync_AddPattern() throws Throwable {
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
+    for (Path file : List.of(pairedPaths, secondPairedPaths, thirdPairedPaths).stream()
+        .flatMap(List::stream).toList()) {
+      writeRandom(file);
+    }
+    Path folder = service.copySamplesResources(samples, List.of("*.fastq"), progression).get();
+    Path fastq1 = folder.resolve(sample.getName() + "_R1.fastq");
+    Object fastq1Key = Files.readAttributes(fastq1, BasicFileAttributes.class).fileKey();
+
+    service.copySamplesResources(samples, List.of("*.fastq", "*.bed"), progression).get();
+
+    assertEquals(fastq1Key, Files.readAttributes(fastq1, BasicFileAttributes.class).fileKey());
+    try (Stream<Path> files = Files.list(folder)) {
+      assertEquals(10, files.count());
+    }
+    Path bed = folder.resolve(sample.getName() + ".bed");
+    assertArrayEquals(Files.readAllBytes(pairedPaths.get(0)), Files.readAllBytes(bed));
+  }
+
+  @Test
+  public void copySamplesResources_Sync_RemoveStale() throws Throwable {
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
+    for (Path file : List.of(pairedPaths, secondPairedPaths, thirdPairedPaths).stream()
+        .flatMap(List::stream).toList()) {
+      writeRandom(file);
+    }
+    Path folder = service.copySamplesResources(samples, List.of("*.fastq", "*.bed"),
+        progression).get();
+    Files.writeString(folder.resolve("dataset.txt"), "#merge\tsamples");
+    Files.createDirectories(folder.resolve("results"));
+    Files.writeString(folder.resolve("results/peaks.bed"), "test");
+
+    service.copySamplesResources(samples, List.of("*.fastq"), progression).get();
+
+    try (Stream<Path> files = Files.list(folder)) {
+      assertEquals(7, files.count());
+    }
+    assertFalse(Files.exists(folder.resolve(sample.getName() + ".bed")));
+    assertFalse(Files.exists(folder.resolve("dataset.txt")));
+    assertFalse(Files.exists(folder.resolve("results")));
+    assertTrue(Files.exists(pairedPaths.get(0)));
+    assertTrue(Files.exists(folder.resolve(sample.getName() + "_R1.fastq")));
+  }
+
+  @Test
+  public void copySamplesResources_Sync_SamplesChanged() throws Throwable {
+    Path folder = service.copySamplesResources(samples, List.of("*.fastq"), progression).get();
+
+    service.copySamplesResources(List.of(samples.get(0), sample2), List.of("*.fastq"),
+        progression).get();
+
+    List<String> samplesContent = Files.readAllLines(folder.resolve("samples.txt"));
+    assertEquals(3, samplesContent.size());
+    assertEquals("#sample", samplesContent.get(0));
+    assertEquals(samples.get(0).getName(), samplesContent.get(1));
+    assertEquals(sample2.getName(), samplesContent.get(2));
+  }
+
+  @Test
+  public void copySamplesResources_Sync_Symlinks() throws Throwable {
+    assumeFalse(SystemUtils.IS_OS_WINDOWS); // Symbolic links don't work on Windows.
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
+    writeRandom(paired1);
+    writeRandom(paired2);
+    writeRandom(secondPaired1);
+    writeRandom(secondPaired2);
+    writeRandom(thirdPaired1);
+    writeRandom(thirdPaired2);
+    Path folder = service.copySamplesResources(samples, List.of("*.fastq"), progression).get();
+    Path fastq1 = folder.resolve(sample.getName() + "_R1.fastq");
+    assertFalse(Files.isSymbolicLink(fastq1));
+    when(configuration.getAnalysisStrategy()).thenReturn(CopyStrategy.SYMLINK);
+
+    service.copySamplesResources(samples, List.of("*.fastq"), progression).get();
+
+    assertTrue(Files.isSymbolicLink(fastq1));
+    assertEquals(paired1, Files.readSymbolicLink(fastq1));
+    Object linkKey = Files.readAttributes(fastq1, BasicFileAttributes.class,
+        LinkOption.NOFOLLOW_LINKS).fileKey();
+
+    service.copySamplesResources(samples, List.of("*.fastq"), progression).get();
+
+    assertEquals(linkKey, Files.readAttributes(fastq1, BasicFileAttributes.class,
+        LinkOption.NOFOLLOW_LINKS).fileKey());
+  }
+
+  @Test
+  public void copySamplesResources_Progression() throws Throwable {
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
+    writeRandom(paired1);
+    writeRandom(paired2);
+    writeRandom(secondPaired1);
+    writeRandom(secondPaired2);
+    writeRandom(thirdPaired1);
+    writeRandom(thirdPaired2);
+
+    service.copySamplesResources(samples, List.of("*.fastq"), progression).get();
+
+    Sample sample3 = samples.get(0);
+    verify(progression).accept(sample3.getName() + "_R1.fastq (1/6)", 0.0);
+    verify(progression).accept(sample3.getName() + "_R2.fastq (2/6)", 2048.0 / 12288);
+    verify(progression).accept(sample2.getName() + "_R2.fastq (6/6)", 10240.0 / 12288);
+    verify(progression).accept("", 1.0);
+    verify(progression).transferred(new TransferProgress(12288, 12288, 0.0, Duration.ZERO));
+  }
+
+  @Test
+  public void copySamplesResources_Progression_Unchanged() throws Throwable {
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
+    writeRandom(paired1);
+    writeRandom(paired2);
+    writeRandom(secondPaired1);
+    writeRandom(secondPaired2);
+    writeRandom(thirdPaired1);
+    writeRandom(thirdPaired2);
+    service.copySamplesResources(samples, List.of("*.fastq"), progression).get();
+    TransferProgression progression = mock(TransferProgression.class);
+
+    service.copySamplesResources(samples, List.of("*.fastq"), progression).get();
+
+    verify(progression).accept("", 1.0);
+    verify(progression, never()).accept(argThat(message -> !message.isEmpty()), any());
+  }
+
+  @Test
+  public void copySamplesResources_Cancelled() throws Throwable {
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
+    writeRandom(paired1);
+    writeRandom(paired2);
+    writeRandom(secondPaired1);
+    writeRandom(secondPaired2);
+    writeRandom(thirdPaired1);
+    writeRandom(thirdPaired2);
+    when(progression.isCancelled()).thenReturn(true);
+
+    ExecutionException exception = assertThrows(ExecutionException.class,
+        () -> service.copySamplesResources(samples, List.of("*.fastq"), progression).get());
+
+    assertInstanceOf(CancellationException.class, exception.getCause());
+    Path folder = configuration.getAnalysis().folder(samples);
+    try (Stream<Path> files = Files.list(folder)) {
+      assertEquals(0, files.count());
+    }
+  }
+
+  @Test
+  public void copySamplesResources_Cancelled_WhileCopying() throws Throwable {
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
+    writeRandom(paired1);
+    writeRandom(paired2);
+    writeRandom(secondPaired1);
+    writeRandom(secondPaired2);
+    writeRandom(thirdPaired1);
+    writeRandom(thirdPaired2);
+    when(progression.isCancelled()).thenReturn(false, true);
+
+    ExecutionException exception = assertThrows(ExecutionException.class,
+        () -> service.copySamplesResources(samples, List.of("*.fastq"), progression).get());
+
+    assertInstanceOf(CancellationException.class, exception.getCause());
+    Path folder = configuration.getAnalysis().folder(samples);
+    try (Stream<Path> files = Files.list(folder)) {
+      assertEquals(0, files.count());
+    }
+  }
+
+  @Test
+  public void copySamplesResources_Parallel() throws Throwable {
+    when(configuration.getHome().getFolder()).thenReturn(temporaryFolder);
+    when(configuration.getHome().getConcurrency()).thenReturn(2);
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
+    writeRandom(paired1);
+    writeRandom(paired2);
+    writeRandom(secondPaired1);
+    writeRandom(secondPaired2);
+    writeRandom(thirdPaired1);
+    writeRandom(thirdPaired2);
+    CountDownLatch started = new CountDownLatch(2);
+    AtomicBoolean concurrent = new AtomicBoolean();
+    when(progression.isCancelled()).then(i -> {
+      if (started.getCount() > 0) {
+        started.countDown();
+        concurrent.set(started.await(5, TimeUnit.SECONDS));
+      }
+      return false;
+    });
+
+    Path folder = service.copySamplesResources(samples, List.of("*.fastq"), progression).get();
+
+    assertTrue(concurrent.get());
+    assertArrayEquals(Files.readAllBytes(paired1),
+        Files.readAllBytes(folder.resolve(paired1.getFileName())));
+    assertArrayEquals(Files.readAllBytes(paired2),
+        Files.readAllBytes(folder.resolve(paired2.getFileName())));
+    assertArrayEquals(Files.readAllBytes(secondPaired1),
+        Files.readAllBytes(folder.resolve(secondPaired1.getFileName())));
+    assertArrayEquals(Files.readAllBytes(secondPaired2),
+        Files.readAllBytes(folder.resolve(secondPaired2.getFileName())));
+    assertArrayEquals(Files.readAllBytes(thirdPaired1),
+        Files.readAllBytes(folder.resolve(thirdPaired1.getFileName())));
+    assertArrayEquals(Files.readAllBytes(thirdPaired2),
+        Files.readAllBytes(folder.resolve(thirdPaired2.getFileName())));
+    verify(progression).accept("", 1.0);
+  }
+
+  @Test
+  public void copySamplesResources_DriveThrottled() throws Throwable {
+    when(configuration.getHome().getFolder()).thenReturn(temporaryFolder);
+    when(configuration.getHome().getConcurrency()).thenReturn(2);
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
+    writeRandom(paired1);
+    writeRandom(paired2);
+    writeRandom(secondPaired1);
+    writeRandom(secondPaired2);
+    writeRandom(thirdPaired1);
+    writeRandom(thirdPaired2);
+    Semaphore permits = throttle.permits(configuration.getHome());
+    permits.acquire(2);
+
+    CompletableFuture<Path> future =
+        service.copySamplesResources(samples, List.of("*.fastq"), progression);
+
+    Thread.sleep(300);
+    assertFalse(future.isDone());
+    Path folder = configuration.getAnalysis().folder(samples);
+    assertFalse(Files.exists(folder.resolve(thirdPaired1.getFileName())));
+    permits.release(2);
+    future.get(10, TimeUnit.SECONDS);
+    assertArrayEquals(Files.readAllBytes(thirdPaired1),
+        Files.readAllBytes(folder.resolve(thirdPaired1.getFileName())));
+    assertArrayEquals(Files.readAllBytes(paired2),
+        Files.readAllBytes(folder.resolve(paired2.getFileName())));
+    assertEquals(2, permits.availablePermits());
+  }
+
+  @Test
+  public void copySamplesResources_DriveThrottled_Cancelled() throws Throwable {
+    when(configuration.getHome().getFolder()).thenReturn(temporaryFolder);
+    when(configuration.getHome().getConcurrency()).thenReturn(2);
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
+    writeRandom(paired1);
+    writeRandom(paired2);
+    writeRandom(secondPaired1);
+    writeRandom(secondPaired2);
+    writeRandom(thirdPaired1);
+    writeRandom(thirdPaired2);
+    AtomicBoolean cancelled = new AtomicBoolean();
+    when(progression.isCancelled()).then(i -> cancelled.get());
+    Semaphore permits = throttle.permits(configuration.getHome());
+    permits.acquire(2);
+    try {
+      CompletableFuture<Path> future =
+          service.copySamplesResources(samples, List.of("*.fastq"), progression);
+
+      Thread.sleep(300);
+      assertFalse(future.isDone());
+      cancelled.set(true);
+      ExecutionException exception =
+          assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+      assertInstanceOf(CancellationException.class, exception.getCause());
+    } finally {
+      permits.release(2);
+    }
+    assertEquals(2, permits.availablePermits());
+  }
+
+  @Test
+  public void copySamplesResources_OtherDriveThrottled() throws Throwable {
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
+    writeRandom(paired1);
+    writeRandom(paired2);
+    writeRandom(secondPaired1);
+    writeRandom(secondPaired2);
+    writeRandom(thirdPaired1);
+    writeRandom(thirdPaired2);
+    Semaphore permits = throttle.permits(null);
+    permits.acquire();
+
+    CompletableFuture<Path> future =
+        service.copySamplesResources(samples, List.of("*.fastq"), progression);
+
+    Thread.sleep(300);
+    assertFalse(future.isDone());
+    Path folder = configuration.getAnalysis().folder(samples);
+    assertFalse(Files.exists(folder.resolve(thirdPaired1.getFileName())));
+    permits.release();
+    future.get(10, TimeUnit.SECONDS);
+    assertArrayEquals(Files.readAllBytes(thirdPaired1),
+        Files.readAllBytes(folder.resolve(thirdPaired1.getFileName())));
+    assertEquals(1, permits.availablePermits());
+  }
+
+  @Test
+  public void copySamplesResources_Fastq_Dedup() throws Throwable {
+    when(configuration.isDedup()).thenReturn(true);
+    when(configuration.getAnalysisStrategy()).thenReturn(CopyStrategy.HARDLINK);
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
+    final byte[] fastq1Content = writeRandom(paired1);
+    final byte[] fastq2Content = writeRandom(paired2);
+    writeRandom(secondPaired1);
+    writeRandom(secondPaired2);
+    writeRandom(thirdPaired1);
+    writeRandom(thirdPaired2);
+
+    Path folder = service.copySamplesResources(samples, List.of("*.fastq"), progression).get();
+
+    try (Stream<Path> files = Files.list(folder)) {
+      assertEquals(7, files.count());
+    }
+    Path fastq1 = folder.resolve(sample.getName() + "_R1.fastq");
+    assertFalse(Files.isSymbolicLink(fastq1));
+    assertTrue(Files.isSameFile(paired1, fastq1));
+    assertArrayEquals(fastq1Content, Files.readAllBytes(fastq1));
+    Path fastq2 = folder.resolve(sample.getName() + "_R2.fastq");
+    assertFalse(Files.isSymbolicLink(fastq2));
+    assertTrue(Files.isSameFile(paired2, fastq2));
+    assertArrayEquals(fastq2Content, Files.readAllBytes(fastq2));
+    assertTrue(Files.isSameFile(secondPaired1, folder.resolve(sample2.getName() + "_R1.fastq")));
+    assertTrue(
+        Files.isSameFile(thirdPaired2, folder.resolve(samples.get(0).getName() + "_R2.fastq")));
+  }
+
+  @Test
+  public void copySamplesResources_Fastq_Dedup_Copy() throws Throwable {
+    when(configuration.isDedup()).thenReturn(true);
+    when(configuration.getAnalysisStrategy()).thenReturn(CopyStrategy.COPY);
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
+    final byte[] fastq1Content = writeRandom(paired1);
+    writeRandom(paired2);
+    writeRandom(secondPaired1);
+    writeRandom(secondPaired2);
+    writeRandom(thirdPaired1);
+    writeRandom(thirdPaired2);
+
+    Path folder = service.copySamplesResources(samples, List.of("*.fastq"), progression).get();
+
+    Path fastq1 = folder.resolve(sample.getName() + "_R1.fastq");
+    assertFalse(Files.isSymbolicLink(fastq1));
+    assertFalse(Files.isSameFile(paired1, fastq1));
+    assertArrayEquals(fastq1Content, Files.readAllBytes(fastq1));
+  }
+
+  @Test
+  public void copySamplesResources_Fastq_Dedup_Symlinks() throws Throwable {
+    assumeFalse(SystemUtils.IS_OS_WINDOWS); // Symbolic links don't work on Windows.
+    when(configuration.isDedup()).thenReturn(true);
+    when(configuration.getAnalysisStrategy()).thenReturn(CopyStrategy.SYMLINK);
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
+    writeRandom(paired1);
+    writeRandom(paired2);
+    writeRandom(secondPaired1);
+    writeRandom(secondPaired2);
+    writeRandom(thirdPaired1);
+    writeRandom(thirdPaired2);
+
+    Path folder = service.copySamplesResources(samples, List.of("*.fastq"), progression).get();
+
+    assertTrue(Files.isSymbolicLink(folder.resolve(sample.getName() + "_R1.fastq")));
+  }
+
   @Test
   public void copySamplesResources_Fastq_Zip() throws Throwable {
-    when(sampleService.files(any())).thenReturn(thirdPairedZipPaths).thenReturn(pairedZipPaths)
-        .thenReturn(secondPairedZipPaths);
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedZipPaths, pairedZipPaths,
+        secondPairedZipPaths));
     final byte[] fastq1Content = writeRandom(pairedZip1);
     final byte[] fastq2Content = writeRandom(pairedZip2);
     final byte[] fastq3Content = writeRandom(secondPairedZip1);
@@ -795,7 +1411,7 @@ public class AnalysisServiceTest {
     final byte[] fastq5Content = writeRandom(thirdPairedZip1);
     final byte[] fastq6Content = writeRandom(thirdPairedZip2);
 
-    Path folder = service.copySamplesResources(samples, List.of("*.fastq*"));
+    Path folder = service.copySamplesResources(samples, List.of("*.fastq*"), progression).get();
 
     assertEquals(configuration.getAnalysis().folder(samples), folder);
     assertTrue(Files.exists(folder));
@@ -841,8 +1457,8 @@ public class AnalysisServiceTest {
 
   @Test
   public void copySamplesResources_Fastq_Bam() throws Throwable {
-    when(sampleService.files(any())).thenReturn(thirdPairedPaths).thenReturn(pairedPaths)
-        .thenReturn(secondPairedPaths);
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
     final byte[] fastq1Content = writeRandom(paired1);
     final byte[] fastq2Content = writeRandom(paired2);
     final byte[] fastq3Content = writeRandom(secondPaired1);
@@ -868,7 +1484,8 @@ public class AnalysisServiceTest {
     thirdPairedPaths.add(thirdBam2);
     thirdPairedPaths.add(thirdRawbam);
 
-    Path folder = service.copySamplesResources(samples, Arrays.asList("*.fastq", "*.bam"));
+    Path folder = service.copySamplesResources(samples, Arrays.asList("*.fastq", "*.bam"),
+        progression).get();
 
     assertEquals(configuration.getAnalysis().folder(samples), folder);
     assertTrue(Files.exists(folder));
@@ -950,8 +1567,8 @@ public class AnalysisServiceTest {
 
   @Test
   public void copySamplesResources_Fastq_AlreadyExists() throws Throwable {
-    when(sampleService.files(any())).thenReturn(thirdPairedPaths).thenReturn(pairedPaths)
-        .thenReturn(secondPairedPaths);
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
     final byte[] fastq1Content = writeRandom(paired1);
     final byte[] fastq2Content = writeRandom(paired2);
     final byte[] fastq3Content = writeRandom(secondPaired1);
@@ -962,9 +1579,11 @@ public class AnalysisServiceTest {
     String extraFilename = "test.bam";
     Files.createDirectories(folder);
     Files.write(folder.resolve(paired1.getFileName()), fastq2Content);
+    Files.setLastModifiedTime(folder.resolve(paired1.getFileName()),
+        FileTime.from(Instant.now().minus(1, ChronoUnit.DAYS)));
     Files.write(folder.resolve(extraFilename), fastq1Content);
 
-    Path copyFolder = service.copySamplesResources(samples, List.of("*.fastq"));
+    Path copyFolder = service.copySamplesResources(samples, List.of("*.fastq"), progression).get();
 
     assertEquals(folder, copyFolder);
     assertFalse(Files.exists(folder.resolve(extraFilename)));
@@ -1010,15 +1629,34 @@ public class AnalysisServiceTest {
   }
 
   @Test
-  public void copySamplesResources_EmptySamples() {
+  public void validateSamplesResources() {
+    service.validateSamplesResources(samples, List.of("*.fastq", "*.bam"));
+  }
+
+  @Test
+  public void validateSamplesResources_EmptySamples() {
     assertThrows(IllegalArgumentException.class,
-        () -> service.copySamplesResources(new ArrayList<>(), new ArrayList<>()));
+        () -> service.validateSamplesResources(new ArrayList<>(), List.of("*.fastq")));
+  }
+
+  @Test
+  public void validateSamplesResources_InvalidFilenamePattern() {
+    assertThrows(PatternSyntaxException.class,
+        () -> service.validateSamplesResources(samples, List.of("*.fastq", "*.{bam")));
+  }
+
+  @Test
+  public void copySamplesResources_EmptySamples() {
+    ExecutionException exception = assertThrows(ExecutionException.class,
+        () -> service.copySamplesResources(new ArrayList<>(), new ArrayList<>(),
+            progression).get());
+    assertInstanceOf(IllegalArgumentException.class, exception.getCause());
   }
 
   @Test
   public void copySamplesResources_EmptyFilenamePatterns() throws Throwable {
-    when(sampleService.files(any())).thenReturn(thirdPairedPaths).thenReturn(pairedPaths)
-        .thenReturn(secondPairedPaths);
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
     Files.createFile(paired1);
     Files.createFile(paired2);
     Files.createFile(secondPaired1);
@@ -1026,7 +1664,7 @@ public class AnalysisServiceTest {
     Files.createFile(thirdPaired1);
     Files.createFile(thirdPaired2);
 
-    Path folder = service.copySamplesResources(samples, new ArrayList<>());
+    Path folder = service.copySamplesResources(samples, new ArrayList<>(), progression).get();
 
     assertEquals(configuration.getAnalysis().folder(samples), folder);
     assertTrue(Files.exists(folder));
@@ -1045,4 +1683,110 @@ public class AnalysisServiceTest {
     Path datasetMeta = folder.resolve("dataset.txt");
     assertFalse(Files.exists(datasetMeta));
   }
+
+  @Test
+  public void datasetsArchive() throws Throwable {
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
+    writeRandom(paired1);
+    writeRandom(paired2);
+    writeRandom(secondPaired1);
+    writeRandom(secondPaired2);
+    writeRandom(thirdPaired1);
+    writeRandom(thirdPaired2);
+
+    AnalysisArchive archive = service.datasetsArchive(datasets, List.of("*.fastq"));
+
+    Path folder = configuration.getAnalysis().folder(datasets);
+    assertEquals(folder.getFileName() + ".zip", archive.getFilename());
+    Sample sample3 = datasets.get(0).getSamples().get(0);
+    assertEquals(List.of("samples.txt", "dataset.txt", sample3.getName() + "_R1.fastq",
+        sample3.getName() + "_R2.fastq", sample.getName() + "_R1.fastq",
+        sample.getName() + "_R2.fastq", sample2.getName() + "_R1.fastq",
+        sample2.getName() + "_R2.fastq"), archive.entries());
+    assertFalse(Files.exists(folder));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    archive.write(output);
+    Map<String, byte[]> contents = unzip(output.toByteArray());
+    assertArrayEquals(Files.readAllBytes(paired1),
+        contents.get(paired1.getFileName().toString()));
+    assertArrayEquals(Files.readAllBytes(thirdPaired2),
+        contents.get(thirdPaired2.getFileName().toString()));
+    List<String> samplesContent =
+        new String(contents.get("samples.txt"), StandardCharsets.UTF_8).lines().toList();
+    assertEquals(List.of("#sample", sample3.getName(), sample.getName(), sample2.getName()),
+        samplesContent);
+    List<String> datasetContent =
+        new String(contents.get("dataset.txt"), StandardCharsets.UTF_8).lines().toList();
+    assertEquals("#merge\tsamples", datasetContent.get(0));
+    assertEquals(dataset.getName() + "\t" + this.sample.getName() + "\t" + sample2.getName(),
+        datasetContent.get(2));
+  }
+
+  @Test
+  public void datasetsArchive_EmptyDatasets() {
+    assertThrows(IllegalArgumentException.class,
+        () -> service.datasetsArchive(new ArrayList<>(), List.of("*.fastq")));
+  }
+
+  @Test
+  public void samplesArchive() throws Throwable {
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedZipPaths, pairedZipPaths,
+        secondPairedZipPaths));
+    writeRandom(pairedZip1);
+    writeRandom(pairedZip2);
+    writeRandom(secondPairedZip1);
+    writeRandom(secondPairedZip2);
+    writeRandom(thirdPairedZip1);
+    writeRandom(thirdPairedZip2);
+
+    AnalysisArchive archive = service.samplesArchive(samples, List.of("*.fastq*"));
+
+    Path folder = configuration.getAnalysis().folder(samples);
+    assertEquals(folder.getFileName() + ".zip", archive.getFilename());
+    Sample sample3 = samples.get(0);
+    assertEquals(List.of("samples.txt", sample3.getName() + "_R1.fastq.gz",
+        sample3.getName() + "_R2.fastq.gz", sample.getName() + "_R1.fastq.gz",
+        sample.getName() + "_R2.fastq.gz", sample2.getName() + "_R1.fastq.gz",
+        sample2.getName() + "_R2.fastq.gz"), archive.entries());
+    assertFalse(Files.exists(folder));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    archive.write(output);
+    Map<String, byte[]> contents = unzip(output.toByteArray());
+    assertArrayEquals(Files.readAllBytes(pairedZip1),
+        contents.get(pairedZip1.getFileName().toString()));
+    assertArrayEquals(Files.readAllBytes(secondPairedZip2),
+        contents.get(secondPairedZip2.getFileName().toString()));
+    List<String> samplesContent =
+        new String(contents.get("samples.txt"), StandardCharsets.UTF_8).lines().toList();
+    assertEquals(List.of("#sample", sample3.getName(), sample.getName(), sample2.getName()),
+        samplesContent);
+  }
+
+  @Test
+  public void samplesArchive_EmptyFilenamePatterns() throws Throwable {
+    when(sampleService.allFiles(any())).then(filesBySample(thirdPairedPaths, pairedPaths,
+        secondPairedPaths));
+
+    AnalysisArchive archive = service.samplesArchive(samples, List.of());
+
+    assertEquals(List.of("samples.txt"), archive.entries());
+  }
+
+  @Test
+  public void samplesArchive_EmptySamples() {
+    assertThrows(IllegalArgumentException.class,
+        () -> service.samplesArchive(new ArrayList<>(), List.of("*.fastq")));
+  }
+
+  private Map<String, byte[]> unzip(byte[] archive) throws IOException {
+    Map<String, byte[]> contents = new LinkedHashMap<>();
+    try (ZipInputStream input = new ZipInputStream(new ByteArrayInputStream(archive))) {
+      ZipEntry entry;
+      while ((entry = input.getNextEntry()) != null) {
+        contents.put(entry.getName(), input.readAllBytes());
+      }
+    }
+    return contents;
+  }
 }
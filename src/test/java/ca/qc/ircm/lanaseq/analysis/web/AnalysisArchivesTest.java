@@ -0,0 +1,262 @@
+package ca.qc.ircm.lanaseq.analysis.web;
+
+import static ca.qc.ircm.lanaseq.analysis.web.AnalysisArchives.CONTENT_TYPE;
+import static ca.qc.ircm.lanaseq.analysis.web.AnalysisArchives.DATASETS;
+import static ca.qc.ircm.lanaseq.analysis.web.AnalysisArchives.REST_MAPPING;
+import static ca.qc.ircm.lanaseq.analysis.web.AnalysisArchives.SAMPLES;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ca.qc.ircm.lanaseq.analysis.AnalysisArchive;
+import ca.qc.ircm.lanaseq.analysis.AnalysisService;
+import ca.qc.ircm.lanaseq.dataset.Dataset;
+import ca.qc.ircm.lanaseq.dataset.DatasetRepository;
+import ca.qc.ircm.lanaseq.dataset.DatasetService;
+import ca.qc.ircm.lanaseq.sample.Sample;
+import ca.qc.ircm.lanaseq.sample.SampleRepository;
+import ca.qc.ircm.lanaseq.sample.SampleService;
+import ca.qc.ircm.lanaseq.test.config.ServiceTestAnnotations;
+import ca.qc.ircm.lanaseq.web.ResourceNotFoundException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.assertj.MockMvcTester;
+import org.springframework.test.web.servlet.assertj.MvcTestResultAssert;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Tests for {@link AnalysisArchives}.
+ */
+@ServiceTestAnnotations
+@AutoConfigureMockMvc
+@WithMockUser
+public class AnalysisArchivesTest {
+
+  @Autowired
+  private AnalysisArchives analysisArchives;
+  @Autowired
+  private MockMvcTester mvc;
+  @MockitoBean
+  private AnalysisService service;
+  @MockitoBean
+  private SampleService sampleService;
+  @MockitoBean
+  private DatasetService datasetService;
+  @Autowired
+  private SampleRepository sampleRepository;
+  @Autowired
+  private DatasetRepository datasetRepository;
+  @Mock
+  private AnalysisArchive archive;
+  @Captor
+  private ArgumentCaptor<Collection<Sample>> samplesCaptor;
+  @Captor
+  private ArgumentCaptor<Collection<Dataset>> datasetsCaptor;
+  @Captor
+  private ArgumentCaptor<Collection<String>> patternsCaptor;
+  private final byte[] content = "archive content".getBytes(StandardCharsets.UTF_8);
+
+  /**
+   * Before test.
+   */
+  @BeforeEach
+  public void beforeTest() throws Throwable {
+    when(sampleService.get(anyLong())).then(i -> sampleRepository.findById(i.getArgument(0)));
+    when(datasetService.get(anyLong())).then(i -> datasetRepository.findById(i.getArgument(0)));
+    when(service.samplesArchive(any(), any())).thenReturn(archive);
+    when(service.datasetsArchive(any(), any())).thenReturn(archive);
+    when(archive.getFilename()).thenReturn("JS1_ChIPseq_Spt16_yFR101_G24D_R1_20181022.zip");
+    doAnswer(i -> {
+      OutputStream output = i.getArgument(0);
+      output.write(content);
+      return null;
+    }).when(archive).write(any());
+  }
+
+  @Test
+  public void samplesArchive() throws Throwable {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    analysisArchives.samplesArchive(List.of(4L, 5L), List.of("*.fastq", "*.bam"), response);
+
+    verify(sampleService).get(4L);
+    verify(sampleService).get(5L);
+    verify(service).samplesArchive(samplesCaptor.capture(), patternsCaptor.capture());
+    assertEquals(List.of(4L, 5L),
+        samplesCaptor.getValue().stream().map(Sample::getId).toList());
+    assertEquals(List.of("*.fastq", "*.bam"), List.copyOf(patternsCaptor.getValue()));
+    assertEquals(CONTENT_TYPE, response.getContentType());
+    ContentDisposition disposition =
+        ContentDisposition.parse(response.getHeader(HttpHeaders.CONTENT_DISPOSITION));
+    assertTrue(disposition.isAttachment());
+    assertEquals("JS1_ChIPseq_Spt16_yFR101_G24D_R1_20181022.zip", disposition.getFilename());
+    assertArrayEquals(content, response.getContentAsByteArray());
+  }
+
+  @Test
+  public void samplesArchive_NoPattern() throws Throwable {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    analysisArchives.samplesArchive(List.of(4L), null, response);
+
+    verify(service).samplesArchive(samplesCaptor.capture(), patternsCaptor.capture());
+    assertEquals(List.of(AnalysisArchives.ALL_FILES), List.copyOf(patternsCaptor.getValue()));
+    assertArrayEquals(content, response.getContentAsByteArray());
+  }
+
+  @Test
+  public void samplesArchive_NotFound() {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    when(sampleService.get(anyLong())).thenReturn(Optional.empty());
+
+    assertThrows(ResourceNotFoundException.class,
+        () -> analysisArchives.samplesArchive(List.of(4L), null, response));
+
+    verify(service, never()).samplesArchive(any(), any());
+  }
+
+  @Test
+  public void samplesArchive_Invalid() {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    when(service.samplesArchive(any(), any()))
+        .thenThrow(new IllegalArgumentException("sample JS1 has no files"));
+
+    ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+        () -> analysisArchives.samplesArchive(List.of(4L), null, response));
+
+    assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+    assertEquals("sample JS1 has no files", exception.getReason());
+    assertFalse(response.isCommitted());
+    assertNull(response.getHeader(HttpHeaders.CONTENT_DISPOSITION));
+    assertEquals(0, response.getContentAsByteArray().length);
+  }
+
+  @Test
+  public void samplesArchive_Mvc_Signin() {
+    MvcTestResultAssert resultAssert = mvc.get()
+        .uri("/" + REST_MAPPING + "/" + SAMPLES + "?id=4&id=5&pattern=*.fastq").assertThat();
+    resultAssert.hasStatus3xxRedirection();
+    resultAssert.hasRedirectedUrl("/signin");
+    verify(service, never()).samplesArchive(any(), any());
+  }
+
+  @Test
+  public void datasetsArchive() throws Throwable {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    analysisArchives.datasetsArchive(List.of(2L, 7L), List.of("*.fastq"), response);
+
+    verify(datasetService).get(2L);
+    verify(datasetService).get(7L);
+    verify(service).datasetsArchive(datasetsCaptor.capture(), patternsCaptor.capture());
+    assertEquals(List.of(2L, 7L),
+        datasetsCaptor.getValue().stream().map(Dataset::getId).toList());
+    assertEquals(List.of("*.fastq"), List.copyOf(patternsCaptor.getValue()));
+    assertEquals(CONTENT_TYPE, response.getContentType());
+    ContentDisposition disposition =
+        ContentDisposition.parse(response.getHeader(HttpHeaders.CONTENT_DISPOSITION));
+    assertTrue(disposition.isAttachment());
+    assertEquals("JS1_ChIPseq_Spt16_yFR101_G24D_R1_20181022.zip", disposition.getFilename());
+    assertArrayEquals(content, response.getContentAsByteArray());
+  }
+
+  @Test
+  public void datasetsArchive_NoPattern() throws Throwable {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    analysisArchives.datasetsArchive(List.of(2L), List.of(), response);
+
+    verify(service).datasetsArchive(datasetsCaptor.capture(), patternsCaptor.capture());
+    assertEquals(List.of(AnalysisArchives.ALL_FILES), List.copyOf(patternsCaptor.getValue()));
+  }
+
+  @Test
+  public void datasetsArchive_NotFound() {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    when(datasetService.get(anyLong())).thenReturn(Optional.empty());
+
+    assertThrows(ResourceNotFoundException.class,
+        () -> analysisArchives.datasetsArchive(List.of(2L), null, response));
+
+    verify(service, never()).datasetsArchive(any(), any());
+  }
+
+  @Test
+  public void datasetsArchive_Invalid() {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    when(service.datasetsArchive(any(), any()))
+        .thenThrow(new IllegalArgumentException("dataset has no files"));
+
+    ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+        () -> analysisArchives.datasetsArchive(List.of(2L), null, response));
+
+    assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+    assertEquals("dataset has no files", exception.getReason());
+    assertFalse(response.isCommitted());
+    assertNull(response.getHeader(HttpHeaders.CONTENT_DISPOSITION));
+    assertEquals(0, response.getContentAsByteArray().length);
+  }
+
+  @Test
+  public void datasetsArchive_Mvc_Signin() {
+    MvcTestResultAssert resultAssert = mvc.get()
+        .uri("/" + REST_MAPPING + "/" + DATASETS + "?id=2&pattern=*.fastq").assertThat();
+    resultAssert.hasStatus3xxRedirection();
+    resultAssert.hasRedirectedUrl("/signin");
+    verify(service, never()).datasetsArchive(any(), any());
+  }
+
+  @Test
+  public void samplesArchiveUrl() {
+    List<Sample> samples = List.of(sampleRepository.findById(4L).orElseThrow(),
+        sampleRepository.findById(5L).orElseThrow());
+    assertEquals("analysis-archive/samples?id=4&id=5&pattern=*.fastq&pattern=*.bam",
+        AnalysisArchives.samplesArchiveUrl(samples, List.of("*.fastq", "*.bam")));
+  }
+
+  @Test
+  public void samplesArchiveUrl_NoPattern() {
+    List<Sample> samples = List.of(sampleRepository.findById(4L).orElseThrow());
+    assertEquals("analysis-archive/samples?id=4",
+        AnalysisArchives.samplesArchiveUrl(samples, List.of()));
+  }
+
+  @Test
+  public void samplesArchiveUrl_Encoded() {
+    List<Sample> samples = List.of(sampleRepository.findById(4L).orElseThrow());
+    assertEquals("analysis-archive/samples?id=4&pattern=my%20file%5B12%5D.fastq",
+        AnalysisArchives.samplesArchiveUrl(samples, List.of("my file[12].fastq")));
+  }
+
+  @Test
+  public void datasetsArchiveUrl() {
+    List<Dataset> datasets = List.of(datasetRepository.findById(2L).orElseThrow());
+    assertEquals("analysis-archive/datasets?id=2&pattern=*.fastq",
+        AnalysisArchives.datasetsArchiveUrl(datasets, List.of("*.fastq")));
+  }
+}
@@ -0,0 +1,194 @@
+package ca.qc.ircm.lanaseq.dataset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import ca.qc.ircm.lanaseq.AppConfiguration;
+import ca.qc.ircm.lanaseq.DataWithFiles;
+import ca.qc.ircm.lanaseq.files.DriveResult;
+import ca.qc.ircm.lanaseq.files.FileListingCache;
+import ca.qc.ircm.lanaseq.security.PermissionEvaluatorDelegator;
+import ca.qc.ircm.lanaseq.test.config.ServiceTestAnnotations;
+import jakarta.persistence.EntityManager;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+/**
+ * Tests for {@link DatasetService} with file listing cache enabled.
+ *
+ * <p>Files created outside of {@link DatasetService} are not listed until the cache is refreshed, so
+ * these tests fail if a change made by {@link DatasetService} does not refresh the cache.</p>
+ */
+@ServiceTestAnnotations
+@WithUserDetails("jonh.smith@ircm.qc.ca")
+public class DatasetServiceFileCacheTest {
+
+  @TempDir
+  Path temporaryFolder;
+  @Autowired
+  private DatasetService service;
+  @Autowired
+  private DatasetRepository repository;
+  @Autowired
+  private FileListingCache fileListingCache;
+  @Autowired
+  private EntityManager entityManager;
+  @MockitoBean
+  private AppConfiguration configuration;
+  @MockitoBean
+  private PermissionEvaluatorDelegator permissionEvaluator;
+  @Mock
+  private BiConsumer<String, Double> progression;
+
+  /**
+   * Before test.
+   */
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  public void beforeTest() {
+    when(permissionEvaluator.hasPermission(any(), any(), any())).thenReturn(true);
+    when(permissionEvaluator.hasCollectionPermission(any(), any(), any())).thenReturn(true);
+    when(configuration.getHome()).thenReturn(mock(AppConfiguration.NetworkDrive.class));
+    when(configuration.getHome().getFolder()).thenReturn(temporaryFolder.resolve("home"));
+    when(configuration.getHome().folder(any(Dataset.class))).then(i -> {
+      Dataset dataset = i.getArgument(0);
+      return dataset != null ? temporaryFolder.resolve("home").resolve(dataset.getName()) : null;
+    });
+    when(configuration.getArchives()).thenReturn(List.of());
+    fileListingCache.invalidateAll();
+  }
+
+  private Path write(Path file) throws Throwable {
+    Files.createDirectories(file.getParent());
+    return Files.writeString(file, file.getFileName().toString());
+  }
+
+  @Test
+  public void files_Cached() throws Throwable {
+    Dataset dataset = repository.findById(1L).orElseThrow();
+    Path folder = configuration.getHome().folder(dataset);
+    Path file = write(folder.resolve("dataset_R1.fastq"));
+    assertEquals(List.of(file), service.files(dataset));
+
+    write(folder.resolve("dataset_R2.fastq"));
+
+    assertEquals(List.of(file), service.files(dataset));
+  }
+
+  @Test
+  public void files_SaveFiles() throws Throwable {
+    Dataset dataset = repository.findById(1L).orElseThrow();
+    Path folder = configuration.getHome().folder(dataset);
+    Path file1 = write(folder.resolve("dataset_R1.fastq"));
+    assertEquals(List.of(file1), service.files(dataset));
+    Path file2 = write(folder.resolve("dataset_R2.fastq"));
+    Path upload = write(temporaryFolder.resolve("upload").resolve("dataset.bw"));
+
+    service.saveFiles(dataset, List.of(upload), f -> f.getFileName().toString(), progression)
+        .join();
+
+    List<Path> files = service.files(dataset);
+    assertTrue(files.contains(file1));
+    assertTrue(files.contains(file2));
+    assertTrue(files.contains(folder.resolve("dataset.bw")));
+  }
+
+  @Test
+  @WithUserDetails("francois.robert@ircm.qc.ca")
+  public void files_Rename() throws Throwable {
+    Dataset dataset = repository.findById(1L).orElseThrow();
+    entityManager.detach(dataset);
+    Path folder = configuration.getHome().folder(dataset);
+    write(folder.resolve("dataset_R1.fastq"));
+    assertEquals(1, service.files(dataset).size());
+    write(folder.resolve("dataset_R2.fastq"));
+    dataset.setName("ChIPseq_Input_mytarget_yFR213_F56G_37C_sample1-FR2-FR3_20181020");
+
+    service.save(dataset);
+
+    Path renamed = configuration.getHome().folder(dataset);
+    List<Path> files = service.files(dataset);
+    assertEquals(2, files.size());
+    assertTrue(files.contains(renamed.resolve("dataset_R1.fastq")));
+    assertTrue(files.contains(renamed.resolve("dataset_R2.fastq")));
+  }
+
+  @Test
+  public void files_DeleteFile() throws Throwable {
+    Dataset dataset = repository.findById(4L).orElseThrow();
+    Path folder = configuration.getHome().folder(dataset);
+    Path file1 = write(folder.resolve("dataset_R1.fastq"));
+    Path file2 = write(folder.resolve("dataset_R2.fastq"));
+    assertEquals(2, service.files(dataset).size());
+    Path file3 = write(folder.resolve("dataset.bw"));
+
+    service.deleteFile(dataset, file1);
+
+    List<Path> files = service.files(dataset);
+    assertEquals(2, files.size());
+    assertTrue(files.contains(file2));
+    assertTrue(files.contains(file3));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void files_Listener_NestedDrives() throws Throwable {
+    AppConfiguration.NetworkDrive<DataWithFiles> archive =
+        mock(AppConfiguration.NetworkDrive.class);
+    Path archiveFolder = temporaryFolder.resolve("home").resolve("archives");
+    when(archive.getFolder()).thenReturn(archiveFolder);
+    when(archive.folder(any(Dataset.class))).then(i -> {
+      Dataset dataset = i.getArgument(0);
+      return dataset != null ? archiveFolder.resolve(dataset.getName()) : null;
+    });
+    when(configuration.getArchives()).thenReturn(List.of(archive));
+    Dataset dataset = repository.findById(1L).orElseThrow();
+    Path homeFile = write(configuration.getHome().folder(dataset).resolve("dataset_R1.fastq"));
+    Path archiveFile = write(archive.folder(dataset).resolve("dataset_R2.fastq"));
+    service.files(dataset, result -> {
+    }).get();
+    List<DriveResult<DataWithFiles, List<Path>>> results = new CopyOnWriteArrayList<>();
+
+    List<Path> files = service.files(dataset, results::add).get();
+
+    assertEquals(2, files.size());
+    assertEquals(2, results.size());
+    Map<AppConfiguration.NetworkDrive<DataWithFiles>, List<Path>> filesByDrive =
+        results.stream().collect(
+            Collectors.toMap(DriveResult::drive, result -> result.result().orElseThrow()));
+    assertEquals(List.of(homeFile), filesByDrive.get(configuration.getHome()));
+    assertEquals(List.of(archiveFile), filesByDrive.get(archive));
+  }
+
+  @TestConfiguration
+  static class FileCacheConfiguration {
+    @Bean
+    @Primary
+    FileListingCache fileListingCacheWithMaxAge() {
+      AppConfiguration configuration = mock(AppConfiguration.class);
+      when(configuration.getFileCacheMaxAge()).thenReturn(Duration.ofMinutes(5));
+      return new FileListingCache(configuration) {
+      };
+    }
+  }
+}
@@ -15,6 +15,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -24,21 +25,28 @@ import static org.mockito.Mockito.when;
 
 import ca.qc.ircm.lanaseq.AppConfiguration;
 import ca.qc.ircm.lanaseq.DataWithFiles;
+import ca.qc.ircm.lanaseq.files.DriveResult;
+import ca.qc.ircm.lanaseq.files.TransferProgress;
+import ca.qc.ircm.lanaseq.files.TransferProgression;
 import ca.qc.ircm.lanaseq.protocol.ProtocolRepository;
 import ca.qc.ircm.lanaseq.sample.Sample;
 import ca.qc.ircm.lanaseq.sample.SampleRepository;
 import ca.qc.ircm.lanaseq.sample.SampleService;
 import ca.qc.ircm.lanaseq.security.AuthenticatedUser;
+import ca.qc.ircm.lanaseq.security.PermissionEvaluatorDelegator;
 import ca.qc.ircm.lanaseq.test.config.ServiceTestAnnotations;
 import ca.qc.ircm.lanaseq.user.UserRepository;
 import jakarta.persistence.EntityManager;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.file.FileSystem;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.FileTime;
+import java.nio.file.spi.FileSystemProvider;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
@@ -46,14 +54,18 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.SystemUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
@@ -64,7 +76,6 @@ import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Sort.Direction;
 import org.springframework.data.domain.Sort.Order;
 import org.springframework.security.access.AccessDeniedException;
-import org.springframework.security.access.PermissionEvaluator;
 import org.springframework.security.test.context.support.WithAnonymousUser;
 import org.springframework.security.test.context.support.WithUserDetails;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
@@ -101,7 +112,7 @@ public class DatasetServiceTest {
   @Autowired
   private AuthenticatedUser authenticatedUser;
   @MockitoBean
-  private PermissionEvaluator permissionEvaluator;
+  private PermissionEvaluatorDelegator permissionEvaluator;
   @Mock
   private BiConsumer<String, Double> progression;
 
@@ -111,6 +122,7 @@ public class DatasetServiceTest {
   @BeforeEach
   public void beforeTest() {
     when(permissionEvaluator.hasPermission(any(), any(), any())).thenReturn(true);
+    when(permissionEvaluator.hasCollectionPermission(any(), any(), any())).thenReturn(true);
     @SuppressWarnings("unchecked") AppConfiguration.NetworkDrive<DataWithFiles> homeFolder = mock(
         AppConfiguration.NetworkDrive.class);
     when(configuration.getHome()).thenReturn(homeFolder);
@@ -735,7 +747,8 @@ public class DatasetServiceTest {
 
     List<Path> files = service.files(dataset);
 
-    verify(configuration.getHome(), times(2)).getFolder();
+    // Drive folders are also read to exclude files of nested drives.
+    verify(configuration.getHome(), times(5)).getFolder();
     assertEquals(2, files.size());
     assertTrue(files.contains(folder.resolve("OF_20241118_ROB.raw")));
     assertTrue(files.contains(folder.resolve("A_OF_20241118_ROB_01.raw")));
@@ -802,6 +815,28 @@ public class DatasetServiceTest {
     verify(permissionEvaluator).hasPermission(any(), eq(dataset), eq(READ));
   }
 
+  @Test
+  public void files_ArchiveTimeout() throws Throwable {
+    when(configuration.getDriveTimeout()).thenReturn(Duration.ofMillis(200));
+    Dataset dataset = repository.findById(1L).orElseThrow();
+    Path folder = configuration.getHome().folder(dataset);
+    Files.createDirectories(folder);
+    Files.createFile(folder.resolve("dataset_R1.fastq"));
+    Path archive = configuration.getArchives().get(0).folder(dataset);
+    Files.createDirectories(archive);
+    Files.createFile(archive.resolve("dataset_R2.fastq"));
+    when(configuration.getArchives().get(0).folder(any(Dataset.class))).then(i -> {
+      Thread.sleep(5000);
+      return archive;
+    });
+
+    List<Path> files = service.files(dataset);
+
+    assertEquals(1, files.size());
+    assertTrue(files.contains(folder.resolve("dataset_R1.fastq")));
+    verify(permissionEvaluator).hasPermission(any(), eq(dataset), eq(READ));
+  }
+
   @Test
   public void files_ArchivesSameFilename() throws Throwable {
     Dataset dataset = repository.findById(1L).orElseThrow();
@@ -844,9 +879,10 @@ public class DatasetServiceTest {
 
     List<Path> files = service.files(dataset);
 
-    verify(configuration.getHome()).getFolder();
-    verify(configuration.getArchives().get(0), times(2)).getFolder();
-    verify(configuration.getArchives().get(1), times(2)).getFolder();
+    // Drive folders are also read to exclude files of nested drives.
+    verify(configuration.getHome(), times(4)).getFolder();
+    verify(configuration.getArchives().get(0), times(5)).getFolder();
+    verify(configuration.getArchives().get(1), times(5)).getFolder();
     assertEquals(2, files.size());
     folder = configuration.getArchives().get(0).getFolder().resolve("otherdirectory");
     assertTrue(files.contains(folder.resolve("OF_20241118_ROB.raw")));
@@ -871,6 +907,116 @@ public class DatasetServiceTest {
     verify(permissionEvaluator).hasPermission(any(), eq(dataset), eq(READ));
   }
 
+  @Test
+  public void allFiles() throws Throwable {
+    Dataset dataset1 = repository.findById(1L).orElseThrow();
+    Dataset dataset2 = repository.findById(2L).orElseThrow();
+    Path folder1 = configuration.getHome().folder(dataset1);
+    Files.createDirectories(folder1);
+    Files.createFile(folder1.resolve("dataset1_R1.fastq"));
+    Path folder2 = configuration.getArchives().get(0).folder(dataset2);
+    Files.createDirectories(folder2);
+    Files.createFile(folder2.resolve("dataset2_R1.fastq"));
+    Files.createFile(folder2.resolve(".deleted"));
+
+    Map<Dataset, List<Path>> files = service.allFiles(List.of(dataset1, dataset2));
+
+    assertEquals(2, files.size());
+    assertEquals(List.of(folder1.resolve("dataset1_R1.fastq")), files.get(dataset1));
+    assertEquals(List.of(folder2.resolve("dataset2_R1.fastq")), files.get(dataset2));
+    verify(permissionEvaluator).hasCollectionPermission(any(), eq(List.of(dataset1, dataset2)),
+        eq(READ));
+  }
+
+  @Test
+  public void allFiles_Filenames() throws Throwable {
+    Dataset dataset = repository.findById(2L).orElseThrow();
+    Dataset other = repository.findById(1L).orElseThrow();
+    Path folder = configuration.getArchives().get(0).getFolder().resolve("otherdirectory");
+    Files.createDirectories(folder);
+    Files.createFile(folder.resolve("OF_20241118_ROB.raw"));
+
+    Map<Dataset, List<Path>> files = service.allFiles(List.of(other, dataset));
+
+    assertEquals(List.of(other, dataset), List.copyOf(files.keySet()));
+    assertEquals(List.of(folder.resolve("OF_20241118_ROB.raw")), files.get(dataset));
+    assertTrue(files.get(other).isEmpty());
+    // Drive folders are also read to exclude files of nested drives.
+    verify(configuration.getHome(), times(4)).getFolder();
+    verify(configuration.getArchives().get(0), times(5)).getFolder();
+    verify(configuration.getArchives().get(1), times(4)).getFolder();
+  }
+
+  @Test
+  public void allFiles_Empty() {
+    Map<Dataset, List<Path>> files = service.allFiles(List.of());
+
+    assertTrue(files.isEmpty());
+  }
+
+  @Test
+  public void files_Listener() throws Throwable {
+    Dataset dataset = repository.findById(1L).orElseThrow();
+    Path home = configuration.getHome().folder(dataset);
+    Files.createDirectories(home);
+    Files.createFile(home.resolve("dataset_R1.fastq"));
+    Path archive = configuration.getArchives().get(0).folder(dataset);
+    Files.createDirectories(archive);
+    Files.createFile(archive.resolve("dataset_R2.fastq"));
+    List<DriveResult<DataWithFiles, List<Path>>> results = new CopyOnWriteArrayList<>();
+
+    List<Path> files = service.files(dataset, results::add).get();
+
+    assertEquals(2, files.size());
+    assertTrue(files.contains(home.resolve("dataset_R1.fastq")));
+    assertTrue(files.contains(archive.resolve("dataset_R2.fastq")));
+    assertEquals(3, results.size());
+    Map<AppConfiguration.NetworkDrive<DataWithFiles>, List<Path>> filesByDrive = results.stream().collect(
+        Collectors.toMap(DriveResult::drive, result -> result.result().orElseThrow()));
+    assertEquals(List.of(home.resolve("dataset_R1.fastq")),
+        filesByDrive.get(configuration.getHome()));
+    assertEquals(List.of(archive.resolve("dataset_R2.fastq")),
+        filesByDrive.get(configuration.getArchives().get(0)));
+    assertEquals(List.of(), filesByDrive.get(configuration.getArchives().get(1)));
+    verify(permissionEvaluator).hasPermission(any(), eq(dataset), eq(READ));
+  }
+
+  @Test
+  public void files_Listener_ArchiveTimeout() throws Throwable {
+    when(configuration.getDriveTimeout()).thenReturn(Duration.ofMillis(200));
+    Dataset dataset = repository.findById(1L).orElseThrow();
+    Path home = configuration.getHome().folder(dataset);
+    Files.createDirectories(home);
+    Files.createFile(home.resolve("dataset_R1.fastq"));
+    Path archive = configuration.getArchives().get(0).folder(dataset);
+    when(configuration.getArchives().get(0).folder(any(Dataset.class))).then(i -> {
+      Thread.sleep(5000);
+      return archive;
+    });
+    List<DriveResult<DataWithFiles, List<Path>>> results = new CopyOnWriteArrayList<>();
+
+    List<Path> files = service.files(dataset, results::add).get();
+
+    assertEquals(List.of(home.resolve("dataset_R1.fastq")), files);
+    assertEquals(3, results.size());
+    DriveResult<DataWithFiles, List<Path>> last = results.get(2);
+    assertEquals(configuration.getArchives().get(0), last.drive());
+    assertFalse(last.isAvailable());
+    assertTrue(results.get(0).isAvailable());
+    assertTrue(results.get(1).isAvailable());
+  }
+
+  @Test
+  public void files_Listener_NewDataset() throws Throwable {
+    List<DriveResult<DataWithFiles, List<Path>>> results = new CopyOnWriteArrayList<>();
+
+    List<Path> files = service.files(new Dataset(), results::add).get();
+
+    assertTrue(files.isEmpty());
+    assertEquals(3, results.size());
+    assertTrue(results.stream().allMatch(result -> result.result().orElseThrow().isEmpty()));
+  }
+
   @Test
   public void files_NewDataset() {
     List<Path> files = service.files(new Dataset());
@@ -1171,6 +1317,39 @@ public class DatasetServiceTest {
     assertEquals(file, path);
     assertTrue(Files.isRegularFile(path));
   }
+  @Test
+  @WithAnonymousUser
+  public void publicFile_ArchiveHangs() throws IOException, URISyntaxException {
+    when(configuration.getDriveTimeout()).thenReturn(Duration.ofMillis(200));
+    Dataset dataset = repository.findById(6L).orElseThrow();
+    Path folder = configuration.getArchives().get(1).folder(dataset);
+    Files.createDirectories(folder);
+    Path file = folder.resolve("ChIPseq_Spt16_yFR101_G24D_JS1_20181208.bw");
+    Files.copy(
+        Paths.get(Objects.requireNonNull(getClass().getResource("/sample/R1.fastq")).toURI()), file,
+        StandardCopyOption.REPLACE_EXISTING);
+    // Reading attributes of files on first archive never completes in time.
+    FileSystemProvider provider = mock(FileSystemProvider.class, i -> {
+      Thread.sleep(5000);
+      return null;
+    });
+    FileSystem fileSystem = mock(FileSystem.class);
+    when(fileSystem.provider()).thenReturn(provider);
+    Path hangingFile = mock(Path.class);
+    when(hangingFile.getFileSystem()).thenReturn(fileSystem);
+    Path hangingFolder = mock(Path.class);
+    when(hangingFolder.resolve(anyString())).thenReturn(hangingFile);
+    when(configuration.getArchives().get(0).folder(any(Dataset.class))).thenReturn(hangingFolder);
+    long start = System.nanoTime();
+
+    Optional<Path> optionalPath = service.publicFile(dataset.getName(),
+        "ChIPseq_Spt16_yFR101_G24D_JS1_20181208.bw");
+
+    assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(2)) < 0);
+    assertTrue(optionalPath.isPresent());
+    assertEquals(file, optionalPath.orElseThrow());
+  }
+
 
   @Test
   @WithAnonymousUser
@@ -1830,6 +2009,8 @@ public class DatasetServiceTest {
         Paths.get(Objects.requireNonNull(getClass().getResource("/sample/R2.fastq")).toURI()),
         file);
     files.add(file);
+    final long size1 = Files.size(files.get(0));
+    final long size2 = Files.size(files.get(1));
 
     service.saveFiles(dataset, files, f -> f.getFileName().toString(), progression).join();
 
@@ -1845,8 +2026,8 @@ public class DatasetServiceTest {
     assertArrayEquals(Files.readAllBytes(
             Paths.get(Objects.requireNonNull(getClass().getResource("/sample/R2.fastq")).toURI())),
         Files.readAllBytes(folder.resolve("dataset_R2.fastq")));
-    verify(progression).accept("dataset_R1.fastq", 0.0);
-    verify(progression).accept("dataset_R2.fastq", 0.5);
+    verify(progression).accept("dataset_R1.fastq (move)", 0.0);
+    verify(progression).accept("dataset_R2.fastq (move)", (double) size1 / (size1 + size2));
     verify(progression).accept("", 1.0);
     verify(permissionEvaluator).hasPermission(any(), eq(dataset), eq(WRITE));
   }
@@ -1865,6 +2046,8 @@ public class DatasetServiceTest {
         Paths.get(Objects.requireNonNull(getClass().getResource("/sample/R2.fastq")).toURI()),
         file);
     files.add(file);
+    final long size1 = Files.size(files.get(0));
+    final long size2 = Files.size(files.get(1));
 
     service.saveFiles(dataset, files, f -> f.getFileName().toString().substring(4), progression)
         .join();
@@ -1881,12 +2064,68 @@ public class DatasetServiceTest {
     assertArrayEquals(Files.readAllBytes(
             Paths.get(Objects.requireNonNull(getClass().getResource("/sample/R2.fastq")).toURI())),
         Files.readAllBytes(folder.resolve("set_R2.fastq")));
-    verify(progression).accept("set_R1.fastq", 0.0);
-    verify(progression).accept("set_R2.fastq", 0.5);
+    verify(progression).accept("set_R1.fastq (move)", 0.0);
+    verify(progression).accept("set_R2.fastq (move)", (double) size1 / (size1 + size2));
     verify(progression).accept("", 1.0);
     verify(permissionEvaluator).hasPermission(any(), eq(dataset), eq(WRITE));
   }
 
+  @Test
+  public void saveFiles_Concurrent() throws Throwable {
+    final Dataset dataset = repository.findById(1L).orElseThrow();
+    when(configuration.getHome().getConcurrency()).thenReturn(2);
+    List<Path> files = new ArrayList<>();
+    for (int i = 1; i <= 4; i++) {
+      Path file = temporaryFolder.resolve("dataset_R" + i + ".fastq");
+      Files.write(file, ("content " + i).getBytes());
+      files.add(file);
+    }
+
+    service.saveFiles(dataset, files, f -> f.getFileName().toString(), progression).join();
+
+    Path folder = configuration.getHome().folder(dataset);
+    for (int i = 1; i <= 4; i++) {
+      assertFalse(Files.exists(files.get(i - 1)));
+      assertArrayEquals(("content " + i).getBytes(),
+          Files.readAllBytes(folder.resolve("dataset_R" + i + ".fastq")));
+    }
+    verify(progression).accept("", 1.0);
+    verify(permissionEvaluator).hasPermission(any(), eq(dataset), eq(WRITE));
+  }
+
+  @Test
+  public void saveFiles_TransferProgression() throws Throwable {
+    final Dataset dataset = repository.findById(1L).orElseThrow();
+    List<Path> files = new ArrayList<>();
+    Path file = temporaryFolder.resolve("dataset_R1.fastq");
+    Files.copy(
+        Paths.get(Objects.requireNonNull(getClass().getResource("/sample/R1.fastq")).toURI()),
+        file);
+    files.add(file);
+    file = temporaryFolder.resolve("dataset_R2.fastq");
+    Files.copy(
+        Paths.get(Objects.requireNonNull(getClass().getResource("/sample/R2.fastq")).toURI()),
+        file);
+    files.add(file);
+    final long size1 = Files.size(files.get(0));
+    final long size2 = Files.size(files.get(1));
+    TransferProgression transferProgression = mock(TransferProgression.class);
+
+    service.saveFiles(dataset, files, f -> f.getFileName().toString(), transferProgression).join();
+
+    ArgumentCaptor<TransferProgress> progressCaptor =
+        ArgumentCaptor.forClass(TransferProgress.class);
+    verify(transferProgression, times(3)).transferred(progressCaptor.capture());
+    List<TransferProgress> progresses = progressCaptor.getAllValues();
+    assertEquals(0, progresses.get(0).bytes());
+    assertEquals(size1 + size2, progresses.get(0).totalBytes());
+    assertEquals(size1, progresses.get(1).bytes());
+    assertEquals(size1 + size2, progresses.get(1).totalBytes());
+    assertEquals(size1 + size2, progresses.get(2).bytes());
+    assertEquals(size1 + size2, progresses.get(2).totalBytes());
+    assertEquals(Duration.ZERO, progresses.get(2).remaining());
+  }
+
   @Test
   public void allowPublicFileAccess_NewFullPath() {
     Dataset dataset = repository.findById(2L).orElseThrow();
@@ -2,6 +2,7 @@ package ca.qc.ircm.lanaseq.dataset.web;
 
 import static ca.qc.ircm.lanaseq.Constants.REFRESH;
 import static ca.qc.ircm.lanaseq.Constants.SAVE;
+import static ca.qc.ircm.lanaseq.Constants.TOO_MANY_JOBS;
 import static ca.qc.ircm.lanaseq.Constants.messagePrefix;
 import static ca.qc.ircm.lanaseq.dataset.web.AddDatasetFilesDialog.FILENAME;
 import static ca.qc.ircm.lanaseq.dataset.web.AddDatasetFilesDialog.FILES;
@@ -47,6 +48,7 @@ import ca.qc.ircm.lanaseq.sample.SampleService;
 import ca.qc.ircm.lanaseq.test.config.ServiceTestAnnotations;
 import ca.qc.ircm.lanaseq.test.config.UserAgent;
 import ca.qc.ircm.lanaseq.web.SavedEvent;
+import ca.qc.ircm.lanaseq.web.WarningNotification;
 import com.vaadin.browserless.MetaKeys;
 import com.vaadin.browserless.SpringBrowserlessTest;
 import com.vaadin.flow.component.AbstractField.ComponentValueChangeEvent;
@@ -87,6 +89,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.security.test.context.support.WithUserDetails;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 
@@ -584,6 +587,29 @@ public class AddDatasetFilesDialogTest extends SpringBrowserlessTest {
     assertFalse(dialog.isOpened());
   }
 
+  @Test
+  public void save_TooManyJobs() {
+    when(service.files(any())).thenReturn(new ArrayList<>());
+    when(service.uploadFiles(any())).thenReturn(
+        files.subList(0, 2).stream().map(file -> folder.resolve(file.toPath()))
+            .collect(Collectors.toList()));
+    when(service.saveFiles(any(), any(), any(), any()))
+        .thenThrow(new TaskRejectedException("test"));
+    dialog.addSavedListener(savedListener);
+    Dataset dataset = repository.findById(1L).orElseThrow();
+    dialog.setDatasetId(1L);
+    dialog.open();
+
+    dialog.save();
+
+    verify(service).saveFiles(eq(dataset), any(), any(), any());
+    verify(jobService, never()).addJob(any());
+    WarningNotification notification = $(WarningNotification.class).first();
+    assertEquals(dialog.getTranslation(CONSTANTS_PREFIX + TOO_MANY_JOBS), notification.getText());
+    verify(savedListener, never()).onComponentEvent(any());
+    assertTrue(dialog.isOpened());
+  }
+
   @Test
   public void save_AsyncException() {
     when(service.files(any())).thenReturn(new ArrayList<>());
@@ -4,6 +4,7 @@ import static ca.qc.ircm.lanaseq.AppConfiguration.DELETED_FILENAME;
 import static ca.qc.ircm.lanaseq.Constants.messagePrefix;
 import static ca.qc.ircm.lanaseq.dataset.web.DatasetFilesDialog.FILES_SAVE;
 import static ca.qc.ircm.lanaseq.test.utils.VaadinTestUtils.editItem;
+import static ca.qc.ircm.lanaseq.test.utils.VaadinTestUtils.runPendingAccessTasks;
 import static ca.qc.ircm.lanaseq.time.TimeConverter.toInstant;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -92,6 +93,7 @@ public class DatasetFilesDialogIT extends SpringBrowserlessTest {
     test(view.datasets).select(3);
     test(view.files).click();
     DatasetFilesDialog dialog = $(DatasetFilesDialog.class).first();
+    waitForFiles(dialog);
     List<Span> labels = test(dialog.folders).find(Span.class).all();
     Assertions.assertEquals(2, labels.size());
     Assertions.assertEquals(configuration.getHome().label(dataset, !SystemUtils.IS_OS_WINDOWS),
@@ -127,8 +129,9 @@ public class DatasetFilesDialogIT extends SpringBrowserlessTest {
     test(view.datasets).select(3);
     test(view.files).click();
     DatasetFilesDialog dialog = $(DatasetFilesDialog.class).first();
+    waitForFiles(dialog);
 
-    EditableFile editableFile = dialog.files.getListDataView().getItem(0);
+    EditableFile editableFile = dialog.files.getGenericDataView().getItem(0);
     EditorImpl<EditableFile> editor = (EditorImpl<EditableFile>) dialog.files.getEditor();
     editItem(editor, editableFile);
     dialog.filenameEdit.setValue(dataset.getName() + "_R1.fastq");
@@ -154,6 +157,7 @@ public class DatasetFilesDialogIT extends SpringBrowserlessTest {
     test(view.datasets).select(1);
     test(view.files).click();
     DatasetFilesDialog dialog = $(DatasetFilesDialog.class).first();
+    waitForFiles(dialog);
     assertFalse(
         ((Checkbox) test(dialog.files).getCellComponent(0, dialog.publicFile.getKey())).getValue());
 
@@ -184,6 +188,7 @@ public class DatasetFilesDialogIT extends SpringBrowserlessTest {
     test(view.datasets).select(3);
     test(view.files).click();
     DatasetFilesDialog dialog = $(DatasetFilesDialog.class).first();
+    waitForFiles(dialog);
 
     test(test(dialog.files).getCellComponent(0, dialog.delete.getKey())).click();
 
@@ -218,6 +223,8 @@ public class DatasetFilesDialogIT extends SpringBrowserlessTest {
     test(view.datasets).select(3);
     test(view.files).click();
     DatasetFilesDialog dialog = $(DatasetFilesDialog.class).first();
+    waitForFiles(dialog);
+    Assertions.assertEquals(0, test(dialog.files).size());
     Dataset dataset = repository.findById(2L).orElseThrow();
     Path home = configuration.getHome().folder(dataset);
     Files.createDirectories(home);
@@ -225,9 +232,9 @@ public class DatasetFilesDialogIT extends SpringBrowserlessTest {
     Files.copy(
         Paths.get(Objects.requireNonNull(getClass().getResource("/sample/R1.fastq")).toURI()),
         file1);
-    Assertions.assertEquals(0, test(dialog.files).size());
 
     test(dialog.refresh).click();
+    waitForFiles(dialog);
 
     Assertions.assertEquals(1, test(dialog.files).size());
     Assertions.assertEquals(file1.getFileName().toString(),
@@ -273,4 +280,18 @@ public class DatasetFilesDialogIT extends SpringBrowserlessTest {
         Files.readAllBytes(folder.resolve(file1.getFileName())));
     Assertions.assertEquals(1, jobService.getJobs().size());
   }
+
+  /**
+   * Waits until files of all drives are listed and shown in dialog.
+   *
+   * @param dialog dialog
+   */
+  private void waitForFiles(DatasetFilesDialog dialog) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10000;
+    runPendingAccessTasks();
+    while (dialog.loading.getComponentCount() > 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+      runPendingAccessTasks();
+    }
+  }
 }
@@ -5,6 +5,7 @@ import static ca.qc.ircm.lanaseq.Constants.DELETE;
 import static ca.qc.ircm.lanaseq.Constants.DOWNLOAD;
 import static ca.qc.ircm.lanaseq.Constants.REFRESH;
 import static ca.qc.ircm.lanaseq.Constants.REQUIRED;
+import static ca.qc.ircm.lanaseq.Constants.TOO_MANY_JOBS;
 import static ca.qc.ircm.lanaseq.Constants.UPLOAD;
 import static ca.qc.ircm.lanaseq.Constants.messagePrefix;
 import static ca.qc.ircm.lanaseq.dataset.DatasetProperties.SAMPLES;
@@ -18,9 +19,13 @@ import static ca.qc.ircm.lanaseq.dataset.web.DatasetFilesDialog.FILE_COUNT;
 import static ca.qc.ircm.lanaseq.dataset.web.DatasetFilesDialog.FOLDERS;
 import static ca.qc.ircm.lanaseq.dataset.web.DatasetFilesDialog.HEADER;
 import static ca.qc.ircm.lanaseq.dataset.web.DatasetFilesDialog.ID;
+import static ca.qc.ircm.lanaseq.dataset.web.DatasetFilesDialog.LOADING;
+import static ca.qc.ircm.lanaseq.dataset.web.DatasetFilesDialog.LOADING_UNAVAILABLE;
 import static ca.qc.ircm.lanaseq.dataset.web.DatasetFilesDialog.MAXIMUM_SMALL_FILES_COUNT;
 import static ca.qc.ircm.lanaseq.dataset.web.DatasetFilesDialog.MAXIMUM_SMALL_FILES_SIZE;
 import static ca.qc.ircm.lanaseq.dataset.web.DatasetFilesDialog.MESSAGE;
+import static ca.qc.ircm.lanaseq.dataset.web.DatasetFilesDialog.MODIFIED;
+import static ca.qc.ircm.lanaseq.dataset.web.DatasetFilesDialog.SIZE;
 import static ca.qc.ircm.lanaseq.dataset.web.DatasetFilesDialog.id;
 import static ca.qc.ircm.lanaseq.sample.SampleProperties.NAME;
 import static ca.qc.ircm.lanaseq.sample.web.SampleFilesDialog.PUBLIC_FILE;
@@ -31,8 +36,11 @@ import static ca.qc.ircm.lanaseq.test.utils.VaadinTestUtils.findValidationStatus
 import static ca.qc.ircm.lanaseq.test.utils.VaadinTestUtils.items;
 import static ca.qc.ircm.lanaseq.test.utils.VaadinTestUtils.properties;
 import static ca.qc.ircm.lanaseq.test.utils.VaadinTestUtils.rendererTemplate;
+import static ca.qc.ircm.lanaseq.test.utils.VaadinTestUtils.runPendingAccessTasks;
 import static ca.qc.ircm.lanaseq.test.utils.VaadinTestUtils.validateEquals;
 import static ca.qc.ircm.lanaseq.test.utils.VaadinTestUtils.validateIcon;
+import static ca.qc.ircm.lanaseq.time.TimeConverter.toInstant;
+import static ca.qc.ircm.lanaseq.time.TimeConverter.toLocalDateTime;
 import static ca.qc.ircm.lanaseq.web.UploadInternationalization.englishUploadI18N;
 import static ca.qc.ircm.lanaseq.web.UploadInternationalization.frenchUploadI18N;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
@@ -50,7 +58,9 @@ import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -61,7 +71,11 @@ import ca.qc.ircm.lanaseq.DataWithFiles;
 import ca.qc.ircm.lanaseq.dataset.Dataset;
 import ca.qc.ircm.lanaseq.dataset.DatasetRepository;
 import ca.qc.ircm.lanaseq.dataset.DatasetService;
+import ca.qc.ircm.lanaseq.files.DriveResult;
+import ca.qc.ircm.lanaseq.files.FileSorting;
 import ca.qc.ircm.lanaseq.jobs.Job;
+import ca.qc.ircm.lanaseq.jobs.JobEvent;
+import ca.qc.ircm.lanaseq.jobs.JobEventBus;
 import ca.qc.ircm.lanaseq.jobs.JobService;
 import ca.qc.ircm.lanaseq.sample.Sample;
 import ca.qc.ircm.lanaseq.sample.SampleRepository;
@@ -70,6 +84,7 @@ import ca.qc.ircm.lanaseq.sample.web.SampleFilesDialog;
 import ca.qc.ircm.lanaseq.test.config.ServiceTestAnnotations;
 import ca.qc.ircm.lanaseq.test.config.UserAgent;
 import ca.qc.ircm.lanaseq.web.EditableFile;
+import ca.qc.ircm.lanaseq.web.WarningNotification;
 import com.vaadin.browserless.MetaKeys;
 import com.vaadin.browserless.SpringBrowserlessTest;
 import com.vaadin.flow.component.Component;
@@ -78,6 +93,7 @@ import com.vaadin.flow.component.button.Button;
 import com.vaadin.flow.component.button.ButtonVariant;
 import com.vaadin.flow.component.checkbox.Checkbox;
 import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.grid.GridSortOrder;
 import com.vaadin.flow.component.grid.HeaderRow;
 import com.vaadin.flow.component.grid.editor.Editor;
 import com.vaadin.flow.component.grid.editor.EditorImpl;
@@ -88,18 +104,24 @@ import com.vaadin.flow.component.notification.Notification;
 import com.vaadin.flow.data.binder.BinderValidationStatus;
 import com.vaadin.flow.data.binder.BindingValidationStatus;
 import com.vaadin.flow.data.provider.ListDataProvider;
+import com.vaadin.flow.data.provider.QuerySortOrder;
 import com.vaadin.flow.data.provider.SortDirection;
 import com.vaadin.flow.data.renderer.LitRenderer;
 import com.vaadin.flow.data.renderer.Renderer;
+import com.vaadin.flow.theme.lumo.LumoUtility.TextColor;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.Period;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
@@ -110,9 +132,10 @@ import java.util.Optional;
 import java.util.Random;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -123,6 +146,7 @@ import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.test.context.support.WithUserDetails;
@@ -149,6 +173,10 @@ public class DatasetFilesDialogTest extends SpringBrowserlessTest {
   private AppConfiguration configuration;
   @MockitoBean
   private JobService jobService;
+  @MockitoBean
+  private JobEventBus jobEventBus;
+  @Captor
+  private ArgumentCaptor<Consumer<JobEvent>> jobEventsListenerCaptor;
   @Captor
   private ArgumentCaptor<Collection<Path>> filesCaptor;
   @Captor
@@ -164,6 +192,8 @@ public class DatasetFilesDialogTest extends SpringBrowserlessTest {
   @Captor
   private ArgumentCaptor<Job> jobCaptor;
   @Captor
+  private ArgumentCaptor<Consumer<DriveResult<DataWithFiles, List<Path>>>> listenerCaptor;
+  @Captor
   private ArgumentCaptor<BiConsumer<String, Double>> progressionCaptor;
   private final Locale locale = Locale.ENGLISH;
   private final List<File> files = new ArrayList<>();
@@ -190,8 +220,14 @@ public class DatasetFilesDialogTest extends SpringBrowserlessTest {
     files.add(new File(defaultDataset.getName(), "ChIPseq_Spt16_yFR101_G24D_JS1-JS2_20181022.bw"));
     files.add(new File("archives", "sample.png"));
     samples = sampleRepository.findAll();
-    when(service.files(any())).thenReturn(
-        files.stream().map(File::toPath).collect(Collectors.toList()));
+    when(service.files(any(), any(Consumer.class))).then(i -> {
+      Consumer<DriveResult<DataWithFiles, List<Path>>> listener = i.getArgument(1);
+      List<Path> paths = files.stream().map(File::toPath).toList();
+      listener.accept(new DriveResult<>(configuration.getHome(), Optional.of(paths)));
+      configuration.getArchives()
+          .forEach(drive -> listener.accept(new DriveResult<>(drive, Optional.of(List.of()))));
+      return CompletableFuture.completedFuture(paths);
+    });
     labels.add("\\\\lanaseq01\\lanaseq");
     labels.add("\\\\lanaseq01\\archives");
     labels.add("\\\\lanaseq02\\archives2");
@@ -238,10 +274,7 @@ public class DatasetFilesDialogTest extends SpringBrowserlessTest {
     view.datasets.setItems(repository.findAll());
     test(view.datasets).clickRow(1, new MetaKeys().ctrl());
     dialog = $(DatasetFilesDialog.class).first();
-  }
-
-  private EditableFile editableFile(String filename) {
-    return new EditableFile(new File(filename));
+    runPendingAccessTasks();
   }
 
   private Sample sampleName(String name) {
@@ -266,6 +299,7 @@ public class DatasetFilesDialogTest extends SpringBrowserlessTest {
     assertEquals(ID, dialog.getId().orElse(""));
     assertEquals(id(MESSAGE), dialog.message.getId().orElse(""));
     assertEquals(id(FOLDERS), dialog.folders.getId().orElse(""));
+    assertEquals(id(LOADING), dialog.loading.getId().orElse(""));
     assertEquals(id(FILES), dialog.files.getId().orElse(""));
     assertEquals(id(FILENAME), dialog.filenameEdit.getId().orElse(""));
     assertEquals(id(SAMPLES), dialog.samples.getId().orElse(""));
@@ -290,6 +324,10 @@ public class DatasetFilesDialogTest extends SpringBrowserlessTest {
     HeaderRow headerRow = dialog.files.getHeaderRows().get(0);
     assertEquals(dialog.getTranslation(MESSAGE_PREFIX + FILENAME),
         headerRow.getCell(dialog.filename).getText());
+    assertEquals(dialog.getTranslation(MESSAGE_PREFIX + SIZE),
+        headerRow.getCell(dialog.size).getText());
+    assertEquals(dialog.getTranslation(MESSAGE_PREFIX + MODIFIED),
+        headerRow.getCell(dialog.modified).getText());
     assertEquals(dialog.getTranslation(CONSTANTS_PREFIX + DOWNLOAD),
         headerRow.getCell(dialog.download).getText());
     assertEquals(dialog.getTranslation(MESSAGE_PREFIX + PUBLIC_FILE),
@@ -323,6 +361,10 @@ public class DatasetFilesDialogTest extends SpringBrowserlessTest {
     HeaderRow headerRow = dialog.files.getHeaderRows().get(0);
     assertEquals(dialog.getTranslation(MESSAGE_PREFIX + FILENAME),
         headerRow.getCell(dialog.filename).getText());
+    assertEquals(dialog.getTranslation(MESSAGE_PREFIX + SIZE),
+        headerRow.getCell(dialog.size).getText());
+    assertEquals(dialog.getTranslation(MESSAGE_PREFIX + MODIFIED),
+        headerRow.getCell(dialog.modified).getText());
     assertEquals(dialog.getTranslation(CONSTANTS_PREFIX + DOWNLOAD),
         headerRow.getCell(dialog.download).getText());
     assertEquals(dialog.getTranslation(MESSAGE_PREFIX + PUBLIC_FILE),
@@ -408,16 +450,20 @@ public class DatasetFilesDialogTest extends SpringBrowserlessTest {
 
   @Test
   public void files() {
-    assertEquals(4, dialog.files.getColumns().size());
+    assertEquals(6, dialog.files.getColumns().size());
     assertNotNull(dialog.files.getColumnByKey(FILENAME));
     assertTrue(dialog.files.getColumnByKey(FILENAME).isSortable());
+    assertNotNull(dialog.files.getColumnByKey(SIZE));
+    assertTrue(dialog.files.getColumnByKey(SIZE).isSortable());
+    assertNotNull(dialog.files.getColumnByKey(MODIFIED));
+    assertTrue(dialog.files.getColumnByKey(MODIFIED).isSortable());
     assertNotNull(dialog.files.getColumnByKey(DOWNLOAD));
     assertFalse(dialog.files.getColumnByKey(DOWNLOAD).isSortable());
     assertNotNull(dialog.files.getColumnByKey(PUBLIC_FILE));
     assertFalse(dialog.files.getColumnByKey(PUBLIC_FILE).isSortable());
     assertNotNull(dialog.files.getColumnByKey(DELETE));
     assertFalse(dialog.files.getColumnByKey(DELETE).isSortable());
-    List<EditableFile> files = dialog.files.getListDataView().getItems().toList();
+    List<EditableFile> files = items(dialog.files);
     assertEquals(this.files.size(), files.size());
     for (File file : this.files) {
       assertTrue(files.stream().anyMatch(ef -> ef.getFile().equals(file)));
@@ -428,6 +474,7 @@ public class DatasetFilesDialogTest extends SpringBrowserlessTest {
   public void files_ColumnsValueProvider() {
     Dataset dataset = repository.findById(2L).orElseThrow();
     dialog.setDatasetId(2L);
+    runPendingAccessTasks();
     when(service.isFilePublic(any(), any())).then(
         i -> files.indexOf(((Path) i.getArgument(1)).toFile()) > 2);
     for (int i = 0; i < files.size(); i++) {
@@ -448,6 +495,12 @@ public class DatasetFilesDialogTest extends SpringBrowserlessTest {
       } else {
         assertEquals(file.getFilename(), properties(filenameRenderer).get("filename").apply(file));
       }
+      assertEquals(FileUtils.byteCountToDisplaySize(path.length()),
+          test(dialog.files).getCellText(i, dialog.files.getColumns().indexOf(dialog.size)));
+      assertEquals(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(
+              toLocalDateTime(Instant.ofEpochMilli(path.lastModified())).truncatedTo(
+                  ChronoUnit.SECONDS)),
+          test(dialog.files).getCellText(i, dialog.files.getColumns().indexOf(dialog.modified)));
       Anchor downloadAnchor = (Anchor) test(dialog.files).getCellComponent(i,
           dialog.download.getKey());
       assertTrue(downloadAnchor.hasClassName(DOWNLOAD));
@@ -480,11 +533,145 @@ public class DatasetFilesDialogTest extends SpringBrowserlessTest {
   }
 
   @Test
-  public void files_FilenameColumnComparator() {
-    Comparator<EditableFile> comparator = dialog.filename.getComparator(SortDirection.ASCENDING);
-    assertEquals(0, comparator.compare(editableFile("a"), editableFile("a")));
-    assertTrue(comparator.compare(editableFile("a"), editableFile("e")) < 0);
-    assertTrue(comparator.compare(editableFile("e"), editableFile("a")) > 0);
+  public void files_FilenameColumnSortOrder() {
+    List<QuerySortOrder> sortOrders =
+        dialog.filename.getSortOrder(SortDirection.DESCENDING).toList();
+    assertEquals(1, sortOrders.size());
+    assertEquals(FileSorting.NAME, sortOrders.get(0).getSorted());
+    assertEquals(SortDirection.DESCENDING, sortOrders.get(0).getDirection());
+  }
+  @Test
+  public void files_SizeColumnSortOrder() {
+    List<QuerySortOrder> sortOrders = dialog.size.getSortOrder(SortDirection.DESCENDING).toList();
+    assertEquals(1, sortOrders.size());
+    assertEquals(FileSorting.SIZE, sortOrders.get(0).getSorted());
+    assertEquals(SortDirection.DESCENDING, sortOrders.get(0).getDirection());
+  }
+
+  @Test
+  public void files_ModifiedColumnSortOrder() {
+    List<QuerySortOrder> sortOrders =
+        dialog.modified.getSortOrder(SortDirection.ASCENDING).toList();
+    assertEquals(1, sortOrders.size());
+    assertEquals(FileSorting.MODIFIED, sortOrders.get(0).getSorted());
+    assertEquals(SortDirection.ASCENDING, sortOrders.get(0).getDirection());
+  }
+
+
+  @Test
+  public void files_Sorted() {
+    dialog.files.sort(GridSortOrder.desc(dialog.filename).build());
+
+    List<EditableFile> files = dialog.files.getGenericDataView().getItems().toList();
+
+    List<File> expected = this.files.stream()
+        .sorted(Comparator.comparing(File::getName, Comparator.reverseOrder())).toList();
+    assertEquals(expected, files.stream().map(EditableFile::getFile).toList());
+  }
+  @Test
+  public void files_SortedBySizeAndModified() throws Throwable {
+    files.clear();
+    Path small = Files.write(temporaryFolder.resolve("small.txt"), new byte[10]);
+    Files.setLastModifiedTime(small, FileTime.from(toInstant(LocalDateTime.now().minusDays(1))));
+    Path large = Files.write(temporaryFolder.resolve("large.txt"), new byte[2048]);
+    Files.setLastModifiedTime(large, FileTime.from(toInstant(LocalDateTime.now().minusDays(2))));
+    files.add(small.toFile());
+    files.add(large.toFile());
+    dialog.setDatasetId(2L);
+    runPendingAccessTasks();
+
+    dialog.files.sort(GridSortOrder.desc(dialog.size).build());
+    List<File> sorted = dialog.files.getGenericDataView().getItems().map(EditableFile::getFile)
+        .toList();
+    assertEquals(List.of(large.toFile(), small.toFile()), sorted);
+    assertEquals(FileUtils.byteCountToDisplaySize(2048),
+        test(dialog.files).getCellText(0, dialog.files.getColumns().indexOf(dialog.size)));
+    dialog.files.sort(GridSortOrder.desc(dialog.modified).build());
+    sorted = dialog.files.getGenericDataView().getItems().map(EditableFile::getFile).toList();
+    assertEquals(List.of(small.toFile(), large.toFile()), sorted);
+    assertEquals(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(
+            toLocalDateTime(Files.getLastModifiedTime(small).toInstant()).truncatedTo(
+                ChronoUnit.SECONDS)),
+        test(dialog.files).getCellText(0, dialog.files.getColumns().indexOf(dialog.modified)));
+  }
+
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void files_LoadedByDrive() {
+    Dataset dataset = repository.findById(1L).orElseThrow();
+    AppConfiguration.NetworkDrive<DataWithFiles> home = configuration.getHome();
+    AppConfiguration.NetworkDrive<DataWithFiles> archive1 = configuration.getArchives().get(0);
+    AppConfiguration.NetworkDrive<DataWithFiles> archive2 = configuration.getArchives().get(1);
+    when(home.label(any(), anyBoolean())).thenReturn("home");
+    when(archive1.label(any(), anyBoolean())).thenReturn("archive1");
+    when(archive2.label(any(), anyBoolean())).thenReturn("archive2");
+    when(service.files(any(), any(Consumer.class))).thenReturn(new CompletableFuture<>());
+
+    dialog.setDatasetId(1L);
+    runPendingAccessTasks();
+
+    verify(service).files(eq(dataset), listenerCaptor.capture());
+    assertTrue(items(dialog.files).isEmpty());
+    assertEquals(3, dialog.loading.getComponentCount());
+    assertEquals(dialog.getTranslation(MESSAGE_PREFIX + LOADING, "home"),
+        ((Span) dialog.loading.getComponentAt(0)).getText());
+    assertEquals(dialog.getTranslation(MESSAGE_PREFIX + LOADING, "archive1"),
+        ((Span) dialog.loading.getComponentAt(1)).getText());
+    assertEquals(dialog.getTranslation(MESSAGE_PREFIX + LOADING, "archive2"),
+        ((Span) dialog.loading.getComponentAt(2)).getText());
+    Consumer<DriveResult<DataWithFiles, List<Path>>> listener = listenerCaptor.getValue();
+    listener.accept(new DriveResult<>(archive2, Optional.of(List.of(files.get(3).toPath()))));
+    runPendingAccessTasks();
+    assertEquals(List.of(files.get(3)),
+        items(dialog.files).stream().map(EditableFile::getFile).toList());
+    assertEquals(2, dialog.loading.getComponentCount());
+    assertEquals(dialog.getTranslation(MESSAGE_PREFIX + LOADING, "home"),
+        ((Span) dialog.loading.getComponentAt(0)).getText());
+    assertEquals(dialog.getTranslation(MESSAGE_PREFIX + LOADING, "archive1"),
+        ((Span) dialog.loading.getComponentAt(1)).getText());
+    listener.accept(new DriveResult<>(archive1, Optional.empty()));
+    runPendingAccessTasks();
+    assertEquals(1, items(dialog.files).size());
+    assertEquals(2, dialog.loading.getComponentCount());
+    assertFalse(dialog.loading.getComponentAt(0).hasClassName(TextColor.ERROR));
+    assertEquals(dialog.getTranslation(MESSAGE_PREFIX + LOADING_UNAVAILABLE, "archive1"),
+        ((Span) dialog.loading.getComponentAt(1)).getText());
+    assertTrue(dialog.loading.getComponentAt(1).hasClassName(TextColor.ERROR));
+    listener.accept(new DriveResult<>(home, Optional.of(files.subList(0, 3).stream()
+        .map(File::toPath).toList())));
+    runPendingAccessTasks();
+    assertEquals(4, items(dialog.files).size());
+    assertEquals(1, dialog.loading.getComponentCount());
+    assertEquals(dialog.getTranslation(MESSAGE_PREFIX + LOADING_UNAVAILABLE, "archive1"),
+        ((Span) dialog.loading.getComponentAt(0)).getText());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void files_LoadedByDrive_IgnorePreviousLoad() {
+    Dataset dataset = repository.findById(1L).orElseThrow();
+    when(service.files(any(), any(Consumer.class))).thenReturn(new CompletableFuture<>());
+    dialog.setDatasetId(1L);
+    runPendingAccessTasks();
+    verify(service).files(eq(dataset), listenerCaptor.capture());
+    Consumer<DriveResult<DataWithFiles, List<Path>>> previous = listenerCaptor.getValue();
+
+    test(dialog.refresh).click();
+    runPendingAccessTasks();
+
+    verify(service, Mockito.times(2)).files(eq(dataset), listenerCaptor.capture());
+    previous.accept(new DriveResult<>(configuration.getHome(),
+        Optional.of(List.of(files.get(0).toPath()))));
+    runPendingAccessTasks();
+    assertTrue(items(dialog.files).isEmpty());
+    assertEquals(3, dialog.loading.getComponentCount());
+    listenerCaptor.getValue().accept(new DriveResult<>(configuration.getHome(),
+        Optional.of(List.of(files.get(1).toPath()))));
+    runPendingAccessTasks();
+    assertEquals(List.of(files.get(1)),
+        items(dialog.files).stream().map(EditableFile::getFile).toList());
+    assertEquals(2, dialog.loading.getComponentCount());
   }
 
   @Test
@@ -494,7 +681,7 @@ public class DatasetFilesDialogTest extends SpringBrowserlessTest {
     Button deleteButton = (Button) test(dialog.files).getCellComponent(0, dialog.delete.getKey());
     clickButton(deleteButton);
     verify(service).deleteFile(dataset, path.toPath());
-    verify(service, atLeast(2)).files(dataset);
+    verify(service, atLeast(2)).files(eq(dataset), any(Consumer.class));
   }
 
   @Test
@@ -641,6 +828,7 @@ public class DatasetFilesDialogTest extends SpringBrowserlessTest {
     assertTrue(Files.exists(sibling));
     assertFalse(Files.exists(path));
     assertArrayEquals(fileContent, Files.readAllBytes(sibling));
+    verify(service).refreshFiles(any());
   }
 
   @Test
@@ -716,11 +904,11 @@ public class DatasetFilesDialogTest extends SpringBrowserlessTest {
   public void refresh() {
     Dataset dataset = repository.findById(dialog.getDatasetId()).orElseThrow();
     files.add(new File("new_file_refresh.txt"));
-    when(service.files(any())).thenReturn(
-        files.stream().map(File::toPath).collect(Collectors.toList()));
     test(dialog.refresh).click();
-    verify(service, times(2)).files(dataset);
-    List<EditableFile> files = dialog.files.getListDataView().getItems().toList();
+    runPendingAccessTasks();
+    verify(service).refreshFiles(dataset);
+    List<EditableFile> files = items(dialog.files);
+    verify(service, atLeastOnce()).files(eq(dataset), any(Consumer.class));
     assertEquals(this.files.size(), files.size());
     for (File file : this.files) {
       assertTrue(files.stream().anyMatch(ef -> ef.getFile().equals(file)));
@@ -805,6 +993,23 @@ public class DatasetFilesDialogTest extends SpringBrowserlessTest {
         test(notification).getText());
   }
 
+  @Test
+  public void upload_TooManyJobs() {
+    Dataset dataset = repository.findById(2L).orElseThrow();
+    String filename = "test_file.txt";
+    String mimeType = "text/plain";
+    when(service.saveFiles(any(), any(), any(), any()))
+        .thenThrow(new TaskRejectedException("test"));
+    SecurityContextHolder.getContext().setAuthentication(null);
+
+    test(dialog.upload).upload(filename, mimeType, fileContent);
+
+    verify(service).saveFiles(eq(dataset), any(), any(), any());
+    verify(jobService, never()).addJob(any());
+    WarningNotification notification = $(WarningNotification.class).first();
+    assertEquals(dialog.getTranslation(CONSTANTS_PREFIX + TOO_MANY_JOBS), notification.getText());
+  }
+
   @Test
   public void getDatasetId() {
     assertEquals(2L, dialog.getDatasetId());
@@ -815,6 +1020,7 @@ public class DatasetFilesDialogTest extends SpringBrowserlessTest {
     Dataset dataset = repository.findById(6L).orElseThrow();
 
     dialog.setDatasetId(6L);
+    runPendingAccessTasks();
 
     assertEquals(dialog.getTranslation(MESSAGE_PREFIX + HEADER, dataset.getName()),
         dialog.getHeaderTitle());
@@ -824,8 +1030,8 @@ public class DatasetFilesDialogTest extends SpringBrowserlessTest {
     for (int i = 0; i < labels.size(); i++) {
       assertEquals(labels.get(i), ((Span) dialog.folders.getComponentAt(i)).getText());
     }
-    verify(service).files(dataset);
     List<EditableFile> files = items(dialog.files);
+    verify(service).files(eq(dataset), any(Consumer.class));
     assertEquals(this.files.size(), files.size());
     for (EditableFile file : files) {
       assertTrue(this.files.contains(file.getFile()));
@@ -841,6 +1047,7 @@ public class DatasetFilesDialogTest extends SpringBrowserlessTest {
     Dataset dataset = repository.findById(1L).orElseThrow();
 
     dialog.setDatasetId(1L);
+    runPendingAccessTasks();
 
     assertEquals(dialog.getTranslation(MESSAGE_PREFIX + HEADER, dataset.getName()),
         dialog.getHeaderTitle());
@@ -850,8 +1057,8 @@ public class DatasetFilesDialogTest extends SpringBrowserlessTest {
     for (int i = 0; i < labels.size(); i++) {
       assertEquals(labels.get(i), ((Span) dialog.folders.getComponentAt(i)).getText());
     }
-    verify(service).files(dataset);
     List<EditableFile> files = items(dialog.files);
+    verify(service).files(eq(dataset), any(Consumer.class));
     assertEquals(this.files.size(), files.size());
     for (EditableFile file : files) {
       assertTrue(this.files.contains(file.getFile()));
@@ -868,6 +1075,7 @@ public class DatasetFilesDialogTest extends SpringBrowserlessTest {
     Dataset dataset = repository.findById(5L).orElseThrow();
 
     dialog.setDatasetId(5L);
+    runPendingAccessTasks();
 
     assertEquals(dialog.getTranslation(MESSAGE_PREFIX + HEADER, dataset.getName()),
         dialog.getHeaderTitle());
@@ -877,8 +1085,8 @@ public class DatasetFilesDialogTest extends SpringBrowserlessTest {
     for (int i = 0; i < labels.size(); i++) {
       assertEquals(labels.get(i), ((Span) dialog.folders.getComponentAt(i)).getText());
     }
-    verify(service).files(dataset);
     List<EditableFile> files = items(dialog.files);
+    verify(service).files(eq(dataset), any(Consumer.class));
     assertEquals(this.files.size(), files.size());
     for (EditableFile file : files) {
       assertTrue(this.files.contains(file.getFile()));
@@ -897,12 +1105,50 @@ public class DatasetFilesDialogTest extends SpringBrowserlessTest {
   @Test
   public void addLargeFiles() {
     Dataset dataset = repository.findById(2L).orElseThrow();
+    @SuppressWarnings("unchecked") ListDataProvider<EditableFile> filesDataProvider = mock(
+        ListDataProvider.class);
+    dialog.files.setItems(filesDataProvider);
 
     dialog.addLargeFiles.click();
 
     AddDatasetFilesDialog largeFilesDialog = $(AddDatasetFilesDialog.class).first();
     assertEquals(dataset.getId(), largeFilesDialog.getDatasetId());
     largeFilesDialog.fireSavedEvent();
-    verify(service, atLeast(2)).files(dataset);
+    verify(filesDataProvider).refreshAll();
+  }
+
+  @Test
+  public void upload_File_CompletedEvent() {
+    Dataset dataset = repository.findById(2L).orElseThrow();
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    when(service.saveFiles(any(), any(), any(), any())).then(i -> future);
+    test(dialog.upload).upload("test_file.txt", "text/plain", fileContent);
+    verify(jobService).addJob(jobCaptor.capture());
+    Job job = jobCaptor.getValue();
+    verify(jobEventBus).subscribe(jobEventsListenerCaptor.capture());
+    Consumer<JobEvent> listener = jobEventsListenerCaptor.getValue();
+    runPendingAccessTasks();
+    clearInvocations(service);
+
+    listener.accept(new JobEvent(job, JobEvent.Type.UPDATED));
+    runPendingAccessTasks();
+    verify(service, never()).files(any(), any(Consumer.class));
+    future.complete(null);
+    listener.accept(new JobEvent(job, JobEvent.Type.COMPLETED));
+    runPendingAccessTasks();
+    verify(service).files(eq(dataset), any(Consumer.class));
+  }
+
+  @Test
+  public void upload_File_OtherJobCompletedEvent() {
+    Job job = new Job();
+    job.future = CompletableFuture.completedFuture(null);
+    verify(jobEventBus).subscribe(jobEventsListenerCaptor.capture());
+    Consumer<JobEvent> listener = jobEventsListenerCaptor.getValue();
+    clearInvocations(service);
+
+    listener.accept(new JobEvent(job, JobEvent.Type.COMPLETED));
+    runPendingAccessTasks();
+    verify(service, never()).files(any(), any(Consumer.class));
   }
 }
@@ -8,6 +8,8 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import ca.qc.ircm.lanaseq.AppConfiguration;
 import ca.qc.ircm.lanaseq.dataset.Dataset;
 import ca.qc.ircm.lanaseq.dataset.DatasetRepository;
+import ca.qc.ircm.lanaseq.jobs.Job;
+import ca.qc.ircm.lanaseq.jobs.JobService;
 import ca.qc.ircm.lanaseq.sample.Sample;
 import ca.qc.ircm.lanaseq.test.config.ServiceTestAnnotations;
 import com.vaadin.browserless.SpringBrowserlessTest;
@@ -20,6 +22,8 @@ import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -36,8 +40,15 @@ public class DatasetsAnalysisDialogIT extends SpringBrowserlessTest {
   private DatasetRepository repository;
   @Autowired
   private AppConfiguration configuration;
+  @Autowired
+  private JobService jobService;
   private final Random random = new Random();
 
+  @AfterEach
+  public void afterTest() {
+    jobService.getJobs().forEach(jobService::removeJob);
+  }
+
   private byte[] writeFile(Path file) throws IOException {
     byte[] bytes = new byte[2048];
     random.nextBytes(bytes);
@@ -70,6 +81,7 @@ public class DatasetsAnalysisDialogIT extends SpringBrowserlessTest {
         new CustomValueSetEvent<>(dialog.filenamePatterns, false, "*.fastq"));
 
     test(dialog.createFolder).click();
+    waitForJobs();
 
     assertTrue(dialog.isOpened());
     test($(ConfirmDialog.class).first()).confirm();
@@ -136,6 +148,7 @@ public class DatasetsAnalysisDialogIT extends SpringBrowserlessTest {
         new CustomValueSetEvent<>(dialog.filenamePatterns, false, "*.fastq"));
 
     test(dialog.createFolder).click();
+    waitForJobs();
 
     assertTrue(dialog.isOpened());
     test($(ConfirmDialog.class).first()).confirm();
@@ -199,6 +212,7 @@ public class DatasetsAnalysisDialogIT extends SpringBrowserlessTest {
     DatasetsAnalysisDialog dialog = $(DatasetsAnalysisDialog.class).first();
 
     test(dialog.createFolder).click();
+    waitForJobs();
 
     assertTrue(dialog.isOpened());
     test($(ConfirmDialog.class).first()).confirm();
@@ -223,4 +237,13 @@ public class DatasetsAnalysisDialogIT extends SpringBrowserlessTest {
     Assertions.assertEquals(dataset.getName() + "\t" + sample1.getName() + "\t" + sample2.getName(),
         datasetMetaContent.get(1));
   }
+
+  /**
+   * Waits until analysis files are copied.
+   */
+  private void waitForJobs() throws Exception {
+    for (Job job : jobService.getJobs()) {
+      job.future.get(10, TimeUnit.SECONDS);
+    }
+  }
 }
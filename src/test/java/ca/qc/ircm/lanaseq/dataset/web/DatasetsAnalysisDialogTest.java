@@ -1,53 +1,74 @@
 package ca.qc.ircm.lanaseq.dataset.web;
 
 import static ca.qc.ircm.lanaseq.Constants.CONFIRM;
+import static ca.qc.ircm.lanaseq.Constants.TOO_MANY_JOBS;
 import static ca.qc.ircm.lanaseq.Constants.messagePrefix;
 import static ca.qc.ircm.lanaseq.dataset.web.DatasetsAnalysisDialog.CREATE_FOLDER;
+import static ca.qc.ircm.lanaseq.dataset.web.DatasetsAnalysisDialog.CREATE_FOLDER_STARTED;
+import static ca.qc.ircm.lanaseq.dataset.web.DatasetsAnalysisDialog.DOWNLOAD;
 import static ca.qc.ircm.lanaseq.dataset.web.DatasetsAnalysisDialog.ERRORS;
 import static ca.qc.ircm.lanaseq.dataset.web.DatasetsAnalysisDialog.FILENAME_PATTERNS;
+import static ca.qc.ircm.lanaseq.dataset.web.DatasetsAnalysisDialog.FILENAME_PATTERNS_INVALID;
 import static ca.qc.ircm.lanaseq.dataset.web.DatasetsAnalysisDialog.HEADER;
 import static ca.qc.ircm.lanaseq.dataset.web.DatasetsAnalysisDialog.ID;
 import static ca.qc.ircm.lanaseq.dataset.web.DatasetsAnalysisDialog.MESSAGE;
 import static ca.qc.ircm.lanaseq.dataset.web.DatasetsAnalysisDialog.id;
 import static ca.qc.ircm.lanaseq.sample.web.SamplesAnalysisDialog.CREATE_FOLDER_EXCEPTION;
 import static ca.qc.ircm.lanaseq.test.utils.VaadinTestUtils.fireEvent;
+import static ca.qc.ircm.lanaseq.test.utils.VaadinTestUtils.runPendingAccessTasks;
+import static ca.qc.ircm.lanaseq.test.utils.VaadinTestUtils.validateIcon;
 import static ca.qc.ircm.lanaseq.text.Strings.property;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import ca.qc.ircm.lanaseq.AppConfiguration;
+import ca.qc.ircm.lanaseq.Constants;
 import ca.qc.ircm.lanaseq.DataWithFiles;
 import ca.qc.ircm.lanaseq.analysis.AnalysisService;
 import ca.qc.ircm.lanaseq.dataset.Dataset;
 import ca.qc.ircm.lanaseq.dataset.DatasetRepository;
 import ca.qc.ircm.lanaseq.dataset.DatasetService;
+import ca.qc.ircm.lanaseq.files.TransferProgress;
+import ca.qc.ircm.lanaseq.files.TransferProgression;
+import ca.qc.ircm.lanaseq.jobs.Job;
+import ca.qc.ircm.lanaseq.jobs.JobService;
 import ca.qc.ircm.lanaseq.sample.web.SamplesAnalysisDialog;
 import ca.qc.ircm.lanaseq.test.config.ServiceTestAnnotations;
 import ca.qc.ircm.lanaseq.test.config.UserAgent;
+import ca.qc.ircm.lanaseq.web.WarningNotification;
 import com.vaadin.browserless.SpringBrowserlessTest;
 import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.button.Button;
 import com.vaadin.flow.component.button.ButtonVariant;
 import com.vaadin.flow.component.confirmdialog.ConfirmDialog;
-import java.io.IOException;
+import com.vaadin.flow.component.icon.VaadinIcon;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.PatternSyntaxException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.security.test.context.support.WithUserDetails;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 
@@ -59,6 +80,7 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 public class DatasetsAnalysisDialogTest extends SpringBrowserlessTest {
 
   private static final String MESSAGE_PREFIX = messagePrefix(DatasetsAnalysisDialog.class);
+  private static final String CONSTANTS_PREFIX = messagePrefix(Constants.class);
   private DatasetsAnalysisDialog dialog;
   @MockitoBean
   private DatasetService service;
@@ -70,6 +92,13 @@ public class DatasetsAnalysisDialogTest extends SpringBrowserlessTest {
   private DatasetRepository repository;
   @Captor
   private ArgumentCaptor<Collection<String>> filenamePatternsCaptor;
+  @MockitoBean
+  private JobService jobService;
+  @Captor
+  private ArgumentCaptor<Job> jobCaptor;
+  @Captor
+  private ArgumentCaptor<TransferProgression> progressionCaptor;
+  private final CompletableFuture<Path> future = new CompletableFuture<>();
   private final Locale locale = Locale.ENGLISH;
   private final List<Dataset> datasets = new ArrayList<>();
 
@@ -83,6 +112,8 @@ public class DatasetsAnalysisDialogTest extends SpringBrowserlessTest {
     @SuppressWarnings("unchecked") AppConfiguration.NetworkDrive<Collection<? extends DataWithFiles>> analysisFolder = mock(
         AppConfiguration.NetworkDrive.class);
     when(configuration.getAnalysis()).thenReturn(analysisFolder);
+    when(analysisService.copyDatasetsResources(anyCollection(), anyCollection(), any()))
+        .thenReturn(future);
     datasets.add(repository.findById(6L).orElseThrow());
     datasets.add(repository.findById(7L).orElseThrow());
     UI.getCurrent().setLocale(locale);
@@ -98,6 +129,7 @@ public class DatasetsAnalysisDialogTest extends SpringBrowserlessTest {
     assertTrue(test(dialog.message).isUsable());
     assertTrue(test(dialog.filenamePatterns).isUsable());
     assertTrue(test(dialog.createFolder).isUsable());
+    assertTrue(test(dialog.download).isUsable());
   }
 
   @Test
@@ -108,6 +140,11 @@ public class DatasetsAnalysisDialogTest extends SpringBrowserlessTest {
     assertEquals(id(CREATE_FOLDER), dialog.createFolder.getId().orElse(""));
     assertTrue(
         dialog.createFolder.getThemeNames().contains(ButtonVariant.LUMO_PRIMARY.getVariantName()));
+    assertEquals(id(DOWNLOAD), dialog.download.getId().orElse(""));
+    assertTrue(dialog.download.getElement().hasAttribute("download"));
+    assertEquals("", dialog.download.getElement().getAttribute("download"));
+    assertEquals(dialog.downloadButton, test(dialog.download).find(Button.class).first());
+    validateIcon(VaadinIcon.DOWNLOAD.create(), dialog.downloadButton.getIcon());
     assertEquals(id(CONFIRM), dialog.confirm.getId().orElse(""));
     assertEquals(id(ERRORS), dialog.errors.getId().orElse(""));
   }
@@ -121,6 +158,8 @@ public class DatasetsAnalysisDialogTest extends SpringBrowserlessTest {
         dialog.filenamePatterns.getHelperText());
     assertEquals(dialog.getTranslation(MESSAGE_PREFIX + CREATE_FOLDER),
         dialog.createFolder.getText());
+    assertEquals(dialog.getTranslation(MESSAGE_PREFIX + DOWNLOAD),
+        dialog.downloadButton.getText());
     assertEquals(dialog.getTranslation(MESSAGE_PREFIX + CONFIRM),
         dialog.confirm.getElement().getProperty("header"));
     assertEquals(dialog.getTranslation(MESSAGE_PREFIX + property(CONFIRM, CONFIRM)),
@@ -142,6 +181,8 @@ public class DatasetsAnalysisDialogTest extends SpringBrowserlessTest {
         dialog.filenamePatterns.getHelperText());
     assertEquals(dialog.getTranslation(MESSAGE_PREFIX + CREATE_FOLDER),
         dialog.createFolder.getText());
+    assertEquals(dialog.getTranslation(MESSAGE_PREFIX + DOWNLOAD),
+        dialog.downloadButton.getText());
     assertEquals(dialog.getTranslation(MESSAGE_PREFIX + CONFIRM),
         dialog.confirm.getElement().getProperty("header"));
     assertEquals(dialog.getTranslation(MESSAGE_PREFIX + property(CONFIRM, CONFIRM)),
@@ -161,7 +202,8 @@ public class DatasetsAnalysisDialogTest extends SpringBrowserlessTest {
 
     dialog.createFolder.click();
 
-    verify(analysisService).copyDatasetsResources(eq(datasets), filenamePatternsCaptor.capture());
+    verify(analysisService).copyDatasetsResources(eq(datasets), filenamePatternsCaptor.capture(),
+        progressionCaptor.capture());
     assertEquals(2, filenamePatternsCaptor.getValue().size());
     assertTrue(filenamePatternsCaptor.getValue().contains("*.fastq"));
     assertTrue(filenamePatternsCaptor.getValue().contains("*.bam"));
@@ -182,7 +224,8 @@ public class DatasetsAnalysisDialogTest extends SpringBrowserlessTest {
 
     dialog.createFolder.click();
 
-    verify(analysisService).copyDatasetsResources(eq(datasets), filenamePatternsCaptor.capture());
+    verify(analysisService).copyDatasetsResources(eq(datasets), filenamePatternsCaptor.capture(),
+        progressionCaptor.capture());
     assertEquals(1, filenamePatternsCaptor.getValue().size());
     assertTrue(filenamePatternsCaptor.getValue().contains("*.fastq"));
     verify(configuration.getAnalysis()).label(datasets, true);
@@ -202,7 +245,8 @@ public class DatasetsAnalysisDialogTest extends SpringBrowserlessTest {
 
     dialog.createFolder.click();
 
-    verify(analysisService).copyDatasetsResources(eq(datasets), filenamePatternsCaptor.capture());
+    verify(analysisService).copyDatasetsResources(eq(datasets), filenamePatternsCaptor.capture(),
+        progressionCaptor.capture());
     assertEquals(1, filenamePatternsCaptor.getValue().size());
     assertTrue(filenamePatternsCaptor.getValue().contains("*.fastq"));
     verify(configuration.getAnalysis()).label(datasets, true);
@@ -214,14 +258,59 @@ public class DatasetsAnalysisDialogTest extends SpringBrowserlessTest {
   }
 
   @Test
-  public void createFolder_IoException() throws Throwable {
-    doThrow(new IOException("test")).when(analysisService)
-        .copyDatasetsResources(anyCollection(), anyCollection());
+  public void createFolder_Job() throws Throwable {
+    String folder = "test/dataset";
+    when(configuration.getAnalysis().label(anyCollection(), anyBoolean())).thenReturn(folder);
+    dialog.filenamePatterns.setValue("*.fastq");
+
+    dialog.createFolder.click();
+
+    verify(analysisService).copyDatasetsResources(eq(datasets), filenamePatternsCaptor.capture(),
+        progressionCaptor.capture());
+    verify(jobService).addJob(jobCaptor.capture());
+    Job job = jobCaptor.getValue();
+    assertSame(future, job.future);
+    assertEquals(3, job.owner.getId());
+    assertEquals(dialog.getTranslation(MESSAGE_PREFIX + CREATE_FOLDER_STARTED, folder), job.title);
+    assertTrue(job.cancellable);
+    progressionCaptor.getValue().accept("test message", 0.35);
+    assertEquals("test message", job.message);
+    assertEquals(0.35, job.progress);
+    progressionCaptor.getValue().transferred(
+        new TransferProgress(35, 100, 12.5, Duration.ofSeconds(5)));
+    assertEquals(35, job.bytes);
+    assertEquals(100, job.totalBytes);
+    assertFalse(progressionCaptor.getValue().isCancelled());
+    future.cancel(true);
+    assertTrue(progressionCaptor.getValue().isCancelled());
+    runPendingAccessTasks();
+    assertTrue(dialog.confirm.isOpened());
+    assertFalse(dialog.errors.isOpened());
+  }
+
+  @Test
+  public void createFolder_Completed() throws Throwable {
     dialog.filenamePatterns.setValue("*.fastq");
+    dialog.createFolder.click();
+
+    future.complete(Path.of("test"));
+    runPendingAccessTasks();
 
+    assertTrue(dialog.confirm.isOpened());
+    assertFalse(dialog.errors.isOpened());
+  }
+
+  @Test
+  public void createFolder_Failed() throws Throwable {
+    dialog.filenamePatterns.setValue("*.fastq");
     dialog.createFolder.click();
+    assertTrue(dialog.confirm.isOpened());
+
+    future.completeExceptionally(new IllegalStateException("test"));
+    runPendingAccessTasks();
 
-    verify(analysisService).copyDatasetsResources(eq(datasets), filenamePatternsCaptor.capture());
+    verify(analysisService).copyDatasetsResources(eq(datasets), filenamePatternsCaptor.capture(),
+        progressionCaptor.capture());
     assertEquals(1, filenamePatternsCaptor.getValue().size());
     assertTrue(filenamePatternsCaptor.getValue().contains("*.fastq"));
     assertFalse(dialog.confirm.isOpened());
@@ -231,6 +320,70 @@ public class DatasetsAnalysisDialogTest extends SpringBrowserlessTest {
     assertTrue(dialog.isOpened());
   }
 
+  @Test
+  public void createFolder_TooManyJobs() throws Throwable {
+    when(analysisService.copyDatasetsResources(anyCollection(), anyCollection(), any()))
+        .thenThrow(new TaskRejectedException("test"));
+    dialog.filenamePatterns.setValue("*.fastq");
+
+    dialog.createFolder.click();
+
+    verify(jobService, never()).addJob(any());
+    WarningNotification notification = $(WarningNotification.class).first();
+    assertEquals(dialog.getTranslation(CONSTANTS_PREFIX + TOO_MANY_JOBS), notification.getText());
+    assertFalse(dialog.confirm.isOpened());
+    assertFalse(dialog.errors.isOpened());
+    assertTrue(dialog.isOpened());
+  }
+  @Test
+  public void createFolder_InvalidFilenamePatterns() throws Throwable {
+    doThrow(new PatternSyntaxException("Missing '}", "^[^/]*\\.\\{bam$", 11))
+        .when(analysisService).validateDatasetsResources(anyCollection(), anyCollection());
+    dialog.filenamePatterns.setValue("*.{bam");
+
+    dialog.createFolder.click();
+
+    verify(analysisService).validateDatasetsResources(eq(datasets), filenamePatternsCaptor.capture());
+    assertEquals(1, filenamePatternsCaptor.getValue().size());
+    assertTrue(filenamePatternsCaptor.getValue().contains("*.{bam"));
+    verify(analysisService, never()).copyDatasetsResources(any(), any(), any());
+    verify(jobService, never()).addJob(any());
+    assertFalse(dialog.confirm.isOpened());
+    assertEquals(dialog.getTranslation(MESSAGE_PREFIX + FILENAME_PATTERNS_INVALID, "*.{bam"),
+        test(dialog.errors).getText());
+    assertTrue(dialog.errors.isOpened());
+    assertTrue(dialog.isOpened());
+  }
+
+  @Test
+  public void createFolder_Invalid() throws Throwable {
+    doThrow(new IllegalArgumentException("test")).when(analysisService)
+        .validateDatasetsResources(anyCollection(), anyCollection());
+    dialog.filenamePatterns.setValue("*.fastq");
+
+    dialog.createFolder.click();
+
+    verify(analysisService, never()).copyDatasetsResources(any(), any(), any());
+    verify(jobService, never()).addJob(any());
+    assertFalse(dialog.confirm.isOpened());
+    assertEquals(dialog.getTranslation(MESSAGE_PREFIX + CREATE_FOLDER_EXCEPTION),
+        test(dialog.errors).getText());
+    assertTrue(dialog.errors.isOpened());
+    assertTrue(dialog.isOpened());
+  }
+
+
+  @Test
+  public void download() {
+    assertEquals("analysis-archive/datasets?id=6&id=7", dialog.download.getHref());
+  }
+
+  @Test
+  public void download_FilenamePatterns() {
+    dialog.filenamePatterns.setValue("*.fastq");
+    assertEquals("analysis-archive/datasets?id=6&id=7&pattern=*.fastq", dialog.download.getHref());
+  }
+
   @Test
   public void closeOnConfirm() {
     fireEvent(dialog.confirm, new ConfirmDialog.ConfirmEvent(dialog.confirm, false));
@@ -256,6 +409,7 @@ public class DatasetsAnalysisDialogTest extends SpringBrowserlessTest {
   public void setDatasetId() {
     Dataset dataset = repository.findById(6L).orElseThrow();
     dialog.setDatasetId(6L);
+    assertEquals("analysis-archive/datasets?id=6", dialog.download.getHref());
     assertEquals(
         dialog.getTranslation(MESSAGE_PREFIX + SamplesAnalysisDialog.HEADER, 1, dataset.getName()),
         dialog.getHeaderTitle());
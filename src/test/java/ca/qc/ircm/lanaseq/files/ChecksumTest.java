@@ -0,0 +1,89 @@
+package ca.qc.ircm.lanaseq.files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for {@link Checksum}.
+ */
+public class ChecksumTest {
+
+  @TempDir
+  Path temporaryFolder;
+
+  @Test
+  public void digest() {
+    assertEquals("MD5", Checksum.MD5.digest().getAlgorithm());
+    assertEquals("SHA-256", Checksum.SHA256.digest().getAlgorithm());
+  }
+
+  @Test
+  public void sidecar() {
+    Path file = temporaryFolder.resolve("R1.fastq");
+    assertEquals(temporaryFolder.resolve("R1.fastq.md5"), Checksum.MD5.sidecar(file));
+    assertEquals(temporaryFolder.resolve("R1.fastq.sha256"), Checksum.SHA256.sidecar(file));
+  }
+
+  @Test
+  public void file() {
+    assertEquals(Optional.of(temporaryFolder.resolve("R1.fastq")),
+        Checksum.MD5.file(temporaryFolder.resolve("R1.fastq.md5")));
+    assertEquals(Optional.of(temporaryFolder.resolve("R1.fastq")),
+        Checksum.MD5.file(temporaryFolder.resolve("R1.fastq.MD5")));
+    assertEquals(Optional.of(temporaryFolder.resolve("R1.fastq")),
+        Checksum.SHA256.file(temporaryFolder.resolve("R1.fastq.sha256")));
+  }
+
+  @Test
+  public void file_NotSidecar() {
+    assertFalse(Checksum.MD5.file(temporaryFolder.resolve("R1.fastq")).isPresent());
+    assertFalse(Checksum.MD5.file(temporaryFolder.resolve("R1.fastq.sha256")).isPresent());
+    assertFalse(Checksum.MD5.file(temporaryFolder.resolve(".md5")).isPresent());
+  }
+
+  @Test
+  public void read() throws Throwable {
+    Path sidecar = Files.writeString(temporaryFolder.resolve("R1.fastq.md5"),
+        "\n  D41D8CD98F00B204E9800998ECF8427E  R1.fastq\nother line\n");
+    assertEquals(Optional.of("d41d8cd98f00b204e9800998ecf8427e"), Checksum.MD5.read(sidecar));
+  }
+
+  @Test
+  public void read_HashOnly() throws Throwable {
+    Path sidecar = Files.writeString(temporaryFolder.resolve("R1.fastq.md5"),
+        "d41d8cd98f00b204e9800998ecf8427e");
+    assertEquals(Optional.of("d41d8cd98f00b204e9800998ecf8427e"), Checksum.MD5.read(sidecar));
+  }
+
+  @Test
+  public void read_Empty() throws Throwable {
+    Path sidecar = Files.writeString(temporaryFolder.resolve("R1.fastq.md5"), "\n  \n");
+    assertFalse(Checksum.MD5.read(sidecar).isPresent());
+  }
+
+  @Test
+  public void write() throws Throwable {
+    Path file = temporaryFolder.resolve("R1.fastq");
+    Path sidecar = Checksum.MD5.write(file, "d41d8cd98f00b204e9800998ecf8427e");
+    assertEquals(temporaryFolder.resolve("R1.fastq.md5"), sidecar);
+    assertEquals(List.of("d41d8cd98f00b204e9800998ecf8427e  R1.fastq"),
+        Files.readAllLines(sidecar));
+  }
+
+  @Test
+  public void write_ReplaceExisting() throws Throwable {
+    Path file = temporaryFolder.resolve("R1.fastq");
+    Files.writeString(temporaryFolder.resolve("R1.fastq.sha256"), "previous\nlines\n");
+    Path sidecar = Checksum.SHA256.write(file, "e3b0c442");
+    assertEquals(List.of("e3b0c442  R1.fastq"), Files.readAllLines(sidecar));
+    assertTrue(Files.exists(sidecar));
+  }
+}
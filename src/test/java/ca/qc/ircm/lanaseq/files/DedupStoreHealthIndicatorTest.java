@@ -0,0 +1,50 @@
+package ca.qc.ircm.lanaseq.files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.Status;
+
+/**
+ * Tests for {@link DedupStoreHealthIndicator}.
+ */
+public class DedupStoreHealthIndicatorTest {
+
+  private DedupStoreHealthIndicator healthIndicator;
+  private DedupStore dedupStore;
+
+  @BeforeEach
+  public void beforeTest() {
+    dedupStore = mock(DedupStore.class);
+    healthIndicator = new DedupStoreHealthIndicator(dedupStore);
+  }
+
+  @Test
+  public void health() {
+    when(dedupStore.isEnabled()).thenReturn(true);
+    when(dedupStore.usage()).thenReturn(new DedupUsage(2, 300, 5, 700));
+
+    Health health = healthIndicator.health();
+
+    assertEquals(Status.UP, health.getStatus());
+    assertEquals(true, health.getDetails().get("enabled"));
+    assertEquals(2L, health.getDetails().get("files"));
+    assertEquals(300L, health.getDetails().get("bytes"));
+    assertEquals(5L, health.getDetails().get("links"));
+    assertEquals(700L, health.getDetails().get("savedBytes"));
+  }
+
+  @Test
+  public void health_Disabled() {
+    Health health = healthIndicator.health();
+
+    assertEquals(Status.UP, health.getStatus());
+    assertEquals(false, health.getDetails().get("enabled"));
+    assertFalse(health.getDetails().containsKey("savedBytes"));
+  }
+}
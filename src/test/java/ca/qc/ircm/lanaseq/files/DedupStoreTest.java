@@ -0,0 +1,218 @@
+package ca.qc.ircm.lanaseq.files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import ca.qc.ircm.lanaseq.AppConfiguration;
+import ca.qc.ircm.lanaseq.AppConfiguration.NetworkDrive;
+import ca.qc.ircm.lanaseq.DataWithFiles;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.locks.Lock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+/**
+ * Tests for {@link DedupStore}.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class DedupStoreTest {
+
+  private DedupStore dedupStore;
+  @Mock
+  private AppConfiguration configuration;
+  @Mock
+  private NetworkDrive<DataWithFiles> home;
+  @TempDir
+  Path temporaryFolder;
+  private Path homeFolder;
+
+  @BeforeEach
+  public void beforeTest() throws Throwable {
+    homeFolder = Files.createDirectory(temporaryFolder.resolve("home"));
+    when(configuration.getHome()).thenReturn(home);
+    when(home.getFolder()).thenReturn(homeFolder);
+    when(configuration.isDedup()).thenReturn(true);
+    dedupStore = new DedupStore(configuration);
+  }
+
+  private Path write(String name, String content) throws Throwable {
+    Path file = homeFolder.resolve(name);
+    Files.createDirectories(file.getParent());
+    return Files.writeString(file, content);
+  }
+
+  private String sha256(String content) throws Throwable {
+    return HexFormat.of()
+        .formatHex(MessageDigest.getInstance("SHA-256").digest(content.getBytes()));
+  }
+
+  private Path stored(String content) throws Throwable {
+    String hash = sha256(content);
+    return homeFolder.resolve(DedupStore.FOLDER).resolve(hash.substring(0, 2)).resolve(hash);
+  }
+
+  @Test
+  public void isEnabled() {
+    assertTrue(dedupStore.isEnabled());
+    when(configuration.isDedup()).thenReturn(false);
+    assertFalse(dedupStore.isEnabled());
+  }
+
+  @Test
+  public void deduplicate_New() throws Throwable {
+    Path file = write("sample1/input.fastq", "input content");
+
+    assertEquals(0, dedupStore.deduplicate(file, sha256("input content")));
+
+    assertTrue(Files.isSameFile(stored("input content"), file));
+    assertEquals("input content", Files.readString(file));
+    assertEquals(new DedupUsage(1, 13, 1, 0), dedupStore.usage());
+  }
+
+  @Test
+  public void deduplicate_Existing() throws Throwable {
+    Path file1 = write("sample1/input.fastq", "input content");
+    Path file2 = write("sample2/input.fastq", "input content");
+    dedupStore.deduplicate(file1, sha256("input content"));
+
+    assertEquals(13, dedupStore.deduplicate(file2, sha256("input content")));
+
+    assertTrue(Files.isSameFile(file1, file2));
+    assertTrue(Files.isSameFile(stored("input content"), file2));
+    assertEquals("input content", Files.readString(file2));
+    assertFalse(Files.exists(homeFolder.resolve("sample2/.input.fastq.link")));
+    assertEquals(new DedupUsage(1, 13, 2, 13), dedupStore.usage());
+  }
+
+  @Test
+  public void deduplicate_UpperCaseChecksum() throws Throwable {
+    Path file = write("sample1/input.fastq", "input content");
+
+    dedupStore.deduplicate(file, sha256("input content").toUpperCase());
+
+    assertTrue(Files.isSameFile(stored("input content"), file));
+  }
+
+  @Test
+  public void deduplicate_Again() throws Throwable {
+    Path file = write("sample1/input.fastq", "input content");
+    dedupStore.deduplicate(file, sha256("input content"));
+
+    assertEquals(0, dedupStore.deduplicate(file, sha256("input content")));
+
+    assertEquals(new DedupUsage(1, 13, 1, 0), dedupStore.usage());
+  }
+
+  @Test
+  public void deduplicate_SizeMismatch() throws Throwable {
+    Path file1 = write("sample1/input.fastq", "input content");
+    Path file2 = write("sample2/input.fastq", "other");
+    dedupStore.deduplicate(file1, sha256("input content"));
+
+    assertEquals(0, dedupStore.deduplicate(file2, sha256("input content")));
+
+    assertFalse(Files.isSameFile(file1, file2));
+    assertEquals("other", Files.readString(file2));
+  }
+
+  @Test
+  public void deduplicate_Disabled() throws Throwable {
+    when(configuration.isDedup()).thenReturn(false);
+    Path file = write("sample1/input.fastq", "input content");
+
+    assertEquals(0, dedupStore.deduplicate(file, sha256("input content")));
+
+    assertFalse(Files.exists(homeFolder.resolve(DedupStore.FOLDER)));
+  }
+
+  @Test
+  public void deduplicate_OutsideHome() throws Throwable {
+    Path file = Files.writeString(temporaryFolder.resolve("input.fastq"), "input content");
+
+    assertEquals(0, dedupStore.deduplicate(file, sha256("input content")));
+
+    assertFalse(Files.exists(homeFolder.resolve(DedupStore.FOLDER)));
+  }
+
+  @Test
+  public void deduplicate_Missing() {
+    assertThrows(NoSuchFileException.class,
+        () -> dedupStore.deduplicate(homeFolder.resolve("missing.fastq"), sha256("missing")));
+  }
+
+  @Test
+  public void scan() throws Throwable {
+    Path file1 = write("sample1/input.fastq", "input content");
+    Path file2 = write("sample2/input.fastq", "input content");
+    Path file3 = write("sample3/input.fastq", "input content");
+    Path other = write("sample1/other.fastq", "other");
+    dedupStore.deduplicate(file1, sha256("input content"));
+    dedupStore.deduplicate(file2, sha256("input content"));
+    dedupStore.deduplicate(file3, sha256("input content"));
+    dedupStore.deduplicate(other, sha256("other"));
+    Files.delete(other);
+
+    dedupStore.scan();
+
+    assertFalse(Files.exists(stored("other")));
+    assertTrue(Files.exists(stored("input content")));
+    assertEquals(new DedupUsage(1, 13, 3, 26), dedupStore.usage());
+  }
+
+  @Test
+  public void scan_WaitsForDeduplicate() throws Throwable {
+    Path file = write("sample1/input.fastq", "input content");
+    dedupStore.deduplicate(file, sha256("input content"));
+    Files.delete(file);
+    Lock lock = dedupStore.lock(sha256("input content"));
+    lock.lock();
+    Thread scan;
+    try {
+      scan = Thread.ofVirtual().start(dedupStore::scan);
+      scan.join(Duration.ofMillis(200));
+
+      assertTrue(scan.isAlive());
+      assertTrue(Files.exists(stored("input content")));
+    } finally {
+      lock.unlock();
+    }
+    scan.join(Duration.ofSeconds(5));
+
+    assertFalse(scan.isAlive());
+    assertFalse(Files.exists(stored("input content")));
+  }
+
+  @Test
+  public void scan_NoStore() {
+    dedupStore.scan();
+
+    assertEquals(DedupUsage.EMPTY, dedupStore.usage());
+  }
+
+  @Test
+  public void scan_Disabled() throws Throwable {
+    Path file = write("sample1/input.fastq", "input content");
+    dedupStore.deduplicate(file, sha256("input content"));
+    Files.delete(file);
+    when(configuration.isDedup()).thenReturn(false);
+
+    dedupStore.scan();
+
+    assertTrue(Files.exists(stored("input content")));
+  }
+}
@@ -0,0 +1,142 @@
+package ca.qc.ircm.lanaseq.files;
+
+import static ca.qc.ircm.lanaseq.files.DriveStatistics.COOL_DOWN;
+import static ca.qc.ircm.lanaseq.files.DriveStatistics.FAILURE_THRESHOLD;
+import static ca.qc.ircm.lanaseq.files.DriveStatistics.WINDOW;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import ca.qc.ircm.lanaseq.AppConfiguration.NetworkDrive;
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link DriveStatistics}.
+ */
+public class DriveStatisticsTest {
+
+  private DriveStatistics statistics;
+  private final Instant now = Instant.now();
+
+  @BeforeEach
+  public void beforeTest() {
+    statistics = new DriveStatistics(mock(NetworkDrive.class));
+  }
+
+  private void fail(int times) {
+    for (int i = 0; i < times; i++) {
+      statistics.failure(Duration.ofSeconds(10), now);
+    }
+  }
+
+  @Test
+  public void initial() {
+    assertEquals(DriveStatistics.State.CLOSED, statistics.getState());
+    assertEquals(0, statistics.getRequests());
+    assertEquals(0, statistics.getRejected());
+    assertEquals(Duration.ZERO, statistics.getAverageLatency());
+    assertEquals(Duration.ZERO, statistics.getMaximumLatency());
+    assertEquals(0.0, statistics.getErrorRate(), 0.0001);
+    assertTrue(statistics.allowRequest(now));
+  }
+
+  @Test
+  public void latency() {
+    statistics.success(Duration.ofMillis(10));
+    statistics.success(Duration.ofMillis(30));
+    statistics.failure(Duration.ofMillis(50), now);
+
+    assertEquals(3, statistics.getRequests());
+    assertEquals(Duration.ofMillis(30), statistics.getAverageLatency());
+    assertEquals(Duration.ofMillis(50), statistics.getMaximumLatency());
+    assertEquals(1.0 / 3, statistics.getErrorRate(), 0.0001);
+  }
+
+  @Test
+  public void latency_Window() {
+    statistics.success(Duration.ofSeconds(10));
+    for (int i = 0; i < WINDOW; i++) {
+      statistics.success(Duration.ofMillis(10));
+    }
+
+    assertEquals(WINDOW + 1, statistics.getRequests());
+    assertEquals(Duration.ofMillis(10), statistics.getAverageLatency());
+    assertEquals(Duration.ofMillis(10), statistics.getMaximumLatency());
+  }
+
+  @Test
+  public void failure_BelowThreshold() {
+    fail(FAILURE_THRESHOLD - 1);
+
+    assertEquals(DriveStatistics.State.CLOSED, statistics.getState());
+    assertTrue(statistics.allowRequest(now));
+  }
+
+  @Test
+  public void failure_Threshold() {
+    fail(FAILURE_THRESHOLD);
+
+    assertEquals(DriveStatistics.State.OPEN, statistics.getState());
+    assertFalse(statistics.allowRequest(now));
+    assertFalse(statistics.allowRequest(now.plus(COOL_DOWN).minusMillis(1)));
+    assertEquals(2, statistics.getRejected());
+  }
+
+  @Test
+  public void failure_SuccessResetsCount() {
+    fail(FAILURE_THRESHOLD - 1);
+    statistics.success(Duration.ofMillis(10));
+    fail(FAILURE_THRESHOLD - 1);
+
+    assertEquals(DriveStatistics.State.CLOSED, statistics.getState());
+  }
+
+  @Test
+  public void halfOpen_Success() {
+    fail(FAILURE_THRESHOLD);
+
+    assertTrue(statistics.allowRequest(now.plus(COOL_DOWN)));
+    assertEquals(DriveStatistics.State.HALF_OPEN, statistics.getState());
+    // Only one request is allowed.
+    assertFalse(statistics.allowRequest(now.plus(COOL_DOWN)));
+    statistics.success(Duration.ofMillis(10));
+    assertEquals(DriveStatistics.State.CLOSED, statistics.getState());
+    assertTrue(statistics.allowRequest(now.plus(COOL_DOWN)));
+  }
+
+  @Test
+  public void halfOpen_Failure() {
+    fail(FAILURE_THRESHOLD);
+
+    assertTrue(statistics.allowRequest(now.plus(COOL_DOWN)));
+    statistics.failure(Duration.ofSeconds(10), now.plus(COOL_DOWN));
+    assertEquals(DriveStatistics.State.OPEN, statistics.getState());
+    assertFalse(statistics.allowRequest(now.plus(COOL_DOWN)));
+    assertTrue(statistics.allowRequest(now.plus(COOL_DOWN).plus(COOL_DOWN)));
+  }
+
+  @Test
+  public void halfOpen_Abandon() {
+    fail(FAILURE_THRESHOLD);
+
+    assertTrue(statistics.allowRequest(now.plus(COOL_DOWN)));
+    statistics.abandon(now.plus(COOL_DOWN));
+    assertEquals(DriveStatistics.State.OPEN, statistics.getState());
+    assertEquals(FAILURE_THRESHOLD, statistics.getRequests());
+    assertTrue(statistics.allowRequest(now.plus(COOL_DOWN)));
+    assertEquals(DriveStatistics.State.HALF_OPEN, statistics.getState());
+  }
+
+  @Test
+  public void abandon_Closed() {
+    statistics.abandon(now);
+
+    assertEquals(DriveStatistics.State.CLOSED, statistics.getState());
+    assertEquals(0, statistics.getRequests());
+    assertTrue(statistics.allowRequest(now));
+  }
+}
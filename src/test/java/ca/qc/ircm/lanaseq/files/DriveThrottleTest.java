@@ -0,0 +1,106 @@
+package ca.qc.ircm.lanaseq.files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import ca.qc.ircm.lanaseq.AppConfiguration.NetworkDrive;
+import ca.qc.ircm.lanaseq.DataWithFiles;
+import java.util.concurrent.Semaphore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+/**
+ * Tests for {@link DriveThrottle}.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class DriveThrottleTest {
+
+  private DriveThrottle throttle;
+  @Mock
+  private NetworkDrive<DataWithFiles> drive;
+  @Mock
+  private NetworkDrive<DataWithFiles> drive2;
+
+  @BeforeEach
+  public void beforeTest() {
+    throttle = new DriveThrottle();
+    when(drive.getConcurrency()).thenReturn(4);
+    when(drive2.getConcurrency()).thenReturn(2);
+  }
+
+  @Test
+  public void permits() {
+    Semaphore permits = throttle.permits(drive);
+    assertEquals(4, permits.availablePermits());
+    assertTrue(permits.isFair());
+  }
+
+  @Test
+  public void permits_SameDrive() {
+    Semaphore permits = throttle.permits(drive);
+    permits.acquireUninterruptibly();
+    assertSame(permits, throttle.permits(drive));
+    assertEquals(3, throttle.permits(drive).availablePermits());
+  }
+
+  @Test
+  public void permits_OtherDrive() {
+    Semaphore permits = throttle.permits(drive);
+    Semaphore permits2 = throttle.permits(drive2);
+    assertNotSame(permits, permits2);
+    assertEquals(2, permits2.availablePermits());
+  }
+
+  @Test
+  public void permits_ZeroConcurrency() {
+    when(drive.getConcurrency()).thenReturn(0);
+    assertEquals(1, throttle.permits(drive).availablePermits());
+  }
+
+  @Test
+  public void permits_NullDrive() {
+    Semaphore permits = throttle.permits(null);
+    assertEquals(DriveThrottle.OTHER_CONCURRENCY, permits.availablePermits());
+    assertTrue(permits.isFair());
+    assertNotSame(throttle.permits(drive), permits);
+  }
+
+  @Test
+  public void permits_NullDrive_Shared() {
+    Semaphore permits = throttle.permits(null);
+    permits.acquireUninterruptibly();
+    assertSame(permits, throttle.permits(null));
+    assertEquals(0, throttle.permits(null).availablePermits());
+  }
+
+  @Test
+  public void concurrency() {
+    assertEquals(4, throttle.concurrency(drive));
+  }
+
+  @Test
+  public void concurrency_NullDrive() {
+    assertEquals(DriveThrottle.OTHER_CONCURRENCY, throttle.concurrency(null));
+  }
+
+  @Test
+  public void concurrency_Zero() {
+    when(drive.getConcurrency()).thenReturn(0);
+    assertEquals(1, throttle.concurrency(drive));
+  }
+
+  @Test
+  public void concurrency_Negative() {
+    when(drive.getConcurrency()).thenReturn(-2);
+    assertEquals(1, throttle.concurrency(drive));
+  }
+}
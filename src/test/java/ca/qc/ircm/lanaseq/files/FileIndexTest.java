@@ -0,0 +1,395 @@
+package ca.qc.ircm.lanaseq.files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import ca.qc.ircm.lanaseq.AppConfiguration;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for {@link FileIndex}.
+ */
+public class FileIndexTest {
+
+  @TempDir
+  Path temporaryFolder;
+  private FileIndex fileIndex;
+  private AppConfiguration configuration;
+  private Path folder;
+  private Path indexFolder;
+  private final List<Runnable> rebuilds = new ArrayList<>();
+
+  @BeforeEach
+  public void beforeTest() throws Throwable {
+    configuration = mock(AppConfiguration.class);
+    folder = temporaryFolder.resolve("home");
+    indexFolder = temporaryFolder.resolve("index");
+    when(configuration.getFileIndexFolder()).thenReturn(indexFolder);
+    when(configuration.getFileIndexMaxAge()).thenReturn(Duration.ofHours(1));
+    fileIndex = new FileIndex(configuration, rebuilds::add);
+    Files.createDirectories(folder.resolve("otherdirectory"));
+    Files.createFile(folder.resolve("OF_20241118_ROB_01.raw"));
+    Files.createFile(folder.resolve("otherdirectory/A_OF_20241118_ROB_01_0.raw"));
+    Files.createFile(folder.resolve("otherdirectory/OF_20241118_ROB_02.raw"));
+  }
+
+  private Path indexFile() throws Throwable {
+    try (Stream<Path> files = Files.list(indexFolder)) {
+      return files.findFirst().orElseThrow();
+    }
+  }
+
+  private List<String> readIndex() throws Throwable {
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+        new GZIPInputStream(Files.newInputStream(indexFile())), StandardCharsets.UTF_8))) {
+      return reader.lines().toList();
+    }
+  }
+
+  private void writeIndex(List<String> lines) throws Throwable {
+    try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+        new GZIPOutputStream(Files.newOutputStream(indexFile())), StandardCharsets.UTF_8))) {
+      for (String line : lines) {
+        writer.write(line);
+        writer.write("\n");
+      }
+    }
+  }
+
+  private void setBuilt(Instant built) throws Throwable {
+    List<String> lines = new ArrayList<>(readIndex());
+    lines.set(0, FileIndex.BUILT_HEADER + built);
+    writeIndex(lines);
+  }
+
+  @Test
+  public void files() {
+    List<Path> files = fileIndex.files(folder, List.of("OF_20241118_ROB_01"));
+
+    assertEquals(2, files.size());
+    assertTrue(files.contains(folder.resolve("OF_20241118_ROB_01.raw")));
+    assertTrue(files.contains(folder.resolve("otherdirectory/A_OF_20241118_ROB_01_0.raw")));
+  }
+
+  @Test
+  public void files_CreatesIndex() throws Throwable {
+    fileIndex.files(folder, List.of("OF_20241118_ROB_01"));
+
+    Path indexFile = indexFile();
+    assertTrue(indexFile.getFileName().toString().endsWith(FileIndex.INDEX_EXTENSION));
+  }
+
+  @Test
+  public void files_LoadsIndex() throws Throwable {
+    fileIndex.files(folder, List.of("OF_20241118_ROB_01"));
+    Files.createFile(folder.resolve("OF_20241118_ROB_01.txt"));
+    fileIndex = new FileIndex(configuration, rebuilds::add);
+
+    List<Path> files = fileIndex.files(folder, List.of("OF_20241118_ROB_01"));
+
+    // File created after index is not found.
+    assertEquals(2, files.size());
+    assertFalse(files.contains(folder.resolve("OF_20241118_ROB_01.txt")));
+  }
+
+  @Test
+  public void files_StaleIndex() throws Throwable {
+    fileIndex.files(folder, List.of("OF_20241118_ROB_01"));
+    Files.createFile(folder.resolve("OF_20241118_ROB_01.txt"));
+    setBuilt(Instant.now().minus(2, ChronoUnit.HOURS));
+    fileIndex = new FileIndex(configuration, rebuilds::add);
+
+    List<Path> files = fileIndex.files(folder, List.of("OF_20241118_ROB_01"));
+
+    // Stale index is used until it is rebuilt.
+    assertEquals(2, files.size());
+    assertFalse(files.contains(folder.resolve("OF_20241118_ROB_01.txt")));
+    assertEquals(1, rebuilds.size());
+    rebuilds.removeFirst().run();
+    files = fileIndex.files(folder, List.of("OF_20241118_ROB_01"));
+    assertEquals(3, files.size());
+    assertTrue(files.contains(folder.resolve("OF_20241118_ROB_01.txt")));
+    assertTrue(rebuilds.isEmpty());
+  }
+
+  @Test
+  public void files_StaleIndex_ModifiedIndexFile() throws Throwable {
+    fileIndex.files(folder, List.of("OF_20241118_ROB_01"));
+    setBuilt(Instant.now().minus(2, ChronoUnit.HOURS));
+    Files.setLastModifiedTime(indexFile(), FileTime.from(Instant.now()));
+    fileIndex = new FileIndex(configuration, rebuilds::add);
+
+    fileIndex.files(folder, List.of("OF_20241118_ROB_01"));
+
+    // Build date is read inside the index file.
+    assertEquals(1, rebuilds.size());
+  }
+
+  @Test
+  public void files_StaleIndex_NoBuiltHeader() throws Throwable {
+    fileIndex.files(folder, List.of("OF_20241118_ROB_01"));
+    List<String> lines = readIndex();
+    writeIndex(lines.subList(1, lines.size()));
+    Files.setLastModifiedTime(indexFile(),
+        FileTime.from(Instant.now().minus(2, ChronoUnit.HOURS)));
+    fileIndex = new FileIndex(configuration, rebuilds::add);
+
+    List<Path> files = fileIndex.files(folder, List.of("OF_20241118_ROB_01"));
+
+    // Index file without build date is dated by its last modification.
+    assertEquals(2, files.size());
+    assertEquals(1, rebuilds.size());
+  }
+
+  @Test
+  public void files_StaleIndex_RebuildOnce() throws Throwable {
+    when(configuration.getFileIndexMaxAge()).thenReturn(Duration.ZERO);
+    fileIndex.files(folder, List.of("OF_20241118_ROB_01"));
+    Thread.sleep(5);
+
+    fileIndex.files(folder, List.of("OF_20241118_ROB_01"));
+    fileIndex.files(folder, List.of("OF_20241118_ROB_02"));
+
+    assertEquals(1, rebuilds.size());
+  }
+
+  @Test
+  public void files_StaleIndex_RebuildRejected() throws Throwable {
+    when(configuration.getFileIndexMaxAge()).thenReturn(Duration.ZERO);
+    fileIndex = new FileIndex(configuration, task -> {
+      throw new RejectedExecutionException("test");
+    });
+    fileIndex.files(folder, List.of("OF_20241118_ROB_01"));
+    Thread.sleep(5);
+    Files.createFile(folder.resolve("OF_20241118_ROB_01.txt"));
+
+    List<Path> files = fileIndex.files(folder, List.of("OF_20241118_ROB_01"));
+
+    assertEquals(2, files.size());
+  }
+
+  @Test
+  public void files_DeletedFile() throws Throwable {
+    fileIndex.files(folder, List.of("OF_20241118_ROB_01"));
+    Files.delete(folder.resolve("OF_20241118_ROB_01.raw"));
+
+    List<Path> files = fileIndex.files(folder, List.of("OF_20241118_ROB_01"));
+
+    assertEquals(1, files.size());
+    assertTrue(files.contains(folder.resolve("otherdirectory/A_OF_20241118_ROB_01_0.raw")));
+  }
+
+  @Test
+  public void files_IndexDisabled() {
+    when(configuration.getFileIndexFolder()).thenReturn(null);
+
+    List<Path> files = fileIndex.files(folder, List.of("OF_20241118_ROB_01"));
+
+    assertEquals(2, files.size());
+    assertTrue(files.contains(folder.resolve("OF_20241118_ROB_01.raw")));
+    assertTrue(files.contains(folder.resolve("otherdirectory/A_OF_20241118_ROB_01_0.raw")));
+    assertFalse(Files.exists(indexFolder));
+  }
+
+  @Test
+  public void files_FolderNotExists() {
+    List<Path> files = fileIndex.files(temporaryFolder.resolve("missing"),
+        List.of("OF_20241118_ROB_01"));
+
+    assertTrue(files.isEmpty());
+  }
+
+  @Test
+  public void rebuild() throws Throwable {
+    fileIndex.files(folder, List.of("OF_20241118_ROB_01"));
+    Files.createFile(folder.resolve("OF_20241118_ROB_01.txt"));
+
+    fileIndex.rebuild(folder);
+
+    List<Path> files = fileIndex.files(folder, List.of("OF_20241118_ROB_01"));
+    assertEquals(3, files.size());
+    assertTrue(files.contains(folder.resolve("OF_20241118_ROB_01.txt")));
+  }
+  @Test
+  public void rebuild_UpdatesBuilt() throws Throwable {
+    fileIndex.load(folder);
+    setBuilt(Instant.now().minus(2, ChronoUnit.HOURS));
+    Instant before = Instant.now();
+
+    fileIndex.rebuild(folder);
+
+    String header = readIndex().get(0);
+    assertTrue(header.startsWith(FileIndex.BUILT_HEADER));
+    Instant built = Instant.parse(header.substring(FileIndex.BUILT_HEADER.length()));
+    assertFalse(built.isBefore(before));
+  }
+
+  @Test
+  public void add() throws Throwable {
+    fileIndex.load(folder);
+    Path file = Files.createFile(folder.resolve("OF_20241118_ROB_01.txt"));
+
+    fileIndex.add(file);
+
+    List<Path> files = fileIndex.files(folder, List.of("OF_20241118_ROB_01"));
+    assertEquals(3, files.size());
+    assertTrue(files.contains(file));
+  }
+
+  @Test
+  public void add_NotLoaded() throws Throwable {
+    Path file = Files.createFile(folder.resolve("OF_20241118_ROB_01.txt"));
+
+    fileIndex.add(file);
+
+    assertFalse(Files.exists(indexFolder));
+  }
+
+  @Test
+  public void remove() throws Throwable {
+    fileIndex.load(folder);
+    Path file = folder.resolve("OF_20241118_ROB_01.raw");
+
+    fileIndex.remove(file);
+
+    List<Path> files = fileIndex.files(folder, List.of("OF_20241118_ROB_01"));
+    assertEquals(1, files.size());
+    assertFalse(files.contains(file));
+  }
+
+  @Test
+  public void remove_Folder() {
+    fileIndex.load(folder);
+
+    fileIndex.remove(folder.resolve("otherdirectory"));
+
+    List<Path> files = fileIndex.files(folder, List.of("OF_20241118_ROB_0"));
+    assertEquals(1, files.size());
+    assertTrue(files.contains(folder.resolve("OF_20241118_ROB_01.raw")));
+  }
+
+  @Test
+  public void move() throws Throwable {
+    fileIndex.load(folder);
+    Path source = folder.resolve("OF_20241118_ROB_01.raw");
+    Path target = folder.resolve("OF_20241118_ROB_03.raw");
+    Files.move(source, target);
+
+    fileIndex.move(source, target);
+
+    List<Path> files = fileIndex.files(folder, List.of("OF_20241118_ROB_03"));
+    assertEquals(1, files.size());
+    assertTrue(files.contains(target));
+  }
+
+  @Test
+  public void move_Folder() throws Throwable {
+    fileIndex.load(folder);
+    Path source = folder.resolve("otherdirectory");
+    Path target = folder.resolve("movedirectory");
+    Files.move(source, target);
+
+    fileIndex.move(source, target);
+
+    List<Path> files = fileIndex.files(folder, List.of("OF_20241118_ROB_02"));
+    assertEquals(1, files.size());
+    assertTrue(files.contains(target.resolve("OF_20241118_ROB_02.raw")));
+  }
+
+  @Test
+  public void rescan() throws Throwable {
+    fileIndex.load(folder);
+    Path file = Files.createFile(folder.resolve("otherdirectory/OF_20241118_ROB_01.txt"));
+
+    fileIndex.rescan(folder.resolve("otherdirectory"));
+
+    List<Path> files = fileIndex.files(folder, List.of("OF_20241118_ROB_01"));
+    assertEquals(3, files.size());
+    assertTrue(files.contains(file));
+  }
+
+  @Test
+  public void rescan_DeletedFile() throws Throwable {
+    fileIndex.load(folder);
+    Files.delete(folder.resolve("otherdirectory/A_OF_20241118_ROB_01_0.raw"));
+    Path file = Files.createFile(folder.resolve("otherdirectory/OF_20241118_ROB_01.txt"));
+
+    fileIndex.rescan(folder.resolve("otherdirectory"));
+
+    List<Path> files = fileIndex.files(folder, List.of("OF_20241118_ROB_0"));
+    assertEquals(3, files.size());
+    assertTrue(files.contains(folder.resolve("OF_20241118_ROB_01.raw")));
+    assertTrue(files.contains(folder.resolve("otherdirectory/OF_20241118_ROB_02.raw")));
+    assertTrue(files.contains(file));
+  }
+
+  @Test
+  public void setWatched() throws Throwable {
+    fileIndex.load(folder);
+    setBuilt(Instant.now().minus(2, ChronoUnit.HOURS));
+    fileIndex = new FileIndex(configuration, rebuilds::add);
+    fileIndex.setWatched(folder, true);
+    Files.createFile(folder.resolve("OF_20241118_ROB_01.txt"));
+
+    List<Path> files = fileIndex.files(folder, List.of("OF_20241118_ROB_01"));
+
+    // Watched index is never stale.
+    assertEquals(2, files.size());
+    assertFalse(files.contains(folder.resolve("OF_20241118_ROB_01.txt")));
+  }
+
+  @Test
+  public void saveIndexes() throws Throwable {
+    fileIndex.load(folder);
+    Path file = Files.createFile(folder.resolve("OF_20241118_ROB_01.txt"));
+    fileIndex.add(file);
+
+    fileIndex.saveIndexes();
+
+    fileIndex = new FileIndex(configuration, rebuilds::add);
+    List<Path> files = fileIndex.files(folder, List.of("OF_20241118_ROB_01"));
+    assertEquals(3, files.size());
+    assertTrue(files.contains(file));
+  }
+
+  @Test
+  public void saveIndexes_KeepsBuilt() throws Throwable {
+    fileIndex.load(folder);
+    setBuilt(Instant.now().minus(2, ChronoUnit.HOURS));
+    fileIndex = new FileIndex(configuration, rebuilds::add);
+    fileIndex.load(folder);
+    rebuilds.clear();
+    Path file = Files.createFile(folder.resolve("OF_20241118_ROB_01.txt"));
+    fileIndex.add(file);
+
+    fileIndex.saveIndexes();
+
+    fileIndex = new FileIndex(configuration, rebuilds::add);
+    List<Path> files = fileIndex.files(folder, List.of("OF_20241118_ROB_01"));
+    assertEquals(3, files.size());
+    // Saved index is still stale.
+    assertEquals(1, rebuilds.size());
+  }
+}
@@ -0,0 +1,131 @@
+package ca.qc.ircm.lanaseq.files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ca.qc.ircm.lanaseq.AppConfiguration;
+import ca.qc.ircm.lanaseq.DataWithFiles;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for {@link FileIndexWatcher}.
+ */
+public class FileIndexWatcherTest {
+
+  private static final long TIMEOUT = 10000;
+  @TempDir
+  Path temporaryFolder;
+  private FileIndexWatcher watcher;
+  private FileIndex fileIndex;
+  private Path folder;
+  private AppConfiguration configuration;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  public void beforeTest() throws Throwable {
+    configuration = mock(AppConfiguration.class);
+    AppConfiguration.NetworkDrive<DataWithFiles> home = mock(AppConfiguration.NetworkDrive.class);
+    folder = temporaryFolder.resolve("home");
+    when(configuration.getHome()).thenReturn(home);
+    when(home.getFolder()).thenReturn(folder);
+    when(configuration.getFileIndexFolder()).thenReturn(temporaryFolder.resolve("index"));
+    when(configuration.getFileIndexMaxAge()).thenReturn(Duration.ofHours(1));
+    Files.createDirectories(folder.resolve("otherdirectory"));
+    Files.createFile(folder.resolve("OF_20241118_ROB_01.raw"));
+    fileIndex = new FileIndex(configuration);
+    watcher = new FileIndexWatcher(configuration, fileIndex);
+  }
+
+  @AfterEach
+  public void afterTest() {
+    watcher.stop();
+  }
+
+  private void waitFor(Supplier<Boolean> condition) throws InterruptedException {
+    long end = System.currentTimeMillis() + TIMEOUT;
+    while (!condition.get() && System.currentTimeMillis() < end) {
+      Thread.sleep(50);
+    }
+  }
+
+  private List<Path> files() {
+    return fileIndex.files(folder, List.of("OF_20241118_ROB_0"));
+  }
+
+  @Test
+  public void start_Create() throws Throwable {
+    watcher.start();
+    Path file = Files.createFile(folder.resolve("otherdirectory/OF_20241118_ROB_02.raw"));
+
+    waitFor(() -> files().size() == 2);
+    List<Path> files = files();
+    assertEquals(2, files.size());
+    assertTrue(files.contains(file));
+  }
+
+  @Test
+  public void start_LoadInBackground() throws Throwable {
+    FileIndex fileIndex = mock(FileIndex.class);
+    CountDownLatch loading = new CountDownLatch(1);
+    AtomicReference<Thread> loadThread = new AtomicReference<>();
+    doAnswer(i -> {
+      loadThread.set(Thread.currentThread());
+      return loading.await(TIMEOUT, TimeUnit.MILLISECONDS);
+    }).when(fileIndex).load(any());
+    watcher = new FileIndexWatcher(configuration, fileIndex);
+
+    watcher.start();
+
+    verify(fileIndex, timeout(TIMEOUT)).load(folder);
+    assertNotEquals(Thread.currentThread(), loadThread.get());
+    assertEquals(1, loading.getCount());
+    verify(fileIndex).setWatched(folder, true);
+    loading.countDown();
+  }
+
+  @Test
+  public void start_CreateInNewFolder() throws Throwable {
+    watcher.start();
+    Path newFolder = Files.createDirectory(folder.resolve("newdirectory"));
+    Thread.sleep(200);
+    Path file = Files.createFile(newFolder.resolve("OF_20241118_ROB_02.raw"));
+
+    waitFor(() -> files().contains(file));
+    assertTrue(files().contains(file));
+  }
+
+  @Test
+  public void start_CreateInLinkedFolder() throws Throwable {
+    Path linked = Files.createDirectory(temporaryFolder.resolve("linked"));
+    Files.createSymbolicLink(folder.resolve("link"), linked);
+    watcher.start();
+    Files.createFile(linked.resolve("OF_20241118_ROB_02.raw"));
+
+    Path file = folder.resolve("link/OF_20241118_ROB_02.raw");
+    waitFor(() -> files().contains(file));
+    assertTrue(files().contains(file));
+  }
+
+  @Test
+  public void isWatchable() {
+    assertTrue(watcher.isWatchable(folder));
+  }
+}
@@ -0,0 +1,196 @@
+package ca.qc.ircm.lanaseq.files;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import ca.qc.ircm.lanaseq.AppConfiguration;
+import ca.qc.ircm.lanaseq.AppConfiguration.NetworkDrive;
+import ca.qc.ircm.lanaseq.BoundedTaskExecutor;
+import ca.qc.ircm.lanaseq.DataWithFiles;
+import ca.qc.ircm.lanaseq.ExecutorsConfiguration;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Load test of many ingestions submitted at the same time to an executor with platform or
+ * virtual threads, see {@link BoundedTaskExecutor}.
+ *
+ * <p>Each ingestion moves one file to its own sample folder using {@link FileIngester}, like
+ * saving files of a sample does. The <code>latency</code> parameter adds a pause after each file
+ * is moved to simulate waiting on a network file system. The score is the time needed to
+ * complete all ingestions, throughput is <code>ingestions</code> divided by score.</p>
+ *
+ * <p>Run with <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=ca.qc.ircm.lanaseq.files.FileIngesterLoadBenchmark</code>.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileIngesterLoadBenchmark {
+
+  /**
+   * True to run ingestions on virtual threads.
+   */
+  @Param({"false", "true"})
+  public boolean virtualThreads;
+  /**
+   * Number of ingestions running at the same time.
+   */
+  @Param({"4", "400"})
+  public int concurrency;
+  /**
+   * Number of ingestions submitted at the same time.
+   */
+  @Param({"400"})
+  public int ingestions;
+  /**
+   * Size of each file, in bytes.
+   */
+  @Param({"65536"})
+  public long fileSize;
+  /**
+   * Simulated network file system latency after each file is moved, in milliseconds.
+   */
+  @Param({"20"})
+  public long latency;
+  private Path root;
+  private Path upload;
+  private Path home;
+  private FileIngester ingester;
+  private BoundedTaskExecutor executor;
+  private NetworkDrive<DataWithFiles> drive;
+  private final List<Path> files = new ArrayList<>();
+  private final BiConsumer<String, Double> progression = (message, progress) -> {
+  };
+
+  /**
+   * Creates ingester and executor.
+   *
+   * @throws IOException could not create folders
+   */
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setup() throws IOException {
+    root = Files.createTempDirectory("ingester-benchmark");
+    upload = Files.createDirectories(root.resolve("upload"));
+    home = Files.createDirectories(root.resolve("home"));
+    drive = mock(NetworkDrive.class);
+    when(drive.getFolder()).thenReturn(home);
+    when(drive.getConcurrency()).thenReturn(ingestions);
+    AppConfiguration configuration = mock(AppConfiguration.class);
+    when(configuration.getHome()).thenReturn(drive);
+    ingester = new FileIngester(configuration, mock(FileIndex.class),
+        new DedupStore(configuration), new DriveThrottle());
+    executor = new BoundedTaskExecutor("ingestion",
+        new ExecutorsConfiguration.Pool(concurrency, ingestions, Thread.NORM_PRIORITY),
+        virtualThreads, new ThreadPoolExecutor.AbortPolicy(),
+        SecurityContextHolder.getContextHolderStrategy());
+  }
+
+  /**
+   * Creates files to ingest.
+   *
+   * @throws IOException could not create files
+   */
+  @Setup(Level.Invocation)
+  public void createFiles() throws IOException {
+    files.clear();
+    for (int i = 0; i < ingestions; i++) {
+      Path file = upload.resolve(String.format("sample%03d_R1.fastq", i));
+      try (RandomAccessFile output = new RandomAccessFile(file.toFile(), "rw")) {
+        output.setLength(fileSize);
+      }
+      files.add(file);
+    }
+  }
+
+  /**
+   * Deletes ingested files.
+   *
+   * @throws IOException could not delete files
+   */
+  @TearDown(Level.Invocation)
+  public void deleteFiles() throws IOException {
+    FileSystemUtils.deleteRecursively(home);
+    Files.createDirectories(home);
+  }
+
+  /**
+   * Deletes folders and stops executor.
+   *
+   * @throws IOException could not delete folders
+   */
+  @TearDown
+  public void teardown() throws IOException {
+    executor.destroy();
+    ingester.shutdown();
+    FileSystemUtils.deleteRecursively(root);
+  }
+
+  /**
+   * Submits all ingestions at the same time and waits for them to complete.
+   *
+   * @return number of ingestions
+   * @throws Exception could not ingest a file
+   */
+  @Benchmark
+  public int ingest() throws Exception {
+    List<Future<?>> futures = new ArrayList<>();
+    for (Path file : files) {
+      Path target = home.resolve(file.getFileName().toString().substring(0, 9))
+          .resolve(file.getFileName());
+      futures.add(executor.submit(() -> {
+        Files.createDirectories(target.getParent());
+        ingester.ingest(drive, Map.of(file, target), progression, moved -> {
+          try {
+            Thread.sleep(latency);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+        return null;
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    return futures.size();
+  }
+
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    new Runner(new OptionsBuilder().parent(new CommandLineOptions(args))
+        .include(FileIngesterLoadBenchmark.class.getSimpleName()).build()).run();
+  }
+}
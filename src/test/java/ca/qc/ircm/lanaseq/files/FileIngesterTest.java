@@ -0,0 +1,578 @@
+package ca.qc.ircm.lanaseq.files;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import ca.qc.ircm.lanaseq.AppConfiguration;
+import ca.qc.ircm.lanaseq.AppConfiguration.NetworkDrive;
+import ca.qc.ircm.lanaseq.DataWithFiles;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+/**
+ * Tests for {@link FileIngester}.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class FileIngesterTest {
+
+  private FileIngester ingester;
+  @Mock
+  private AppConfiguration configuration;
+  @Mock
+  private FileIndex fileIndex;
+  @Mock
+  private NetworkDrive<DataWithFiles> drive;
+  @Mock
+  private BiConsumer<String, Double> progression;
+  @TempDir
+  Path temporaryFolder;
+  private Path upload;
+  private Path home;
+  private final Map<Path, Path> files = new LinkedHashMap<>();
+  private final List<Path> moved = Collections.synchronizedList(new ArrayList<>());
+
+  @BeforeEach
+  public void beforeTest() throws Throwable {
+    when(configuration.getHome()).thenReturn(drive);
+    ingester = new FileIngester(configuration, fileIndex, new DedupStore(configuration),
+        new DriveThrottle());
+    upload = Files.createDirectory(temporaryFolder.resolve("upload"));
+    home = Files.createDirectory(temporaryFolder.resolve("home"));
+    when(drive.getFolder()).thenReturn(home);
+    for (int i = 1; i <= 4; i++) {
+      Path file = Files.write(upload.resolve("R" + i + ".fastq"), ("content " + i).getBytes());
+      files.put(file, home.resolve("sample_R" + i + ".fastq"));
+    }
+  }
+
+  @AfterEach
+  public void afterTest() {
+    ingester.shutdown();
+  }
+
+  private List<Path> withChecksums(Collection<Path> files) {
+    return files.stream().flatMap(file -> Stream.of(file, Checksum.MD5.sidecar(file))).toList();
+  }
+
+  private String md5(String content) throws Throwable {
+    return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(content.getBytes()));
+  }
+
+  @Test
+  public void ingest() throws Throwable {
+    when(drive.getConcurrency()).thenReturn(2);
+
+    ingester.ingest(drive, files, progression, moved::add);
+
+    for (Map.Entry<Path, Path> file : files.entrySet()) {
+      assertFalse(Files.exists(file.getKey()));
+      assertTrue(Files.exists(file.getValue()));
+      assertTrue(moved.contains(file.getValue()));
+      // Renamed files are not read to compute their checksums.
+      assertFalse(Files.exists(Checksum.MD5.sidecar(file.getValue())));
+    }
+    assertEquals(4, moved.size());
+    assertArrayEquals("content 1".getBytes(),
+        Files.readAllBytes(home.resolve("sample_R1.fastq")));
+    verify(progression).accept("", 1.0);
+  }
+
+  @Test
+  public void ingest_Sequential() throws Throwable {
+    when(drive.getConcurrency()).thenReturn(1);
+
+    ingester.ingest(drive, files, progression, moved::add);
+
+    assertEquals(List.copyOf(files.values()), moved);
+    verify(progression).accept("sample_R1.fastq (move)", 0.0);
+    verify(progression).accept("sample_R2.fastq (move)", 0.25);
+    verify(progression).accept("sample_R3.fastq (move)", 0.5);
+    verify(progression).accept("sample_R4.fastq (move)", 0.75);
+    verify(progression).accept("", 1.0);
+  }
+
+  @Test
+  public void ingest_ConcurrencyNotPositive() throws Throwable {
+    when(drive.getConcurrency()).thenReturn(0);
+
+    ingester.ingest(drive, files, progression, moved::add);
+
+    assertEquals(List.copyOf(files.values()), moved);
+  }
+
+  @Test
+  public void ingest_ConcurrencyLimit() throws Throwable {
+    when(drive.getConcurrency()).thenReturn(2);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maximum = new AtomicInteger();
+
+    ingester.ingest(drive, files, progression, target -> {
+      maximum.accumulateAndGet(running.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(100);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      running.decrementAndGet();
+    });
+
+    assertEquals(2, maximum.get());
+  }
+
+  @Test
+  public void ingest_ConcurrencyLimit_SharedByCalls() throws Throwable {
+    when(drive.getConcurrency()).thenReturn(1);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maximum = new AtomicInteger();
+    Map<Path, Path> otherFiles = new LinkedHashMap<>();
+    for (int i = 1; i <= 2; i++) {
+      Path file = Files.write(upload.resolve("other" + i + ".fastq"), new byte[10]);
+      otherFiles.put(file, home.resolve("other" + i + ".fastq"));
+    }
+    Consumer<Path> slow = target -> {
+      maximum.accumulateAndGet(running.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      running.decrementAndGet();
+    };
+
+    Thread other = Thread.ofVirtual()
+        .start(() -> ingester.ingest(drive, otherFiles, (message, progress) -> {
+        }, slow));
+    ingester.ingest(drive, files, progression, slow);
+    other.join();
+
+    assertEquals(1, maximum.get());
+    assertTrue(Files.exists(home.resolve("other1.fastq")));
+    assertTrue(Files.exists(home.resolve("other2.fastq")));
+  }
+
+  @Test
+  public void ingest_Checksums() throws Throwable {
+    when(drive.getConcurrency()).thenReturn(2);
+    when(configuration.isRenameChecksums()).thenReturn(true);
+
+    ingester.ingest(drive, files, progression, moved::add);
+
+    for (int i = 1; i <= 4; i++) {
+      Path md5 = home.resolve("sample_R" + i + ".fastq.md5");
+      assertEquals(List.of(md5("content " + i) + "  sample_R" + i + ".fastq"),
+          Files.readAllLines(md5));
+      assertFalse(Files.exists(home.resolve("sample_R" + i + ".fastq.sha256")));
+    }
+  }
+
+  @Test
+  public void ingest_Checksums_Move() throws Throwable {
+    when(drive.getConcurrency()).thenReturn(1);
+    Path target = files.values().iterator().next();
+    // Checksum of the file that is replaced.
+    Files.writeString(Checksum.MD5.sidecar(target), md5("old content") + "  sample_R1.fastq");
+
+    ingester.ingest(drive, files, progression, moved::add);
+
+    for (int i = 1; i <= 4; i++) {
+      assertFalse(Files.exists(home.resolve("sample_R" + i + ".fastq.md5")));
+    }
+    assertEquals(List.copyOf(files.values()), moved);
+  }
+
+  @Test
+  public void ingest_Checksums_Move_Progress() throws Throwable {
+    when(drive.getConcurrency()).thenReturn(1);
+    when(configuration.isRenameChecksums()).thenReturn(true);
+
+    ingester.ingest(drive, files, progression, moved::add);
+
+    assertEquals(withChecksums(files.values()), moved);
+    verify(progression).accept("sample_R1.fastq (move)", 0.0);
+    verify(progression).accept("sample_R2.fastq (move)", 0.25);
+    verify(progression).accept("", 1.0);
+  }
+
+  @Test
+  public void ingest_Checksums_Sha256() throws Throwable {
+    when(drive.getConcurrency()).thenReturn(2);
+    when(configuration.isRenameChecksums()).thenReturn(true);
+    when(configuration.isSha256Checksums()).thenReturn(true);
+
+    ingester.ingest(drive, files, progression, moved::add);
+
+    for (int i = 1; i <= 4; i++) {
+      Path sha256 = home.resolve("sample_R" + i + ".fastq.sha256");
+      assertTrue(moved.contains(sha256));
+      assertEquals(List.of(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+              .digest(("content " + i).getBytes())) + "  sample_R" + i + ".fastq"),
+          Files.readAllLines(sha256));
+      assertTrue(Files.exists(home.resolve("sample_R" + i + ".fastq.md5")));
+    }
+    assertEquals(12, moved.size());
+  }
+
+  @Test
+  public void ingest_Checksums_Copy() throws Throwable {
+    when(drive.getConcurrency()).thenReturn(1);
+    try (FileSystem zip = FileSystems.newFileSystem(temporaryFolder.resolve("home.zip"),
+        Map.of("create", "true"))) {
+      Path source = files.keySet().iterator().next();
+      Path target = zip.getPath("/sample_R1.fastq");
+
+      ingester.ingest(drive, Map.of(source, target), progression, moved::add);
+
+      assertFalse(Files.exists(source));
+      verify(progression).accept("sample_R1.fastq (copy)", 0.0);
+      assertEquals(List.of(md5("content 1") + "  sample_R1.fastq"),
+          Files.readAllLines(zip.getPath("/sample_R1.fastq.md5")));
+    }
+  }
+
+  @Test
+  public void ingest_Copy_Journal() throws Throwable {
+    when(drive.getConcurrency()).thenReturn(1);
+    try (FileSystem zip = FileSystems.newFileSystem(temporaryFolder.resolve("home.zip"),
+        Map.of("create", "true"))) {
+      Path source = files.keySet().iterator().next();
+      Path target = zip.getPath("/sample_R1.fastq");
+
+      ingester.ingest(drive, Map.of(source, target), progression, moved::add);
+
+      assertFalse(Files.exists(source));
+      assertArrayEquals("content 1".getBytes(), Files.readAllBytes(target));
+      assertFalse(Files.exists(FileIngester.temporary(target)));
+      assertFalse(Files.exists(IngestJournal.file(home, zip.getPath("/"))));
+    }
+  }
+
+  @Test
+  public void ingest_Copy_Resume() throws Throwable {
+    when(drive.getConcurrency()).thenReturn(1);
+    try (FileSystem zip = FileSystems.newFileSystem(temporaryFolder.resolve("home.zip"),
+        Map.of("create", "true"))) {
+      Path source = files.keySet().iterator().next();
+      Path target = zip.getPath("/sample_R1.fastq");
+      IngestJournal journal = IngestJournal.load(IngestJournal.file(home, zip.getPath("/")));
+      journal.start(source, target, Files.size(source));
+      journal.offset(target, 4);
+      // Bytes before offset are not copied again.
+      Files.writeString(FileIngester.temporary(target), "XXXX garbage");
+
+      ingester.ingest(drive, Map.of(source, target), progression, moved::add);
+
+      assertFalse(Files.exists(source));
+      assertEquals("XXXXent 1", Files.readString(target));
+      assertEquals(List.of(md5("XXXXent 1") + "  sample_R1.fastq"),
+          Files.readAllLines(zip.getPath("/sample_R1.fastq.md5")));
+      assertFalse(Files.exists(FileIngester.temporary(target)));
+      assertFalse(Files.exists(IngestJournal.file(home, zip.getPath("/"))));
+    }
+  }
+
+  @Test
+  public void ingest_Copy_Resume_SourceChanged() throws Throwable {
+    when(drive.getConcurrency()).thenReturn(1);
+    try (FileSystem zip = FileSystems.newFileSystem(temporaryFolder.resolve("home.zip"),
+        Map.of("create", "true"))) {
+      Path source = files.keySet().iterator().next();
+      Path target = zip.getPath("/sample_R1.fastq");
+      IngestJournal journal = IngestJournal.load(IngestJournal.file(home, zip.getPath("/")));
+      journal.start(source, target, Files.size(source) + 1);
+      journal.offset(target, 4);
+      Files.writeString(FileIngester.temporary(target), "XXXX");
+
+      ingester.ingest(drive, Map.of(source, target), progression, moved::add);
+
+      assertEquals("content 1", Files.readString(target));
+      assertFalse(Files.exists(FileIngester.temporary(target)));
+    }
+  }
+
+  @Test
+  public void ingest_Copy_Resume_TemporaryMissing() throws Throwable {
+    when(drive.getConcurrency()).thenReturn(1);
+    try (FileSystem zip = FileSystems.newFileSystem(temporaryFolder.resolve("home.zip"),
+        Map.of("create", "true"))) {
+      Path source = files.keySet().iterator().next();
+      Path target = zip.getPath("/sample_R1.fastq");
+      IngestJournal journal = IngestJournal.load(IngestJournal.file(home, zip.getPath("/")));
+      journal.start(source, target, Files.size(source));
+      journal.offset(target, 4);
+
+      ingester.ingest(drive, Map.of(source, target), progression, moved::add);
+
+      assertEquals("content 1", Files.readString(target));
+      assertFalse(Files.exists(IngestJournal.file(home, zip.getPath("/"))));
+    }
+  }
+
+  @Test
+  public void ingest_Move_RemovesJournalEntry() throws Throwable {
+    when(drive.getConcurrency()).thenReturn(1);
+    Path source = files.keySet().iterator().next();
+    Path target = files.get(source);
+    IngestJournal journal = IngestJournal.load(IngestJournal.file(home, home));
+    journal.start(source, target, Files.size(source));
+    journal.offset(target, 4);
+    Files.writeString(FileIngester.temporary(target), "cont");
+
+    ingester.ingest(drive, files, progression, moved::add);
+
+    assertEquals("content 1", Files.readString(target));
+    assertFalse(Files.exists(FileIngester.temporary(target)));
+    assertFalse(Files.exists(IngestJournal.file(home, home)));
+  }
+
+  @Test
+  public void resume() throws Throwable {
+    when(configuration.getHome()).thenReturn(drive);
+    when(drive.getConcurrency()).thenReturn(1);
+    Path source = files.keySet().iterator().next();
+    Path target = files.get(source);
+    Path uploadedMd5 =
+        Files.writeString(Checksum.MD5.sidecar(source), md5("content 1") + "  R1.fastq");
+    IngestJournal journal = IngestJournal.load(IngestJournal.file(home, home));
+    journal.start(source, target, Files.size(source));
+    journal.offset(target, 4);
+    Files.writeString(FileIngester.temporary(target), "cont");
+
+    ingester.resume();
+
+    assertFalse(Files.exists(source));
+    assertFalse(Files.exists(uploadedMd5));
+    assertEquals("content 1", Files.readString(target));
+    assertEquals(List.of(md5("content 1") + "  sample_R1.fastq"),
+        Files.readAllLines(Checksum.MD5.sidecar(target)));
+    assertFalse(Files.exists(FileIngester.temporary(target)));
+    assertFalse(Files.exists(IngestJournal.file(home, home)));
+    verify(fileIndex).add(target);
+    verify(fileIndex).add(Checksum.MD5.sidecar(target));
+    for (Path other : files.keySet().stream().skip(1).toList()) {
+      assertTrue(Files.exists(other));
+    }
+  }
+
+  @Test
+  public void resume_MissingSource() throws Throwable {
+    when(configuration.getHome()).thenReturn(drive);
+    Path source = upload.resolve("missing.fastq");
+    Path target = home.resolve("sample_missing.fastq");
+    IngestJournal journal = IngestJournal.load(IngestJournal.file(home, home));
+    journal.start(source, target, 100);
+    journal.offset(target, 4);
+    Files.writeString(FileIngester.temporary(target), "cont");
+
+    ingester.resume();
+
+    assertFalse(Files.exists(target));
+    assertFalse(Files.exists(FileIngester.temporary(target)));
+    assertFalse(Files.exists(IngestJournal.file(home, home)));
+    verifyNoInteractions(fileIndex);
+  }
+
+  @Test
+  public void resume_Archives() throws Throwable {
+    Path archive = Files.createDirectory(temporaryFolder.resolve("archive"));
+    NetworkDrive<DataWithFiles> archiveDrive = mock();
+    when(archiveDrive.getFolder()).thenReturn(archive);
+    when(configuration.getHome()).thenReturn(drive);
+    when(configuration.getArchives()).thenReturn(List.of(archiveDrive));
+    Path source = files.keySet().iterator().next();
+    Path target = archive.resolve("sample_R1.fastq");
+    IngestJournal.load(IngestJournal.file(archive, archive)).start(source, target, 9);
+
+    ingester.resume();
+
+    assertFalse(Files.exists(source));
+    assertEquals("content 1", Files.readString(target));
+    assertFalse(Files.exists(IngestJournal.file(archive, archive)));
+    verify(fileIndex).add(target);
+  }
+
+  @Test
+  public void resume_NoJournal() {
+    when(configuration.getHome()).thenReturn(drive);
+
+    ingester.resume();
+
+    for (Path source : files.keySet()) {
+      assertTrue(Files.exists(source));
+    }
+    verifyNoInteractions(fileIndex);
+  }
+
+  @Test
+  public void ingest_Dedup() throws Throwable {
+    when(drive.getConcurrency()).thenReturn(1);
+    when(configuration.isDedup()).thenReturn(true);
+    when(configuration.isRenameChecksums()).thenReturn(true);
+    Files.writeString(upload.resolve("R3.fastq"), "content 1");
+
+    ingester.ingest(drive, files, progression, moved::add);
+
+    assertTrue(Files.isSameFile(home.resolve("sample_R1.fastq"), home.resolve("sample_R3.fastq")));
+    assertFalse(
+        Files.isSameFile(home.resolve("sample_R1.fastq"), home.resolve("sample_R2.fastq")));
+    assertEquals("content 1", Files.readString(home.resolve("sample_R3.fastq")));
+    assertFalse(Files.exists(home.resolve("sample_R1.fastq.sha256")));
+    assertEquals(withChecksums(files.values()), moved);
+    try (Stream<Path> stored = Files.walk(home.resolve(DedupStore.FOLDER))) {
+      assertEquals(3, stored.filter(Files::isRegularFile).count());
+    }
+  }
+
+  @Test
+  public void ingest_Dedup_Move() throws Throwable {
+    when(drive.getConcurrency()).thenReturn(1);
+    when(configuration.isDedup()).thenReturn(true);
+    Files.writeString(upload.resolve("R3.fastq"), "content 1");
+
+    ingester.ingest(drive, files, progression, moved::add);
+
+    // Renamed files are not read, so their content is unknown.
+    assertFalse(
+        Files.isSameFile(home.resolve("sample_R1.fastq"), home.resolve("sample_R3.fastq")));
+    assertFalse(Files.exists(home.resolve(DedupStore.FOLDER)));
+  }
+
+  @Test
+  public void ingest_Dedup_Disabled() throws Throwable {
+    when(drive.getConcurrency()).thenReturn(1);
+    Files.writeString(upload.resolve("R3.fastq"), "content 1");
+
+    ingester.ingest(drive, files, progression, moved::add);
+
+    assertFalse(
+        Files.isSameFile(home.resolve("sample_R1.fastq"), home.resolve("sample_R3.fastq")));
+    assertFalse(Files.exists(home.resolve(DedupStore.FOLDER)));
+  }
+
+  @Test
+  public void ingest_UploadedChecksum() throws Throwable {
+    when(drive.getConcurrency()).thenReturn(1);
+    Path source = files.keySet().iterator().next();
+    Path uploadedMd5 = Files.writeString(upload.resolve("R1.fastq.md5"),
+        md5("content 1").toUpperCase() + "  R1.fastq\n");
+    files.put(uploadedMd5, home.resolve("R1.fastq.md5"));
+
+    ingester.ingest(drive, files, progression, moved::add);
+
+    assertFalse(Files.exists(source));
+    assertFalse(Files.exists(uploadedMd5));
+    assertFalse(Files.exists(home.resolve("R1.fastq.md5")));
+    assertEquals(List.of(md5("content 1") + "  sample_R1.fastq"),
+        Files.readAllLines(home.resolve("sample_R1.fastq.md5")));
+    // Only the file having an uploaded checksum is read.
+    List<Path> targets = files.values().stream().limit(4).toList();
+    assertEquals(Stream.concat(withChecksums(targets.subList(0, 1)).stream(),
+        targets.subList(1, 4).stream()).toList(), moved);
+    verify(progression).accept("sample_R2.fastq (move)", 0.25);
+  }
+
+  @Test
+  public void ingest_UploadedChecksum_Mismatch() throws Throwable {
+    when(drive.getConcurrency()).thenReturn(1);
+    Path source = files.keySet().iterator().next();
+    Path uploadedMd5 =
+        Files.writeString(upload.resolve("R1.fastq.md5"), md5("other content") + "  R1.fastq");
+    files.put(uploadedMd5, home.resolve("R1.fastq.md5"));
+
+    IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+        () -> ingester.ingest(drive, files, progression, moved::add));
+
+    assertTrue(exception.getMessage().contains(source.toString()));
+    assertTrue(Files.exists(source));
+    assertTrue(Files.exists(uploadedMd5));
+    assertFalse(Files.exists(home.resolve("sample_R1.fastq")));
+    assertFalse(Files.exists(home.resolve("sample_R1.fastq.md5")));
+    assertTrue(moved.isEmpty());
+  }
+
+  @Test
+  public void ingest_ChecksumWithoutFile() throws Throwable {
+    when(drive.getConcurrency()).thenReturn(1);
+    Path uploadedMd5 = Files.writeString(upload.resolve("other.fastq.md5"),
+        md5("other content") + "  other.fastq");
+    Map<Path, Path> files = Map.of(uploadedMd5, home.resolve("other.fastq.md5"));
+
+    ingester.ingest(drive, files, progression, moved::add);
+
+    assertFalse(Files.exists(uploadedMd5));
+    assertEquals(List.of(md5("other content") + "  other.fastq"),
+        Files.readAllLines(home.resolve("other.fastq.md5")));
+    assertTrue(moved.contains(home.resolve("other.fastq.md5")));
+  }
+
+  @Test
+  public void ingest_MissingSource() throws Throwable {
+    when(drive.getConcurrency()).thenReturn(2);
+    Files.delete(files.keySet().iterator().next());
+
+    assertThrows(IllegalArgumentException.class,
+        () -> ingester.ingest(drive, files, progression, moved::add));
+
+    assertTrue(moved.isEmpty());
+    verify(progression, never()).accept(anyString(), anyDouble());
+  }
+
+  @Test
+  public void ingest_MoveError() throws Throwable {
+    when(drive.getConcurrency()).thenReturn(1);
+    Map<Path, Path> files = new LinkedHashMap<>(this.files);
+    Path first = files.keySet().iterator().next();
+    files.put(first, home.resolve("missing").resolve("sample_R1.fastq"));
+
+    IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+        () -> ingester.ingest(drive, files, progression, moved::add));
+
+    assertTrue(exception.getMessage().contains(first.toString()));
+    assertTrue(Files.exists(first));
+    assertTrue(moved.isEmpty());
+    verify(progression, never()).accept("", 1.0);
+  }
+
+  @Test
+  public void ingest_Empty() {
+    when(drive.getConcurrency()).thenReturn(2);
+
+    ingester.ingest(drive, Map.of(), progression, moved::add);
+
+    assertTrue(moved.isEmpty());
+    verify(progression).accept("", 1.0);
+  }
+}
@@ -0,0 +1,169 @@
+package ca.qc.ircm.lanaseq.files;
+
+import static ca.qc.ircm.lanaseq.files.FileListingCache.METRIC;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import ca.qc.ircm.lanaseq.AppConfiguration;
+import ca.qc.ircm.lanaseq.dataset.Dataset;
+import ca.qc.ircm.lanaseq.sample.Sample;
+import com.google.common.cache.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link FileListingCache}.
+ */
+public class FileListingCacheTest {
+
+  private FileListingCache cache;
+  private AppConfiguration configuration;
+  private final List<Path> files = List.of(Paths.get("sample/file1.txt"),
+      Paths.get("sample/file2.txt"));
+
+  @BeforeEach
+  public void beforeTest() {
+    configuration = mock(AppConfiguration.class);
+    when(configuration.getFileCacheMaxAge()).thenReturn(Duration.ofMinutes(5));
+    cache = new FileListingCache(configuration);
+  }
+
+  private void put(Class<?> type, long id) {
+    cache.put(type, id, cache.generation(type, id), files);
+  }
+
+  @Test
+  public void get() {
+    put(Sample.class, 1);
+    Optional<List<Path>> cached = cache.get(Sample.class, 1);
+    assertTrue(cached.isPresent());
+    assertEquals(files, cached.get());
+    CacheStats stats = cache.stats();
+    assertEquals(1, stats.hitCount());
+    assertEquals(0, stats.missCount());
+  }
+
+  @Test
+  public void get_Missing() {
+    assertFalse(cache.get(Sample.class, 1).isPresent());
+    CacheStats stats = cache.stats();
+    assertEquals(0, stats.hitCount());
+    assertEquals(1, stats.missCount());
+  }
+
+  @Test
+  public void get_DifferentType() {
+    put(Sample.class, 1);
+    assertFalse(cache.get(Dataset.class, 1).isPresent());
+  }
+
+  @Test
+  public void get_Disabled() {
+    when(configuration.getFileCacheMaxAge()).thenReturn(Duration.ZERO);
+    cache = new FileListingCache(configuration);
+    put(Sample.class, 1);
+    assertFalse(cache.get(Sample.class, 1).isPresent());
+    assertEquals(0, cache.stats().requestCount());
+  }
+
+  @Test
+  public void get_NullMaxAge() {
+    when(configuration.getFileCacheMaxAge()).thenReturn(null);
+    cache = new FileListingCache(configuration);
+    put(Sample.class, 1);
+    assertFalse(cache.get(Sample.class, 1).isPresent());
+  }
+
+  @Test
+  public void get_Modifiable() {
+    put(Sample.class, 1);
+    cache.get(Sample.class, 1).orElseThrow().clear();
+    assertEquals(files, cache.get(Sample.class, 1).orElseThrow());
+  }
+
+  @Test
+  public void invalidate() {
+    put(Sample.class, 1);
+    put(Sample.class, 2);
+    cache.invalidate(Sample.class, 1);
+    assertFalse(cache.get(Sample.class, 1).isPresent());
+    assertTrue(cache.get(Sample.class, 2).isPresent());
+  }
+
+  @Test
+  public void invalidateAll() {
+    put(Sample.class, 1);
+    put(Dataset.class, 2);
+    cache.invalidateAll();
+    assertFalse(cache.get(Sample.class, 1).isPresent());
+    assertFalse(cache.get(Dataset.class, 2).isPresent());
+  }
+
+  @Test
+  public void put_InvalidatedSinceGeneration() {
+    long generation = cache.generation(Sample.class, 1);
+    cache.invalidate(Sample.class, 1);
+
+    cache.put(Sample.class, 1, generation, files);
+
+    assertFalse(cache.get(Sample.class, 1).isPresent());
+  }
+
+  @Test
+  public void put_AllInvalidatedSinceGeneration() {
+    long generation = cache.generation(Sample.class, 1);
+    cache.invalidateAll();
+
+    cache.put(Sample.class, 1, generation, files);
+
+    assertFalse(cache.get(Sample.class, 1).isPresent());
+  }
+
+  @Test
+  public void put_OtherInvalidatedSinceGeneration() {
+    long generation = cache.generation(Sample.class, 1);
+    cache.invalidate(Dataset.class, 1);
+
+    cache.put(Sample.class, 1, generation, files);
+
+    assertTrue(cache.get(Sample.class, 1).isPresent());
+  }
+
+  @Test
+  public void bindTo() {
+    MeterRegistry registry = new SimpleMeterRegistry();
+    cache.bindTo(registry);
+    put(Sample.class, 1);
+    cache.get(Sample.class, 1);
+    cache.get(Sample.class, 2);
+
+    assertEquals(1.0,
+        registry.get("cache.gets").tag("cache", METRIC).tag("result", "hit").functionCounter()
+            .count());
+    assertEquals(1.0,
+        registry.get("cache.gets").tag("cache", METRIC).tag("result", "miss").functionCounter()
+            .count());
+    assertEquals(1.0, registry.get("cache.size").tag("cache", METRIC).gauge().value());
+  }
+
+  @Test
+  public void bindTo_Disabled() {
+    when(configuration.getFileCacheMaxAge()).thenReturn(Duration.ZERO);
+    cache = new FileListingCache(configuration);
+    MeterRegistry registry = new SimpleMeterRegistry();
+
+    cache.bindTo(registry);
+
+    assertTrue(registry.getMeters().isEmpty());
+  }
+}
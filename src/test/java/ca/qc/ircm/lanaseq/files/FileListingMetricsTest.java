@@ -0,0 +1,43 @@
+package ca.qc.ircm.lanaseq.files;
+
+import static ca.qc.ircm.lanaseq.files.FileListingMetrics.ENTRIES_METRIC;
+import static ca.qc.ircm.lanaseq.files.FileListingMetrics.QUERIES_METRIC;
+import static ca.qc.ircm.lanaseq.files.FileListingMetrics.SAVED_CALLS_METRIC;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for {@link FileListingMetrics}.
+ */
+public class FileListingMetricsTest {
+
+  @TempDir
+  Path temporaryFolder;
+  private final FileListingMetrics metrics = new FileListingMetrics();
+
+  @Test
+  public void bindTo() throws Throwable {
+    Files.createFile(temporaryFolder.resolve("file1.txt"));
+    Files.createFile(temporaryFolder.resolve("file2.txt"));
+    MeterRegistry registry = new SimpleMeterRegistry();
+    metrics.bindTo(registry);
+    double entriesBefore = registry.get(ENTRIES_METRIC).functionCounter().count();
+    double queriesBefore = registry.get(QUERIES_METRIC).functionCounter().count();
+
+    FileListing.list(temporaryFolder).forEach(entry -> {
+      entry.isRegularFile();
+      entry.isHidden();
+    });
+
+    assertEquals(2.0, registry.get(ENTRIES_METRIC).functionCounter().count() - entriesBefore);
+    assertEquals(4.0, registry.get(QUERIES_METRIC).functionCounter().count() - queriesBefore);
+    assertEquals((double) FileListing.savedCalls(),
+        registry.get(SAVED_CALLS_METRIC).gauge().value());
+  }
+}
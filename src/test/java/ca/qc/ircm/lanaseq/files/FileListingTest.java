@@ -0,0 +1,159 @@
+package ca.qc.ircm.lanaseq.files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.commons.lang3.SystemUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for {@link FileListing}.
+ */
+public class FileListingTest {
+
+  @TempDir
+  Path temporaryFolder;
+
+  @Test
+  public void list() throws Throwable {
+    Path file = Files.createFile(temporaryFolder.resolve("file.txt"));
+    Instant modified = Instant.now().minus(2, ChronoUnit.DAYS).truncatedTo(ChronoUnit.SECONDS);
+    Files.setLastModifiedTime(file, FileTime.from(modified));
+    Path folder = Files.createDirectory(temporaryFolder.resolve("folder"));
+    Files.createFile(folder.resolve("inner.txt"));
+    Path hidden = Files.createFile(temporaryFolder.resolve(".hidden.txt"));
+    if (SystemUtils.IS_OS_WINDOWS) {
+      Files.setAttribute(hidden, "dos:hidden", Boolean.TRUE);
+    }
+
+    List<FileListing.Entry> entries = FileListing.list(temporaryFolder).stream()
+        .sorted(Comparator.comparing(FileListing.Entry::path)).toList();
+
+    assertEquals(3, entries.size());
+    assertEquals(hidden, entries.get(0).path());
+    assertTrue(entries.get(0).isHidden());
+    assertTrue(entries.get(0).isRegularFile());
+    assertEquals(file, entries.get(1).path());
+    assertFalse(entries.get(1).isHidden());
+    assertTrue(entries.get(1).isRegularFile());
+    assertFalse(entries.get(1).isDirectory());
+    assertEquals(modified, entries.get(1).lastModifiedTime().toInstant());
+    assertEquals(folder, entries.get(2).path());
+    assertFalse(entries.get(2).isRegularFile());
+    assertTrue(entries.get(2).isDirectory());
+  }
+
+  @Test
+  public void list_Empty() throws Throwable {
+    assertTrue(FileListing.list(temporaryFolder).isEmpty());
+  }
+
+  @Test
+  public void list_Missing() {
+    assertThrows(NoSuchFileException.class,
+        () -> FileListing.list(temporaryFolder.resolve("missing")));
+  }
+
+  @Test
+  public void list_File() throws Throwable {
+    Path file = Files.createFile(temporaryFolder.resolve("file.txt"));
+
+    assertThrows(NotDirectoryException.class, () -> FileListing.list(file));
+  }
+
+  @Test
+  public void list_SymbolicLink() throws Throwable {
+    Path target = Files.createDirectory(temporaryFolder.resolve("target"));
+    Path file = Files.createFile(target.resolve("file.txt"));
+    Path folder = Files.createDirectory(temporaryFolder.resolve("folder"));
+    Path link = folder.resolve("link.txt");
+    try {
+      Files.createSymbolicLink(link, file);
+    } catch (IOException | UnsupportedOperationException e) {
+      return;
+    }
+
+    List<FileListing.Entry> entries = FileListing.list(folder);
+
+    assertEquals(1, entries.size());
+    assertEquals(link, entries.get(0).path());
+    assertTrue(entries.get(0).isRegularFile());
+  }
+
+  @Test
+  public void savedCalls() throws Throwable {
+    Files.createFile(temporaryFolder.resolve("file1.txt"));
+    Files.createFile(temporaryFolder.resolve("file2.txt"));
+    long listedBefore = FileListing.listedEntries();
+    long queriesBefore = FileListing.queries();
+    long savedBefore = FileListing.savedCalls();
+
+    List<FileListing.Entry> entries = FileListing.list(temporaryFolder);
+    entries.forEach(entry -> {
+      entry.isRegularFile();
+      entry.isHidden();
+      entry.lastModifiedTime();
+    });
+
+    assertEquals(2, FileListing.listedEntries() - listedBefore);
+    assertEquals(6, FileListing.queries() - queriesBefore);
+    assertEquals(4, FileListing.savedCalls() - savedBefore);
+  }
+
+  @Test
+  public void savedCalls_OneQueryPerEntry() throws Throwable {
+    Files.createFile(temporaryFolder.resolve("file1.txt"));
+    Files.createFile(temporaryFolder.resolve("file2.txt"));
+    long savedBefore = FileListing.savedCalls();
+
+    FileListing.list(temporaryFolder).forEach(FileListing.Entry::isRegularFile);
+
+    assertEquals(0, FileListing.savedCalls() - savedBefore);
+  }
+
+  @Test
+  public void savedCalls_NotQueried() throws Throwable {
+    Files.createFile(temporaryFolder.resolve("file1.txt"));
+    Files.createFile(temporaryFolder.resolve("file2.txt"));
+    long savedBefore = FileListing.savedCalls();
+
+    FileListing.list(temporaryFolder);
+
+    assertEquals(-2, FileListing.savedCalls() - savedBefore);
+  }
+
+  @Test
+  public void savedCalls_Concurrent() throws Throwable {
+    Files.createFile(temporaryFolder.resolve("file1.txt"));
+    List<FileListing.Entry> entries = FileListing.list(temporaryFolder);
+    FileListing.Entry entry = entries.get(0);
+    long queriesBefore = FileListing.queries();
+
+    try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+      for (int i = 0; i < 4; i++) {
+        executor.submit(() -> {
+          for (int j = 0; j < 1000; j++) {
+            entry.isRegularFile();
+          }
+        });
+      }
+    }
+
+    assertEquals(4000, FileListing.queries() - queriesBefore);
+  }
+}
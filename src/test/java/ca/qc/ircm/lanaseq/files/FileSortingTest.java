@@ -0,0 +1,101 @@
+package ca.qc.ircm.lanaseq.files;
+
+import static ca.qc.ircm.lanaseq.files.FileSorting.MODIFIED;
+import static ca.qc.ircm.lanaseq.files.FileSorting.NAME;
+import static ca.qc.ircm.lanaseq.files.FileSorting.SIZE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Order;
+
+/**
+ * Tests for {@link FileSorting}.
+ */
+public class FileSortingTest {
+
+  @TempDir
+  Path temporaryFolder;
+  private Path file1;
+  private Path file2;
+  private Path file3;
+  private List<Path> files;
+
+  @BeforeEach
+  public void beforeTest() throws Throwable {
+    Instant now = Instant.now();
+    file1 = Files.write(temporaryFolder.resolve("b.txt"), new byte[30]);
+    Files.setLastModifiedTime(file1, FileTime.from(now.minus(1, ChronoUnit.DAYS)));
+    file2 = Files.write(temporaryFolder.resolve("c.txt"), new byte[10]);
+    Files.setLastModifiedTime(file2, FileTime.from(now.minus(3, ChronoUnit.DAYS)));
+    file3 = Files.write(temporaryFolder.resolve("a.txt"), new byte[20]);
+    Files.setLastModifiedTime(file3, FileTime.from(now.minus(2, ChronoUnit.DAYS)));
+    files = List.of(file1, file2, file3);
+  }
+
+  @Test
+  public void page_Unpaged() {
+    assertEquals(files, FileSorting.page(files, Pageable.unpaged()).toList());
+  }
+
+  @Test
+  public void page_Name() {
+    assertEquals(List.of(file3, file1, file2),
+        FileSorting.page(files, Pageable.unpaged(Sort.by(NAME))).toList());
+    assertEquals(List.of(file2, file1, file3),
+        FileSorting.page(files, Pageable.unpaged(Sort.by(Order.desc(NAME)))).toList());
+  }
+
+  @Test
+  public void page_Size() {
+    assertEquals(List.of(file2, file3, file1),
+        FileSorting.page(files, Pageable.unpaged(Sort.by(SIZE))).toList());
+    assertEquals(List.of(file1, file3, file2),
+        FileSorting.page(files, Pageable.unpaged(Sort.by(Order.desc(SIZE)))).toList());
+  }
+
+  @Test
+  public void page_Modified() {
+    assertEquals(List.of(file2, file3, file1),
+        FileSorting.page(files, Pageable.unpaged(Sort.by(MODIFIED))).toList());
+    assertEquals(List.of(file1, file3, file2),
+        FileSorting.page(files, Pageable.unpaged(Sort.by(Order.desc(MODIFIED)))).toList());
+  }
+
+  @Test
+  public void page_Missing() {
+    Path missing = temporaryFolder.resolve("missing.txt");
+
+    assertEquals(List.of(missing, file2, file3, file1),
+        FileSorting.page(List.of(file1, missing, file2, file3), Pageable.unpaged(Sort.by(SIZE)))
+            .toList());
+  }
+
+  @Test
+  public void page_Paged() {
+    assertEquals(List.of(file3, file1),
+        FileSorting.page(files, PageRequest.of(0, 2, Sort.by(NAME))).toList());
+    assertEquals(List.of(file2),
+        FileSorting.page(files, PageRequest.of(1, 2, Sort.by(NAME))).toList());
+    assertEquals(List.of(),
+        FileSorting.page(files, PageRequest.of(2, 2, Sort.by(NAME))).toList());
+    assertEquals(List.of(file1, file2), FileSorting.page(files, PageRequest.of(0, 2)).toList());
+  }
+
+  @Test
+  public void page_UnknownProperty() {
+    assertThrows(IllegalArgumentException.class,
+        () -> FileSorting.page(files, Pageable.unpaged(Sort.by("owner"))));
+  }
+}
@@ -0,0 +1,362 @@
+package ca.qc.ircm.lanaseq.files;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for {@link FileTransfer}.
+ */
+public class FileTransferTest {
+
+  @TempDir
+  Path temporaryFolder;
+  private Path source;
+  private byte[] content;
+  private FileSystem zip;
+
+  @BeforeEach
+  public void beforeTest() throws Throwable {
+    content = "test file content".getBytes();
+    source = Files.write(temporaryFolder.resolve("source.txt"), content);
+    zip = FileSystems.newFileSystem(temporaryFolder.resolve("other.zip"),
+        Map.of("create", "true"));
+  }
+
+  @AfterEach
+  public void afterTest() throws Throwable {
+    zip.close();
+  }
+
+  @Test
+  public void strategy_SameFileSystem() throws Throwable {
+    Path target = Files.createDirectory(temporaryFolder.resolve("target")).resolve("target.txt");
+    assertEquals(FileTransfer.Strategy.MOVE, FileTransfer.strategy(source, target));
+  }
+
+  @Test
+  public void strategy_OtherFileSystem() {
+    Path target = zip.getPath("/target.txt");
+    assertEquals(FileTransfer.Strategy.COPY, FileTransfer.strategy(source, target));
+  }
+
+  @Test
+  public void strategy_MissingSource() throws Throwable {
+    Path target = temporaryFolder.resolve("target.txt");
+    assertEquals(FileTransfer.Strategy.COPY,
+        FileTransfer.strategy(temporaryFolder.resolve("missing.txt"), target));
+  }
+
+  @Test
+  public void move_SameFileSystem() throws Throwable {
+    Path target = Files.createDirectory(temporaryFolder.resolve("target")).resolve("target.txt");
+    assertEquals(FileTransfer.Strategy.MOVE, FileTransfer.move(source, target));
+    assertFalse(Files.exists(source));
+    assertArrayEquals(content, Files.readAllBytes(target));
+  }
+
+  @Test
+  public void move_SameFileSystem_ReplaceExisting() throws Throwable {
+    Path target = Files.write(temporaryFolder.resolve("target.txt"), "old".getBytes());
+    assertEquals(FileTransfer.Strategy.MOVE, FileTransfer.move(source, target));
+    assertFalse(Files.exists(source));
+    assertArrayEquals(content, Files.readAllBytes(target));
+  }
+
+  @Test
+  public void move_OtherFileSystem() throws Throwable {
+    Path target = zip.getPath("/target.txt");
+    assertEquals(FileTransfer.Strategy.COPY, FileTransfer.move(source, target));
+    assertFalse(Files.exists(source));
+    assertArrayEquals(content, Files.readAllBytes(target));
+  }
+
+  @Test
+  public void move_MissingSource() {
+    Path target = temporaryFolder.resolve("target.txt");
+    assertThrows(NoSuchFileException.class,
+        () -> FileTransfer.move(temporaryFolder.resolve("missing.txt"), target));
+    assertFalse(Files.exists(target));
+  }
+
+  @Test
+  public void move_OtherFileSystem_Transferred() throws Throwable {
+    Path target = zip.getPath("/target.txt");
+    List<Long> transferred = new ArrayList<>();
+    assertEquals(FileTransfer.Strategy.COPY,
+        FileTransfer.move(source, target, transferred::add));
+    assertEquals(List.of((long) content.length), transferred);
+  }
+
+  @Test
+  public void move_SameFileSystem_NotTransferred() throws Throwable {
+    Path target = temporaryFolder.resolve("target.txt");
+    List<Long> transferred = new ArrayList<>();
+    assertEquals(FileTransfer.Strategy.MOVE,
+        FileTransfer.move(source, target, transferred::add));
+    assertTrue(transferred.isEmpty());
+  }
+
+  @Test
+  public void link() throws Throwable {
+    Path target = temporaryFolder.resolve("target.txt");
+    assertTrue(FileTransfer.link(source, target));
+    assertTrue(Files.exists(source));
+    assertTrue(Files.isSameFile(source, target));
+    assertFalse(Files.isSymbolicLink(target));
+  }
+
+  @Test
+  public void link_ReplaceExisting() throws Throwable {
+    Path target = Files.writeString(temporaryFolder.resolve("target.txt"), "previous");
+    assertTrue(FileTransfer.link(source, target));
+    assertTrue(Files.isSameFile(source, target));
+  }
+
+  @Test
+  public void link_OtherFileSystem() throws Throwable {
+    Path target = zip.getPath("/target.txt");
+    assertFalse(FileTransfer.link(source, target));
+    assertTrue(Files.exists(source));
+    assertArrayEquals(content, Files.readAllBytes(target));
+  }
+
+  @Test
+  public void link_MissingSource() {
+    Path target = temporaryFolder.resolve("target.txt");
+    assertThrows(NoSuchFileException.class,
+        () -> FileTransfer.link(temporaryFolder.resolve("missing.txt"), target));
+    assertFalse(Files.exists(target));
+  }
+
+  @Test
+  public void copy() throws Throwable {
+    Path target = Files.createDirectory(temporaryFolder.resolve("target")).resolve("target.txt");
+    List<Long> transferred = new ArrayList<>();
+    assertEquals(content.length, FileTransfer.copy(source, target, transferred::add));
+    assertTrue(Files.exists(source));
+    assertArrayEquals(content, Files.readAllBytes(target));
+    assertEquals(List.of((long) content.length), transferred);
+  }
+
+  @Test
+  public void copy_ReplaceExisting() throws Throwable {
+    Path target = Files.write(temporaryFolder.resolve("target.txt"),
+        "previous content that is longer than the new content".getBytes());
+    FileTransfer.copy(source, target, count -> {
+    });
+    assertArrayEquals(content, Files.readAllBytes(target));
+  }
+
+  @Test
+  public void copy_Chunks() throws Throwable {
+    byte[] large = new byte[(int) FileTransfer.CHUNK_SIZE + 10];
+    large[large.length - 1] = 12;
+    Files.write(source, large);
+    Path target = temporaryFolder.resolve("target.txt");
+    List<Long> transferred = new ArrayList<>();
+    assertEquals(large.length, FileTransfer.copy(source, target, transferred::add));
+    assertEquals(List.of(FileTransfer.CHUNK_SIZE, 10L), transferred);
+    assertEquals(large.length, Files.size(target));
+    assertArrayEquals(large, Files.readAllBytes(target));
+  }
+
+  @Test
+  public void copy_Empty() throws Throwable {
+    Files.write(source, new byte[0]);
+    Path target = temporaryFolder.resolve("target.txt");
+    List<Long> transferred = new ArrayList<>();
+    assertEquals(0, FileTransfer.copy(source, target, transferred::add));
+    assertTrue(Files.exists(target));
+    assertEquals(0, Files.size(target));
+    assertTrue(transferred.isEmpty());
+  }
+
+  @Test
+  public void copy_Error() throws Throwable {
+    Path target = temporaryFolder.resolve("target.txt");
+    assertThrows(IllegalStateException.class, () -> FileTransfer.copy(source, target, count -> {
+      throw new IllegalStateException("test");
+    }));
+    assertFalse(Files.exists(target));
+  }
+
+  @Test
+  public void copy_Digests() throws Throwable {
+    Path target = temporaryFolder.resolve("target.txt");
+    MessageDigest md5 = MessageDigest.getInstance("MD5");
+    MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+    List<Long> transferred = new ArrayList<>();
+    assertEquals(content.length,
+        FileTransfer.copy(source, target, transferred::add, List.of(md5, sha256)));
+    assertArrayEquals(content, Files.readAllBytes(target));
+    assertEquals(List.of((long) content.length), transferred);
+    assertArrayEquals(MessageDigest.getInstance("MD5").digest(content), md5.digest());
+    assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(content), sha256.digest());
+  }
+
+  @Test
+  public void copy_Digests_Chunks() throws Throwable {
+    byte[] large = new byte[(int) FileTransfer.CHUNK_SIZE + 10];
+    large[large.length - 1] = 12;
+    Files.write(source, large);
+    Path target = temporaryFolder.resolve("target.txt");
+    MessageDigest md5 = MessageDigest.getInstance("MD5");
+    List<Long> transferred = new ArrayList<>();
+    assertEquals(large.length, FileTransfer.copy(source, target, transferred::add, List.of(md5)));
+    assertEquals(List.of(FileTransfer.CHUNK_SIZE, 10L), transferred);
+    assertArrayEquals(large, Files.readAllBytes(target));
+    assertArrayEquals(MessageDigest.getInstance("MD5").digest(large), md5.digest());
+  }
+
+  @Test
+  public void copy_Digests_Error() throws Throwable {
+    Path target = temporaryFolder.resolve("target.txt");
+    assertThrows(IllegalStateException.class, () -> FileTransfer.copy(source, target, count -> {
+      throw new IllegalStateException("test");
+    }, List.of(MessageDigest.getInstance("MD5"))));
+    assertFalse(Files.exists(target));
+  }
+
+  @Test
+  public void move_OtherFileSystem_Digests() throws Throwable {
+    Path target = zip.getPath("/target.txt");
+    MessageDigest md5 = MessageDigest.getInstance("MD5");
+    assertEquals(FileTransfer.Strategy.COPY, FileTransfer.move(source, target, count -> {
+    }, List.of(md5)));
+    assertFalse(Files.exists(source));
+    assertArrayEquals(MessageDigest.getInstance("MD5").digest(content), md5.digest());
+  }
+
+  @Test
+  public void move_SameFileSystem_DigestsNotUpdated() throws Throwable {
+    Path target = temporaryFolder.resolve("target.txt");
+    MessageDigest md5 = MessageDigest.getInstance("MD5");
+    assertEquals(FileTransfer.Strategy.MOVE, FileTransfer.move(source, target, count -> {
+    }, List.of(md5)));
+    assertArrayEquals(MessageDigest.getInstance("MD5").digest(new byte[0]), md5.digest());
+  }
+
+  @Test
+  public void rename() throws Throwable {
+    Path target = temporaryFolder.resolve("target.txt");
+    assertTrue(FileTransfer.rename(source, target));
+    assertFalse(Files.exists(source));
+    assertArrayEquals(content, Files.readAllBytes(target));
+  }
+
+  @Test
+  public void rename_OtherFileSystem() throws Throwable {
+    Path target = zip.getPath("/target.txt");
+    assertFalse(FileTransfer.rename(source, target));
+    assertTrue(Files.exists(source));
+    assertFalse(Files.exists(target));
+  }
+
+  @Test
+  public void resume() throws Throwable {
+    Path target = Files.writeString(temporaryFolder.resolve("target.txt"), "XXXX");
+    List<Long> transferred = new ArrayList<>();
+    assertEquals(content.length - 4,
+        FileTransfer.resume(source, target, 4, transferred::add, List.of()));
+    assertTrue(Files.exists(source));
+    assertEquals("XXXX file content", Files.readString(target));
+    assertEquals(List.of((long) content.length - 4), transferred);
+  }
+
+  @Test
+  public void resume_TruncateAfterOffset() throws Throwable {
+    Path target = Files.writeString(temporaryFolder.resolve("target.txt"), "test garbage");
+    FileTransfer.resume(source, target, 4, count -> {
+    }, List.of());
+    assertArrayEquals(content, Files.readAllBytes(target));
+  }
+
+  @Test
+  public void resume_Digests() throws Throwable {
+    Path target = Files.writeString(temporaryFolder.resolve("target.txt"), "test");
+    MessageDigest md5 = MessageDigest.getInstance("MD5");
+    FileTransfer.resume(source, target, 4, count -> {
+    }, List.of(md5));
+    assertArrayEquals(content, Files.readAllBytes(target));
+    assertArrayEquals(MessageDigest.getInstance("MD5").digest(content), md5.digest());
+  }
+
+  @Test
+  public void resume_ZeroOffset() throws Throwable {
+    Path target = Files.writeString(temporaryFolder.resolve("target.txt"), "previous content");
+    assertEquals(content.length, FileTransfer.resume(source, target, 0, count -> {
+    }, List.of()));
+    assertArrayEquals(content, Files.readAllBytes(target));
+  }
+
+  @Test
+  public void resume_TargetSmallerThanOffset() throws Throwable {
+    Path target = Files.writeString(temporaryFolder.resolve("target.txt"), "te");
+    assertThrows(IOException.class, () -> FileTransfer.resume(source, target, 4, count -> {
+    }, List.of()));
+    assertEquals("te", Files.readString(target));
+  }
+
+  @Test
+  public void resume_Error() throws Throwable {
+    Path target = Files.writeString(temporaryFolder.resolve("target.txt"), "test");
+    assertThrows(IllegalStateException.class, () -> FileTransfer.resume(source, target, 4,
+        count -> {
+          throw new IllegalStateException("test");
+        }, List.of()));
+    assertTrue(Files.exists(target));
+  }
+
+  @Test
+  public void digest() throws Throwable {
+    MessageDigest md5 = MessageDigest.getInstance("MD5");
+    MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+    FileTransfer.digest(source, List.of(md5, sha256));
+    assertTrue(Files.exists(source));
+    assertArrayEquals(MessageDigest.getInstance("MD5").digest(content), md5.digest());
+    assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(content), sha256.digest());
+  }
+
+  @Test
+  public void digest_Read() throws Throwable {
+    MessageDigest md5 = MessageDigest.getInstance("MD5");
+    AtomicLong read = new AtomicLong();
+    FileTransfer.digest(source, List.of(md5), read::addAndGet);
+    assertEquals(content.length, read.get());
+    assertArrayEquals(MessageDigest.getInstance("MD5").digest(content), md5.digest());
+  }
+
+  @Test
+  public void copy_MissingSource() {
+    Path target = temporaryFolder.resolve("target.txt");
+    assertThrows(NoSuchFileException.class,
+        () -> FileTransfer.copy(temporaryFolder.resolve("missing.txt"), target, count -> {
+        }));
+    assertFalse(Files.exists(target));
+  }
+
+  @Test
+  public void label() {
+    assertEquals("move", FileTransfer.Strategy.MOVE.label());
+    assertEquals("copy", FileTransfer.Strategy.COPY.label());
+  }
+}
@@ -0,0 +1,91 @@
+package ca.qc.ircm.lanaseq.files;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares {@link FilenameMatcher} with a list of {@link PathMatcher}.
+ *
+ * <p>Run with <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=ca.qc.ircm.lanaseq.files.FilenameMatcherBenchmark</code>.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilenameMatcherBenchmark {
+
+  /**
+   * Number of sample filenames to match.
+   */
+  @Param({"1", "10", "100", "1000"})
+  public int patterns;
+  private List<Path> files;
+  private List<PathMatcher> pathMatchers;
+  private FilenameMatcher filenameMatcher;
+
+  /**
+   * Creates patterns and files to match.
+   */
+  @Setup
+  public void setup() {
+    List<String> filenames =
+        IntStream.range(0, patterns).mapToObj(i -> String.format("OF_2024%04d_ROB_%02d", i, i % 7))
+            .toList();
+    files = IntStream.range(0, 1000).mapToObj(
+            i -> Paths.get(String.format("OF_2024%04d_ROB_%02d_R%d.fastq.gz", i * 3, i % 11, i % 2)))
+        .toList();
+    pathMatchers = filenames.stream()
+        .map(filename -> FileSystems.getDefault().getPathMatcher("glob:*" + filename + "*"))
+        .toList();
+    filenameMatcher = FilenameMatcher.containing(filenames);
+  }
+
+  /**
+   * Matches files using one {@link PathMatcher} per pattern.
+   *
+   * @return number of files that matched
+   */
+  @Benchmark
+  public long pathMatchers() {
+    return files.stream()
+        .filter(file -> pathMatchers.stream().anyMatch(m -> m.matches(file.getFileName())))
+        .count();
+  }
+
+  /**
+   * Matches files using {@link FilenameMatcher}.
+   *
+   * @return number of files that matched
+   */
+  @Benchmark
+  public long filenameMatcher() {
+    return files.stream().filter(filenameMatcher::matches).count();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(FilenameMatcherBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+}
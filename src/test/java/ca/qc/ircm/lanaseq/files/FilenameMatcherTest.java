@@ -0,0 +1,128 @@
+package ca.qc.ircm.lanaseq.files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.PatternSyntaxException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link FilenameMatcher}.
+ */
+public class FilenameMatcherTest {
+
+  @Test
+  public void containing() {
+    FilenameMatcher matcher =
+        FilenameMatcher.containing(List.of("OF_20241118_ROB_01", "OF_20241120_ROB"));
+
+    assertTrue(matcher.matches(Paths.get("home/OF_20241118_ROB_01.bam")));
+    assertTrue(matcher.matches(Paths.get("home/OF_20241118_ROB_01")));
+    assertTrue(matcher.matches(Paths.get("home/prefix_OF_20241120_ROB_02.bed")));
+    assertFalse(matcher.matches(Paths.get("home/OF_20241118_ROB_02.bam")));
+    assertFalse(matcher.matches(Paths.get("OF_20241118_ROB_01/other.bam")));
+  }
+
+  @Test
+  public void containing_Glob() {
+    FilenameMatcher matcher = FilenameMatcher.containing(List.of("OF_2024111?_ROB"));
+
+    assertTrue(matcher.matches(Paths.get("OF_20241118_ROB_01.bam")));
+    assertTrue(matcher.matches(Paths.get("OF_20241119_ROB.bam")));
+    assertFalse(matcher.matches(Paths.get("OF_20241120_ROB.bam")));
+  }
+
+  @Test
+  public void containing_Filename() {
+    FilenameMatcher matcher =
+        FilenameMatcher.containing(List.of("OF_20241118_ROB_01", "OF_2024112?_ROB"));
+
+    assertTrue(matcher.matches("OF_20241118_ROB_01.bam"));
+    assertTrue(matcher.matches("prefix_OF_20241120_ROB_02.bed"));
+    assertFalse(matcher.matches("OF_20241118_ROB_02.bam"));
+    assertFalse(matcher.matches("OF_20241130_ROB.bam"));
+  }
+
+  @Test
+  public void containing_Empty() {
+    FilenameMatcher matcher = FilenameMatcher.containing(List.of());
+
+    assertFalse(matcher.matches(Paths.get("OF_20241118_ROB_01.bam")));
+    assertTrue(matcher.matching(Paths.get("OF_20241118_ROB_01.bam")).isEmpty());
+  }
+
+  @Test
+  public void compile() {
+    FilenameMatcher matcher = FilenameMatcher.compile(List.of("*.bam", "*.bed.gz", "sample_*"));
+
+    assertTrue(matcher.matches(Paths.get("folder/OF_20241118_ROB_01.bam")));
+    assertTrue(matcher.matches(Paths.get("OF_20241118_ROB_01.bed.gz")));
+    assertTrue(matcher.matches(Paths.get("sample_01.txt")));
+    assertFalse(matcher.matches(Paths.get("OF_20241118_ROB_01.bam.bai")));
+    assertFalse(matcher.matches(Paths.get("OF_20241118_ROB_01.bed")));
+    assertFalse(matcher.matches(Paths.get("my_sample_01.txt")));
+  }
+
+  @Test
+  public void compile_Special() {
+    FilenameMatcher matcher =
+        FilenameMatcher.compile(List.of("*.{bam,bai}", "R[12].fastq", "\\*.txt", "*"));
+
+    assertTrue(matcher.matches(Paths.get("OF_20241118_ROB_01.bai")));
+    assertEquals(Set.of("*.{bam,bai}", "*"), matcher.matching(Paths.get("a.bai")));
+    assertEquals(Set.of("R[12].fastq", "*"), matcher.matching(Paths.get("R2.fastq")));
+    assertEquals(Set.of("*"), matcher.matching(Paths.get("R3.fastq")));
+    assertEquals(Set.of("\\*.txt", "*"), matcher.matching(Paths.get("*.txt")));
+  }
+
+  @Test
+  public void compile_Invalid() {
+    assertThrows(PatternSyntaxException.class, () -> FilenameMatcher.compile(List.of("*.{bam")));
+  }
+
+  @Test
+  public void matching() {
+    FilenameMatcher matcher =
+        FilenameMatcher.containing(List.of("ROB", "OF_20241118_ROB", "OF_20241118_ROB_01", "he"));
+
+    assertEquals(Set.of("ROB", "OF_20241118_ROB", "OF_20241118_ROB_01"),
+        matcher.matching(Paths.get("OF_20241118_ROB_01.bam")));
+    assertEquals(Set.of("ROB", "OF_20241118_ROB"),
+        matcher.matching(Paths.get("OF_20241118_ROB_02.bam")));
+    assertEquals(Set.of("ROB"), matcher.matching(Paths.get("OF_20241120_ROB.bam")));
+    assertEquals(Set.of("he"), matcher.matching(Paths.get("she")));
+    assertTrue(matcher.matching(Paths.get("data.bam")).isEmpty());
+  }
+
+  @Test
+  public void matching_Order() {
+    FilenameMatcher matcher = FilenameMatcher.containing(List.of("_01", "OF_"));
+
+    assertEquals(List.of("_01", "OF_"),
+        List.copyOf(matcher.matching(Paths.get("OF_20241118_ROB_01.bam"))));
+  }
+
+  @Test
+  public void matching_SameAsPathMatcher() {
+    List<String> globs = List.of("*.bam", "*ROB_0?*", "*{chr1,chr2}*", "OF_*_ROB*", "*20241118*",
+        "*aab*", "*ab*", "*b*");
+    List<Path> files = List.of(Paths.get("OF_20241118_ROB_01.bam"), Paths.get("aaab.txt"),
+        Paths.get("chr2.bed"), Paths.get("OF_ROB"), Paths.get("xyz"), Paths.get("ROB_1.bam"));
+    FilenameMatcher matcher = FilenameMatcher.compile(globs);
+
+    for (Path file : files) {
+      List<String> expected = globs.stream()
+          .filter(glob -> FileSystems.getDefault().getPathMatcher("glob:" + glob).matches(file))
+          .toList();
+      assertEquals(expected, List.copyOf(matcher.matching(file)), file.toString());
+      assertEquals(!expected.isEmpty(), matcher.matches(file), file.toString());
+    }
+  }
+}
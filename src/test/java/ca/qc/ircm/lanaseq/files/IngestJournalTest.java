@@ -0,0 +1,164 @@
+package ca.qc.ircm.lanaseq.files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for {@link IngestJournal}.
+ */
+public class IngestJournalTest {
+
+  @TempDir
+  Path temporaryFolder;
+  private Path home;
+  private Path folder;
+  private Path source;
+  private Path target;
+
+  @BeforeEach
+  public void beforeTest() throws Throwable {
+    home = Files.createDirectory(temporaryFolder.resolve("home"));
+    folder = home.resolve("sample");
+    source = temporaryFolder.resolve("upload/R1.fastq");
+    target = folder.resolve("sample_R1.fastq");
+  }
+
+  @Test
+  public void file() {
+    Path file = IngestJournal.file(home, folder);
+    assertEquals(home.resolve(IngestJournal.FOLDER), file.getParent());
+    assertTrue(file.getFileName().toString().endsWith(IngestJournal.EXTENSION));
+    assertEquals(file, IngestJournal.file(home, folder));
+    assertNotEquals(file, IngestJournal.file(home, home.resolve("other")));
+  }
+
+  @Test
+  public void list() throws Throwable {
+    IngestJournal.load(IngestJournal.file(home, folder)).start(source, target, 100);
+    IngestJournal.load(IngestJournal.file(home, home.resolve("other")))
+        .start(source, home.resolve("other/R1.fastq"), 100);
+    Files.writeString(home.resolve(IngestJournal.FOLDER).resolve("other.txt"), "test");
+    List<Path> files = IngestJournal.list(home);
+    assertEquals(2, files.size());
+    assertTrue(files.contains(IngestJournal.file(home, folder)));
+    assertTrue(files.contains(IngestJournal.file(home, home.resolve("other"))));
+  }
+
+  @Test
+  public void list_NoFolder() throws Throwable {
+    assertTrue(IngestJournal.list(home).isEmpty());
+  }
+
+  @Test
+  public void load_Missing() throws Throwable {
+    IngestJournal journal = IngestJournal.load(IngestJournal.file(home, folder));
+    assertTrue(journal.entries().isEmpty());
+    assertFalse(journal.entry(target).isPresent());
+    assertFalse(Files.exists(IngestJournal.file(home, folder)));
+  }
+
+  @Test
+  public void start() throws Throwable {
+    Path file = IngestJournal.file(home, folder);
+    IngestJournal journal = IngestJournal.load(file);
+    journal.start(source, target, 100);
+    assertTrue(Files.exists(file));
+    IngestJournal.Entry entry = journal.entry(target).orElseThrow();
+    assertEquals(source, entry.source());
+    assertEquals(target, entry.target());
+    assertEquals(100, entry.size());
+    assertEquals(0, entry.offset());
+    entry = IngestJournal.load(file).entry(target).orElseThrow();
+    assertEquals(source, entry.source());
+    assertEquals(target, entry.target());
+    assertEquals(100, entry.size());
+    assertEquals(0, entry.offset());
+  }
+
+  @Test
+  public void start_Again() throws Throwable {
+    Path file = IngestJournal.file(home, folder);
+    IngestJournal journal = IngestJournal.load(file);
+    journal.start(source, target, 100);
+    journal.offset(target, 40);
+    journal.start(source, target, 120);
+    assertEquals(0, journal.entry(target).orElseThrow().offset());
+    IngestJournal.Entry entry = IngestJournal.load(file).entry(target).orElseThrow();
+    assertEquals(120, entry.size());
+    assertEquals(0, entry.offset());
+  }
+
+  @Test
+  public void offset() throws Throwable {
+    Path file = IngestJournal.file(home, folder);
+    IngestJournal journal = IngestJournal.load(file);
+    journal.start(source, target, 100);
+    journal.offset(target, 40);
+    journal.offset(target, 80);
+    assertEquals(80, journal.entry(target).orElseThrow().offset());
+    assertEquals(80, IngestJournal.load(file).entry(target).orElseThrow().offset());
+  }
+
+  @Test
+  public void done() throws Throwable {
+    Path file = IngestJournal.file(home, folder);
+    IngestJournal journal = IngestJournal.load(file);
+    Path target2 = folder.resolve("sample_R2.fastq");
+    journal.start(source, target, 100);
+    journal.start(source, target2, 100);
+    journal.done(target);
+    assertFalse(journal.entry(target).isPresent());
+    assertTrue(Files.exists(file));
+    List<IngestJournal.Entry> entries = IngestJournal.load(file).entries();
+    assertEquals(1, entries.size());
+    assertEquals(target2, entries.get(0).target());
+    journal.done(target2);
+    assertTrue(journal.entries().isEmpty());
+    assertFalse(Files.exists(file));
+  }
+
+  @Test
+  public void load_PartialLine() throws Throwable {
+    Path file = IngestJournal.file(home, folder);
+    IngestJournal.load(file).start(source, target, 100);
+    Files.writeString(file, "offset\t" + target + "\t4", StandardOpenOption.APPEND);
+    IngestJournal journal = IngestJournal.load(file);
+    assertEquals(4, journal.entry(target).orElseThrow().offset());
+    Path target2 = folder.resolve("sample_R2.fastq");
+    journal.start(source, target2, 100);
+    journal = IngestJournal.load(file);
+    assertEquals(4, journal.entry(target).orElseThrow().offset());
+    assertTrue(journal.entry(target2).isPresent());
+  }
+
+  @Test
+  public void load_InvalidLine() throws Throwable {
+    Path file = IngestJournal.file(home, folder);
+    IngestJournal.load(file).start(source, target, 100);
+    Files.writeString(file, "offset\t" + target + "\tabc\nstart\t" + source + "\n",
+        StandardOpenOption.APPEND);
+    IngestJournal journal = IngestJournal.load(file);
+    assertEquals(1, journal.entries().size());
+    assertEquals(0, journal.entry(target).orElseThrow().offset());
+  }
+
+  @Test
+  public void entry_Matches() throws Throwable {
+    IngestJournal journal = IngestJournal.load(IngestJournal.file(home, folder));
+    journal.start(source, target, 100);
+    IngestJournal.Entry entry = journal.entry(target).orElseThrow();
+    assertTrue(entry.matches(source, 100));
+    assertFalse(entry.matches(source, 101));
+    assertFalse(entry.matches(temporaryFolder.resolve("upload/R2.fastq"), 100));
+  }
+}
@@ -0,0 +1,91 @@
+package ca.qc.ircm.lanaseq.files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import ca.qc.ircm.lanaseq.AppConfiguration;
+import ca.qc.ircm.lanaseq.AppConfiguration.NetworkDrive;
+import ca.qc.ircm.lanaseq.DataWithFiles;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.Status;
+
+/**
+ * Tests for {@link NetworkDriveHealthIndicator}.
+ */
+public class NetworkDriveHealthIndicatorTest {
+
+  private NetworkDriveHealthIndicator healthIndicator;
+  private NetworkDriveScanner driveScanner;
+  private NetworkDrive<DataWithFiles> home;
+  private NetworkDrive<DataWithFiles> archive;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  public void beforeTest() {
+    AppConfiguration configuration = mock(AppConfiguration.class);
+    home = mock(NetworkDrive.class);
+    when(home.getFolder()).thenReturn(Paths.get("home"));
+    archive = mock(NetworkDrive.class);
+    when(archive.getFolder()).thenReturn(Paths.get("archive"));
+    when(configuration.getHome()).thenReturn(home);
+    when(configuration.getArchives()).thenReturn(List.of(archive));
+    driveScanner = new NetworkDriveScanner(configuration);
+    healthIndicator = new NetworkDriveHealthIndicator(configuration, driveScanner);
+  }
+
+  @Test
+  public void health() {
+    driveScanner.statistics(home).success(Duration.ofMillis(20));
+
+    Health health = healthIndicator.health();
+
+    assertEquals(Status.UP, health.getStatus());
+    assertTrue(health.getDetails().containsKey("home"));
+    assertTrue(health.getDetails().containsKey("archive"));
+    Map<?, ?> details = (Map<?, ?>) health.getDetails().get("home");
+    assertEquals(DriveStatistics.State.CLOSED, details.get("state"));
+    assertEquals(1L, details.get("requests"));
+    assertEquals(20L, details.get("averageLatency"));
+    assertEquals(20L, details.get("maximumLatency"));
+    assertEquals(0.0, details.get("errorRate"));
+  }
+
+  @Test
+  public void health_ArchiveOpen() {
+    for (int i = 0; i < DriveStatistics.FAILURE_THRESHOLD; i++) {
+      driveScanner.statistics(archive).failure(Duration.ofSeconds(10), Instant.now());
+    }
+
+    Health health = healthIndicator.health();
+
+    assertEquals(NetworkDriveHealthIndicator.DEGRADED, health.getStatus());
+    Map<?, ?> details = (Map<?, ?>) health.getDetails().get("archive");
+    assertEquals(DriveStatistics.State.OPEN, details.get("state"));
+    assertEquals(1.0, details.get("errorRate"));
+    details = (Map<?, ?>) health.getDetails().get("home");
+    assertEquals(DriveStatistics.State.CLOSED, details.get("state"));
+  }
+
+  @Test
+  public void health_HomeOpen() {
+    for (int i = 0; i < DriveStatistics.FAILURE_THRESHOLD; i++) {
+      driveScanner.statistics(home).failure(Duration.ofSeconds(10), Instant.now());
+      driveScanner.statistics(archive).failure(Duration.ofSeconds(10), Instant.now());
+    }
+
+    Health health = healthIndicator.health();
+
+    assertEquals(Status.DOWN, health.getStatus());
+    Map<?, ?> details = (Map<?, ?>) health.getDetails().get("home");
+    assertEquals(DriveStatistics.State.OPEN, details.get("state"));
+  }
+}
@@ -0,0 +1,226 @@
+package ca.qc.ircm.lanaseq.files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import ca.qc.ircm.lanaseq.AppConfiguration;
+import ca.qc.ircm.lanaseq.AppConfiguration.NetworkDrive;
+import ca.qc.ircm.lanaseq.DataWithFiles;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link NetworkDriveScanner}.
+ */
+public class NetworkDriveScannerTest {
+
+  private NetworkDriveScanner scanner;
+  private NetworkDrive<DataWithFiles> drive1;
+  private NetworkDrive<DataWithFiles> drive2;
+  private NetworkDrive<DataWithFiles> drive3;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  public void beforeTest() {
+    AppConfiguration configuration = mock(AppConfiguration.class);
+    when(configuration.getDriveTimeout()).thenReturn(Duration.ofMillis(500));
+    scanner = new NetworkDriveScanner(configuration);
+    drive1 = mock(NetworkDrive.class);
+    when(drive1.getFolder()).thenReturn(Paths.get("drive1"));
+    drive2 = mock(NetworkDrive.class);
+    when(drive2.getFolder()).thenReturn(Paths.get("drive2"));
+    drive3 = mock(NetworkDrive.class);
+    when(drive3.getFolder()).thenReturn(Paths.get("drive3"));
+  }
+
+  @AfterEach
+  public void afterTest() {
+    scanner.shutdown();
+  }
+
+  @Test
+  public void scan() {
+    List<DriveResult<DataWithFiles, String>> results = scanner.scan(
+        List.of(drive1, drive2, drive3), drive -> drive.getFolder().toString());
+
+    assertEquals(3, results.size());
+    assertEquals(drive1, results.get(0).drive());
+    assertEquals("drive1", results.get(0).result().orElseThrow());
+    assertEquals(drive2, results.get(1).drive());
+    assertEquals("drive2", results.get(1).result().orElseThrow());
+    assertEquals(drive3, results.get(2).drive());
+    assertEquals("drive3", results.get(2).result().orElseThrow());
+  }
+
+  @Test
+  public void scan_Concurrent() {
+    long start = System.currentTimeMillis();
+    List<DriveResult<DataWithFiles, String>> results = scanner.scan(
+        List.of(drive1, drive2, drive3), drive -> {
+          sleep(300);
+          return drive.getFolder().toString();
+        });
+
+    assertTrue(results.stream().allMatch(DriveResult::isAvailable));
+    assertTrue(System.currentTimeMillis() - start < 800);
+  }
+
+  @Test
+  public void scan_Timeout() {
+    long start = System.currentTimeMillis();
+    List<DriveResult<DataWithFiles, String>> results = scanner.scan(
+        List.of(drive1, drive2, drive3), drive -> {
+          if (drive == drive2) {
+            sleep(10000);
+          }
+          return drive.getFolder().toString();
+        });
+
+    assertTrue(System.currentTimeMillis() - start < 5000);
+    assertTrue(results.get(0).isAvailable());
+    assertFalse(results.get(1).isAvailable());
+    assertTrue(results.get(2).isAvailable());
+    assertEquals("drive3", results.get(2).result().orElseThrow());
+  }
+
+  @Test
+  public void scan_Listener() {
+    List<DriveResult<DataWithFiles, String>> notified = new CopyOnWriteArrayList<>();
+
+    List<DriveResult<DataWithFiles, String>> results = scanner.scan(
+        List.of(drive1, drive2, drive3), drive -> {
+          if (drive == drive1) {
+            sleep(200);
+          }
+          if (drive == drive2) {
+            sleep(10000);
+          }
+          return drive.getFolder().toString();
+        }, notified::add);
+
+    assertEquals(3, notified.size());
+    assertEquals(drive3, notified.get(0).drive());
+    assertEquals("drive3", notified.get(0).result().orElseThrow());
+    assertEquals(drive1, notified.get(1).drive());
+    assertEquals("drive1", notified.get(1).result().orElseThrow());
+    assertEquals(drive2, notified.get(2).drive());
+    assertFalse(notified.get(2).isAvailable());
+    assertEquals(drive1, results.get(0).drive());
+    assertEquals(drive2, results.get(1).drive());
+    assertEquals(drive3, results.get(2).drive());
+  }
+
+  @Test
+  public void scan_Listener_CircuitOpen() {
+    for (int i = 0; i < DriveStatistics.FAILURE_THRESHOLD; i++) {
+      scanner.scan(List.of(drive1), drive -> {
+        throw new IllegalStateException("test");
+      });
+    }
+    List<DriveResult<DataWithFiles, String>> notified = new CopyOnWriteArrayList<>();
+
+    scanner.scan(List.of(drive2, drive1), drive -> drive.getFolder().toString(), notified::add);
+
+    assertEquals(2, notified.size());
+    assertEquals(drive1, notified.get(0).drive());
+    assertFalse(notified.get(0).isAvailable());
+    assertEquals(drive2, notified.get(1).drive());
+    assertTrue(notified.get(1).isAvailable());
+  }
+
+  @Test
+  public void scan_Exception() {
+    List<DriveResult<DataWithFiles, String>> results = scanner.scan(
+        List.of(drive1, drive2), drive -> {
+          if (drive == drive1) {
+            throw new IllegalStateException("test");
+          }
+          return drive.getFolder().toString();
+        });
+
+    assertFalse(results.get(0).isAvailable());
+    assertTrue(results.get(1).isAvailable());
+  }
+
+  @Test
+  public void scan_Empty() {
+    List<DriveResult<DataWithFiles, String>> results = scanner.scan(List.of(),
+        drive -> drive.getFolder().toString());
+
+    assertTrue(results.isEmpty());
+  }
+
+  @Test
+  public void scan_Statistics() {
+    scanner.scan(List.of(drive1, drive2), drive -> {
+      if (drive == drive2) {
+        throw new IllegalStateException("test");
+      }
+      return drive.getFolder().toString();
+    });
+
+    DriveStatistics statistics1 = scanner.statistics(drive1);
+    assertEquals(1, statistics1.getRequests());
+    assertEquals(0.0, statistics1.getErrorRate(), 0.0001);
+    DriveStatistics statistics2 = scanner.statistics(drive2);
+    assertEquals(1, statistics2.getRequests());
+    assertEquals(1.0, statistics2.getErrorRate(), 0.0001);
+  }
+
+  @Test
+  public void scan_CircuitOpen() {
+    AtomicInteger calls = new AtomicInteger();
+    for (int i = 0; i < DriveStatistics.FAILURE_THRESHOLD + 2; i++) {
+      scanner.scan(List.of(drive1), drive -> {
+        calls.incrementAndGet();
+        throw new IllegalStateException("test");
+      });
+    }
+
+    assertEquals(DriveStatistics.FAILURE_THRESHOLD, calls.get());
+    assertEquals(DriveStatistics.State.OPEN, scanner.statistics(drive1).getState());
+    assertEquals(2, scanner.statistics(drive1).getRejected());
+  }
+
+  @Test
+  public void scan_HalfOpenInterrupted() {
+    for (int i = 0; i < DriveStatistics.FAILURE_THRESHOLD; i++) {
+      scanner.statistics(drive1)
+          .failure(Duration.ofSeconds(10), Instant.now().minus(DriveStatistics.COOL_DOWN));
+    }
+    List<DriveResult<DataWithFiles, String>> results;
+    Thread.currentThread().interrupt();
+    try {
+      results = scanner.scan(List.of(drive1), drive -> {
+        sleep(300);
+        return drive.getFolder().toString();
+      });
+    } finally {
+      assertTrue(Thread.interrupted());
+    }
+
+    assertFalse(results.getFirst().isAvailable());
+    assertEquals(DriveStatistics.State.OPEN, scanner.statistics(drive1).getState());
+    results = scanner.scan(List.of(drive1), drive -> drive.getFolder().toString());
+    assertEquals("drive1", results.getFirst().result().orElseThrow());
+    assertEquals(DriveStatistics.State.CLOSED, scanner.statistics(drive1).getState());
+  }
+
+  private void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
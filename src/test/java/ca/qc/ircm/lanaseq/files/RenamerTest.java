@@ -8,6 +8,8 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Random;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -38,6 +40,17 @@ public class RenamerTest {
     assertArrayEquals(content, Files.readAllBytes(toFile));
   }
 
+  @Test
+  public void moveFolder_Moved() throws Throwable {
+    Path from = tempDir.resolve("from");
+    Files.createDirectory(from);
+    Path to = tempDir.resolve("to");
+    Map<Path, Path> moved = new HashMap<>();
+    Renamer.moveFolder(from, to, moved::put);
+    assertEquals(1, moved.size());
+    assertEquals(to, moved.get(from));
+  }
+
   @Test
   public void moveFolder_DestinationParentDoesNotExists() throws Throwable {
     Path from = tempDir.resolve("from_parent/from");
@@ -139,4 +152,18 @@ public class RenamerTest {
     assertEquals("2d5fb8660262af5a205c485bed4fe6b1  prefix_" + newName + "_suffix.txt.md5"
         + System.lineSeparator(), Files.readString(md5));
   }
+
+  @Test
+  public void renameFiles_Moved() throws Throwable {
+    String oldName = "old_name";
+    String newName = "new_name";
+    Path file = tempDir.resolve("prefix_" + oldName + "_suffix.txt");
+    Files.createFile(file);
+    Path other = tempDir.resolve("test.txt");
+    Files.createFile(other);
+    Map<Path, Path> moved = new HashMap<>();
+    Renamer.renameFiles(oldName, newName, tempDir, moved::put);
+    assertEquals(1, moved.size());
+    assertEquals(tempDir.resolve("prefix_" + newName + "_suffix.txt"), moved.get(file));
+  }
 }
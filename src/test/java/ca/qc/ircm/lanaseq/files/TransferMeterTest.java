@@ -0,0 +1,130 @@
+package ca.qc.ircm.lanaseq.files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Tests for {@link TransferMeter}.
+ */
+@ExtendWith(MockitoExtension.class)
+public class TransferMeterTest {
+
+  private static final long MB = 1000 * 1000;
+  @Mock
+  private BiConsumer<String, Double> progression;
+  @Mock
+  private TransferProgression transferProgression;
+  @Captor
+  private ArgumentCaptor<TransferProgress> progressCaptor;
+  private final AtomicLong nanoTime = new AtomicLong();
+
+  @BeforeEach
+  public void beforeTest() {
+    nanoTime.set(1000);
+  }
+
+  private void elapse(Duration duration) {
+    nanoTime.addAndGet(duration.toNanos());
+  }
+
+  @Test
+  public void message() {
+    TransferMeter meter = new TransferMeter(100 * MB, progression, nanoTime::get);
+    meter.message("test.fastq (copy)");
+    verify(progression).accept("test.fastq (copy)", 0.0);
+  }
+
+  @Test
+  public void transferred() {
+    TransferMeter meter = new TransferMeter(100 * MB, transferProgression, nanoTime::get);
+    meter.message("test.fastq (copy)");
+    elapse(Duration.ofSeconds(1));
+    meter.transferred(20 * MB);
+    verify(transferProgression).accept("test.fastq (copy)", 0.2);
+    verify(transferProgression, times(2)).transferred(progressCaptor.capture());
+    TransferProgress progress = progressCaptor.getValue();
+    assertEquals(20 * MB, progress.bytes());
+    assertEquals(100 * MB, progress.totalBytes());
+    assertEquals(20.0 * MB, progress.throughput(), 0.001);
+    assertEquals(Duration.ofSeconds(4), progress.remaining());
+  }
+
+  @Test
+  public void transferred_BeforeSampleInterval() {
+    TransferMeter meter = new TransferMeter(100 * MB, progression, nanoTime::get);
+    elapse(TransferMeter.SAMPLE_INTERVAL.minusNanos(1));
+    meter.transferred(20 * MB);
+    verifyNoInteractions(progression);
+    assertEquals(20 * MB, meter.progress().bytes());
+    assertEquals(0.0, meter.progress().throughput());
+    assertNull(meter.progress().remaining());
+  }
+
+  @Test
+  public void transferred_Smoothed() {
+    TransferMeter meter = new TransferMeter(100 * MB, progression, nanoTime::get);
+    elapse(Duration.ofSeconds(1));
+    meter.transferred(20 * MB);
+    elapse(Duration.ofSeconds(1));
+    meter.transferred(10 * MB);
+    TransferProgress progress = meter.progress();
+    assertEquals(30 * MB, progress.bytes());
+    assertEquals(17.0 * MB, progress.throughput(), 0.001);
+    verify(progression).accept("", 0.2);
+    verify(progression).accept("", 0.3);
+  }
+
+  @Test
+  public void skipped() {
+    TransferMeter meter = new TransferMeter(100 * MB, transferProgression, nanoTime::get);
+    elapse(Duration.ofSeconds(1));
+    meter.skipped(50 * MB);
+    verify(transferProgression, never()).accept(anyString(), anyDouble());
+    verify(transferProgression, never()).transferred(any());
+    meter.message("test.fastq (move)");
+    verify(transferProgression).accept("test.fastq (move)", 0.5);
+    verify(transferProgression).transferred(progressCaptor.capture());
+    TransferProgress progress = progressCaptor.getValue();
+    assertEquals(50 * MB, progress.bytes());
+    assertEquals(0.0, progress.throughput());
+    assertNull(progress.remaining());
+  }
+
+  @Test
+  public void done() {
+    TransferMeter meter = new TransferMeter(100 * MB, transferProgression, nanoTime::get);
+    meter.done("");
+    verify(transferProgression).accept("", 1.0);
+    verify(transferProgression).transferred(progressCaptor.capture());
+    TransferProgress progress = progressCaptor.getValue();
+    assertEquals(100 * MB, progress.bytes());
+    assertEquals(Duration.ZERO, progress.remaining());
+  }
+
+  @Test
+  public void done_Empty() {
+    TransferMeter meter = new TransferMeter(0, progression, nanoTime::get);
+    meter.message("test.fastq (move)");
+    meter.done("");
+    verify(progression).accept("test.fastq (move)", 0.0);
+    verify(progression).accept("", 1.0);
+  }
+}
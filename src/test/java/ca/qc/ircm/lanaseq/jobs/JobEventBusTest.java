@@ -0,0 +1,241 @@
+package ca.qc.ircm.lanaseq.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import ca.qc.ircm.lanaseq.AppConfiguration;
+import ca.qc.ircm.lanaseq.test.config.ServiceTestAnnotations;
+import ca.qc.ircm.lanaseq.user.UserRepository;
+import com.vaadin.flow.shared.Registration;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.test.context.support.WithAnonymousUser;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+/**
+ * Unit tests for {@link JobEventBus}.
+ */
+@ServiceTestAnnotations
+@WithUserDetails("jonh.smith@ircm.qc.ca")
+public class JobEventBusTest {
+
+  private static final Duration INTERVAL = Duration.ofMillis(200);
+  @Autowired
+  private JobEventBus eventBus;
+  @Autowired
+  private UserRepository userRepository;
+  @MockitoBean
+  private AppConfiguration configuration;
+  private final BlockingQueue<JobEvent> events = new LinkedBlockingQueue<>();
+  private final List<Registration> registrations = new ArrayList<>();
+
+  @BeforeEach
+  public void beforeEach() {
+    when(configuration.getJobUpdateInterval()).thenReturn(INTERVAL);
+  }
+
+  @AfterEach
+  public void afterEach() {
+    registrations.forEach(Registration::remove);
+  }
+
+  private void subscribe() {
+    registrations.add(eventBus.subscribe(events::add));
+  }
+
+  private Job job() {
+    Job job = new Job();
+    job.owner = userRepository.findById(3L).orElseThrow();
+    job.future = new CompletableFuture<Void>();
+    return job;
+  }
+
+  private JobEvent poll() throws InterruptedException {
+    return events.poll(INTERVAL.toMillis() * 5, TimeUnit.MILLISECONDS);
+  }
+
+  @Test
+  @WithAnonymousUser
+  public void subscribe_Anonymous() {
+    assertThrows(AccessDeniedException.class, () -> eventBus.subscribe(events::add));
+  }
+
+  @Test
+  public void added() {
+    subscribe();
+    Job job = job();
+
+    eventBus.added(job);
+
+    JobEvent event = events.poll();
+    assertNotNull(event);
+    assertSame(job, event.job());
+    assertEquals(JobEvent.Type.ADDED, event.type());
+    assertTrue(events.isEmpty());
+  }
+
+  @Test
+  public void added_OtherOwner() {
+    subscribe();
+    Job job = job();
+    job.owner = userRepository.findById(5L).orElseThrow();
+
+    eventBus.added(job);
+
+    assertTrue(events.isEmpty());
+  }
+
+  @Test
+  public void added_Unsubscribed() {
+    subscribe();
+    registrations.getFirst().remove();
+    Job job = job();
+
+    eventBus.added(job);
+
+    assertTrue(events.isEmpty());
+  }
+
+  @Test
+  public void added_ListenerFails() {
+    registrations.add(eventBus.subscribe(event -> {
+      throw new IllegalStateException("test");
+    }));
+    subscribe();
+    Job job = job();
+
+    eventBus.added(job);
+
+    JobEvent event = events.poll();
+    assertNotNull(event);
+    assertSame(job, event.job());
+    assertEquals(JobEvent.Type.ADDED, event.type());
+  }
+
+  @Test
+  public void updated() {
+    subscribe();
+    Job job = job();
+
+    eventBus.updated(job);
+
+    JobEvent event = events.poll();
+    assertNotNull(event);
+    assertSame(job, event.job());
+    assertEquals(JobEvent.Type.UPDATED, event.type());
+  }
+
+  @Test
+  public void updated_Throttled() throws Throwable {
+    subscribe();
+    Job job = job();
+
+    for (int i = 0; i < 10; i++) {
+      eventBus.updated(job);
+    }
+
+    JobEvent event = events.poll();
+    assertNotNull(event);
+    assertEquals(JobEvent.Type.UPDATED, event.type());
+    assertTrue(events.isEmpty());
+    event = poll();
+    assertNotNull(event);
+    assertSame(job, event.job());
+    assertEquals(JobEvent.Type.UPDATED, event.type());
+    assertNull(events.poll(INTERVAL.toMillis() * 2, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void updated_ThrottledJobCompleted() throws Throwable {
+    subscribe();
+    Job job = job();
+    eventBus.updated(job);
+    eventBus.updated(job);
+    ((CompletableFuture<?>) job.future).complete(null);
+
+    eventBus.completed(job);
+
+    assertEquals(JobEvent.Type.UPDATED, events.poll().type());
+    assertEquals(JobEvent.Type.COMPLETED, events.poll().type());
+    assertNull(events.poll(INTERVAL.toMillis() * 2, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void updated_OtherJob() {
+    subscribe();
+    Job job = job();
+    Job other = job();
+
+    eventBus.updated(job);
+    eventBus.updated(other);
+
+    assertSame(job, events.poll().job());
+    assertSame(other, events.poll().job());
+  }
+
+  @Test
+  public void updated_NoInterval() {
+    when(configuration.getJobUpdateInterval()).thenReturn(null);
+    subscribe();
+    Job job = job();
+
+    for (int i = 0; i < 10; i++) {
+      eventBus.updated(job);
+    }
+
+    assertEquals(10, events.size());
+  }
+
+  @Test
+  public void updated_OtherOwner() {
+    subscribe();
+    Job job = job();
+    job.owner = userRepository.findById(5L).orElseThrow();
+
+    eventBus.updated(job);
+
+    assertTrue(events.isEmpty());
+  }
+
+  @Test
+  public void completed() {
+    subscribe();
+    Job job = job();
+
+    eventBus.completed(job);
+
+    JobEvent event = events.poll();
+    assertNotNull(event);
+    assertSame(job, event.job());
+    assertEquals(JobEvent.Type.COMPLETED, event.type());
+  }
+
+  @Test
+  public void removed() {
+    subscribe();
+    Job job = job();
+
+    eventBus.removed(job);
+
+    JobEvent event = events.poll();
+    assertNotNull(event);
+    assertSame(job, event.job());
+    assertEquals(JobEvent.Type.REMOVED, event.type());
+  }
+}
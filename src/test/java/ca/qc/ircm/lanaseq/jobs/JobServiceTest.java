@@ -5,29 +5,41 @@ import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-import ca.qc.ircm.lanaseq.security.AuthenticatedUser;
+import ca.qc.ircm.lanaseq.AppConfiguration;
 import ca.qc.ircm.lanaseq.test.config.ServiceTestAnnotations;
 import ca.qc.ircm.lanaseq.user.UserRepository;
 import java.lang.reflect.Field;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.test.context.support.WithAnonymousUser;
 import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
 
 /**
  * Unit tests for {@link JobService}.
@@ -40,12 +52,16 @@ public class JobServiceTest {
   private JobService service;
   @Autowired
   private UserRepository userRepository;
-  @Autowired
-  private AuthenticatedUser authenticatedUser;
+  @MockitoBean
+  private AppConfiguration configuration;
+  @MockitoBean
+  private JobEventBus eventBus;
   private final List<Job> jobs = new ArrayList<>();
 
   @BeforeEach
   public void beforeEach() {
+    when(configuration.getJobMaxAge()).thenReturn(Duration.ofHours(24));
+    when(configuration.getJobMaxCompleted()).thenReturn(20);
     clearJobs();
     Job job = job();
     job.time = LocalDateTime.now().minusDays(1);
@@ -89,19 +105,20 @@ public class JobServiceTest {
   }
 
   private void clearJobs() {
-    try {
-      Field field = JobService.class.getDeclaredField("jobs");
-      field.setAccessible(true);
-      @SuppressWarnings("unchecked") List<Job> jobs = (List<Job>) field.get(service);
-      jobs.clear();
-    } catch (NoSuchFieldException | IllegalAccessException e) {
-      throw new IllegalStateException("Cannot access jobs field from JobService", e);
+    for (String name : List.of("jobs", "owners")) {
+      try {
+        Field field = JobService.class.getDeclaredField(name);
+        field.setAccessible(true);
+        ((Map<?, ?>) field.get(service)).clear();
+      } catch (NoSuchFieldException | IllegalAccessException e) {
+        throw new IllegalStateException("Cannot access " + name + " field from JobService", e);
+      }
     }
   }
 
   private Job job() {
     Job job = new Job();
-    job.owner = authenticatedUser.getUser().orElseThrow();
+    job.owner = userRepository.findById(3L).orElseThrow();
     job.title = RandomStringUtils.insecure().nextAlphanumeric(50);
     job.message = RandomStringUtils.insecure().nextAlphanumeric(20);
     return job;
@@ -181,4 +198,236 @@ public class JobServiceTest {
       assertEquals(expected.time, actual.time);
     }
   }
+
+  @Test
+  public void getJobs_Empty() {
+    clearJobs();
+    assertTrue(service.getJobs().isEmpty());
+  }
+
+  @Test
+  @WithAnonymousUser
+  public void getJobs_Anonymous() {
+    assertThrows(AccessDeniedException.class, () -> service.getJobs());
+  }
+
+  @Test
+  public void getJob() {
+    Optional<Job> optionalJob = service.getJob(jobs.get(2).uuid);
+    assertTrue(optionalJob.isPresent());
+    assertSame(jobs.get(2), optionalJob.get());
+  }
+
+  @Test
+  public void getJob_OtherOwner() {
+    assertFalse(service.getJob(jobs.get(1).uuid).isPresent());
+  }
+
+  @Test
+  public void getJob_NotFound() {
+    assertFalse(service.getJob(UUID.randomUUID()).isPresent());
+  }
+
+  @Test
+  @WithAnonymousUser
+  public void getJob_Anonymous() {
+    assertThrows(AccessDeniedException.class, () -> service.getJob(jobs.get(0).uuid));
+  }
+
+  @Test
+  public void addJob_SameUuid() {
+    Job expected = job();
+    expected.uuid = jobs.get(0).uuid;
+    expected.future = Mockito.mock(Future.class);
+    service.addJob(expected);
+    List<Job> jobs = service.getJobs();
+    assertEquals(5, jobs.size());
+    assertSame(expected, jobs.get(4));
+    assertSame(expected, service.getJob(expected.uuid).orElseThrow());
+  }
+
+  @Test
+  public void addJob_MaxCompleted() {
+    when(configuration.getJobMaxCompleted()).thenReturn(2);
+    Job expected = job();
+    expected.future = CompletableFuture.completedFuture(null);
+    service.addJob(expected);
+    List<Job> jobs = service.getJobs();
+    assertEquals(4, jobs.size());
+    assertSame(this.jobs.get(3), jobs.get(0));
+    assertSame(this.jobs.get(4), jobs.get(1));
+    assertSame(this.jobs.get(5), jobs.get(2));
+    assertSame(expected, jobs.get(3));
+  }
+
+  @Test
+  public void removeJob_NotAdded() {
+    Job job = job();
+    job.uuid = jobs.get(0).uuid;
+    service.removeJob(job);
+    assertEquals(5, service.getJobs().size());
+  }
+
+  @Test
+  public void evict() {
+    service.evict();
+    assertEquals(5, service.getJobs().size());
+  }
+
+  @Test
+  public void evict_MaxAge() {
+    when(configuration.getJobMaxAge()).thenReturn(Duration.ZERO);
+    service.evict();
+    List<Job> jobs = service.getJobs();
+    assertEquals(2, jobs.size());
+    assertSame(this.jobs.get(4), jobs.get(0));
+    assertSame(this.jobs.get(5), jobs.get(1));
+  }
+
+  @Test
+  public void evict_NoMaxAge() {
+    when(configuration.getJobMaxAge()).thenReturn(null);
+    when(configuration.getJobMaxCompleted()).thenReturn(0);
+    service.evict();
+    assertEquals(5, service.getJobs().size());
+  }
+
+  @Test
+  public void evict_MaxCompleted() {
+    when(configuration.getJobMaxCompleted()).thenReturn(1);
+    service.evict();
+    List<Job> jobs = service.getJobs();
+    assertEquals(3, jobs.size());
+    assertSame(this.jobs.get(3), jobs.get(0));
+    assertSame(this.jobs.get(4), jobs.get(1));
+    assertSame(this.jobs.get(5), jobs.get(2));
+  }
+
+  @Test
+  @WithUserDetails("benoit.coulombe@ircm.qc.ca")
+  public void getJobs_OtherOwner() {
+    List<Job> jobs = service.getJobs();
+    assertEquals(1, jobs.size());
+    assertSame(this.jobs.get(1), jobs.get(0));
+  }
+
+  @Test
+  @WithUserDetails("benoit.coulombe@ircm.qc.ca")
+  public void evict_OtherOwner() {
+    when(configuration.getJobMaxAge()).thenReturn(Duration.ZERO);
+    service.evict();
+    assertTrue(service.getJobs().isEmpty());
+  }
+
+  @Test
+  public void addJob_Concurrent() throws Throwable {
+    clearJobs();
+    when(configuration.getJobMaxCompleted()).thenReturn(0);
+    List<Job> added = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      Job job = job();
+      job.future = i % 2 == 0 ? CompletableFuture.completedFuture(null)
+          : Mockito.mock(Future.class);
+      added.add(job);
+    }
+    try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+      List<Future<?>> futures = new ArrayList<>();
+      for (Job job : added) {
+        futures.add(executor.submit(() -> {
+          service.addJob(job);
+          service.evict();
+          if (job.future.isDone()) {
+            service.removeJob(job);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    }
+    List<Job> jobs = service.getJobs();
+    assertEquals(500, jobs.size());
+    assertTrue(jobs.stream().noneMatch(j -> j.future.isDone()));
+  }
+
+  @Test
+  public void addJob_Events() {
+    Job job = job();
+    job.future = new CompletableFuture<Void>();
+    service.addJob(job);
+    verify(eventBus).added(job);
+    verify(eventBus, never()).updated(job);
+    verify(eventBus, never()).completed(job);
+
+    job.progression().accept("test", 0.5);
+
+    verify(eventBus).updated(job);
+    verify(eventBus, never()).completed(job);
+  }
+
+  @Test
+  public void addJob_CompletedEvent() {
+    Job job = job();
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    job.future = future;
+    service.addJob(job);
+
+    future.complete(null);
+
+    verify(eventBus).completed(job);
+    job.progression().accept("test", 0.5);
+    verify(eventBus, never()).updated(job);
+  }
+
+  @Test
+  public void addJob_CompletedEvent_Failed() {
+    Job job = job();
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    job.future = future;
+    service.addJob(job);
+
+    future.completeExceptionally(new IllegalStateException("test"));
+
+    verify(eventBus).completed(job);
+  }
+
+  @Test
+  public void addJob_CompletedEvent_AlreadyCompleted() {
+    verify(eventBus).added(jobs.get(0));
+    verify(eventBus).completed(jobs.get(0));
+  }
+
+  @Test
+  public void addJob_SameUuid_Events() {
+    Job job = job();
+    job.uuid = jobs.get(4).uuid;
+    service.addJob(job);
+    verify(eventBus).removed(jobs.get(4));
+    verify(eventBus).added(job);
+  }
+
+  @Test
+  public void removeJob_Event() {
+    service.removeJob(jobs.get(0));
+    verify(eventBus).removed(jobs.get(0));
+  }
+
+  @Test
+  public void removeJob_NotAdded_Event() {
+    Job job = job();
+    service.removeJob(job);
+    verify(eventBus, never()).removed(job);
+  }
+
+  @Test
+  public void evict_Events() {
+    when(configuration.getJobMaxAge()).thenReturn(Duration.ZERO);
+    service.evict();
+    verify(eventBus).removed(jobs.get(0));
+    verify(eventBus).removed(jobs.get(1));
+    verify(eventBus).removed(jobs.get(2));
+    verify(eventBus).removed(jobs.get(3));
+    verify(eventBus, never()).removed(jobs.get(4));
+    verify(eventBus, never()).removed(jobs.get(5));
+  }
 }
@@ -4,6 +4,7 @@ import static ca.qc.ircm.lanaseq.Constants.APPLICATION_NAME;
 import static ca.qc.ircm.lanaseq.Constants.TITLE;
 import static ca.qc.ircm.lanaseq.Constants.messagePrefix;
 import static ca.qc.ircm.lanaseq.jobs.Job.UNDETERMINED_PROGRESS;
+import static ca.qc.ircm.lanaseq.jobs.web.JobsView.CANCEL;
 import static ca.qc.ircm.lanaseq.jobs.web.JobsView.CANCELLED;
 import static ca.qc.ircm.lanaseq.jobs.web.JobsView.ERROR;
 import static ca.qc.ircm.lanaseq.jobs.web.JobsView.ID;
@@ -15,12 +16,17 @@ import static ca.qc.ircm.lanaseq.jobs.web.JobsView.REFRESH;
 import static ca.qc.ircm.lanaseq.jobs.web.JobsView.REMOVE_DONE;
 import static ca.qc.ircm.lanaseq.jobs.web.JobsView.SUCCESS;
 import static ca.qc.ircm.lanaseq.jobs.web.JobsView.TIME;
+import static ca.qc.ircm.lanaseq.jobs.web.JobsView.TRANSFER;
+import static ca.qc.ircm.lanaseq.jobs.web.JobsView.TRANSFER_UNKNOWN;
 import static ca.qc.ircm.lanaseq.test.utils.VaadinTestUtils.items;
+import static ca.qc.ircm.lanaseq.test.utils.VaadinTestUtils.runPendingAccessTasks;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -29,20 +35,26 @@ import static org.mockito.Mockito.when;
 
 import ca.qc.ircm.lanaseq.Constants;
 import ca.qc.ircm.lanaseq.jobs.Job;
+import ca.qc.ircm.lanaseq.jobs.JobEvent;
+import ca.qc.ircm.lanaseq.jobs.JobEventBus;
 import ca.qc.ircm.lanaseq.jobs.JobService;
 import ca.qc.ircm.lanaseq.security.AuthenticatedUser;
 import ca.qc.ircm.lanaseq.test.config.ServiceTestAnnotations;
 import com.vaadin.browserless.SpringBrowserlessTest;
 import com.vaadin.flow.component.Component;
 import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.button.Button;
 import com.vaadin.flow.component.grid.HeaderRow;
 import com.vaadin.flow.component.html.NativeLabel;
 import com.vaadin.flow.component.html.Span;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
 import com.vaadin.flow.component.progressbar.ProgressBar;
+import com.vaadin.flow.data.provider.DataChangeEvent;
 import com.vaadin.flow.data.provider.SortDirection;
 import com.vaadin.flow.data.renderer.ComponentRenderer;
 import com.vaadin.flow.data.selection.SelectionModel;
+import com.vaadin.flow.shared.Registration;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -53,9 +65,13 @@ import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.test.context.support.WithUserDetails;
@@ -73,6 +89,12 @@ public class JobsViewTest extends SpringBrowserlessTest {
   private JobsView view;
   @MockitoBean
   private JobService service;
+  @MockitoBean
+  private JobEventBus eventBus;
+  @Mock
+  private Registration registration;
+  @Captor
+  private ArgumentCaptor<Consumer<JobEvent>> listenerCaptor;
   @Autowired
   private AuthenticatedUser authenticatedUser;
   private final Locale locale = Locale.ENGLISH;
@@ -84,6 +106,7 @@ public class JobsViewTest extends SpringBrowserlessTest {
   @BeforeEach
   public void beforeEach() {
     prepareJobs();
+    when(eventBus.subscribe(any())).thenReturn(registration);
     UI.getCurrent().setLocale(locale);
     view = navigate(JobsView.class);
   }
@@ -282,6 +305,73 @@ public class JobsViewTest extends SpringBrowserlessTest {
     }
   }
 
+  @Test
+  public void jobs_Transfer() {
+    Job job = job();
+    job.progress = 0.25;
+    job.bytes = 2L * 1024 * 1024 * 1024;
+    job.totalBytes = 8L * 1024 * 1024 * 1024;
+    job.throughput = 100 * 1024 * 1024;
+    job.remaining = Duration.ofSeconds(3725);
+    ComponentRenderer<Component, Job> progressRenderer =
+        (ComponentRenderer<Component, Job>) view.progress.getRenderer();
+    Component progressComponent = progressRenderer.createComponent(job);
+    Span transfer = test(progressComponent).find(Span.class).withClassName(TRANSFER).single();
+    assertEquals(view.getTranslation(MESSAGE_PREFIX + TRANSFER, "2 GB", "8 GB", "100 MB",
+        "1:02:05"), transfer.getText());
+  }
+
+  @Test
+  public void jobs_Transfer_Unknown() {
+    Job job = job();
+    job.progress = 0.0;
+    job.bytes = 0;
+    job.totalBytes = 8L * 1024 * 1024 * 1024;
+    ComponentRenderer<Component, Job> progressRenderer =
+        (ComponentRenderer<Component, Job>) view.progress.getRenderer();
+    Component progressComponent = progressRenderer.createComponent(job);
+    Span transfer = test(progressComponent).find(Span.class).withClassName(TRANSFER).single();
+    assertEquals(view.getTranslation(MESSAGE_PREFIX + TRANSFER_UNKNOWN, "0 bytes", "8 GB"),
+        transfer.getText());
+  }
+
+  @Test
+  public void jobs_NoTransfer() {
+    Job job = job();
+    job.progress = 0.4;
+    ComponentRenderer<Component, Job> progressRenderer =
+        (ComponentRenderer<Component, Job>) view.progress.getRenderer();
+    Component progressComponent = progressRenderer.createComponent(job);
+    assertFalse(test(progressComponent).find(Span.class).withClassName(TRANSFER).exists());
+  }
+
+  @Test
+  public void jobs_Cancel() {
+    Job job = job();
+    job.progress = 0.4;
+    job.cancellable = true;
+    ComponentRenderer<Component, Job> progressRenderer =
+        (ComponentRenderer<Component, Job>) view.progress.getRenderer();
+    Component progressComponent = progressRenderer.createComponent(job);
+    Button cancel = test(progressComponent).find(Button.class).withClassName(CANCEL).single();
+    assertEquals(view.getTranslation(MESSAGE_PREFIX + CANCEL), cancel.getText());
+
+    cancel.click();
+
+    verify(job.future).cancel(true);
+    verify(service, times(2)).getJobs();
+  }
+
+  @Test
+  public void jobs_NotCancellable() {
+    Job job = job();
+    job.progress = 0.4;
+    ComponentRenderer<Component, Job> progressRenderer =
+        (ComponentRenderer<Component, Job>) view.progress.getRenderer();
+    Component progressComponent = progressRenderer.createComponent(job);
+    assertFalse(test(progressComponent).find(Button.class).withClassName(CANCEL).exists());
+  }
+
   @Test
   public void jobs_TitleColumnComparator() {
     Comparator<Job> comparator = view.title.getComparator(SortDirection.ASCENDING);
@@ -334,4 +424,67 @@ public class JobsViewTest extends SpringBrowserlessTest {
     verify(service, never()).removeJob(jobs.get(4));
     assertEquals(5, view.jobs.getListDataView().getItemCount());
   }
+
+  private Consumer<JobEvent> jobEventsListener() {
+    verify(eventBus).subscribe(listenerCaptor.capture());
+    return listenerCaptor.getValue();
+  }
+
+  @Test
+  public void jobEvents_Added() {
+    Job job = job();
+    job.time = LocalDateTime.now();
+    jobs.add(job);
+    jobEventsListener().accept(new JobEvent(job, JobEvent.Type.ADDED));
+    verify(service).getJobs();
+    runPendingAccessTasks();
+    verify(service, times(2)).getJobs();
+    assertEquals(7, view.jobs.getListDataView().getItemCount());
+  }
+
+  @Test
+  public void jobEvents_Removed() {
+    Job job = jobs.remove(0);
+    jobEventsListener().accept(new JobEvent(job, JobEvent.Type.REMOVED));
+    runPendingAccessTasks();
+    verify(service, times(2)).getJobs();
+    assertEquals(5, view.jobs.getListDataView().getItemCount());
+  }
+
+  @Test
+  public void jobEvents_Updated() {
+    Job job = jobs.get(4);
+    List<DataChangeEvent<Job>> events = new ArrayList<>();
+    view.jobs.getDataProvider().addDataProviderListener(events::add);
+    job.progress = 0.8;
+    jobEventsListener().accept(new JobEvent(job, JobEvent.Type.UPDATED));
+    assertTrue(events.isEmpty());
+    runPendingAccessTasks();
+    verify(service).getJobs();
+    assertEquals(1, events.size());
+    assertInstanceOf(DataChangeEvent.DataRefreshEvent.class, events.getFirst());
+    assertSame(job, ((DataChangeEvent.DataRefreshEvent<Job>) events.getFirst()).getItem());
+  }
+
+  @Test
+  public void jobEvents_Completed() {
+    Job job = jobs.get(4);
+    List<DataChangeEvent<Job>> events = new ArrayList<>();
+    view.jobs.getDataProvider().addDataProviderListener(events::add);
+    job.future = CompletableFuture.completedFuture(null);
+    jobEventsListener().accept(new JobEvent(job, JobEvent.Type.COMPLETED));
+    runPendingAccessTasks();
+    assertEquals(1, events.size());
+    assertSame(job, ((DataChangeEvent.DataRefreshEvent<Job>) events.getFirst()).getItem());
+    test(view.removeDone).click();
+    verify(service).removeJob(job);
+    verify(service, never()).removeJob(jobs.get(5));
+  }
+
+  @Test
+  public void jobEvents_Detach() {
+    verify(eventBus).subscribe(any());
+    view.getElement().removeFromParent();
+    verify(registration).remove();
+  }
 }
@@ -0,0 +1,194 @@
+package ca.qc.ircm.lanaseq.sample;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import ca.qc.ircm.lanaseq.AppConfiguration;
+import ca.qc.ircm.lanaseq.DataWithFiles;
+import ca.qc.ircm.lanaseq.files.DriveResult;
+import ca.qc.ircm.lanaseq.files.FileListingCache;
+import ca.qc.ircm.lanaseq.security.PermissionEvaluatorDelegator;
+import ca.qc.ircm.lanaseq.test.config.ServiceTestAnnotations;
+import jakarta.persistence.EntityManager;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+/**
+ * Tests for {@link SampleService} with file listing cache enabled.
+ *
+ * <p>Files created outside of {@link SampleService} are not listed until the cache is refreshed, so
+ * these tests fail if a change made by {@link SampleService} does not refresh the cache.</p>
+ */
+@ServiceTestAnnotations
+@WithUserDetails("jonh.smith@ircm.qc.ca")
+public class SampleServiceFileCacheTest {
+
+  @TempDir
+  Path temporaryFolder;
+  @Autowired
+  private SampleService service;
+  @Autowired
+  private SampleRepository repository;
+  @Autowired
+  private FileListingCache fileListingCache;
+  @Autowired
+  private EntityManager entityManager;
+  @MockitoBean
+  private AppConfiguration configuration;
+  @MockitoBean
+  private PermissionEvaluatorDelegator permissionEvaluator;
+  @Mock
+  private BiConsumer<String, Double> progression;
+
+  /**
+   * Before test.
+   */
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  public void beforeTest() {
+    when(permissionEvaluator.hasPermission(any(), any(), any())).thenReturn(true);
+    when(permissionEvaluator.hasCollectionPermission(any(), any(), any())).thenReturn(true);
+    when(configuration.getHome()).thenReturn(mock(AppConfiguration.NetworkDrive.class));
+    when(configuration.getHome().getFolder()).thenReturn(temporaryFolder.resolve("home"));
+    when(configuration.getHome().folder(any(Sample.class))).then(i -> {
+      Sample sample = i.getArgument(0);
+      return sample != null ? temporaryFolder.resolve("home").resolve(sample.getName()) : null;
+    });
+    when(configuration.getArchives()).thenReturn(List.of());
+    fileListingCache.invalidateAll();
+  }
+
+  private Path write(Path file) throws Throwable {
+    Files.createDirectories(file.getParent());
+    return Files.writeString(file, file.getFileName().toString());
+  }
+
+  @Test
+  public void files_Cached() throws Throwable {
+    Sample sample = repository.findById(1L).orElseThrow();
+    Path folder = configuration.getHome().folder(sample);
+    Path file = write(folder.resolve("sample_R1.fastq"));
+    assertEquals(List.of(file), service.files(sample));
+
+    write(folder.resolve("sample_R2.fastq"));
+
+    assertEquals(List.of(file), service.files(sample));
+  }
+
+  @Test
+  public void files_SaveFiles() throws Throwable {
+    Sample sample = repository.findById(1L).orElseThrow();
+    Path folder = configuration.getHome().folder(sample);
+    Path file1 = write(folder.resolve("sample_R1.fastq"));
+    assertEquals(List.of(file1), service.files(sample));
+    Path file2 = write(folder.resolve("sample_R2.fastq"));
+    Path upload = write(temporaryFolder.resolve("upload").resolve("sample.bw"));
+
+    service.saveFiles(sample, List.of(upload), f -> f.getFileName().toString(), progression)
+        .join();
+
+    List<Path> files = service.files(sample);
+    assertTrue(files.contains(file1));
+    assertTrue(files.contains(file2));
+    assertTrue(files.contains(folder.resolve("sample.bw")));
+  }
+
+  @Test
+  @WithUserDetails("francois.robert@ircm.qc.ca")
+  public void files_Rename() throws Throwable {
+    Sample sample = repository.findById(1L).orElseThrow();
+    entityManager.detach(sample);
+    Path folder = configuration.getHome().folder(sample);
+    write(folder.resolve("sample_R1.fastq"));
+    assertEquals(1, service.files(sample).size());
+    write(folder.resolve("sample_R2.fastq"));
+    sample.setName("mysample_MNaseseq_IP_polr2a_yFR100_WT_Rappa_myreplicate_20181020");
+
+    service.save(sample);
+
+    Path renamed = configuration.getHome().folder(sample);
+    List<Path> files = service.files(sample);
+    assertEquals(2, files.size());
+    assertTrue(files.contains(renamed.resolve("sample_R1.fastq")));
+    assertTrue(files.contains(renamed.resolve("sample_R2.fastq")));
+  }
+
+  @Test
+  public void files_DeleteFile() throws Throwable {
+    Sample sample = repository.findById(9L).orElseThrow();
+    Path folder = configuration.getHome().folder(sample);
+    Path file1 = write(folder.resolve("sample_R1.fastq"));
+    Path file2 = write(folder.resolve("sample_R2.fastq"));
+    assertEquals(2, service.files(sample).size());
+    Path file3 = write(folder.resolve("sample.bw"));
+
+    service.deleteFile(sample, file1);
+
+    List<Path> files = service.files(sample);
+    assertEquals(2, files.size());
+    assertTrue(files.contains(file2));
+    assertTrue(files.contains(file3));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void files_Listener_NestedDrives() throws Throwable {
+    AppConfiguration.NetworkDrive<DataWithFiles> archive =
+        mock(AppConfiguration.NetworkDrive.class);
+    Path archiveFolder = temporaryFolder.resolve("home").resolve("archives");
+    when(archive.getFolder()).thenReturn(archiveFolder);
+    when(archive.folder(any(Sample.class))).then(i -> {
+      Sample sample = i.getArgument(0);
+      return sample != null ? archiveFolder.resolve(sample.getName()) : null;
+    });
+    when(configuration.getArchives()).thenReturn(List.of(archive));
+    Sample sample = repository.findById(1L).orElseThrow();
+    Path homeFile = write(configuration.getHome().folder(sample).resolve("sample_R1.fastq"));
+    Path archiveFile = write(archive.folder(sample).resolve("sample_R2.fastq"));
+    service.files(sample, result -> {
+    }).get();
+    List<DriveResult<DataWithFiles, List<Path>>> results = new CopyOnWriteArrayList<>();
+
+    List<Path> files = service.files(sample, results::add).get();
+
+    assertEquals(2, files.size());
+    assertEquals(2, results.size());
+    Map<AppConfiguration.NetworkDrive<DataWithFiles>, List<Path>> filesByDrive =
+        results.stream().collect(
+            Collectors.toMap(DriveResult::drive, result -> result.result().orElseThrow()));
+    assertEquals(List.of(homeFile), filesByDrive.get(configuration.getHome()));
+    assertEquals(List.of(archiveFile), filesByDrive.get(archive));
+  }
+
+  @TestConfiguration
+  static class FileCacheConfiguration {
+    @Bean
+    @Primary
+    FileListingCache fileListingCacheWithMaxAge() {
+      AppConfiguration configuration = mock(AppConfiguration.class);
+      when(configuration.getFileCacheMaxAge()).thenReturn(Duration.ofMinutes(5));
+      return new FileListingCache(configuration) {
+      };
+    }
+  }
+}
@@ -15,6 +15,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -27,18 +28,25 @@ import ca.qc.ircm.lanaseq.DataWithFiles;
 import ca.qc.ircm.lanaseq.dataset.Dataset;
 import ca.qc.ircm.lanaseq.dataset.DatasetRepository;
 import ca.qc.ircm.lanaseq.dataset.DatasetService;
+import ca.qc.ircm.lanaseq.files.DriveResult;
+import ca.qc.ircm.lanaseq.files.TransferProgress;
+import ca.qc.ircm.lanaseq.files.TransferProgression;
 import ca.qc.ircm.lanaseq.protocol.ProtocolRepository;
 import ca.qc.ircm.lanaseq.security.AuthenticatedUser;
+import ca.qc.ircm.lanaseq.security.PermissionEvaluatorDelegator;
 import ca.qc.ircm.lanaseq.test.config.ServiceTestAnnotations;
 import ca.qc.ircm.lanaseq.user.UserRepository;
 import jakarta.persistence.EntityManager;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.file.FileSystem;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.FileTime;
+import java.nio.file.spi.FileSystemProvider;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
@@ -46,15 +54,19 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.SystemUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
@@ -65,7 +77,6 @@ import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Sort.Direction;
 import org.springframework.data.domain.Sort.Order;
 import org.springframework.security.access.AccessDeniedException;
-import org.springframework.security.access.PermissionEvaluator;
 import org.springframework.security.test.context.support.WithAnonymousUser;
 import org.springframework.security.test.context.support.WithUserDetails;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
@@ -100,7 +111,7 @@ public class SampleServiceTest {
   @MockitoBean
   private AppConfiguration configuration;
   @MockitoBean
-  private PermissionEvaluator permissionEvaluator;
+  private PermissionEvaluatorDelegator permissionEvaluator;
   @Autowired
   private AuthenticatedUser authenticatedUser;
   @Mock
@@ -113,6 +124,7 @@ public class SampleServiceTest {
   @SuppressWarnings("unchecked")
   public void beforeTest() {
     when(permissionEvaluator.hasPermission(any(), any(), any())).thenReturn(true);
+    when(permissionEvaluator.hasCollectionPermission(any(), any(), any())).thenReturn(true);
     when(configuration.getHome()).thenReturn(mock(AppConfiguration.NetworkDrive.class));
     when(configuration.getHome().getFolder()).thenReturn(temporaryFolder.resolve("home"));
     when(configuration.getHome().folder(any(Sample.class))).then(i -> {
@@ -778,7 +790,8 @@ public class SampleServiceTest {
 
     List<Path> files = service.files(sample);
 
-    verify(configuration.getHome(), times(2)).getFolder();
+    // Drive folders are also read to exclude files of nested drives.
+    verify(configuration.getHome(), times(5)).getFolder();
     assertEquals(2, files.size());
     assertTrue(files.contains(folder.resolve("OF_20241118_ROB_01.raw")));
     assertTrue(files.contains(folder.resolve("otherdirectory/A_OF_20241118_ROB_01_0.raw")));
@@ -845,6 +858,28 @@ public class SampleServiceTest {
     verify(permissionEvaluator).hasPermission(any(), eq(sample), eq(READ));
   }
 
+  @Test
+  public void files_ArchiveTimeout() throws Throwable {
+    when(configuration.getDriveTimeout()).thenReturn(Duration.ofMillis(200));
+    Sample sample = repository.findById(1L).orElseThrow();
+    Path folder = configuration.getHome().folder(sample);
+    Files.createDirectories(folder);
+    Files.createFile(folder.resolve("sample_R1.fastq"));
+    Path archive = configuration.getArchives().get(0).folder(sample);
+    Files.createDirectories(archive);
+    Files.createFile(archive.resolve("sample_R2.fastq"));
+    when(configuration.getArchives().get(0).folder(any(Sample.class))).then(i -> {
+      Thread.sleep(5000);
+      return archive;
+    });
+
+    List<Path> files = service.files(sample);
+
+    assertEquals(1, files.size());
+    assertTrue(files.contains(folder.resolve("sample_R1.fastq")));
+    verify(permissionEvaluator).hasPermission(any(), eq(sample), eq(READ));
+  }
+
   @Test
   public void files_ArchivesSameFilename() throws Throwable {
     Sample sample = repository.findById(1L).orElseThrow();
@@ -887,9 +922,10 @@ public class SampleServiceTest {
 
     List<Path> files = service.files(sample);
 
-    verify(configuration.getHome()).getFolder();
-    verify(configuration.getArchives().get(0), times(2)).getFolder();
-    verify(configuration.getArchives().get(1), times(2)).getFolder();
+    // Drive folders are also read to exclude files of nested drives.
+    verify(configuration.getHome(), times(4)).getFolder();
+    verify(configuration.getArchives().get(0), times(5)).getFolder();
+    verify(configuration.getArchives().get(1), times(5)).getFolder();
     assertEquals(2, files.size());
     folder = configuration.getArchives().get(0).getFolder().resolve("otherdirectory");
     assertTrue(files.contains(folder.resolve("OF_20241118_ROB_01.raw")));
@@ -914,6 +950,116 @@ public class SampleServiceTest {
     verify(permissionEvaluator).hasPermission(any(), eq(sample), eq(READ));
   }
 
+  @Test
+  public void allFiles() throws Throwable {
+    Sample sample1 = repository.findById(1L).orElseThrow();
+    Sample sample2 = repository.findById(2L).orElseThrow();
+    Path folder1 = configuration.getHome().folder(sample1);
+    Files.createDirectories(folder1);
+    Files.createFile(folder1.resolve("sample1_R1.fastq"));
+    Path folder2 = configuration.getArchives().get(0).folder(sample2);
+    Files.createDirectories(folder2);
+    Files.createFile(folder2.resolve("sample2_R1.fastq"));
+    Files.createFile(folder2.resolve(".deleted"));
+
+    Map<Sample, List<Path>> files = service.allFiles(List.of(sample1, sample2));
+
+    assertEquals(2, files.size());
+    assertEquals(List.of(folder1.resolve("sample1_R1.fastq")), files.get(sample1));
+    assertEquals(List.of(folder2.resolve("sample2_R1.fastq")), files.get(sample2));
+    verify(permissionEvaluator).hasCollectionPermission(any(), eq(List.of(sample1, sample2)),
+        eq(READ));
+  }
+
+  @Test
+  public void allFiles_Filenames() throws Throwable {
+    Sample sample = repository.findById(4L).orElseThrow();
+    Sample other = repository.findById(1L).orElseThrow();
+    Path folder = configuration.getArchives().get(0).getFolder().resolve("otherdirectory");
+    Files.createDirectories(folder);
+    Files.createFile(folder.resolve("OF_20241118_ROB_01.raw"));
+
+    Map<Sample, List<Path>> files = service.allFiles(List.of(other, sample));
+
+    assertEquals(List.of(other, sample), List.copyOf(files.keySet()));
+    assertEquals(List.of(folder.resolve("OF_20241118_ROB_01.raw")), files.get(sample));
+    assertTrue(files.get(other).isEmpty());
+    // Drive folders are also read to exclude files of nested drives.
+    verify(configuration.getHome(), times(4)).getFolder();
+    verify(configuration.getArchives().get(0), times(5)).getFolder();
+    verify(configuration.getArchives().get(1), times(4)).getFolder();
+  }
+
+  @Test
+  public void allFiles_Empty() {
+    Map<Sample, List<Path>> files = service.allFiles(List.of());
+
+    assertTrue(files.isEmpty());
+  }
+
+  @Test
+  public void files_Listener() throws Throwable {
+    Sample sample = repository.findById(1L).orElseThrow();
+    Path home = configuration.getHome().folder(sample);
+    Files.createDirectories(home);
+    Files.createFile(home.resolve("sample_R1.fastq"));
+    Path archive = configuration.getArchives().get(0).folder(sample);
+    Files.createDirectories(archive);
+    Files.createFile(archive.resolve("sample_R2.fastq"));
+    List<DriveResult<DataWithFiles, List<Path>>> results = new CopyOnWriteArrayList<>();
+
+    List<Path> files = service.files(sample, results::add).get();
+
+    assertEquals(2, files.size());
+    assertTrue(files.contains(home.resolve("sample_R1.fastq")));
+    assertTrue(files.contains(archive.resolve("sample_R2.fastq")));
+    assertEquals(3, results.size());
+    Map<AppConfiguration.NetworkDrive<DataWithFiles>, List<Path>> filesByDrive = results.stream().collect(
+        Collectors.toMap(DriveResult::drive, result -> result.result().orElseThrow()));
+    assertEquals(List.of(home.resolve("sample_R1.fastq")),
+        filesByDrive.get(configuration.getHome()));
+    assertEquals(List.of(archive.resolve("sample_R2.fastq")),
+        filesByDrive.get(configuration.getArchives().get(0)));
+    assertEquals(List.of(), filesByDrive.get(configuration.getArchives().get(1)));
+    verify(permissionEvaluator).hasPermission(any(), eq(sample), eq(READ));
+  }
+
+  @Test
+  public void files_Listener_ArchiveTimeout() throws Throwable {
+    when(configuration.getDriveTimeout()).thenReturn(Duration.ofMillis(200));
+    Sample sample = repository.findById(1L).orElseThrow();
+    Path home = configuration.getHome().folder(sample);
+    Files.createDirectories(home);
+    Files.createFile(home.resolve("sample_R1.fastq"));
+    Path archive = configuration.getArchives().get(0).folder(sample);
+    when(configuration.getArchives().get(0).folder(any(Sample.class))).then(i -> {
+      Thread.sleep(5000);
+      return archive;
+    });
+    List<DriveResult<DataWithFiles, List<Path>>> results = new CopyOnWriteArrayList<>();
+
+    List<Path> files = service.files(sample, results::add).get();
+
+    assertEquals(List.of(home.resolve("sample_R1.fastq")), files);
+    assertEquals(3, results.size());
+    DriveResult<DataWithFiles, List<Path>> last = results.get(2);
+    assertEquals(configuration.getArchives().get(0), last.drive());
+    assertFalse(last.isAvailable());
+    assertTrue(results.get(0).isAvailable());
+    assertTrue(results.get(1).isAvailable());
+  }
+
+  @Test
+  public void files_Listener_NewSample() throws Throwable {
+    List<DriveResult<DataWithFiles, List<Path>>> results = new CopyOnWriteArrayList<>();
+
+    List<Path> files = service.files(new Sample(), results::add).get();
+
+    assertTrue(files.isEmpty());
+    assertEquals(3, results.size());
+    assertTrue(results.stream().allMatch(result -> result.result().orElseThrow().isEmpty()));
+  }
+
   @Test
   public void files_NewSample() {
     List<Path> files = service.files(new Sample());
@@ -1215,6 +1361,39 @@ public class SampleServiceTest {
     assertEquals(file, path);
     assertTrue(Files.isRegularFile(path));
   }
+  @Test
+  @WithAnonymousUser
+  public void publicFile_ArchiveHangs() throws IOException, URISyntaxException {
+    when(configuration.getDriveTimeout()).thenReturn(Duration.ofMillis(200));
+    Sample sample = repository.findById(10L).orElseThrow();
+    Path folder = configuration.getArchives().get(1).folder(sample);
+    Files.createDirectories(folder);
+    Path file = folder.resolve("JS1_ChIPseq_Spt16_yFR101_G24D_R1_20181210.bw");
+    Files.copy(
+        Paths.get(Objects.requireNonNull(getClass().getResource("/sample/R1.fastq")).toURI()), file,
+        StandardCopyOption.REPLACE_EXISTING);
+    // Reading attributes of files on first archive never completes in time.
+    FileSystemProvider provider = mock(FileSystemProvider.class, i -> {
+      Thread.sleep(5000);
+      return null;
+    });
+    FileSystem fileSystem = mock(FileSystem.class);
+    when(fileSystem.provider()).thenReturn(provider);
+    Path hangingFile = mock(Path.class);
+    when(hangingFile.getFileSystem()).thenReturn(fileSystem);
+    Path hangingFolder = mock(Path.class);
+    when(hangingFolder.resolve(anyString())).thenReturn(hangingFile);
+    when(configuration.getArchives().get(0).folder(any(Sample.class))).thenReturn(hangingFolder);
+    long start = System.nanoTime();
+
+    Optional<Path> optionalPath = service.publicFile(sample.getName(),
+        "JS1_ChIPseq_Spt16_yFR101_G24D_R1_20181210.bw");
+
+    assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(2)) < 0);
+    assertTrue(optionalPath.isPresent());
+    assertEquals(file, optionalPath.orElseThrow());
+  }
+
 
   @Test
   @WithAnonymousUser
@@ -2043,6 +2222,8 @@ public class SampleServiceTest {
         Paths.get(Objects.requireNonNull(getClass().getResource("/sample/R2.fastq")).toURI()),
         file);
     files.add(file);
+    final long size1 = Files.size(files.get(0));
+    final long size2 = Files.size(files.get(1));
 
     service.saveFiles(sample, files, f -> f.getFileName().toString(), progression).join();
 
@@ -2058,8 +2239,8 @@ public class SampleServiceTest {
     assertArrayEquals(Files.readAllBytes(
             Paths.get(Objects.requireNonNull(getClass().getResource("/sample/R2.fastq")).toURI())),
         Files.readAllBytes(folder.resolve("sample_R2.fastq")));
-    verify(progression).accept("sample_R1.fastq", 0.0);
-    verify(progression).accept("sample_R2.fastq", 0.5);
+    verify(progression).accept("sample_R1.fastq (move)", 0.0);
+    verify(progression).accept("sample_R2.fastq (move)", (double) size1 / (size1 + size2));
     verify(progression).accept("", 1.0);
     verify(permissionEvaluator).hasPermission(any(), eq(sample), eq(WRITE));
   }
@@ -2078,6 +2259,8 @@ public class SampleServiceTest {
         Paths.get(Objects.requireNonNull(getClass().getResource("/sample/R2.fastq")).toURI()),
         file);
     files.add(file);
+    final long size1 = Files.size(files.get(0));
+    final long size2 = Files.size(files.get(1));
 
     service.saveFiles(sample, files, f -> f.getFileName().toString().substring(4), progression)
         .join();
@@ -2094,12 +2277,68 @@ public class SampleServiceTest {
     assertArrayEquals(Files.readAllBytes(
             Paths.get(Objects.requireNonNull(getClass().getResource("/sample/R2.fastq")).toURI())),
         Files.readAllBytes(folder.resolve("le_R2.fastq")));
-    verify(progression).accept("le_R1.fastq", 0.0);
-    verify(progression).accept("le_R2.fastq", 0.5);
+    verify(progression).accept("le_R1.fastq (move)", 0.0);
+    verify(progression).accept("le_R2.fastq (move)", (double) size1 / (size1 + size2));
     verify(progression).accept("", 1.0);
     verify(permissionEvaluator).hasPermission(any(), eq(sample), eq(WRITE));
   }
 
+  @Test
+  public void saveFiles_Concurrent() throws Throwable {
+    final Sample sample = repository.findById(1L).orElseThrow();
+    when(configuration.getHome().getConcurrency()).thenReturn(2);
+    List<Path> files = new ArrayList<>();
+    for (int i = 1; i <= 4; i++) {
+      Path file = temporaryFolder.resolve("sample_R" + i + ".fastq");
+      Files.write(file, ("content " + i).getBytes());
+      files.add(file);
+    }
+
+    service.saveFiles(sample, files, f -> f.getFileName().toString(), progression).join();
+
+    Path folder = configuration.getHome().folder(sample);
+    for (int i = 1; i <= 4; i++) {
+      assertFalse(Files.exists(files.get(i - 1)));
+      assertArrayEquals(("content " + i).getBytes(),
+          Files.readAllBytes(folder.resolve("sample_R" + i + ".fastq")));
+    }
+    verify(progression).accept("", 1.0);
+    verify(permissionEvaluator).hasPermission(any(), eq(sample), eq(WRITE));
+  }
+
+  @Test
+  public void saveFiles_TransferProgression() throws Throwable {
+    final Sample sample = repository.findById(1L).orElseThrow();
+    List<Path> files = new ArrayList<>();
+    Path file = temporaryFolder.resolve("sample_R1.fastq");
+    Files.copy(
+        Paths.get(Objects.requireNonNull(getClass().getResource("/sample/R1.fastq")).toURI()),
+        file);
+    files.add(file);
+    file = temporaryFolder.resolve("sample_R2.fastq");
+    Files.copy(
+        Paths.get(Objects.requireNonNull(getClass().getResource("/sample/R2.fastq")).toURI()),
+        file);
+    files.add(file);
+    final long size1 = Files.size(files.get(0));
+    final long size2 = Files.size(files.get(1));
+    TransferProgression transferProgression = mock(TransferProgression.class);
+
+    service.saveFiles(sample, files, f -> f.getFileName().toString(), transferProgression).join();
+
+    ArgumentCaptor<TransferProgress> progressCaptor =
+        ArgumentCaptor.forClass(TransferProgress.class);
+    verify(transferProgression, times(3)).transferred(progressCaptor.capture());
+    List<TransferProgress> progresses = progressCaptor.getAllValues();
+    assertEquals(0, progresses.get(0).bytes());
+    assertEquals(size1 + size2, progresses.get(0).totalBytes());
+    assertEquals(size1, progresses.get(1).bytes());
+    assertEquals(size1 + size2, progresses.get(1).totalBytes());
+    assertEquals(size1 + size2, progresses.get(2).bytes());
+    assertEquals(size1 + size2, progresses.get(2).totalBytes());
+    assertEquals(Duration.ZERO, progresses.get(2).remaining());
+  }
+
   @Test
   public void allowPublicFileAccess_NewFullPath() {
     Sample sample = repository.findById(9L).orElseThrow();
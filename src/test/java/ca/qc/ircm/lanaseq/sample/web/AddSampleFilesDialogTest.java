@@ -2,6 +2,7 @@ package ca.qc.ircm.lanaseq.sample.web;
 
 import static ca.qc.ircm.lanaseq.Constants.REFRESH;
 import static ca.qc.ircm.lanaseq.Constants.SAVE;
+import static ca.qc.ircm.lanaseq.Constants.TOO_MANY_JOBS;
 import static ca.qc.ircm.lanaseq.Constants.messagePrefix;
 import static ca.qc.ircm.lanaseq.sample.web.AddSampleFilesDialog.FILENAME;
 import static ca.qc.ircm.lanaseq.sample.web.AddSampleFilesDialog.FILES;
@@ -37,6 +38,8 @@ import ca.qc.ircm.lanaseq.AppConfiguration;
 import ca.qc.ircm.lanaseq.Constants;
 import ca.qc.ircm.lanaseq.DataWithFiles;
 import ca.qc.ircm.lanaseq.dataset.web.AddDatasetFilesDialog;
+import ca.qc.ircm.lanaseq.files.TransferProgress;
+import ca.qc.ircm.lanaseq.files.TransferProgression;
 import ca.qc.ircm.lanaseq.jobs.Job;
 import ca.qc.ircm.lanaseq.jobs.JobService;
 import ca.qc.ircm.lanaseq.sample.Sample;
@@ -45,6 +48,7 @@ import ca.qc.ircm.lanaseq.sample.SampleService;
 import ca.qc.ircm.lanaseq.test.config.ServiceTestAnnotations;
 import ca.qc.ircm.lanaseq.test.config.UserAgent;
 import ca.qc.ircm.lanaseq.web.SavedEvent;
+import ca.qc.ircm.lanaseq.web.WarningNotification;
 import com.vaadin.browserless.MetaKeys;
 import com.vaadin.browserless.SpringBrowserlessTest;
 import com.vaadin.flow.component.AbstractField.ComponentValueChangeEvent;
@@ -65,6 +69,7 @@ import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -86,6 +91,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.security.test.context.support.WithUserDetails;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 
@@ -495,6 +501,12 @@ public class AddSampleFilesDialogTest extends SpringBrowserlessTest {
     progressionCaptor.getValue().accept("test message", 0.35);
     assertEquals("test message", jobCaptor.getValue().message);
     assertEquals(0.35, jobCaptor.getValue().progress);
+    ((TransferProgression) progressionCaptor.getValue()).transferred(
+        new TransferProgress(35, 100, 12.5, Duration.ofSeconds(5)));
+    assertEquals(35, jobCaptor.getValue().bytes);
+    assertEquals(100, jobCaptor.getValue().totalBytes);
+    assertEquals(12.5, jobCaptor.getValue().throughput);
+    assertEquals(Duration.ofSeconds(5), jobCaptor.getValue().remaining);
     assertFalse(dialog.error.isVisible());
     Notification notification = $(Notification.class).first();
     assertEquals(dialog.getTranslation(MESSAGE_PREFIX + AddDatasetFilesDialog.SAVE_STARTED, 4,
@@ -580,6 +592,29 @@ public class AddSampleFilesDialogTest extends SpringBrowserlessTest {
     assertFalse(dialog.isOpened());
   }
 
+  @Test
+  public void save_TooManyJobs() {
+    when(service.files(any())).thenReturn(new ArrayList<>());
+    when(service.uploadFiles(any())).thenReturn(
+        files.subList(0, 2).stream().map(file -> folder.resolve(file.toPath()))
+            .collect(Collectors.toList()));
+    when(service.saveFiles(any(), any(), any(), any()))
+        .thenThrow(new TaskRejectedException("test"));
+    dialog.addSavedListener(savedListener);
+    Sample sample = repository.findById(1L).orElseThrow();
+    dialog.setSampleId(1L);
+    dialog.open();
+
+    dialog.save();
+
+    verify(service).saveFiles(eq(sample), any(), any(), any());
+    verify(jobService, never()).addJob(any());
+    WarningNotification notification = $(WarningNotification.class).first();
+    assertEquals(dialog.getTranslation(CONSTANTS_PREFIX + TOO_MANY_JOBS), notification.getText());
+    verify(savedListener, never()).onComponentEvent(any());
+    assertTrue(dialog.isOpened());
+  }
+
   @Test
   public void save_AsyncException() {
     when(service.files(any())).thenReturn(new ArrayList<>());
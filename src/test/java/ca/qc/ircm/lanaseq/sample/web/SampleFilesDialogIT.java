@@ -4,6 +4,7 @@ import static ca.qc.ircm.lanaseq.AppConfiguration.DELETED_FILENAME;
 import static ca.qc.ircm.lanaseq.Constants.messagePrefix;
 import static ca.qc.ircm.lanaseq.sample.web.SampleFilesDialog.FILES_SAVE;
 import static ca.qc.ircm.lanaseq.test.utils.VaadinTestUtils.editItem;
+import static ca.qc.ircm.lanaseq.test.utils.VaadinTestUtils.runPendingAccessTasks;
 import static ca.qc.ircm.lanaseq.time.TimeConverter.toInstant;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -91,6 +92,7 @@ public class SampleFilesDialogIT extends SpringBrowserlessTest {
     test(view.samples).select(1);
     test(view.files).click();
     SampleFilesDialog dialog = $(SampleFilesDialog.class).first();
+    waitForFiles(dialog);
     List<Span> labels = test(dialog.folders).find(Span.class).all();
     assertEquals(2, labels.size());
     assertEquals(configuration.getHome().label(sample, !SystemUtils.IS_OS_WINDOWS),
@@ -125,8 +127,9 @@ public class SampleFilesDialogIT extends SpringBrowserlessTest {
     test(view.samples).select(1);
     test(view.files).click();
     SampleFilesDialog dialog = $(SampleFilesDialog.class).first();
+    waitForFiles(dialog);
 
-    EditableFile editableFile = dialog.files.getListDataView().getItem(0);
+    EditableFile editableFile = dialog.files.getGenericDataView().getItem(0);
     EditorImpl<EditableFile> editor = (EditorImpl<EditableFile>) dialog.files.getEditor();
     editItem(editor, editableFile);
     dialog.filenameEdit.setValue(sample.getName() + "_R1.fastq");
@@ -152,6 +155,7 @@ public class SampleFilesDialogIT extends SpringBrowserlessTest {
     test(view.samples).select(1);
     test(view.files).click();
     SampleFilesDialog dialog = $(SampleFilesDialog.class).first();
+    waitForFiles(dialog);
     assertFalse(
         ((Checkbox) test(dialog.files).getCellComponent(0, dialog.publicFile.getKey())).getValue());
 
@@ -182,6 +186,7 @@ public class SampleFilesDialogIT extends SpringBrowserlessTest {
     test(view.samples).select(1);
     test(view.files).click();
     SampleFilesDialog dialog = $(SampleFilesDialog.class).first();
+    waitForFiles(dialog);
 
     test(test(dialog.files).getCellComponent(0, dialog.delete.getKey())).click();
 
@@ -204,6 +209,8 @@ public class SampleFilesDialogIT extends SpringBrowserlessTest {
     test(view.samples).select(1);
     test(view.files).click();
     SampleFilesDialog dialog = $(SampleFilesDialog.class).first();
+    waitForFiles(dialog);
+    assertEquals(0, test(dialog.files).size());
     Sample sample = repository.findById(10L).orElseThrow();
     Path home = configuration.getHome().folder(sample);
     Files.createDirectories(home);
@@ -211,9 +218,9 @@ public class SampleFilesDialogIT extends SpringBrowserlessTest {
     Files.copy(
         Paths.get(Objects.requireNonNull(getClass().getResource("/sample/R1.fastq")).toURI()),
         file1);
-    assertEquals(0, test(dialog.files).size());
 
     test(dialog.refresh).click();
+    waitForFiles(dialog);
 
     assertEquals(1, test(dialog.files).size());
     assertEquals(file1.getFileName().toString(),
@@ -259,4 +266,18 @@ public class SampleFilesDialogIT extends SpringBrowserlessTest {
         Files.readAllBytes(folder.resolve(file1.getFileName())));
     assertEquals(1, jobService.getJobs().size());
   }
+
+  /**
+   * Waits until files of all drives are listed and shown in dialog.
+   *
+   * @param dialog dialog
+   */
+  private void waitForFiles(SampleFilesDialog dialog) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10000;
+    runPendingAccessTasks();
+    while (dialog.loading.getComponentCount() > 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+      runPendingAccessTasks();
+    }
+  }
 }
@@ -6,6 +6,8 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import ca.qc.ircm.lanaseq.AppConfiguration;
+import ca.qc.ircm.lanaseq.jobs.Job;
+import ca.qc.ircm.lanaseq.jobs.JobService;
 import ca.qc.ircm.lanaseq.sample.Sample;
 import ca.qc.ircm.lanaseq.sample.SampleRepository;
 import ca.qc.ircm.lanaseq.test.config.ServiceTestAnnotations;
@@ -19,6 +21,8 @@ import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -35,8 +39,15 @@ public class SamplesAnalysisDialogIT extends SpringBrowserlessTest {
   private SampleRepository repository;
   @Autowired
   private AppConfiguration configuration;
+  @Autowired
+  private JobService jobService;
   private final Random random = new Random();
 
+  @AfterEach
+  public void afterTest() {
+    jobService.getJobs().forEach(jobService::removeJob);
+  }
+
   private byte[] writeFile(Path file) throws IOException {
     byte[] bytes = new byte[2048];
     random.nextBytes(bytes);
@@ -61,6 +72,7 @@ public class SamplesAnalysisDialogIT extends SpringBrowserlessTest {
         new CustomValueSetEvent<>(dialog.filenamePatterns, false, "*.fastq"));
 
     test(dialog.createFolder).click();
+    waitForJobs();
 
     assertTrue(dialog.isOpened());
     test($(ConfirmDialog.class).first()).confirm();
@@ -110,6 +122,7 @@ public class SamplesAnalysisDialogIT extends SpringBrowserlessTest {
         new CustomValueSetEvent<>(dialog.filenamePatterns, false, "*.fastq"));
 
     test(dialog.createFolder).click();
+    waitForJobs();
 
     assertTrue(dialog.isOpened());
     test($(ConfirmDialog.class).first()).confirm();
@@ -159,6 +172,7 @@ public class SamplesAnalysisDialogIT extends SpringBrowserlessTest {
     SamplesAnalysisDialog dialog = $(SamplesAnalysisDialog.class).first();
 
     test(dialog.createFolder).click();
+    waitForJobs();
 
     assertTrue(dialog.isOpened());
     test($(ConfirmDialog.class).first()).confirm();
@@ -178,4 +192,13 @@ public class SamplesAnalysisDialogIT extends SpringBrowserlessTest {
     Path datasetMeta = folder.resolve("dataset.txt");
     assertFalse(Files.exists(datasetMeta));
   }
+
+  /**
+   * Waits until analysis files are copied.
+   */
+  private void waitForJobs() throws Exception {
+    for (Job job : jobService.getJobs()) {
+      job.future.get(10, TimeUnit.SECONDS);
+    }
+  }
 }
@@ -1,52 +1,73 @@
 package ca.qc.ircm.lanaseq.sample.web;
 
 import static ca.qc.ircm.lanaseq.Constants.CONFIRM;
+import static ca.qc.ircm.lanaseq.Constants.TOO_MANY_JOBS;
 import static ca.qc.ircm.lanaseq.Constants.messagePrefix;
 import static ca.qc.ircm.lanaseq.sample.web.SamplesAnalysisDialog.CREATE_FOLDER;
 import static ca.qc.ircm.lanaseq.sample.web.SamplesAnalysisDialog.CREATE_FOLDER_EXCEPTION;
+import static ca.qc.ircm.lanaseq.sample.web.SamplesAnalysisDialog.CREATE_FOLDER_STARTED;
+import static ca.qc.ircm.lanaseq.sample.web.SamplesAnalysisDialog.DOWNLOAD;
 import static ca.qc.ircm.lanaseq.sample.web.SamplesAnalysisDialog.ERRORS;
 import static ca.qc.ircm.lanaseq.sample.web.SamplesAnalysisDialog.FILENAME_PATTERNS;
+import static ca.qc.ircm.lanaseq.sample.web.SamplesAnalysisDialog.FILENAME_PATTERNS_INVALID;
 import static ca.qc.ircm.lanaseq.sample.web.SamplesAnalysisDialog.HEADER;
 import static ca.qc.ircm.lanaseq.sample.web.SamplesAnalysisDialog.ID;
 import static ca.qc.ircm.lanaseq.sample.web.SamplesAnalysisDialog.MESSAGE;
 import static ca.qc.ircm.lanaseq.sample.web.SamplesAnalysisDialog.id;
 import static ca.qc.ircm.lanaseq.test.utils.VaadinTestUtils.fireEvent;
+import static ca.qc.ircm.lanaseq.test.utils.VaadinTestUtils.runPendingAccessTasks;
+import static ca.qc.ircm.lanaseq.test.utils.VaadinTestUtils.validateIcon;
 import static ca.qc.ircm.lanaseq.text.Strings.property;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import ca.qc.ircm.lanaseq.AppConfiguration;
+import ca.qc.ircm.lanaseq.Constants;
 import ca.qc.ircm.lanaseq.DataWithFiles;
 import ca.qc.ircm.lanaseq.analysis.AnalysisService;
+import ca.qc.ircm.lanaseq.files.TransferProgress;
+import ca.qc.ircm.lanaseq.files.TransferProgression;
+import ca.qc.ircm.lanaseq.jobs.Job;
+import ca.qc.ircm.lanaseq.jobs.JobService;
 import ca.qc.ircm.lanaseq.sample.Sample;
 import ca.qc.ircm.lanaseq.sample.SampleRepository;
 import ca.qc.ircm.lanaseq.sample.SampleService;
 import ca.qc.ircm.lanaseq.test.config.ServiceTestAnnotations;
 import ca.qc.ircm.lanaseq.test.config.UserAgent;
+import ca.qc.ircm.lanaseq.web.WarningNotification;
 import com.vaadin.browserless.SpringBrowserlessTest;
 import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.button.Button;
 import com.vaadin.flow.component.button.ButtonVariant;
 import com.vaadin.flow.component.confirmdialog.ConfirmDialog;
-import java.io.IOException;
+import com.vaadin.flow.component.icon.VaadinIcon;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.PatternSyntaxException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.security.test.context.support.WithUserDetails;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 
@@ -58,6 +79,7 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 public class SamplesAnalysisDialogTest extends SpringBrowserlessTest {
 
   private static final String MESSAGE_PREFIX = messagePrefix(SamplesAnalysisDialog.class);
+  private static final String CONSTANTS_PREFIX = messagePrefix(Constants.class);
   private SamplesAnalysisDialog dialog;
   @MockitoBean
   private SampleService service;
@@ -69,6 +91,13 @@ public class SamplesAnalysisDialogTest extends SpringBrowserlessTest {
   private SampleRepository repository;
   @Captor
   private ArgumentCaptor<Collection<String>> filenamePatternsCaptor;
+  @MockitoBean
+  private JobService jobService;
+  @Captor
+  private ArgumentCaptor<Job> jobCaptor;
+  @Captor
+  private ArgumentCaptor<TransferProgression> progressionCaptor;
+  private final CompletableFuture<Path> future = new CompletableFuture<>();
   private final Locale locale = Locale.ENGLISH;
   private final List<Sample> samples = new ArrayList<>();
 
@@ -82,6 +111,8 @@ public class SamplesAnalysisDialogTest extends SpringBrowserlessTest {
     @SuppressWarnings("unchecked") AppConfiguration.NetworkDrive<Collection<? extends DataWithFiles>> analysisFolder = mock(
         AppConfiguration.NetworkDrive.class);
     when(configuration.getAnalysis()).thenReturn(analysisFolder);
+    when(analysisService.copySamplesResources(anyCollection(), anyCollection(), any()))
+        .thenReturn(future);
     samples.add(repository.findById(10L).orElseThrow());
     samples.add(repository.findById(11L).orElseThrow());
     UI.getCurrent().setLocale(locale);
@@ -97,6 +128,7 @@ public class SamplesAnalysisDialogTest extends SpringBrowserlessTest {
     assertTrue(test(dialog.message).isUsable());
     assertTrue(test(dialog.filenamePatterns).isUsable());
     assertTrue(test(dialog.createFolder).isUsable());
+    assertTrue(test(dialog.download).isUsable());
   }
 
   @Test
@@ -107,6 +139,11 @@ public class SamplesAnalysisDialogTest extends SpringBrowserlessTest {
     assertEquals(id(CREATE_FOLDER), dialog.createFolder.getId().orElse(""));
     assertTrue(
         dialog.createFolder.getThemeNames().contains(ButtonVariant.LUMO_PRIMARY.getVariantName()));
+    assertEquals(id(DOWNLOAD), dialog.download.getId().orElse(""));
+    assertTrue(dialog.download.getElement().hasAttribute("download"));
+    assertEquals("", dialog.download.getElement().getAttribute("download"));
+    assertEquals(dialog.downloadButton, test(dialog.download).find(Button.class).first());
+    validateIcon(VaadinIcon.DOWNLOAD.create(), dialog.downloadButton.getIcon());
     assertEquals(id(CONFIRM), dialog.confirm.getId().orElse(""));
     assertEquals(id(ERRORS), dialog.errors.getId().orElse(""));
   }
@@ -120,6 +157,8 @@ public class SamplesAnalysisDialogTest extends SpringBrowserlessTest {
         dialog.filenamePatterns.getHelperText());
     assertEquals(dialog.getTranslation(MESSAGE_PREFIX + CREATE_FOLDER),
         dialog.createFolder.getText());
+    assertEquals(dialog.getTranslation(MESSAGE_PREFIX + DOWNLOAD),
+        dialog.downloadButton.getText());
     assertEquals(dialog.getTranslation(MESSAGE_PREFIX + CONFIRM),
         dialog.confirm.getElement().getProperty("header"));
     assertEquals(dialog.getTranslation(MESSAGE_PREFIX + property(CONFIRM, CONFIRM)),
@@ -141,6 +180,8 @@ public class SamplesAnalysisDialogTest extends SpringBrowserlessTest {
         dialog.filenamePatterns.getHelperText());
     assertEquals(dialog.getTranslation(MESSAGE_PREFIX + CREATE_FOLDER),
         dialog.createFolder.getText());
+    assertEquals(dialog.getTranslation(MESSAGE_PREFIX + DOWNLOAD),
+        dialog.downloadButton.getText());
     assertEquals(dialog.getTranslation(MESSAGE_PREFIX + CONFIRM),
         dialog.confirm.getElement().getProperty("header"));
     assertEquals(dialog.getTranslation(MESSAGE_PREFIX + property(CONFIRM, CONFIRM)),
@@ -160,7 +201,8 @@ public class SamplesAnalysisDialogTest extends SpringBrowserlessTest {
 
     dialog.createFolder.click();
 
-    verify(analysisService).copySamplesResources(eq(samples), filenamePatternsCaptor.capture());
+    verify(analysisService).copySamplesResources(eq(samples), filenamePatternsCaptor.capture(),
+        progressionCaptor.capture());
     assertEquals(2, filenamePatternsCaptor.getValue().size());
     assertTrue(filenamePatternsCaptor.getValue().contains("*.fastq"));
     assertTrue(filenamePatternsCaptor.getValue().contains("*.bam"));
@@ -181,7 +223,8 @@ public class SamplesAnalysisDialogTest extends SpringBrowserlessTest {
 
     dialog.createFolder.click();
 
-    verify(analysisService).copySamplesResources(eq(samples), filenamePatternsCaptor.capture());
+    verify(analysisService).copySamplesResources(eq(samples), filenamePatternsCaptor.capture(),
+        progressionCaptor.capture());
     assertEquals(1, filenamePatternsCaptor.getValue().size());
     assertTrue(filenamePatternsCaptor.getValue().contains("*.fastq"));
     verify(configuration.getAnalysis()).label(samples, true);
@@ -201,7 +244,8 @@ public class SamplesAnalysisDialogTest extends SpringBrowserlessTest {
 
     dialog.createFolder.click();
 
-    verify(analysisService).copySamplesResources(eq(samples), filenamePatternsCaptor.capture());
+    verify(analysisService).copySamplesResources(eq(samples), filenamePatternsCaptor.capture(),
+        progressionCaptor.capture());
     assertEquals(1, filenamePatternsCaptor.getValue().size());
     assertTrue(filenamePatternsCaptor.getValue().contains("*.fastq"));
     verify(configuration.getAnalysis()).label(samples, true);
@@ -213,14 +257,59 @@ public class SamplesAnalysisDialogTest extends SpringBrowserlessTest {
   }
 
   @Test
-  public void createFolder_IoException() throws Throwable {
-    doThrow(new IOException("test")).when(analysisService)
-        .copySamplesResources(anyCollection(), anyCollection());
+  public void createFolder_Job() throws Throwable {
+    String folder = "test/sample";
+    when(configuration.getAnalysis().label(anyCollection(), anyBoolean())).thenReturn(folder);
+    dialog.filenamePatterns.setValue("*.fastq");
+
+    dialog.createFolder.click();
+
+    verify(analysisService).copySamplesResources(eq(samples), filenamePatternsCaptor.capture(),
+        progressionCaptor.capture());
+    verify(jobService).addJob(jobCaptor.capture());
+    Job job = jobCaptor.getValue();
+    assertSame(future, job.future);
+    assertEquals(3, job.owner.getId());
+    assertEquals(dialog.getTranslation(MESSAGE_PREFIX + CREATE_FOLDER_STARTED, folder), job.title);
+    assertTrue(job.cancellable);
+    progressionCaptor.getValue().accept("test message", 0.35);
+    assertEquals("test message", job.message);
+    assertEquals(0.35, job.progress);
+    progressionCaptor.getValue().transferred(
+        new TransferProgress(35, 100, 12.5, Duration.ofSeconds(5)));
+    assertEquals(35, job.bytes);
+    assertEquals(100, job.totalBytes);
+    assertFalse(progressionCaptor.getValue().isCancelled());
+    future.cancel(true);
+    assertTrue(progressionCaptor.getValue().isCancelled());
+    runPendingAccessTasks();
+    assertTrue(dialog.confirm.isOpened());
+    assertFalse(dialog.errors.isOpened());
+  }
+
+  @Test
+  public void createFolder_Completed() throws Throwable {
     dialog.filenamePatterns.setValue("*.fastq");
+    dialog.createFolder.click();
+
+    future.complete(Path.of("test"));
+    runPendingAccessTasks();
 
+    assertTrue(dialog.confirm.isOpened());
+    assertFalse(dialog.errors.isOpened());
+  }
+
+  @Test
+  public void createFolder_Failed() throws Throwable {
+    dialog.filenamePatterns.setValue("*.fastq");
     dialog.createFolder.click();
+    assertTrue(dialog.confirm.isOpened());
+
+    future.completeExceptionally(new IllegalStateException("test"));
+    runPendingAccessTasks();
 
-    verify(analysisService).copySamplesResources(eq(samples), filenamePatternsCaptor.capture());
+    verify(analysisService).copySamplesResources(eq(samples), filenamePatternsCaptor.capture(),
+        progressionCaptor.capture());
     assertEquals(1, filenamePatternsCaptor.getValue().size());
     assertTrue(filenamePatternsCaptor.getValue().contains("*.fastq"));
     assertFalse(dialog.confirm.isOpened());
@@ -230,6 +319,70 @@ public class SamplesAnalysisDialogTest extends SpringBrowserlessTest {
     assertTrue(dialog.isOpened());
   }
 
+  @Test
+  public void createFolder_TooManyJobs() throws Throwable {
+    when(analysisService.copySamplesResources(anyCollection(), anyCollection(), any()))
+        .thenThrow(new TaskRejectedException("test"));
+    dialog.filenamePatterns.setValue("*.fastq");
+
+    dialog.createFolder.click();
+
+    verify(jobService, never()).addJob(any());
+    WarningNotification notification = $(WarningNotification.class).first();
+    assertEquals(dialog.getTranslation(CONSTANTS_PREFIX + TOO_MANY_JOBS), notification.getText());
+    assertFalse(dialog.confirm.isOpened());
+    assertFalse(dialog.errors.isOpened());
+    assertTrue(dialog.isOpened());
+  }
+  @Test
+  public void createFolder_InvalidFilenamePatterns() throws Throwable {
+    doThrow(new PatternSyntaxException("Missing '}", "^[^/]*\\.\\{bam$", 11))
+        .when(analysisService).validateSamplesResources(anyCollection(), anyCollection());
+    dialog.filenamePatterns.setValue("*.{bam");
+
+    dialog.createFolder.click();
+
+    verify(analysisService).validateSamplesResources(eq(samples), filenamePatternsCaptor.capture());
+    assertEquals(1, filenamePatternsCaptor.getValue().size());
+    assertTrue(filenamePatternsCaptor.getValue().contains("*.{bam"));
+    verify(analysisService, never()).copySamplesResources(any(), any(), any());
+    verify(jobService, never()).addJob(any());
+    assertFalse(dialog.confirm.isOpened());
+    assertEquals(dialog.getTranslation(MESSAGE_PREFIX + FILENAME_PATTERNS_INVALID, "*.{bam"),
+        test(dialog.errors).getText());
+    assertTrue(dialog.errors.isOpened());
+    assertTrue(dialog.isOpened());
+  }
+
+  @Test
+  public void createFolder_Invalid() throws Throwable {
+    doThrow(new IllegalArgumentException("test")).when(analysisService)
+        .validateSamplesResources(anyCollection(), anyCollection());
+    dialog.filenamePatterns.setValue("*.fastq");
+
+    dialog.createFolder.click();
+
+    verify(analysisService, never()).copySamplesResources(any(), any(), any());
+    verify(jobService, never()).addJob(any());
+    assertFalse(dialog.confirm.isOpened());
+    assertEquals(dialog.getTranslation(MESSAGE_PREFIX + CREATE_FOLDER_EXCEPTION),
+        test(dialog.errors).getText());
+    assertTrue(dialog.errors.isOpened());
+    assertTrue(dialog.isOpened());
+  }
+
+
+  @Test
+  public void download() {
+    assertEquals("analysis-archive/samples?id=10&id=11", dialog.download.getHref());
+  }
+
+  @Test
+  public void download_FilenamePatterns() {
+    dialog.filenamePatterns.setValue("*.fastq");
+    assertEquals("analysis-archive/samples?id=10&id=11&pattern=*.fastq", dialog.download.getHref());
+  }
+
   @Test
   public void closeOnConfirm() {
     fireEvent(dialog.confirm, new ConfirmDialog.ConfirmEvent(dialog.confirm, false));
@@ -255,6 +408,7 @@ public class SamplesAnalysisDialogTest extends SpringBrowserlessTest {
   public void setSampleId() {
     Sample sample = repository.findById(10L).orElseThrow();
     dialog.setSampleId(10L);
+    assertEquals("analysis-archive/samples?id=10", dialog.download.getHref());
     assertEquals(dialog.getTranslation(MESSAGE_PREFIX + HEADER, 1, sample.getName()),
         dialog.getHeaderTitle());
   }
@@ -27,6 +27,7 @@ import com.vaadin.flow.data.renderer.BasicRenderer;
 import com.vaadin.flow.data.renderer.LitRenderer;
 import com.vaadin.flow.function.SerializableBiConsumer;
 import com.vaadin.flow.function.ValueProvider;
+import com.vaadin.flow.server.VaadinSession;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -270,6 +271,16 @@ public class VaadinTestUtils {
     }
   }
 
+  /**
+   * Runs tasks that were queued using {@link com.vaadin.flow.component.UI#access}.
+   *
+   * <p>Test thread holds the lock on session, so queued tasks are never run otherwise.</p>
+   */
+  public static void runPendingAccessTasks() {
+    VaadinSession session = VaadinSession.getCurrent();
+    session.getService().runPendingAccessTasks(session);
+  }
+
   public static Optional<BindingValidationStatus<?>> findValidationStatusByField(
       BinderValidationStatus<?> statuses, HasValue<?, ?> field) {
     return findValidationStatusByField(statuses.getFieldValidationErrors(), field);